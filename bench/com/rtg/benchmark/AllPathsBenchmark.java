@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.variant.MachineErrorParamsBuilder;
+import com.rtg.variant.realign.AllPaths;
+import com.rtg.variant.realign.Environment;
+import com.rtg.variant.realign.EnvironmentImplementation;
+import com.rtg.variant.realign.RealignParamsImplementation;
+import com.rtg.variant.realign.ScoreFastUnderflow;
+
+/**
+ * Cost of the all paths read against hypothesis scoring used by the complex caller.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllPathsBenchmark {
+
+  private static final int TEMPLATE_LENGTH = 10000;
+  private static final int NUMBER_READS = 256;
+  private static final int MAX_SHIFT = 5;
+
+  @Param({"100", "150"})
+  private int mReadLength;
+
+  private AllPaths mScore;
+  private Environment[] mEnvironments;
+  private int mNext;
+
+  /**
+   * Create the scorer and the simulated read environments.
+   */
+  @Setup
+  public void setup() {
+    mScore = new ScoreFastUnderflow(new RealignParamsImplementation(new MachineErrorParamsBuilder().create()));
+    final byte[] template = BenchmarkData.template(new PortableRandom(BenchmarkData.SEED), TEMPLATE_LENGTH);
+    final BenchmarkData.SimulatedReads reads = BenchmarkData.reads(template, NUMBER_READS, mReadLength, MAX_SHIFT);
+    mEnvironments = new Environment[NUMBER_READS];
+    for (int i = 0; i < NUMBER_READS; ++i) {
+      mEnvironments[i] = new EnvironmentImplementation(MAX_SHIFT, template, reads.starts()[i], reads.reads()[i], BenchmarkData.errors(reads.qualities()[i]));
+    }
+  }
+
+  /**
+   * @return total score of the next read.
+   */
+  @Benchmark
+  public double score() {
+    final int i = mNext;
+    mNext = (i + 1) % NUMBER_READS;
+    mScore.setEnv(mEnvironments[i]);
+    return mScore.totalScoreLn();
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.rtg.mode.DNA;
+import com.rtg.reader.SdfId;
+import com.rtg.simulation.reads.IlluminaSingleEndMachine;
+import com.rtg.simulation.reads.ReadWriter;
+import com.rtg.util.InvalidParamsException;
+import com.rtg.util.PortableRandom;
+
+/**
+ * Templates and simulated reads used as benchmark fixtures.
+ * Everything is generated from a fixed seed so that runs on different releases see identical inputs.
+ * Nucleotides are encoded as in <code>DNA</code>, with 1 to 4 for A, C, G, T.
+ */
+public final class BenchmarkData {
+
+  /** Seed used by all fixtures. */
+  public static final long SEED = 42;
+
+  private static final byte MIN_QUALITY = 2;
+  private static final byte MAX_QUALITY = 40;
+
+  private BenchmarkData() { }
+
+  /**
+   * @param random source of randomness.
+   * @param length number of nucleotides.
+   * @return a random template.
+   */
+  public static byte[] template(final PortableRandom random, final int length) {
+    final byte[] template = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      template[i] = (byte) (1 + random.nextInt(4));
+    }
+    return template;
+  }
+
+  /**
+   * Reads simulated from a template, oriented to the forward strand of the template.
+   */
+  public static final class SimulatedReads implements ReadWriter {
+    private final byte[][] mReads;
+    private final byte[][] mQualities;
+    private final int[] mStarts;
+    private final int mReadLength;
+    private byte[] mFragment;
+    private int mFragmentStart;
+    private int mCount = 0;
+
+    private SimulatedReads(final int number, final int readLength) {
+      mReads = new byte[number][];
+      mQualities = new byte[number][];
+      mStarts = new int[number];
+      mReadLength = readLength;
+    }
+
+    /** @return the reads */
+    public byte[][] reads() {
+      return mReads;
+    }
+
+    /** @return the phred scaled quality of each base of each read */
+    public byte[][] qualities() {
+      return mQualities;
+    }
+
+    /** @return the zero based start position of each read on the template */
+    public int[] starts() {
+      return mStarts;
+    }
+
+    @Override
+    public void identifyTemplateSet(final SdfId... templateIds) { }
+
+    @Override
+    public void identifyOriginalReference(final SdfId referenceId) { }
+
+    @Override
+    public void writeRead(final String name, final byte[] data, final byte[] qual, final int length) {
+      if (length != mReadLength || mCount == mReads.length) {
+        return;
+      }
+      final byte[] read = Arrays.copyOf(data, length);
+      final byte[] quality = Arrays.copyOf(qual, length);
+      // The machine samples either strand of the fragment, which is the same length as the read
+      if (matches(read, false) < matches(read, true)) {
+        DNA.reverseComplementInPlace(read, 0, length);
+        reverse(quality);
+      }
+      mReads[mCount] = read;
+      mQualities[mCount] = quality;
+      mStarts[mCount] = mFragmentStart;
+      ++mCount;
+    }
+
+    @Override
+    public void writeLeftRead(final String name, final byte[] data, final byte[] qual, final int length) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeRightRead(final String name, final byte[] data, final byte[] qual, final int length) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int readsWritten() {
+      return mCount;
+    }
+
+    @Override
+    public void close() { }
+
+    private int matches(final byte[] read, final boolean reverse) {
+      int matches = 0;
+      for (int i = 0; i < read.length; ++i) {
+        final byte t = mFragment[reverse ? read.length - 1 - i : i];
+        if (read[i] == (reverse ? DNA.complement(t) : t)) {
+          ++matches;
+        }
+      }
+      return matches;
+    }
+
+    private static void reverse(final byte[] a) {
+      for (int i = 0, j = a.length - 1; i < j; ++i, --j) {
+        final byte t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+      }
+    }
+  }
+
+  /**
+   * Simulate reads from a template with the default Illumina error profile of the read simulator.
+   * @param template template to sample from.
+   * @param number number of reads.
+   * @param readLength length of each read.
+   * @param margin minimum distance of a read from either end of the template.
+   * @return the reads.
+   */
+  public static SimulatedReads reads(final byte[] template, final int number, final int readLength, final int margin) {
+    final SimulatedReads reads = new SimulatedReads(number, readLength);
+    try {
+      final IlluminaSingleEndMachine machine = new IlluminaSingleEndMachine(SEED);
+      machine.setReadLength(readLength);
+      machine.setQualRange(MIN_QUALITY, MAX_QUALITY);
+      machine.setReadWriter(reads);
+      final PortableRandom random = new PortableRandom(SEED);
+      while (reads.readsWritten() < number) {
+        reads.mFragmentStart = margin + random.nextInt(template.length - readLength - 2 * margin);
+        reads.mFragment = Arrays.copyOfRange(template, reads.mFragmentStart, reads.mFragmentStart + readLength);
+        machine.processFragment("benchmark/", reads.mFragmentStart, reads.mFragment, readLength);
+      }
+    } catch (final IOException | InvalidParamsException e) {
+      throw new IllegalStateException(e);
+    }
+    return reads;
+  }
+
+  /**
+   * @param quality phred scaled qualities.
+   * @return the error probability of each base.
+   */
+  public static double[] errors(final byte[] quality) {
+    final double[] errors = new double[quality.length];
+    for (int i = 0; i < quality.length; ++i) {
+      errors[i] = Math.pow(10, -quality[i] / 10.0);
+    }
+    return errors;
+  }
+}
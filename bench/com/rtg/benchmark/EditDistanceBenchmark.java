@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rtg.alignment.GotohEditDistance;
+import com.rtg.alignment.SingleIndelEditDistance;
+import com.rtg.alignment.UnidirectionalEditDistance;
+import com.rtg.ngs.NgsParams;
+import com.rtg.ngs.NgsParamsBuilder;
+import com.rtg.util.PortableRandom;
+
+/**
+ * Throughput of the edit distance implementations used to align reads during mapping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditDistanceBenchmark {
+
+  private static final int TEMPLATE_LENGTH = 100000;
+  private static final int NUMBER_READS = 1024;
+  private static final int MAX_SHIFT = 7;
+
+  @Param({"gotoh", "singleindel"})
+  private String mAligner;
+
+  @Param({"100", "150"})
+  private int mReadLength;
+
+  private UnidirectionalEditDistance mEditDistance;
+  private byte[] mTemplate;
+  private byte[][] mReads;
+  private int[] mStarts;
+  private int mNext;
+
+  /**
+   * Create the aligner and the simulated reads.
+   */
+  @Setup
+  public void setup() {
+    final NgsParams params = new NgsParamsBuilder().gapOpenPenalty(19).gapExtendPenalty(1).substitutionPenalty(9).unknownsPenalty(5).create();
+    switch (mAligner) {
+      case "gotoh":
+        mEditDistance = new GotohEditDistance(params);
+        break;
+      case "singleindel":
+        mEditDistance = new SingleIndelEditDistance(params, mReadLength);
+        break;
+      default:
+        throw new IllegalArgumentException(mAligner);
+    }
+    mTemplate = BenchmarkData.template(new PortableRandom(BenchmarkData.SEED), TEMPLATE_LENGTH);
+    final BenchmarkData.SimulatedReads reads = BenchmarkData.reads(mTemplate, NUMBER_READS, mReadLength, MAX_SHIFT);
+    mReads = reads.reads();
+    mStarts = reads.starts();
+  }
+
+  /**
+   * @return the alignment of the next read.
+   */
+  @Benchmark
+  public int[] align() {
+    final int i = mNext;
+    mNext = (i + 1) % NUMBER_READS;
+    return mEditDistance.calculateEditDistance(mReads[i], mReadLength, mTemplate, mStarts[i], Integer.MAX_VALUE, MAX_SHIFT, true);
+  }
+}
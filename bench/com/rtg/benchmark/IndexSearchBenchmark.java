@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rtg.index.Finder;
+import com.rtg.index.IndexCompressed;
+import com.rtg.index.UnfilteredFilterMethod;
+import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
+
+/**
+ * Cost of searching the read index with template hashes, about half of which are present.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexSearchBenchmark {
+
+  private static final int HASH_BITS = 36;
+  private static final int NUMBER_QUERIES = 4096;
+
+  @Param({"1000000"})
+  private int mSize;
+
+  private IndexCompressed mIndex;
+  private long[] mQueries;
+  private int mNext;
+
+  private static final class CountingFinder extends Finder {
+    int mCount = 0;
+    @Override
+    public boolean found(long id) {
+      ++mCount;
+      return true;
+    }
+  }
+
+  private final CountingFinder mFinder = new CountingFinder();
+
+  /**
+   * Build and freeze the index.
+   */
+  @Setup
+  public void setup() {
+    final PortableRandom random = new PortableRandom(BenchmarkData.SEED);
+    final long mask = (1L << HASH_BITS) - 1;
+    final long[] hashes = new long[mSize];
+    for (int i = 0; i < mSize; ++i) {
+      hashes[i] = random.nextLong() & mask;
+    }
+    mIndex = new IndexCompressed(new CreateParams(mSize, HASH_BITS, HASH_BITS, 31, true, true, false, false), new UnfilteredFilterMethod(), 1);
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int i = 0; i < mSize; ++i) {
+        mIndex.add(hashes[i], i);
+      }
+      mIndex.freeze();
+    }
+    mQueries = new long[NUMBER_QUERIES];
+    for (int i = 0; i < NUMBER_QUERIES; ++i) {
+      mQueries[i] = (i & 1) == 0 ? hashes[random.nextInt(mSize)] : random.nextLong() & mask;
+    }
+  }
+
+  /**
+   * @return number of hits for the next query.
+   * @throws IOException never for an in memory index.
+   */
+  @Benchmark
+  public int search() throws IOException {
+    final int i = mNext;
+    mNext = (i + 1) % NUMBER_QUERIES;
+    mFinder.mCount = 0;
+    mIndex.search(mQueries[i], mFinder);
+    return mFinder.mCount;
+  }
+}
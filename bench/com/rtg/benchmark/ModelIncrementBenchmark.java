@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.variant.GenomePriorParams;
+import com.rtg.variant.bayes.Description;
+import com.rtg.variant.bayes.EvidenceInterface;
+import com.rtg.variant.bayes.Model;
+import com.rtg.variant.bayes.NoAlleleBalance;
+import com.rtg.variant.bayes.snp.DescriptionSnp;
+import com.rtg.variant.bayes.snp.EvidenceQ;
+import com.rtg.variant.bayes.snp.HypothesesSnp;
+import com.rtg.variant.bayes.snp.StatisticsSnp;
+import com.rtg.variant.util.arithmetic.LogApproximatePossibility;
+
+/**
+ * Cost of accumulating read evidence into a SNP model, one pileup column per invocation.
+ * The model is created inside the benchmark so allocation per column is included in the GC profile.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelIncrementBenchmark {
+
+  private static final int COVERAGE = 50;
+  private static final int NUMBER_COLUMNS = 256;
+
+  private HypothesesSnp mHypotheses;
+  private EvidenceInterface[][] mColumns;
+  private int mNext;
+
+  /**
+   * Create the hypotheses and synthetic evidence.
+   */
+  @Setup
+  public void setup() {
+    mHypotheses = new HypothesesSnp(LogApproximatePossibility.SINGLETON, GenomePriorParams.builder().create(), false, 0);
+    final PortableRandom random = new PortableRandom(BenchmarkData.SEED);
+    mColumns = new EvidenceInterface[NUMBER_COLUMNS][COVERAGE];
+    for (int c = 0; c < NUMBER_COLUMNS; ++c) {
+      // Mix of homozygous reference, heterozygous and homozygous variant columns
+      final int alt = 1 + random.nextInt(3);
+      final double altFraction = (c % 3) * 0.5;
+      for (int i = 0; i < COVERAGE; ++i) {
+        final int base = random.nextDouble() < altFraction ? alt : 0;
+        final double q = 0.001 + 0.05 * random.nextDouble();
+        mColumns[c][i] = new EvidenceQ(DescriptionSnp.SINGLETON, base, 0.01, q, random.nextBoolean(), true, true, false);
+      }
+    }
+  }
+
+  /**
+   * @return the model for the next column.
+   */
+  @Benchmark
+  @OperationsPerInvocation(COVERAGE)
+  public Model<Description> increment() {
+    final int c = mNext;
+    mNext = (c + 1) % NUMBER_COLUMNS;
+    final Model<Description> model = new Model<>(mHypotheses, new StatisticsSnp(mHypotheses.description()), new NoAlleleBalance());
+    for (final EvidenceInterface evidence : mColumns[c]) {
+      model.increment(evidence);
+    }
+    return model;
+  }
+}
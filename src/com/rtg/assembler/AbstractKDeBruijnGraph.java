@@ -19,7 +19,9 @@ import com.rtg.index.IndexCompressed;
 import com.rtg.index.IndexExtended;
 import com.rtg.index.UnfilteredFilterMethod;
 import com.rtg.index.params.CreateParams;
+import com.rtg.util.Histogram;
 import com.rtg.util.MathUtils;
+import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.array.bitindex.BitIndex;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.diagnostic.ErrorType;
@@ -31,17 +33,26 @@ import com.rtg.util.iterators.IteratorHelper;
  */
 @TestClass("com.rtg.assembler.LowKDeBruijnGraphTest")
 public abstract class AbstractKDeBruijnGraph implements DeBruijnGraph {
+  /** Minimum number of index entries given to each thread when computing the frequency histogram */
+  private static final long MIN_HISTOGRAM_RANGE = 1 << 16;
+
   protected final IndexExtended mIndex;
   final int mKmerSize;
   protected int mThreshold = 0;
   private final BitIndex mBitIndex;
+  private final int mNumberThreads;
 
   @Override
   public long bytes() {
     return mIndex.bytes() + mBitIndex.bytes();
   }
   AbstractKDeBruijnGraph(KmerIterableFactoryInterface factory, final long size, final int kmerSize) {
+    this(factory, size, kmerSize, 1);
+  }
+
+  AbstractKDeBruijnGraph(KmerIterableFactoryInterface factory, final long size, final int kmerSize, final int numberThreads) {
     mKmerSize = kmerSize;
+    mNumberThreads = numberThreads;
     final OneShotTimer init = new OneShotTimer("DeBruijn_initial");
     final IndexExtended initialIndex = buildInitialIndex(factory, size, kmerSize);
     final long initialSize = initialIndex.bytes();
@@ -56,15 +67,28 @@ public abstract class AbstractKDeBruijnGraph implements DeBruijnGraph {
   IndexExtended buildInitialIndex(KmerIterableFactoryInterface factory, final long size, final int kmerSize) {
     final int bits = 2 * kmerSize;
     final CreateParams params = new CreateParams(size, bits, bits, 0, true, false, true, true);
-    final IndexExtended initialIndex = new IndexCompressed(params, new UnfilteredFilterMethod(), 1);
+    ConcurrentAdd concurrent = null;
+    IndexCompressed initialIndex = null;
+    if (mNumberThreads > 1 && this instanceof ConcurrentAdd) {
+      initialIndex = new IndexCompressed(params, new UnfilteredFilterMethod(), mNumberThreads);
+      if (!initialIndex.supportsConcurrentAdd()) {
+        initialIndex = null; // Also not safe for parallel sorting
+      }
+    }
+    if (initialIndex != null) {
+      initialIndex.enableConcurrentAdd();
+      concurrent = (ConcurrentAdd) this;
+    } else {
+      initialIndex = new IndexCompressed(params, new UnfilteredFilterMethod(), 1);
+    }
     Diagnostic.developerLog(initialIndex.infoString());
     try (KmerIterable iterable = factory.makeIterable()) {
-      addAll(initialIndex, iterable);
+      addAll(initialIndex, iterable, concurrent);
     } catch (IOException e) {
       throw new NoTalkbackSlimException(e, ErrorType.IO_ERROR, e.getMessage());
     }
     try (KmerIterable iterable = factory.makeIterable()) {
-      addAll(initialIndex, iterable);
+      addAll(initialIndex, iterable, concurrent);
     } catch (IOException e) {
       throw new NoTalkbackSlimException(e, ErrorType.IO_ERROR, e.getMessage());
     }
@@ -91,15 +115,32 @@ public abstract class AbstractKDeBruijnGraph implements DeBruijnGraph {
 
   protected abstract void transferCounts(final IndexExtended initialIndex, final IndexExtended countIndex);
 
-  private void addAll(final IndexExtended initialIndex, Iterable<Kmer> it) {
-    for (final Kmer k : it) {
-      add(initialIndex, k);
+  // If concurrent is not null k-mers are added from multiple threads through it
+  private void addAll(final IndexCompressed initialIndex, KmerIterable it, ConcurrentAdd concurrent) throws IOException {
+    if (concurrent != null) {
+      it.forEachConcurrently(mNumberThreads, k -> concurrent.addConcurrent(initialIndex, k));
+    } else {
+      for (final Kmer k : it) {
+        add(initialIndex, k);
+      }
     }
     initialIndex.freeze();
   }
 
   protected abstract void add(final IndexExtended initialIndex, Kmer kmer);
 
+  /**
+   * Implemented by graphs that can add k-mers to the initial index from multiple threads.
+   */
+  interface ConcurrentAdd {
+    /**
+     * Thread safe version of <code>add</code>.
+     * @param initialIndex index to add to.
+     * @param kmer the k-mer to add.
+     */
+    void addConcurrent(IndexCompressed initialIndex, Kmer kmer);
+  }
+
   @Override
   public final int frequency(Kmer k) {
     final long search = find(k);
@@ -108,6 +149,46 @@ public abstract class AbstractKDeBruijnGraph implements DeBruijnGraph {
 
   protected abstract long find(Kmer k);
 
+  /**
+   * Counts are taken directly from the index, split into ranges of entries scanned in parallel.
+   */
+  @Override
+  public Histogram frequencyHistogram(final int maxFrequency, final int numberThreads) {
+    final long numberEntries = mIndex.numberEntries();
+    final int numberRanges = (int) Math.max(1, Math.min(numberThreads, numberEntries / MIN_HISTOGRAM_RANGE));
+    final long[][] counts = new long[numberRanges][maxFrequency + 1];
+    final SimpleThreadPool pool = new SimpleThreadPool(numberRanges, "KmerHistogram", true);
+    for (int r = 0; r < numberRanges; ++r) {
+      final long[] rangeCounts = counts[r];
+      final long start = numberEntries * r / numberRanges;
+      final long end = numberEntries * (r + 1) / numberRanges;
+      pool.execute(() -> {
+        for (long i = start; i < end; ++i) {
+          final long frequency = mIndex.getValue(i);
+          if (frequency > mThreshold) {
+            ++rangeCounts[(int) Math.min(frequency, maxFrequency)];
+          }
+        }
+      });
+    }
+    try {
+      pool.terminate();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Histogram calculation should not throw IOException", e);
+    }
+    final Histogram histogram = new Histogram();
+    for (int f = 0; f <= maxFrequency; ++f) {
+      long total = 0;
+      for (final long[] rangeCounts : counts) {
+        total += rangeCounts[f];
+      }
+      if (total > 0) {
+        histogram.increment(f, total);
+      }
+    }
+    return histogram;
+  }
+
   @Override
   public void setThreshold(int goodThreshold) {
     //TODO optimize by removing entries &le; threshold
@@ -15,7 +15,9 @@ package com.rtg.assembler;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.iterators.Transform;
 
 /**
@@ -83,6 +85,36 @@ public class AsyncKmerIterable implements KmerIterable {
     return Transform.flatten(bytes, new Bytes2Kmers());
   }
 
+  /**
+   * Each thread takes whole fragments from the read sources in turn, so the reads are shared
+   * out between the threads as they become available.
+   */
+  @Override
+  public void forEachConcurrently(int numberThreads, Consumer<Kmer> action) throws IOException {
+    for (ReadPairSource source : mSources) {
+      source.reset();
+    }
+    final AsyncReadPool pool = new AsyncReadPool("IterablePool", mSources);
+    mPool = pool;
+    final SimpleThreadPool workers = new SimpleThreadPool(numberThreads, "KmerWorkers", true);
+    for (int i = 0; i < numberThreads; ++i) {
+      workers.execute(() -> {
+        for (final AsyncReadSource source : pool.sources()) {
+          List<byte[]> fragments;
+          while ((fragments = source.nextFragments()) != null) {
+            for (final byte[] fragment : fragments) {
+              final KmerIterator kmers = new KmerIterator(fragment, mFactory, mKmerSize);
+              while (kmers.hasNext()) {
+                action.accept(kmers.next());
+              }
+            }
+          }
+        }
+      });
+    }
+    workers.terminate();
+  }
+
   @Override
   public void close() throws IOException {
     mPool.close();
@@ -14,6 +14,8 @@ package com.rtg.assembler;
 
 import java.util.Iterator;
 
+import com.rtg.util.Histogram;
+
 /**
  * Definition of graph used in assembler.
  */
@@ -56,6 +58,20 @@ public interface DeBruijnGraph extends Iterable<Kmer> {
   @Override
   Iterator<Kmer> iterator();
 
+  /**
+   * Compute a histogram of the frequencies of the k-mers in the graph that are above threshold.
+   * @param maxFrequency frequencies above this are counted as this value.
+   * @param numberThreads number of threads the implementation may use.
+   * @return the histogram.
+   */
+  default Histogram frequencyHistogram(int maxFrequency, int numberThreads) {
+    final Histogram histogram = new Histogram();
+    for (final Kmer kmer : this) {
+      histogram.increment(Math.min(frequency(kmer), maxFrequency));
+    }
+    return histogram;
+  }
+
   /**
    * @return number of bytes used by the data structure. May neglect <code>O(1)</code> terms.
    */
@@ -61,6 +61,7 @@ public class DeBruijnGraphBuilder {
 
   final int mKmerSize;
   final KmerFactory mFactory;
+  private final int mNumberThreads;
 
   /** Padding on length of tips */
   final int mTipConstant;
@@ -91,13 +92,17 @@ public class DeBruijnGraphBuilder {
     mContigGraph = new GraphKmerAttribute(kmerSize - 1, new HashMap<String, String>(), new HashMap<String, String>());
     mFactory = factory;
     mTipConstant = tipConstant;
+    mNumberThreads = numberThreads;
     final OneShotTimer init = new OneShotTimer("DeBruijn_build");
 
-    if (kmerSize <= 32 && !FORCE_HASHMAP) {
+    if (FORCE_HASHMAP) {
+      mDeBruijnGraph =  new HashMapDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize));
+    } else if (kmerSize <= 32) {
       final long size = size(sources, kmerSize);
-      mDeBruijnGraph =  new LowKDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize), size, kmerSize);
+      mDeBruijnGraph =  new LowKDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize), size, kmerSize, numberThreads);
     } else {
-      mDeBruijnGraph =  new HashMapDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize));
+      mDeBruijnGraph =  new PackedDeBruijnGraph(new KmerIterableFactory(sources, factory, kmerSize), kmerSize);
+      Diagnostic.developerLog("DeBruijn graph bytes=" + mDeBruijnGraph.bytes());
     }
     init.stopLog();
   }
@@ -143,11 +148,7 @@ public class DeBruijnGraphBuilder {
    * @return the Kmer frequency threshold
    */
   int calculateGoodThreshold() {
-    final Histogram histogram = new Histogram();
-    for (final Kmer kmer : mDeBruijnGraph) {
-      histogram.increment(Math.min(mDeBruijnGraph.frequency(kmer), 1000));
-    }
-    return computeThreshold(histogram);
+    return computeThreshold(mDeBruijnGraph.frequencyHistogram(1000, mNumberThreads));
   }
 
   static String complement(String hash) {
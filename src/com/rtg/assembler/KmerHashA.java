@@ -135,6 +135,31 @@ class KmerHashA extends AbstractKmer {
     return false;
   }
 
+  /**
+   * Compare two hashes of the same length in the lexicographic order of the k-mers they represent.
+   * @param a first hash.
+   * @param b second hash.
+   * @return negative, zero or positive as <code>a</code> is less than, equal to or greater than <code>b</code>.
+   */
+  static int compareHash(long[] a, long[] b) {
+    assert a.length == b.length;
+    for (int k = a.length - 1; k >= 0; --k) {
+      if (a[k] != b[k]) {
+        return Long.compareUnsigned(a[k], b[k]);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return the hash of the lexicographically smaller of this k-mer and its reverse complement,
+   * the same as <code>kmerToHashMin</code> but without going through individual nucleotides.
+   */
+  long[] minimalHash() {
+    final long[] reverse = reverseHash();
+    return compareHash(reverse, mHash) < 0 ? reverse : mHash;
+  }
+
   @Override
   public Kmer minimalKmer() {
     final long[] reverse = reverseHash();
@@ -13,9 +13,24 @@
 package com.rtg.assembler;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
 
 /**
  * Interface combining iterable and closeable
  */
 public interface KmerIterable extends Iterable<Kmer>, Closeable {
+
+  /**
+   * Perform an action for every k-mer, possibly from several threads at once.
+   * The default implementation iterates on the calling thread.
+   * @param numberThreads maximum number of threads to use.
+   * @param action the action to perform, must be safe to call concurrently.
+   * @throws IOException if the k-mers cannot be read.
+   */
+  default void forEachConcurrently(int numberThreads, Consumer<Kmer> action) throws IOException {
+    for (final Kmer kmer : this) {
+      action.accept(kmer);
+    }
+  }
 }
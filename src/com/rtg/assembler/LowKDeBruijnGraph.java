@@ -17,15 +17,20 @@ import java.util.Iterator;
 
 import com.rtg.index.FinderHashValue;
 import com.rtg.index.Index;
+import com.rtg.index.IndexCompressed;
 import com.rtg.index.IndexExtended;
 
 /**
  * Deals with case where k &le; 32.
  */
-public class LowKDeBruijnGraph extends AbstractKDeBruijnGraph {
+public class LowKDeBruijnGraph extends AbstractKDeBruijnGraph implements AbstractKDeBruijnGraph.ConcurrentAdd {
 
   LowKDeBruijnGraph(KmerIterableFactoryInterface factory, final long size, final int kmerSize) {
-    super(factory, size, kmerSize);
+    this(factory, size, kmerSize, 1);
+  }
+
+  LowKDeBruijnGraph(KmerIterableFactoryInterface factory, final long size, final int kmerSize, final int numberThreads) {
+    super(factory, size, kmerSize, numberThreads);
     assert kmerSize <= 32;
   }
 
@@ -79,6 +84,11 @@ public class LowKDeBruijnGraph extends AbstractKDeBruijnGraph {
     initialIndex.add(hash, 0L);
   }
 
+  @Override
+  public final void addConcurrent(final IndexCompressed initialIndex, Kmer kmer) {
+    initialIndex.addConcurrent(KmerHash.kmerToHashMin(kmer), 0L);
+  }
+
   @Override
   protected final long find(Kmer k) {
     final long hash = KmerHash.kmerToHashMin(k);
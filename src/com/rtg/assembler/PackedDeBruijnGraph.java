@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.assembler;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import com.rtg.util.array.intindex.IntChunks;
+import com.rtg.util.array.longindex.LongChunks;
+import com.rtg.util.diagnostic.ErrorType;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+import com.rtg.util.iterators.IteratorHelper;
+
+/**
+ * Graph for any k, in particular k &gt; 32. Each k-mer is packed two bits per nucleotide into
+ * several longs (in the layout of <code>KmerHashA</code>), and held in an open addressing hash table
+ * with linear probing. The count and built flag of each k-mer are stored inline in a parallel
+ * array of ints, where a zero count marks an empty slot.
+ */
+public class PackedDeBruijnGraph implements DeBruijnGraph {
+
+  private static final int INITIAL_BITS = 12;
+  private static final int BUILT = 0x80000000;
+  private static final int COUNT_MASK = 0x7FFFFFFF;
+
+  private final int mKmerSize;
+  private final int mWords;
+  private LongChunks mKeys;
+  private IntChunks mCounts;
+  private long mMask;
+  private long mSize = 0;
+  private int mThreshold = 0;
+
+  PackedDeBruijnGraph(KmerIterableFactoryInterface factory, int kmerSize) {
+    mKmerSize = kmerSize;
+    mWords = (2 * kmerSize + Long.SIZE - 1) / Long.SIZE;
+    allocate(1L << INITIAL_BITS);
+    try (final KmerIterable kmers = factory.makeIterable()) {
+      for (final Kmer k : kmers) {
+        add(k);
+      }
+    } catch (IOException e) {
+      throw new NoTalkbackSlimException(e, ErrorType.IO_ERROR);
+    }
+  }
+
+  private void allocate(long capacity) {
+    mKeys = new LongChunks(capacity * mWords);
+    mCounts = new IntChunks(capacity);
+    mMask = capacity - 1;
+  }
+
+  private static long[] minimalHash(Kmer k) {
+    return k instanceof KmerHashA ? ((KmerHashA) k).minimalHash() : KmerHashA.kmerToHashMin(k);
+  }
+
+  private static long hash(long[] key) {
+    long h = 0;
+    for (final long w : key) {
+      h = (h ^ w) * 0x9E3779B97F4A7C15L;
+    }
+    // Final mixing step from MurmurHash3
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private boolean keyEquals(long slot, long[] key) {
+    final long base = slot * mWords;
+    for (int i = 0; i < mWords; ++i) {
+      if (mKeys.get(base + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long[] key(long slot) {
+    final long[] key = new long[mWords];
+    final long base = slot * mWords;
+    for (int i = 0; i < mWords; ++i) {
+      key[i] = mKeys.get(base + i);
+    }
+    return key;
+  }
+
+  // Slot holding key if present, otherwise -(empty slot) - 1
+  private long find(long[] key) {
+    long slot = hash(key) & mMask;
+    while (true) {
+      if (mCounts.getInt(slot) == 0) {
+        return -slot - 1;
+      }
+      if (keyEquals(slot, key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mMask;
+    }
+  }
+
+  private void put(long slot, long[] key, int value) {
+    final long base = slot * mWords;
+    for (int i = 0; i < mWords; ++i) {
+      mKeys.set(base + i, key[i]);
+    }
+    mCounts.setInt(slot, value);
+  }
+
+  private void add(Kmer kmer) {
+    final long[] key = minimalHash(kmer);
+    final long slot = find(key);
+    if (slot >= 0) {
+      final int value = mCounts.getInt(slot);
+      if ((value & COUNT_MASK) != COUNT_MASK) {
+        mCounts.setInt(slot, value + 1);
+      }
+    } else {
+      put(-slot - 1, key, 1);
+      ++mSize;
+      if (3 * mSize > 2 * mCounts.length()) {
+        resize();
+      }
+    }
+  }
+
+  private void resize() {
+    final LongChunks oldKeys = mKeys;
+    final IntChunks oldCounts = mCounts;
+    final long oldCapacity = oldCounts.length();
+    allocate(2 * oldCapacity);
+    final long[] key = new long[mWords];
+    for (long slot = 0; slot < oldCapacity; ++slot) {
+      final int value = oldCounts.getInt(slot);
+      if (value != 0) {
+        final long base = slot * mWords;
+        for (int i = 0; i < mWords; ++i) {
+          key[i] = oldKeys.get(base + i);
+        }
+        put(-find(key) - 1, key, value);
+      }
+    }
+  }
+
+  private long slot(Kmer k) {
+    final long slot = find(minimalHash(k));
+    if (slot < 0) {
+      throw new IllegalArgumentException("K-mer not in graph: " + k);
+    }
+    return slot;
+  }
+
+  @Override
+  public int frequency(Kmer k) {
+    return mCounts.getInt(slot(k)) & COUNT_MASK;
+  }
+
+  @Override
+  public void setThreshold(int goodThreshold) {
+    mThreshold = goodThreshold;
+  }
+
+  @Override
+  public void setBuilt(Kmer k, boolean built) {
+    final long slot = slot(k);
+    final int value = mCounts.getInt(slot);
+    mCounts.setInt(slot, built ? value | BUILT : value & COUNT_MASK);
+  }
+
+  @Override
+  public boolean isBuilt(Kmer k) {
+    return (mCounts.getInt(slot(k)) & BUILT) != 0;
+  }
+
+  @Override
+  public boolean contains(Kmer k) {
+    final long slot = find(minimalHash(k));
+    return slot >= 0 && (mCounts.getInt(slot) & COUNT_MASK) > mThreshold;
+  }
+
+  /**
+   * @return number of distinct k-mers in the graph, regardless of threshold.
+   */
+  long size() {
+    return mSize;
+  }
+
+  @Override
+  public Iterator<Kmer> iterator() {
+    return new LocalIterator();
+  }
+
+  private class LocalIterator extends IteratorHelper<Kmer> {
+    private final long mCapacity = mCounts.length();
+    private long mNext = 0;
+
+    @Override
+    protected void step() {
+      ++mNext;
+    }
+
+    @Override
+    protected boolean atEnd() {
+      return mNext >= mCapacity;
+    }
+
+    @Override
+    protected boolean isOK() {
+      return (mCounts.getInt(mNext) & COUNT_MASK) > mThreshold;
+    }
+
+    @Override
+    protected Kmer current() {
+      return new KmerHashA(key(mNext), mKmerSize);
+    }
+  }
+
+  @Override
+  public long bytes() {
+    return mKeys.bytes() + mCounts.bytes();
+  }
+}
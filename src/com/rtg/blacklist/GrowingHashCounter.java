@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.blacklist;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+
+/**
+ * Accumulates counts from several threads into a shared <code>HashCounter</code>, replacing it
+ * with a larger counter when it has too many collisions. Each thread collects hashes in its own
+ * <code>Batch</code>, and whole batches are incremented into the counter under a shared lock so
+ * that the counter can only be replaced between batches.
+ */
+final class GrowingHashCounter {
+
+  /** Number of hashes collected by a batch before they are added to the counter */
+  static final int BATCH_SIZE = 4096;
+
+  /**
+   * Collects the hashes of a single thread.
+   */
+  final class Batch {
+    private final long[] mHashes = new long[BATCH_SIZE];
+    private int mSize = 0;
+
+    /**
+     * Add one to the count for a hash.
+     * @param hash the hash
+     * @throws IOException if the counter cannot be grown
+     */
+    void increment(long hash) throws IOException {
+      mHashes[mSize++] = hash;
+      if (mSize == mHashes.length) {
+        flush();
+      }
+    }
+
+    /**
+     * Add any collected hashes to the counter.
+     * @throws IOException if the counter cannot be grown
+     */
+    void flush() throws IOException {
+      add(mHashes, mSize);
+      mSize = 0;
+    }
+  }
+
+  private final ReentrantReadWriteLock mLock = new ReentrantReadWriteLock();
+  private final int mThreads;
+  private volatile HashCounter mCounter;
+
+  /**
+   * @param counter the initial counter
+   * @param threads number of threads used when growing the counter
+   */
+  GrowingHashCounter(HashCounter counter, int threads) {
+    mCounter = counter;
+    mThreads = threads;
+  }
+
+  /**
+   * @return a new batch for use by a single thread
+   */
+  Batch batch() {
+    return new Batch();
+  }
+
+  /**
+   * Get the counter, all batches should have been flushed before this is called.
+   * @return the counter
+   */
+  HashCounter counter() {
+    return mCounter;
+  }
+
+  private void add(long[] hashes, int size) throws IOException {
+    int i = 0;
+    while (true) {
+      mLock.readLock().lock();
+      final HashCounter counter = mCounter;
+      try {
+        // A failed increment leaves the counter unchanged, so resume from it after growing
+        for (; i < size; ++i) {
+          counter.increment(hashes[i]);
+        }
+        return;
+      } catch (final HashCounter.TooManyCollisionsException e) {
+        // Grow below, once the shared lock is released
+      } finally {
+        mLock.readLock().unlock();
+      }
+      grow(counter);
+    }
+  }
+
+  private void grow(HashCounter failed) throws IOException {
+    mLock.writeLock().lock();
+    try {
+      if (mCounter != failed) {
+        return; // Another thread has already grown the counter
+      }
+      if (!failed.canGrow()) {
+        throw new NoTalkbackSlimException("Too many collisions in hashmap, try increasing the hashmap size factor");
+      }
+      Diagnostic.userLog("Too many collisions in hashmap of length " + failed.length() + ", growing");
+      try {
+        mCounter = failed.grow(mThreads);
+      } catch (final HashCounter.TooManyCollisionsException e) {
+        throw new NoTalkbackSlimException("Too many collisions in hashmap, try increasing the hashmap size factor");
+      }
+    } finally {
+      mLock.writeLock().unlock();
+    }
+  }
+}
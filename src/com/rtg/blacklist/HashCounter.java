@@ -11,7 +11,10 @@
  */
 package com.rtg.blacklist;
 
+import java.io.IOException;
+
 import com.rtg.util.MathUtils;
+import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.array.atomic.AtomicIndex;
 import com.rtg.util.array.atomic.AtomicIntChunks;
 import com.rtg.util.array.atomic.AtomicLongChunks;
@@ -42,6 +45,8 @@ public class HashCounter {
   private final BinaryMatrix mReverseMatrix; //reverses the shuffle
   private final int mCountBits; //number of bits for the counter
   private final long mCountMask; //mask for the counter
+  private final int mKeyBits; //number of bits in a key
+  private final int mMaxRepeat; //minimum maximum count
 
   //iterator
   private long mCurrentIndex = -1;
@@ -65,10 +70,73 @@ public class HashCounter {
     final int storageBits = mHashes.fieldBits();
     mCountBits = storageBits - (keyBits - mMaskBits) - BOUNCE_BITS;
     mCountMask = (1L << mCountBits) - 1;
+    mKeyBits = keyBits;
+    mMaxRepeat = maxRepeat;
     mMatrix = BinaryMatrix.createReversibleMatrix(keyBits);
     mReverseMatrix = mMatrix.invert();
   }
 
+  /**
+   * Number of hash entries available in this counter.
+   * @return the length
+   */
+  public long length() {
+    return mLength;
+  }
+
+  /**
+   * Tests if this counter can be replaced with a larger one.
+   * @return true if <code>grow</code> can be called
+   */
+  public boolean canGrow() {
+    return mMaskBits + 1 < mKeyBits;
+  }
+
+  /**
+   * Creates a counter with twice as many entries containing the same keys and counts, for
+   * use when this counter has too many collisions. The entries are reinserted in parallel
+   * by splitting the table into contiguous stripes. All calls to increment should be
+   * finished before this is called.
+   * @param threads number of threads to use for reinserting entries
+   * @return the new counter
+   * @throws IOException if reinsertion is interrupted
+   * @throws TooManyCollisionsException if an entry cannot be reinserted into the new counter
+   */
+  public HashCounter grow(int threads) throws IOException, TooManyCollisionsException {
+    assert canGrow();
+    final HashCounter res = new HashCounter(2 * mLength, mKeyBits, mMaxRepeat);
+    final int stripes = (int) Math.min(mLength, 4L * threads);
+    final boolean[] failed = new boolean[1];
+    final SimpleThreadPool stp = new SimpleThreadPool(threads, "HashCounterGrow", true);
+    for (int i = 0; i < stripes; ++i) {
+      final long start = mLength * i / stripes;
+      final long end = mLength * (i + 1) / stripes;
+      stp.execute(() -> {
+        try {
+          for (long pos = start; pos < end; ++pos) {
+            final long val = mHashes.get(pos);
+            if (val != 0) {
+              final long tmp = val >>> mCountBits;
+              final long key = posToKey(pos, (tmp >>> BOUNCE_BITS) & mKeyMask, (tmp & mBounceMask) - 1);
+              res.add(res.mMatrix.times(mReverseMatrix.times(key)), val & mCountMask);
+            }
+          }
+        } catch (final TooManyCollisionsException e) {
+          synchronized (failed) {
+            failed[0] = true;
+          }
+        }
+      });
+    }
+    stp.terminate();
+    synchronized (failed) {
+      if (failed[0]) {
+        throw new TooManyCollisionsException("Exceed maximum number of bounces in hash table while growing");
+      }
+    }
+    return res;
+  }
+
   /**
    * Creates the smallest (in memory use) array for storing the hashes that meets the following criteria
    * @param length minimum number of hash entries
@@ -100,7 +168,11 @@ public class HashCounter {
    * @throws TooManyCollisionsException if the key bounces too many times whilst looking for a location
    */
   public void increment(long key) throws TooManyCollisionsException {
-    final long hash = mMatrix.times(key);
+    add(mMatrix.times(key), 1);
+  }
+
+  // Adds to the count for the given shuffled key, saturating at the maximum count
+  private void add(long hash, long amount) throws TooManyCollisionsException {
     final long hashUpperBits = (hash >>> mMaskBits) & mKeyMask;
     final long originalPos = hash & mPositionMask;
     long bounces = 0;
@@ -144,7 +216,7 @@ public class HashCounter {
       if (count == mCountMask) {
         break; //maximum value
       }
-      if (mHashes.compareAndSet(pos, getVal, getVal + 1)) {
+      if (mHashes.compareAndSet(pos, getVal, getVal + Math.min(amount, mCountMask - count))) {
         //incremented
         break;
       }
@@ -16,10 +16,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
 
 import com.rtg.index.HashBlacklist;
+import com.rtg.index.MappedBlacklistFilterMethod;
 import com.rtg.index.hash.ExactHashFunction;
 import com.rtg.index.hash.HashLoop;
 import com.rtg.index.hash.IncrementalHashLoop;
@@ -42,6 +44,9 @@ public class HashDist extends ParamsTask<HashDistParams, NoStatistics> {
 
   private static final String BLACKLIST_FILENAME = "blacklist";
 
+  /** Number of ranges of sequences hashed per thread */
+  static final int RANGES_PER_THREAD = 8;
+
   /**
    * @param params parameters
    * @param reportStream unused
@@ -66,20 +71,20 @@ public class HashDist extends ParamsTask<HashDistParams, NoStatistics> {
     final int hashBits = CreateParams.calculateHashBits(params.buildParams().sequences().mode().codeType().bits(), params.buildParams().windowSize());
     final long counterSizeBase = params.buildParams().sequences().reader().totalLength();
     final long counterSize = counterSizeBase + (long) ((params.hashMapSizeFactor() - 1.0) * counterSizeBase);
-    final HashCounter sparseIndex = new HashCounter(counterSize, hashBits, params.threshold());
+    final GrowingHashCounter counter = new GrowingHashCounter(new HashCounter(counterSize, hashBits, params.threshold()), params.numberThreads());
     final SimpleThreadPool stp = new SimpleThreadPool(params.numberThreads(), "HashToolsThread", true);
-    for (int i = 0; i < params.buildParams().sequences().numberSequences(); ++i) {
+    // Split sequences into contiguous ranges, with several ranges per thread to balance the load
+    final long numberSequences = params.buildParams().sequences().numberSequences();
+    final int ranges = (int) Math.min(numberSequences, (long) params.numberThreads() * RANGES_PER_THREAD);
+    for (int i = 0; i < ranges; ++i) {
       final ExactHashFunction exf = new ExactHashFunction(params.buildParams());
-      final BuildParams bp = params.buildParams().subSequence(new HashingRegion(i, i + 1));
+      final BuildParams bp = params.buildParams().subSequence(new HashingRegion(numberSequences * i / ranges, numberSequences * (i + 1) / ranges));
+      final GrowingHashCounter.Batch batch = counter.batch();
       final HashLoop subjectHashLoop = new IncrementalHashLoop(params.buildParams().stepSize(), exf, false) {
         @Override
-        public void hashCall(final long hash, final int internalId, final int stepPosition) {
+        public void hashCall(final long hash, final int internalId, final int stepPosition) throws IOException {
           //System.err.println("build hashCall hash=" + hash + " id=" + internalId);
-          try {
-            sparseIndex.increment(hash);
-          } catch (HashCounter.TooManyCollisionsException e) {
-            throw new NoTalkbackSlimException("Too many collisions in hashmap, try increasing the hashmap size factor");
-          }
+          batch.increment(hash);
         }
 
         @Override
@@ -87,14 +92,18 @@ public class HashDist extends ParamsTask<HashDistParams, NoStatistics> {
           throw new UnsupportedOperationException(); //"Not supported yet."
         }
       };
-      executeLoop(stp, bp, subjectHashLoop);
+      executeLoop(stp, bp, subjectHashLoop, batch);
     }
     stp.terminate();
+    final HashCounter sparseIndex = counter.counter();
 
     try (final BufferedWriter blacklistWriter = createBlacklistStream(params);
          final BufferedWriter histogramWriter = createHistogramStream(params)
     ) {
       final TreeMap<Long, Long> histMap = new TreeMap<>();
+      long[] blacklistHashes = new long[1024];
+      long[] blacklistCounts = new long[blacklistHashes.length];
+      int blacklistSize = 0;
       while (sparseIndex.next()) {
         final long hash = sparseIndex.getKey();
         final long count = sparseIndex.getCount();
@@ -104,6 +113,12 @@ public class HashDist extends ParamsTask<HashDistParams, NoStatistics> {
             blacklistWriter.write("\t");
             blacklistWriter.write(Long.toString(count));
             blacklistWriter.newLine();
+            if (blacklistSize == blacklistHashes.length) {
+              blacklistHashes = Arrays.copyOf(blacklistHashes, 2 * blacklistSize);
+              blacklistCounts = Arrays.copyOf(blacklistCounts, 2 * blacklistSize);
+            }
+            blacklistHashes[blacklistSize] = hash;
+            blacklistCounts[blacklistSize++] = count;
           }
         }
         final long prevVal = histMap.containsKey(count) ? histMap.get(count) : 0;
@@ -112,6 +127,10 @@ public class HashDist extends ParamsTask<HashDistParams, NoStatistics> {
       for (Map.Entry<Long, Long> entry : histMap.entrySet()) {
         histogramWriter.append(entry.getKey().toString()).append(" ").append(entry.getValue().toString()).append(StringUtils.LS);
       }
+      if (params.makeBlacklist()) {
+        // Binary form of the same blacklist, which map can use without loading
+        MappedBlacklistFilterMethod.save(params.file(BLACKLIST_FILENAME + HashBlacklist.BINARY_SUFFIX), HashBlacklist.hashBits(wordSize), blacklistHashes, blacklistCounts, blacklistSize);
+      }
     }
     if (params.installBlacklist()) {
       HashBlacklist.installBlacklist(params.file(BLACKLIST_FILENAME), refDir, wordSize);
@@ -119,16 +138,26 @@ public class HashDist extends ParamsTask<HashDistParams, NoStatistics> {
   }
 
   @SuppressWarnings("try")
-  private static boolean executeLoop(SimpleThreadPool stp, BuildParams bp, HashLoop subjectHashLoop) {
+  private static boolean executeLoop(SimpleThreadPool stp, BuildParams bp, HashLoop subjectHashLoop, GrowingHashCounter.Batch batch) {
     return stp.execute(() -> {
         try (BuildParams ignored = bp) {
           final OneShotTimer readTimer = new OneShotTimer("BS_read");
-          subjectHashLoop.execLoop(bp.sequences(), new byte[bp.sequences().reader().length(bp.sequences().region().getStart())]);
+          subjectHashLoop.execLoop(bp.sequences(), new byte[maxLength(bp)]);
+          batch.flush();
           readTimer.stopLog();
         }
     });
   }
 
+  private static int maxLength(BuildParams bp) throws IOException {
+    final HashingRegion region = bp.sequences().region();
+    int max = 0;
+    for (long seq = region.getStart(); seq < region.getExclusiveEndId(); ++seq) {
+      max = Math.max(max, bp.sequences().reader().length(seq));
+    }
+    return max;
+  }
+
   private static BufferedWriter createBlacklistStream(HashDistParams params) throws IOException {
     if (params.makeBlacklist()) {
       return new BufferedWriter(new FileWriter(params.file(BLACKLIST_FILENAME)));
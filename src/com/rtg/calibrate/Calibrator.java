@@ -55,8 +55,10 @@ import htsjdk.samtools.SAMRecord;
 /**
  * Measures the actual machine error rates observed in SAM files.
  *
- * Maintains a Hypercube of statistics objects,
+ * Maintains a Hypercube of statistics,
  * indexed by a vector of Covariate objects.
+ * The statistics of cells that have been seen are packed into a single array of counts,
+ * rather than held in an object per cell.
  *
  */
 public class Calibrator {
@@ -79,13 +81,32 @@ public class Calibrator {
 
   private static final String STATS_COLUMNS = "\tequal\tdiff\tins\tdel";
   private static final int NUM_STATS_COLUMNS = 4;
+  /** Offset of the count of equal bases within the statistics of a cell */
+  static final int STAT_EQUAL = 0;
+  /** Offset of the count of mismatched bases within the statistics of a cell */
+  static final int STAT_MNP = 1;
+  /** Offset of the count of inserted bases within the statistics of a cell */
+  static final int STAT_INSERT = 2;
+  /** Offset of the count of deleted bases within the statistics of a cell */
+  static final int STAT_DELETE = 3;
+  private static final int INITIAL_CELLS = 64;
   private static final String REFERENCE_SIZE = HEADER_CHAR + "sequence";
 
   /** The index dimensions of the statistics hypercube. */
   protected final Covariate[] mCovariates;
 
-  /** The actual statistics collection. */
-  protected CalibrationStats[] mStats;
+  /** Sizes of the covariates in the current layout of the hypercube. */
+  private int[] mSizes;
+  /**
+   * Open addressing hash table from hypercube position to cell, holding one more than the index of each cell,
+   * or zero for an empty slot. Only cells that have been seen take space, rather than the whole hypercube.
+   */
+  private int[] mTable;
+  /** Hypercube position of each cell that has been seen. */
+  private int[] mPositions;
+  /** Statistics of each cell that has been seen, <code>NUM_STATS_COLUMNS</code> per cell. */
+  private long[] mCounts;
+  private int mNumberCells = 0;
   protected final CalibratorCigarParser mParser;
   private String mTemplateName = null;
   protected byte[] mTemplate;
@@ -106,7 +127,14 @@ public class Calibrator {
    */
   public Calibrator(Covariate[] vars, ReferenceRegions regions) {
     mCovariates = vars;
-    mStats = new CalibrationStats[maxSize(vars)];
+    mSizes = new int[vars.length];
+    for (int i = 0; i < vars.length; ++i) {
+      mSizes[i] = vars[i].newSize();
+    }
+    maxSize(vars); // Check that hypercube positions fit in an int
+    mTable = new int[2 * INITIAL_CELLS];
+    mPositions = new int[INITIAL_CELLS];
+    mCounts = new long[INITIAL_CELLS * NUM_STATS_COLUMNS];
     mParser = new CalibratorCigarParser(this);
     mRegions = regions;
     if (mRegions != null) {
@@ -421,26 +449,19 @@ public class Calibrator {
         int pos = 0;
         int i = 0;
         boolean mustResize = false;
-        final int[] values = new int[mCovariates.length];
         for (; i < mCovariates.length; ++i) {
           final int val = mCovariates[i].parse(field[i]);
-          values[i] = val;
-          mustResize |= mCovariates[i].sizeChanged();
+          mustResize |= mustResize(i);
           pos = pos * mCovariates[i].newSize() + val;
         }
         if (mustResize) {
           expandStats();
         }
-        if (mStats[pos] != null) {
-          assert Arrays.equals(values, mStats[pos].getValues());
-        } else {
-          mStats[pos] = new CalibrationStats(values);
-        }
-        final CalibrationStats stats = mStats[pos];
-        stats.seenEquals(Long.parseLong(field[i++]));
-        stats.seenMnp(Long.parseLong(field[i++]));
-        stats.seenInsert(Long.parseLong(field[i++]));
-        stats.seenDelete(Long.parseLong(field[i++]));
+        final int base = cell(pos) * NUM_STATS_COLUMNS;
+        mCounts[base + STAT_EQUAL] += Long.parseLong(field[i++]);
+        mCounts[base + STAT_MNP] += Long.parseLong(field[i++]);
+        mCounts[base + STAT_INSERT] += Long.parseLong(field[i++]);
+        mCounts[base + STAT_DELETE] += Long.parseLong(field[i++]);
         assert i == field.length;
       }
     }
@@ -460,15 +481,18 @@ public class Calibrator {
         throw new RuntimeException("Covariates mismatch");
       }
     }
-    // Merge hypercubes
-    assert mStats.length == cal.mStats.length;
-    for (int k = 0; k < mStats.length; ++k) {
-      if (mStats[k] != null) {
-        if (cal.mStats[k] != null) {
-          mStats[k].accumulate(cal.mStats[k]);
-        }
-      } else {
-        mStats[k] = cal.mStats[k];
+    // Merge hypercubes, the other calibrator may have been laid out for different covariate sizes
+    for (int i = 0; i < mCovariates.length; ++i) {
+      if (mustResize(i)) {
+        expandStats();
+        break;
+      }
+    }
+    for (int k = 0; k < cal.mNumberCells; ++k) {
+      final int base = cell(reposition(cal.mPositions[k], cal.mSizes, mSizes)) * NUM_STATS_COLUMNS;
+      final int calBase = k * NUM_STATS_COLUMNS;
+      for (int j = 0; j < NUM_STATS_COLUMNS; ++j) {
+        mCounts[base + j] += cal.mCounts[calBase + j];
       }
     }
     // Merge histograms
@@ -500,24 +524,147 @@ public class Calibrator {
     return -1;
   }
 
-  /** Expands the statistics array and recalculates all the indices. */
+  // True if the hypercube must be laid out again for the current size of a covariate
+  private boolean mustResize(int covariateIndex) {
+    final Covariate var = mCovariates[covariateIndex];
+    return var.sizeChanged() || var.newSize() != mSizes[covariateIndex];
+  }
+
+  /** Expands the hypercube and recalculates the positions of all the cells seen. */
   private void expandStats() {
-    final int start = mStats.length - 1;
-    mStats = Arrays.copyOf(mStats, maxSize(mCovariates));
-    for (int i = start; i > 0; --i) {
-      if (mStats[i] != null) {
-        final int newPos = mStats[i].getNewIndex(mCovariates);
-        if (newPos != i) {
-          mStats[newPos] = mStats[i];
-          mStats[i] = null;
-        }
-      }
+    final int[] newSizes = new int[mCovariates.length];
+    for (int i = 0; i < mCovariates.length; ++i) {
+      newSizes[i] = mCovariates[i].newSize();
     }
+    maxSize(mCovariates); // Check that hypercube positions still fit in an int
+    for (int k = 0; k < mNumberCells; ++k) {
+      mPositions[k] = reposition(mPositions[k], mSizes, newSizes);
+    }
+    rehash(mTable.length);
+    mSizes = newSizes;
     for (final Covariate cov : mCovariates) {
       cov.resized();
     }
   }
 
+  // Position in a hypercube with the new covariate sizes of a position in a hypercube with the old sizes
+  private static int reposition(int position, int[] oldSizes, int[] newSizes) {
+    int pos = position;
+    int newPos = 0;
+    int multiplier = 1;
+    for (int i = oldSizes.length - 1; i >= 0; --i) {
+      newPos += (pos % oldSizes[i]) * multiplier;
+      pos /= oldSizes[i];
+      multiplier *= newSizes[i];
+    }
+    return newPos;
+  }
+
+  // First slot of the hash table to probe for a position
+  private int slot(int pos) {
+    final int h = pos * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (mTable.length - 1);
+  }
+
+  /** Rebuilds the hash table from the positions of the cells seen. */
+  private void rehash(int tableSize) {
+    mTable = new int[tableSize];
+    for (int k = 0; k < mNumberCells; ++k) {
+      int slot = slot(mPositions[k]);
+      while (mTable[slot] != 0) {
+        slot = (slot + 1) & (mTable.length - 1);
+      }
+      mTable[slot] = k + 1;
+    }
+  }
+
+  /**
+   * @param pos position in the hypercube.
+   * @return index of the cell for the position, or -1 if the position has not been seen.
+   */
+  private int findCell(int pos) {
+    int slot = slot(pos);
+    int c;
+    while ((c = mTable[slot]) != 0) {
+      if (mPositions[c - 1] == pos) {
+        return c - 1;
+      }
+      slot = (slot + 1) & (mTable.length - 1);
+    }
+    return -1;
+  }
+
+  /**
+   * Get the index of the statistics for a position in the hypercube, allocating them if the position has not been seen.
+   * @param pos position in the hypercube.
+   * @return index of the cell, the statistics start at this times <code>NUM_STATS_COLUMNS</code>.
+   */
+  private int cell(int pos) {
+    final int c = findCell(pos);
+    if (c >= 0) {
+      return c;
+    }
+    if (mNumberCells == mPositions.length) {
+      mPositions = Arrays.copyOf(mPositions, 2 * mNumberCells);
+      mCounts = Arrays.copyOf(mCounts, 2 * mNumberCells * NUM_STATS_COLUMNS);
+    }
+    mPositions[mNumberCells++] = pos;
+    if (2 * mNumberCells > mTable.length) {
+      rehash(2 * mTable.length);
+    } else {
+      int slot = slot(pos);
+      while (mTable[slot] != 0) {
+        slot = (slot + 1) & (mTable.length - 1);
+      }
+      mTable[slot] = mNumberCells;
+    }
+    return mNumberCells - 1;
+  }
+
+  /** Covariate values of a position in the hypercube. */
+  private int[] values(int pos) {
+    final int[] values = new int[mSizes.length];
+    int p = pos;
+    for (int i = mSizes.length - 1; i >= 0; --i) {
+      values[i] = p % mSizes[i];
+      p /= mSizes[i];
+    }
+    return values;
+  }
+
+  /**
+   * Get the statistics of every cell of the hypercube that has been seen, in hypercube order.
+   * @return the statistics.
+   */
+  CalibrationStats[] cells() {
+    final long[] order = new long[mNumberCells];
+    for (int k = 0; k < mNumberCells; ++k) {
+      order[k] = ((long) mPositions[k] << 32) | k;
+    }
+    Arrays.sort(order);
+    final CalibrationStats[] res = new CalibrationStats[mNumberCells];
+    for (int k = 0; k < mNumberCells; ++k) {
+      res[k] = stats(mPositions[(int) order[k]], (int) order[k]);
+    }
+    return res;
+  }
+
+  /** Statistics object for a position in the hypercube, or null if the position has not been seen. */
+  private CalibrationStats stats(int pos) {
+    final int c = findCell(pos);
+    return c < 0 ? null : stats(pos, c);
+  }
+
+  private CalibrationStats stats(int pos, int cell) {
+    final CalibrationStats stats = new CalibrationStats(values(pos));
+    final int base = cell * NUM_STATS_COLUMNS;
+    stats.seenEquals(mCounts[base + STAT_EQUAL]);
+    stats.seenMnp(mCounts[base + STAT_MNP]);
+    stats.seenInsert(mCounts[base + STAT_INSERT]);
+    stats.seenDelete(mCounts[base + STAT_DELETE]);
+    return stats;
+  }
+
   protected void writeHistogram(String name, Histogram hist, BufferedWriter out) throws IOException {
     if (hist.getLength() > 0) {
       out.write(name + "\t" + hist.toString() + StringUtils.LS);
@@ -545,11 +692,13 @@ public class Calibrator {
     }
 
     final CalibrationStats newStats = new CalibrationStats(new int[] {covVal});
-    for (final CalibrationStats mStat : mStats) {
-      if (mStat != null) {
-        if (covNum == -1 || mStat.getCovariateValue(covNum) == covVal) {
-          newStats.accumulate(mStat);
-        }
+    for (int k = 0; k < mNumberCells; ++k) {
+      if (covNum == -1 || values(mPositions[k])[covNum] == covVal) {
+        final int base = k * NUM_STATS_COLUMNS;
+        newStats.seenEquals(mCounts[base + STAT_EQUAL]);
+        newStats.seenMnp(mCounts[base + STAT_MNP]);
+        newStats.seenInsert(mCounts[base + STAT_INSERT]);
+        newStats.seenDelete(mCounts[base + STAT_DELETE]);
       }
     }
     return newStats;
@@ -569,10 +718,10 @@ public class Calibrator {
   /** recursive helper method for <code>processStats</code>. */
   private void processStats(StatsProcessor proc, QuerySpec query, int[] values, int position, int covariateIndex) {
     if (covariateIndex == mCovariates.length) {
-      proc.process(values, mStats[position]);
+      proc.process(values, stats(position));
       return;
     }
-    final int size = mCovariates[covariateIndex].size();
+    final int size = mSizes[covariateIndex];
     if (query.mCovariateValues[covariateIndex] >= 0) {
       values[covariateIndex] = query.mCovariateValues[covariateIndex];
       processStats(proc, query, values, position * size + query.mCovariateValues[covariateIndex], covariateIndex + 1);
@@ -624,10 +773,8 @@ public class Calibrator {
     }
 
     out.write(COVAR + "\t" + toString() + STATS_COLUMNS + StringUtils.LS);  // tab separated
-    for (final CalibrationStats stats : mStats) {
-      if (stats != null) {
-        out.write(stats.outputString(mCovariates) + StringUtils.LS);
-      }
+    for (final CalibrationStats stats : cells()) {
+      out.write(stats.outputString(mCovariates) + StringUtils.LS);
     }
   }
 
@@ -639,26 +786,25 @@ public class Calibrator {
     return new QuerySpec();
   }
 
-  protected CalibrationStats findStats(CalibratorCigarParser currPos) throws BadSuperCigarException {
+  /**
+   * Count one base of the given type at the current position of the parser.
+   * @param currPos the parser, positioned at the base.
+   * @param stat the type of base, one of the <code>STAT_</code> offsets.
+   * @throws BadSuperCigarException if a covariate cannot be determined.
+   */
+  protected void seen(CalibratorCigarParser currPos, int stat) throws BadSuperCigarException {
     int pos = 0;
     boolean mustResize = false;
-    final int[] values = new int[mCovariates.length];
     for (int i = 0; i < mCovariates.length; ++i) {
       final Covariate var = mCovariates[i];
       final int val = var.value(mSamRec, currPos);
-      values[i] = val;
-      mustResize |= var.sizeChanged();
+      mustResize |= mustResize(i);
       pos = pos * var.newSize() + val;
     }
     if (mustResize) {
       expandStats();
     }
-    CalibrationStats stats = mStats[pos];
-    if (stats == null) {
-      stats = new CalibrationStats(values);
-      mStats[pos] = stats;
-    }
-    return stats;
+    ++mCounts[cell(pos) * NUM_STATS_COLUMNS + stat];
   }
 
   /**
@@ -163,7 +163,7 @@ class CalibratorCigarParser extends SuperCigarParser {
   protected void doReadOnly(int readNt) throws BadSuperCigarException {
     if (include()) {
       if (readNt != DnaUtils.UNKNOWN_RESIDUE) {
-        mCalibrator.findStats(this).seenInsert(1);
+        mCalibrator.seen(this, Calibrator.STAT_INSERT);
       }
     }
   }
@@ -171,7 +171,7 @@ class CalibratorCigarParser extends SuperCigarParser {
   @Override
   protected void doTemplateOnly(int templateNt) throws BadSuperCigarException {
     if (include()) {
-      mCalibrator.findStats(this).seenDelete(1);
+      mCalibrator.seen(this, Calibrator.STAT_DELETE);
     }
   }
 
@@ -179,7 +179,7 @@ class CalibratorCigarParser extends SuperCigarParser {
   protected void doSubstitution(int readNt, int templateNt) throws BadSuperCigarException {
     if (include()) {
       if (readNt != DnaUtils.UNKNOWN_RESIDUE) {
-        mCalibrator.findStats(this).seenMnp(1);
+        mCalibrator.seen(this, Calibrator.STAT_MNP);
       }
       ++mMismatchCount;
     }
@@ -189,7 +189,7 @@ class CalibratorCigarParser extends SuperCigarParser {
   protected void doEquality(int readNt, int nt) throws BadSuperCigarException {
     if (include()) {
       if (readNt != DnaUtils.UNKNOWN_RESIDUE) {
-        mCalibrator.findStats(this).seenEquals(1);
+        mCalibrator.seen(this, Calibrator.STAT_EQUAL);
       }
       endMatchMismatch();
       startMatchMismatch();
@@ -33,6 +33,9 @@ public final class HashBlacklist {
 
   static final String BLACKLIST_SUBDIR = "blacklists";
 
+  /** Suffix of the binary form of a blacklist, which can be memory mapped */
+  public static final String BINARY_SUFFIX = ".bin";
+
   /**
    * Determine if SDF has a blacklist for the appropriate word size
    * @param sdfDir directory containing SDF
@@ -41,7 +44,17 @@ public final class HashBlacklist {
    */
   public static boolean blacklistExists(File sdfDir, int wordSize) {
     final File blacklist = getFile(sdfDir, wordSize);
-    return blacklist.exists();
+    return blacklist.exists() || binaryBlacklistExists(sdfDir, wordSize);
+  }
+
+  /**
+   * Determine if SDF has a binary blacklist for the appropriate word size
+   * @param sdfDir directory containing SDF
+   * @param wordSize kmer size
+   * @return true if binary blacklist exists
+   */
+  public static boolean binaryBlacklistExists(File sdfDir, int wordSize) {
+    return getBinaryFile(sdfDir, wordSize).exists();
   }
 
   /**
@@ -67,13 +80,17 @@ public final class HashBlacklist {
    */
   public static void installBlacklist(File blacklist, File sdfDir, int wordSize) throws IOException {
     final File destination = getFile(sdfDir, wordSize);
-    if (destination.exists()) {
+    if (blacklistExists(sdfDir, wordSize)) {
       throw new IOException("Blacklist already exists in " + sdfDir + " for word size " + wordSize);
     }
     if (!destination.getParentFile().isDirectory() && !destination.getParentFile().mkdir()) {
       throw new IOException("Could not make blacklist directory");
     }
     Files.copy(blacklist.toPath(), destination.toPath());
+    final File binary = new File(blacklist.getPath() + BINARY_SUFFIX);
+    if (binary.exists()) {
+      Files.copy(binary.toPath(), getBinaryFile(sdfDir, wordSize).toPath());
+    }
   }
 
   /**
@@ -105,6 +122,10 @@ public final class HashBlacklist {
     return new File(sdfDir, BLACKLIST_SUBDIR + File.separator + "w" + wordSize);
   }
 
+  static File getBinaryFile(File sdfDir, int wordSize) {
+    return new File(sdfDir, BLACKLIST_SUBDIR + File.separator + "w" + wordSize + BINARY_SUFFIX);
+  }
+
   /**
    * @param wordSize kmer size
    * @return number of bits used in hash for kmer
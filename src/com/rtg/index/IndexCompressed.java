@@ -21,6 +21,7 @@ import com.rtg.util.IORunnable;
 import com.rtg.util.LongUtils;
 import com.rtg.util.SimpleThreadPool;
 import com.rtg.util.array.ArrayUtils;
+import com.rtg.util.array.CommonIndex;
 import com.rtg.util.array.IndexSorter;
 import com.rtg.util.array.Swapper;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -37,12 +38,24 @@ import com.rtg.util.integrity.Exam;
 @TestClass({"com.rtg.index.IndexCompressedTest", "com.rtg.index.IndexCompressedExtendedTest"})
 public class IndexCompressed extends IndexBase implements IndexExtended {
 
+  private static final int LOCK_BITS = 12;
+  private static final int LOCK_MASK = (1 << LOCK_BITS) - 1;
+
   /** Mask to get the lower bits of a hash value */
   private final long mCompressHashMask;
   private final int mExcessBits;
   private final long mExcessBitsMask;
   private final int mExcessShift;
 
+  /** Locks striped over buckets of the initial position array, non-null once concurrent adds are enabled. */
+  private Object[] mLocks = null;
+
+  /**
+   * Per slot, the number of entries in each bucket during the first pass, then the next position
+   * to be filled in each bucket during the second pass. Non-null once slot adds are enabled.
+   */
+  private CommonIndex[] mSlotPositions = null;
+
   /**
    * Constructs an empty index.
    *
@@ -84,6 +97,125 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     }
   }
 
+  /**
+   * @return true iff the underlying arrays allow <code>addConcurrent</code> to be used.
+   */
+  public boolean supportsConcurrentAdd() {
+    // The initial position array is always created from whole int or long words
+    return mHash.safeFromWordTearing() && mValue.safeFromWordTearing();
+  }
+
+  /**
+   * Allow <code>addConcurrent</code> to be called from multiple threads in subsequent passes.
+   * Threads add entries in an arbitrary order, so the order of the values of a hash is not
+   * defined. Use slots where it matters.
+   */
+  public void enableConcurrentAdd() {
+    if (!supportsConcurrentAdd()) {
+      throw new ConcurrentModificationException("Index implementation is not safe from concurrent update of adjacent values");
+    }
+    if (mLocks == null) {
+      final Object[] locks = new Object[LOCK_MASK + 1];
+      for (int i = 0; i < locks.length; ++i) {
+        locks[i] = new Object();
+      }
+      mLocks = locks;
+    }
+  }
+
+  /**
+   * Thread safe version of <code>add</code>, only available after <code>enableConcurrentAdd</code>.
+   * Counting and slot allocation for a bucket are serialized by a lock shared by a stripe of buckets,
+   * each caller then fills its own slot in the hash and value arrays.
+   * @param hash the hash key
+   * @param value to be associated with the key
+   */
+  public void addConcurrent(final long hash, final long value) {
+    synchronized (mLocks[(int) (position(hash) & LOCK_MASK)]) {
+      add(hash, value);
+    }
+  }
+
+  /**
+   * Allow <code>addConcurrent</code> to be called through a number of slots from multiple threads
+   * in the two subsequent passes. Each slot counts its own entries per bucket in the first pass,
+   * and the counts are merged by a prefix sum when frozen, so in the second pass each slot fills
+   * its own positions without locking. Each slot must be used by one thread at a time and be given
+   * the same entries in both passes. The entries of each bucket are ordered by slot, then by the
+   * order they were added through the slot, so the index is the same as one built serially by
+   * adding the entries of each slot in turn. Each slot takes as much memory as the initial position array.
+   * @param slots number of slots.
+   */
+  public void enableConcurrentAdd(final int slots) {
+    if (!supportsConcurrentAdd()) {
+      throw new ConcurrentModificationException("Index implementation is not safe from concurrent update of adjacent values");
+    }
+    if (mState != IndexState.PRE_ADD) {
+      throw new IllegalStateException("Slots need to count entries in a first pass");
+    }
+    final CommonIndex[] positions = new CommonIndex[slots];
+    for (int i = 0; i < slots; ++i) {
+      positions[i] = mParams.initialPosition().createUnsigned();
+    }
+    mSlotPositions = positions;
+    Diagnostic.developerLog("Slot position arrays size : " + slots + " * " + mSlotPositions[0].bytes() + " bytes");
+  }
+
+  /**
+   * Thread safe version of <code>add</code>, only available after <code>enableConcurrentAdd(int)</code>.
+   * @param slot the slot to add through, not in use by any other thread.
+   * @param hash the hash key
+   * @param value to be associated with the key
+   */
+  public void addConcurrent(final int slot, final long hash, final long value) {
+    final CommonIndex positions = mSlotPositions[slot];
+    final long bucket = position(hash);
+    if (mState == IndexState.PRE_ADD) {
+      positions.set(bucket, positions.get(bucket) + 1);
+    } else if (mState == IndexState.FROZEN) {
+      throw new IllegalStateException();
+    } else {
+      assert value >= 0;
+      final long next = positions.get(bucket);
+      mHash.set(next, compressHash(hash));
+      mValue.set(next, value);
+      positions.set(bucket, next + 1);
+    }
+  }
+
+  // Add the slot counts into the bucket counts
+  private void mergeSlotCounts() {
+    for (long bucket = 0; bucket < mInitialPositionLength - 2; ++bucket) {
+      long count = 0;
+      for (final CommonIndex positions : mSlotPositions) {
+        count += positions.get(bucket);
+      }
+      mInitialPosition.set(bucket + 2, mInitialPosition.get(bucket + 2) + count);
+    }
+  }
+
+  // Once the bucket starts are known, turn the slot counts into the position each slot starts filling a bucket from
+  private void startSlotPositions() {
+    for (long bucket = 0; bucket < mInitialPositionLength - 2; ++bucket) {
+      long next = mInitialPosition.get(bucket + 1);
+      for (final CommonIndex positions : mSlotPositions) {
+        final long count = positions.get(bucket);
+        positions.set(bucket, next);
+        next += count;
+      }
+      assert next == mInitialPosition.get(bucket + 2);
+    }
+  }
+
+  // Leave the initial positions as a serial second pass would, with the end of each bucket one place earlier
+  private void finishSlotPositions() {
+    for (long i = 1; i < mInitialPositionLength - 1; ++i) {
+      assert mSlotPositions[mSlotPositions.length - 1].get(i - 1) == mInitialPosition.get(i + 1);
+      mInitialPosition.set(i, mInitialPosition.get(i + 1));
+    }
+    mSlotPositions = null;
+  }
+
   @Override
   public void add(long[] hash, long value) {
     if (mState == IndexState.PRE_ADD) {
@@ -108,6 +240,9 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
     if (mState == IndexState.PRE_ADD) {
       //System.err.println("freeze1 start");
       //System.err.println(mInitialPosition.toString());
+      if (mSlotPositions != null) {
+        mergeSlotCounts();
+      }
       long sum = 0;
       assert mInitialPosition.get(0) == 0 && mInitialPosition.get(1) == 0;
       for (long i = 1; i < mInitialPositionLength; ++i) {
@@ -123,10 +258,16 @@ public class IndexCompressed extends IndexBase implements IndexExtended {
         throw new RuntimeException("Too many items pre-added:" + sum + " > " + mHash.length());
       }
       mInitialHashes = sum;
+      if (mSlotPositions != null) {
+        startSlotPositions();
+      }
       mState = IndexState.ADD;
     } else if (mState == IndexState.FROZEN) {
       throw new IllegalStateException("Index closed twice");
     } else {
+      if (mSlotPositions != null) {
+        finishSlotPositions();
+      }
       final OneShotTimer sort = new OneShotTimer("Index_sort");
       //System.err.println("freeze2 start");
       //System.err.println(mInitialPosition.toString());
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import static com.rtg.util.StringUtils.LS;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.rtg.index.IndexBase.IndexState;
+import com.rtg.index.params.CreateParams;
+import com.rtg.util.LongUtils;
+import com.rtg.util.StringUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.IntegralAbstract;
+
+/**
+ * Read only index over a frozen <code>IndexCompressed</code> that has been written to disk.
+ * The arrays are memory mapped rather than read onto the heap, so searching can start
+ * immediately and concurrent processes share a single copy via the page cache.
+ *
+ * The file consists of a fixed header of longs followed by the initial position,
+ * hash and value arrays, each stored as big-endian longs. The bit vector is not persisted,
+ * empty buckets in the initial position array already reject most missing hashes.
+ */
+public class IndexMapped extends IntegralAbstract implements Index {
+
+  static final long MAGIC = 0x5254474D4150494EL; // "RTGMAPIN"
+  static final long VERSION = 1;
+  private static final int HEADER_LONGS = 12;
+
+  /**
+   * @param params parameters of an index.
+   * @return true iff an index built with the parameters can be written by <code>save</code>.
+   */
+  public static boolean canSave(final CreateParams params) {
+    return params.compressHashes() && params.hashBits() <= Long.SIZE;
+  }
+
+  /**
+   * Write a frozen index to a file in a form that can be mapped back using this class.
+   * @param index the index to save, must be frozen and have at most 64 hash bits.
+   * @param file destination file.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void save(final IndexCompressed index, final File file) throws IOException {
+    if (index.mState != IndexState.FROZEN) {
+      throw new IllegalStateException("Only frozen indexes can be saved");
+    }
+    if (index.mHashBits > Long.SIZE) {
+      throw new UnsupportedOperationException("Cannot save index with hash bits=" + index.mHashBits);
+    }
+    try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 20))) {
+      out.writeLong(MAGIC);
+      out.writeLong(VERSION);
+      out.writeLong(index.mHashBits);
+      out.writeLong(index.mInitialPointerBits);
+      out.writeLong(index.mSRBits);
+      out.writeLong(index.mIncrement);
+      out.writeLong(index.mParams.size());
+      out.writeLong(index.mInitialHashes);
+      out.writeLong(index.mNumHashes);
+      out.writeLong(index.mNumValues);
+      out.writeLong(index.maxHashCount());
+      out.writeLong(index.mInitialPositionLength);
+      for (long i = 0; i < index.mInitialPositionLength; ++i) {
+        out.writeLong(index.mInitialPosition.get(i));
+      }
+      for (long i = 0; i < index.mNumValues; ++i) {
+        out.writeLong(index.mHash.get(i));
+      }
+      for (long i = 0; i < index.mNumValues; ++i) {
+        out.writeLong(index.mValue.get(i));
+      }
+    }
+  }
+
+  private final File mFile;
+  private final int mHashBits;
+  private final int mInitialPointerBits;
+  private final int mSRBits;
+  private final long mIncrement;
+  private final long mCompressHashMask;
+  private final long mSize;
+  private final long mInitialHashes;
+  private final long mNumHashes;
+  private final long mNumValues;
+  private final int mMaxHashCount;
+  private final long mInitialPositionLength;
+
+  private final MappedLongArray mInitialPosition;
+  private final MappedLongArray mHash;
+  private final MappedLongArray mValue;
+
+  /**
+   * Map an index previously written by <code>save</code>.
+   * @param file the index file.
+   * @throws IOException if the file cannot be read or is not a valid index file.
+   */
+  public IndexMapped(final File file) throws IOException {
+    mFile = file;
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final MappedLongArray header = new MappedLongArray(channel, 0, Math.min(HEADER_LONGS, channel.size() / Long.BYTES));
+      if (header.length() < HEADER_LONGS || header.get(0) != MAGIC) {
+        throw new IOException("File " + file.getPath() + " is not a saved index");
+      }
+      if (header.get(1) != VERSION) {
+        throw new IOException("Saved index " + file.getPath() + " has unsupported version " + header.get(1));
+      }
+      mHashBits = (int) header.get(2);
+      mInitialPointerBits = (int) header.get(3);
+      mSRBits = (int) header.get(4);
+      mIncrement = header.get(5);
+      mSize = header.get(6);
+      mInitialHashes = header.get(7);
+      mNumHashes = header.get(8);
+      mNumValues = header.get(9);
+      mMaxHashCount = (int) header.get(10);
+      mInitialPositionLength = header.get(11);
+      mCompressHashMask = LongUtils.longMask(mSRBits);
+      final long expected = (HEADER_LONGS + mInitialPositionLength + 2 * mNumValues) * Long.BYTES;
+      if (channel.size() != expected) {
+        throw new IOException("Saved index " + file.getPath() + " has length " + channel.size() + " but expected " + expected);
+      }
+      long offset = HEADER_LONGS * Long.BYTES;
+      mInitialPosition = new MappedLongArray(channel, offset, mInitialPositionLength);
+      offset += mInitialPosition.bytes();
+      mHash = new MappedLongArray(channel, offset, mNumValues);
+      offset += mHash.bytes();
+      mValue = new MappedLongArray(channel, offset, mNumValues);
+    }
+    Diagnostic.developerLog("Mapped index " + file.getPath() + " hashBits=" + mHashBits + " values=" + mNumValues);
+  }
+
+  /**
+   * @return the number of bits in the hashes stored in this index.
+   */
+  public int hashBits() {
+    return mHashBits;
+  }
+
+  /**
+   * @return the size the index was originally created with.
+   */
+  public long size() {
+    return mSize;
+  }
+
+  private long position(final long hash) {
+    final long k = (hash >> mSRBits) + mIncrement;
+    assert k >= 0 && k < mInitialPositionLength - 1 : "k=" + k + " hash=" + hash + " srbits=" + mSRBits;
+    return k;
+  }
+
+  private long decompressHash(final long upper, final long lower) {
+    return (upper - mIncrement) << mSRBits | lower;
+  }
+
+  private long binarySearch(final long lowParam, final long highParam, final long key) {
+    long low = lowParam;
+    long high = highParam;
+    while (low <= high) {
+      final long mid = (low + high) >>> 1;
+      final long midVal = mHash.get(mid);
+      if (midVal < key) {
+        low = mid + 1;
+      } else if (midVal > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private long find(final long hash) {
+    final long start = position(hash);
+    final long low = mInitialPosition.get(start);
+    final long high = mInitialPosition.get(start + 1);
+    if (low == high) {
+      return -1;
+    }
+    return binarySearch(low, high - 1, hash & mCompressHashMask);
+  }
+
+  /** Find the bucket containing the entry at <code>found</code>. */
+  private long bucket(final long found) {
+    long low = 0;
+    long high = mInitialPositionLength - 2;
+    while (low < high) {
+      final long mid = (low + high + 1) >>> 1;
+      if (mInitialPosition.get(mid) <= found) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public void add(final long hash, final long value) {
+    throw new IllegalStateException();
+  }
+
+  @Override
+  public void freeze() {
+    throw new IllegalStateException("Index closed twice");
+  }
+
+  @Override
+  public void search(final long hash, final Finder finder) throws IOException {
+    final long found = find(hash);
+    if (found < 0) {
+      return;
+    }
+    final long start = position(hash);
+    final long low = mInitialPosition.get(start);
+    final long high = mInitialPosition.get(start + 1);
+    final long compressedHash = mHash.get(found);
+    long i = found - 1;
+    while (i >= low && mHash.get(i) == compressedHash) {
+      --i;
+    }
+    long j = i + 1;
+    while (j < high && mHash.get(j) == compressedHash && finder.found(mValue.get(j))) {
+      ++j;
+    }
+  }
+
+  @Override
+  public void scan(final FinderHashValue finder) throws IOException {
+    long lo = 0;
+    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
+      final long hi = mInitialPosition.get(p + 1);
+      for (long i = lo; i < hi; ++i) {
+        finder.found(decompressHash(p, mHash.get(i)), mValue.get(i));
+      }
+      lo = hi;
+    }
+  }
+
+  @Override
+  public boolean contains(final long hash) {
+    return find(hash) >= 0;
+  }
+
+  @Override
+  public int count(final long hash) {
+    try {
+      final CountingFinder countingFinder = new CountingFinder();
+      search(hash, countingFinder);
+      return (int) countingFinder.getCount();
+    } catch (final IOException e) {
+      throw new RuntimeException("Unpossible: " + e.getMessage()); // CountingFinder has no IOException
+    }
+  }
+
+  @Override
+  public long first(final long hash) {
+    long index = find(hash);
+    if (index < 0) {
+      return index;
+    }
+    final long low = mInitialPosition.get(position(hash));
+    final long compressedHash = mHash.get(index);
+    while (index > low && mHash.get(index - 1) == compressedHash) {
+      --index;
+    }
+    return index;
+  }
+
+  @Override
+  public long getHash(final long found) {
+    return decompressHash(bucket(found), mHash.get(found));
+  }
+
+  @Override
+  public long getValue(final long found) {
+    return mValue.get(found);
+  }
+
+  @Override
+  public long numberEntries() {
+    return mNumValues;
+  }
+
+  @Override
+  public long numberHashes() {
+    return mNumHashes;
+  }
+
+  @Override
+  public long getInitialHashes() {
+    return mInitialHashes;
+  }
+
+  @Override
+  public int maxHashCount() {
+    return mMaxHashCount;
+  }
+
+  @Override
+  public long bytes() {
+    return mInitialPosition.bytes() + mHash.bytes() + mValue.bytes();
+  }
+
+  @Override
+  public String perfString() {
+    return "Performance statistics not available." + LS;
+  }
+
+  @Override
+  public String infoString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Memory Usage (mapped from ").append(mFile.getPath()).append(")\tbytes\tlength").append(LS);
+    sb.append("\t\t").append(StringUtils.commas(mHash.bytes())).append("\t").append(StringUtils.commas(mHash.length())).append("\tHash").append(LS);
+    sb.append("\t\t").append(StringUtils.commas(mValue.bytes())).append("\t").append(StringUtils.commas(mValue.length())).append("\tValue").append(LS);
+    sb.append("\t\t").append(StringUtils.commas(mInitialPosition.bytes())).append("\t").append(StringUtils.commas(mInitialPosition.length())).append("\tInitial Position").append(LS);
+    sb.append("\t\t").append(StringUtils.commas(bytes())).append("\t\tTotal bytes").append(LS);
+    return sb.toString();
+  }
+
+  @Override
+  public void dumpValues(final PrintStream out) {
+    out.println("Index InitialPosition");
+    for (long i = 0; i < mInitialPositionLength; ++i) {
+      out.println("[" + i + "]" + "  " + mInitialPosition.get(i));
+    }
+    out.println("Index Hash  Values");
+    for (long i = 0; i < mNumValues; ++i) {
+      out.println("[" + i + "]" + "  " + mHash.get(i) + "  " + mValue.get(i));
+    }
+  }
+
+  @Override
+  public SparseFrequencyHistogram getSparseFrequencyHistogram() {
+    int[] freqDist = new int[1024];
+    SparseFrequencyHistogram freqHist = new SparseFrequencyHistogram();
+    int numUsed = 0;
+    long lo = 0;
+    for (long p = 0; p < mInitialPositionLength - 2; ++p) {
+      final long hi = mInitialPosition.get(p + 1);
+      for (long i = lo; i < hi;) {
+        final long hash = mHash.get(i);
+        int freq = 1;
+        ++i;
+        while (i < hi && hash == mHash.get(i)) {
+          ++i;
+          ++freq;
+        }
+        if (numUsed >= freqDist.length) {
+          if (freqDist.length == IndexBase.MAX_FREQ_DIST_SIZE) {
+            freqHist = SparseFrequencyHistogram.merge(freqHist, SparseFrequencyHistogram.fromIndividualFrequencies(freqDist, numUsed));
+            numUsed = 0;
+          } else {
+            int length = freqDist.length * 3 / 2;
+            if (length < 0 || length > IndexBase.MAX_FREQ_DIST_SIZE) {
+              length = IndexBase.MAX_FREQ_DIST_SIZE;
+            }
+            freqDist = Arrays.copyOf(freqDist, length);
+          }
+        }
+        freqDist[numUsed++] = freq;
+      }
+      lo = hi;
+    }
+    return SparseFrequencyHistogram.merge(freqHist, SparseFrequencyHistogram.fromIndividualFrequencies(freqDist, numUsed));
+  }
+
+  @Override
+  public void toString(final StringBuilder sb) {
+    sb.append("IndexMapped ").append(mFile.getPath()).append(LS);
+    sb.append("Hash Bits=").append(mHashBits).append(LS);
+    sb.append("Initial Number of hashes=").append(mInitialHashes).append(LS);
+    sb.append("Number of hash codes=").append(mNumHashes).append(LS);
+    sb.append(infoString());
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertTrue(mNumHashes <= mNumValues);
+    Exam.assertTrue(mNumValues <= mInitialHashes);
+    Exam.assertEquals(mInitialPositionLength, mInitialPosition.length());
+    Exam.assertEquals(mHash.length(), mValue.length());
+    Exam.assertTrue(mInitialPointerBits >= mHashBits || mHashBits == mInitialPointerBits + mSRBits);
+    return true;
+  }
+
+  @Override
+  public boolean globalIntegrity() {
+    integrity();
+    for (long i = 1; i < mInitialPositionLength; ++i) {
+      Exam.assertTrue(mInitialPosition.get(i - 1) <= mInitialPosition.get(i));
+    }
+    Exam.assertEquals(mNumValues, mInitialPosition.get(mInitialPositionLength - 1));
+    return true;
+  }
+}
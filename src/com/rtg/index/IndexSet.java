@@ -13,12 +13,14 @@ package com.rtg.index;
 
 import static com.rtg.util.StringUtils.LS;
 
+import java.io.File;
 import java.io.IOException;
 
 import com.rtg.index.params.CreateParams;
 import com.rtg.ngs.NgsParams;
 import com.rtg.util.IORunnable;
 import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.io.FileUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 
 /**
@@ -85,6 +87,129 @@ public class IndexSet {
     pool.terminate();
   }
 
+  /**
+   * Prepare every index in the set to accept adds through slots from multiple threads.
+   * @param slots number of slots, each used by one thread at a time.
+   * @return true iff all the indexes support concurrent adds, in which case they have been enabled.
+   */
+  public boolean enableConcurrentAdd(int slots) {
+    for (final Index index : mIndexes) {
+      if (!(index instanceof IndexCompressed) || !((IndexCompressed) index).supportsConcurrentAdd()) {
+        return false;
+      }
+    }
+    for (final Index index : mIndexes) {
+      ((IndexCompressed) index).enableConcurrentAdd(slots);
+    }
+    return true;
+  }
+
+  /**
+   * Write each of the frozen indexes in this set into a directory, so that a later run
+   * can map them with <code>load</code> rather than rebuilding them.
+   * @param dir directory to contain the saved indexes.
+   * @param numberThreads how many threads to use.
+   * @param description identifies the reads and parameters the indexes were built from, retrieved by <code>savedDescription</code>.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void save(final File dir, int numberThreads, final String description) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create directory " + dir.getPath());
+    }
+    // The description is written last, so a set is only complete once it is present
+    final File descriptionFile = descriptionFile(dir);
+    if (descriptionFile.exists() && !descriptionFile.delete()) {
+      throw new IOException("Could not delete " + descriptionFile.getPath());
+    }
+    final SimpleThreadPool pool = new SimpleThreadPool(numberThreads, "SaveIndex", true);
+    for (int i = 0; i < mIndexes.length; ++i) {
+      pool.execute(new SaveRunnable(mIndexes[i], i, dir));
+    }
+    pool.terminate();
+    final File tmp = new File(dir, descriptionFile.getName() + ".tmp");
+    FileUtils.stringToFile(description, tmp);
+    if (!tmp.renameTo(descriptionFile)) {
+      throw new IOException("Could not rename " + tmp.getPath() + " to " + descriptionFile.getPath());
+    }
+  }
+
+  /**
+   * @param dir directory that may contain saved indexes.
+   * @param windows the number of windows used by your hash function
+   * @return true iff a complete set of saved indexes is present in the directory.
+   */
+  public static boolean isSaved(final File dir, int windows) {
+    if (!descriptionFile(dir).isFile()) {
+      return false;
+    }
+    for (int i = 0; i < windows; ++i) {
+      if (!indexFile(dir, i).isFile()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param dir directory containing saved indexes.
+   * @return the description given when the indexes were saved.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static String savedDescription(final File dir) throws IOException {
+    return FileUtils.fileToString(descriptionFile(dir));
+  }
+
+  /**
+   * Memory map a set of indexes previously written by <code>save</code>.
+   * @param dir directory containing the saved indexes.
+   * @param windows the number of windows used by your hash function
+   * @return the mapped index set.
+   * @throws IOException if the indexes cannot be mapped.
+   */
+  public static IndexSet load(final File dir, int windows) throws IOException {
+    final Index[] indexes = new Index[windows];
+    for (int i = 0; i < windows; ++i) {
+      indexes[i] = new IndexMapped(indexFile(dir, i));
+    }
+    return new IndexSet(indexes);
+  }
+
+  static File descriptionFile(final File dir) {
+    return new File(dir, "index.txt");
+  }
+
+  static File indexFile(final File dir, final int id) {
+    return new File(dir, "index" + id + ".bin");
+  }
+
+  private static class SaveRunnable implements IORunnable {
+    private final Index mIndex;
+    private final int mId;
+    private final File mDir;
+
+    SaveRunnable(final Index index, final int id, final File dir) {
+      mIndex = index;
+      mId = id;
+      mDir = dir;
+    }
+
+    @Override
+    public void run() throws IOException {
+      if (!(mIndex instanceof IndexCompressed)) {
+        throw new UnsupportedOperationException("Only compressed indexes can be saved");
+      }
+      Diagnostic.userLog("Start save job " + mId);
+      // Write under a temporary name so an interrupted save is never mistaken for a complete one
+      final File dest = indexFile(mDir, mId);
+      final File tmp = new File(mDir, dest.getName() + ".tmp");
+      IndexMapped.save((IndexCompressed) mIndex, tmp);
+      if (!tmp.renameTo(dest)) {
+        throw new IOException("Could not rename " + tmp.getPath() + " to " + dest.getPath());
+      }
+      Diagnostic.userLog("Finish save job " + mId);
+    }
+  }
+
   private static class CreateRunnable implements IORunnable {
     private final Index[] mIndexes;
     private final int mId;
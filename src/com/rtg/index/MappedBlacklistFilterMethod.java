@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.rtg.util.QuickSort;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Filter which uses a blacklist stored as a binary file of sorted hashes and their counts.
+ * The file is memory mapped and searched directly, so there is no parsing or index construction
+ * and concurrent processes share a single copy via the page cache.
+ *
+ * The file consists of a fixed header of longs followed by the hash and count arrays, each
+ * stored as big-endian longs, with the hashes in increasing order.
+ */
+public final class MappedBlacklistFilterMethod implements IndexFilterMethod {
+
+  static final long MAGIC = 0x525447424C4B4C53L; // "RTGBLKLS"
+  static final long VERSION = 1;
+  private static final int HEADER_LONGS = 4;
+
+  /**
+   * Write a blacklist to a file in a form that can be mapped back using this class.
+   * The arrays are sorted in place by hash.
+   * @param file destination file.
+   * @param hashBits number of bits used to encode each hash.
+   * @param hashes the distinct hashes in the blacklist.
+   * @param counts the count for each hash.
+   * @param length number of entries in the arrays to write.
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void save(final File file, final int hashBits, final long[] hashes, final long[] counts, final int length) throws IOException {
+    QuickSort.sort(new QuickSort.SortProxy() {
+      @Override
+      public int compare(final long index1, final long index2) {
+        return Long.compare(hashes[(int) index1], hashes[(int) index2]);
+      }
+
+      @Override
+      public void swap(final long index1, final long index2) {
+        final int i = (int) index1;
+        final int j = (int) index2;
+        final long h = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = h;
+        final long c = counts[i];
+        counts[i] = counts[j];
+        counts[j] = c;
+      }
+
+      @Override
+      public long length() {
+        return length;
+      }
+    });
+    try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 20))) {
+      out.writeLong(MAGIC);
+      out.writeLong(VERSION);
+      out.writeLong(hashBits);
+      out.writeLong(length);
+      for (int i = 0; i < length; ++i) {
+        out.writeLong(hashes[i]);
+      }
+      for (int i = 0; i < length; ++i) {
+        out.writeLong(counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Map the binary blacklist installed in an SDF.
+   * @param sdfDir directory of reference SDF
+   * @param wordSize kmer size for hashes
+   * @param threshold kmer occurrence count at which they are treated as blacklisted
+   * @return the filter
+   * @throws IOException if the blacklist cannot be read or is not valid
+   */
+  public static MappedBlacklistFilterMethod loadBlacklist(File sdfDir, int wordSize, int threshold) throws IOException {
+    final MappedBlacklistFilterMethod res = new MappedBlacklistFilterMethod(HashBlacklist.getBinaryFile(sdfDir, wordSize), threshold);
+    if (res.mHashBits != HashBlacklist.hashBits(wordSize)) {
+      throw new IOException("Blacklist " + res.mFile.getPath() + " has " + res.mHashBits + " hash bits but expected " + HashBlacklist.hashBits(wordSize));
+    }
+    return res;
+  }
+
+  private final File mFile;
+  private final int mHashBits;
+  private final long mThreshold;
+  private final long mLength;
+  private final MappedLongArray mHash;
+  private final MappedLongArray mCount;
+
+  /**
+   * Map a blacklist previously written by <code>save</code>.
+   * @param file the blacklist file.
+   * @param threshold only hashes with a count at least this are blacklisted.
+   * @throws IOException if the file cannot be read or is not a valid blacklist file.
+   */
+  public MappedBlacklistFilterMethod(final File file, final int threshold) throws IOException {
+    mFile = file;
+    mThreshold = threshold;
+    try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final MappedLongArray header = new MappedLongArray(channel, 0, Math.min(HEADER_LONGS, channel.size() / Long.BYTES));
+      if (header.length() < HEADER_LONGS || header.get(0) != MAGIC) {
+        throw new IOException("File " + file.getPath() + " is not a binary blacklist");
+      }
+      if (header.get(1) != VERSION) {
+        throw new IOException("Binary blacklist " + file.getPath() + " has unsupported version " + header.get(1));
+      }
+      mHashBits = (int) header.get(2);
+      mLength = header.get(3);
+      final long expected = (HEADER_LONGS + 2 * mLength) * Long.BYTES;
+      if (channel.size() != expected) {
+        throw new IOException("Binary blacklist " + file.getPath() + " has length " + channel.size() + " but expected " + expected);
+      }
+      final long offset = HEADER_LONGS * Long.BYTES;
+      mHash = new MappedLongArray(channel, offset, mLength);
+      mCount = new MappedLongArray(channel, offset + mHash.bytes(), mLength);
+    }
+    Diagnostic.developerLog("Mapped blacklist " + file.getPath() + " hashBits=" + mHashBits + " hashes=" + mLength + " threshold=" + threshold);
+  }
+
+  /**
+   * @param hash the hash to look for.
+   * @return true if the hash is in the blacklist with a count meeting the threshold.
+   */
+  public boolean contains(final long hash) {
+    long low = 0;
+    long high = mLength - 1;
+    while (low <= high) {
+      final long mid = (low + high) >>> 1;
+      final long midVal = mHash.get(mid);
+      if (midVal < hash) {
+        low = mid + 1;
+      } else if (midVal > hash) {
+        high = mid - 1;
+      } else {
+        return mCount.get(mid) >= mThreshold;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return number of hashes in the file, regardless of threshold.
+   */
+  public long length() {
+    return mLength;
+  }
+
+  @Override
+  public IndexFilterMethod threadClone() {
+    return this; // Read only, so can be shared between threads
+  }
+
+  @Override
+  public void initialize(Index index) {
+  }
+
+  @Override
+  public boolean keepHash(long hash, long numHits) {
+    return !contains(hash);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only array of longs backed by a memory mapped region of a file.
+ * The region is mapped as a number of chunks so that arrays larger than 2GB can be addressed.
+ * Values are stored big-endian, as written by <code>DataOutputStream</code>.
+ */
+public final class MappedLongArray {
+
+  /** Default number of bits addressed within a single mapping (1GB of longs per chunk). */
+  static final int CHUNK_BITS = 27;
+
+  private final int mChunkBits;
+  private final long mChunkMask;
+  private final LongBuffer[] mChunks;
+  private final long mLength;
+
+  /**
+   * Map a region of a file.
+   * @param channel channel open for reading on the file.
+   * @param offset byte offset of the first long in the file.
+   * @param length number of longs in the region.
+   * @throws IOException if the region could not be mapped.
+   */
+  public MappedLongArray(final FileChannel channel, final long offset, final long length) throws IOException {
+    this(channel, offset, length, CHUNK_BITS);
+  }
+
+  MappedLongArray(final FileChannel channel, final long offset, final long length, final int chunkBits) throws IOException {
+    if (length < 0) {
+      throw new IllegalArgumentException("Negative length:" + length);
+    }
+    mChunkBits = chunkBits;
+    mChunkMask = (1L << chunkBits) - 1;
+    mLength = length;
+    final long chunkLength = 1L << chunkBits;
+    final int numChunks = (int) ((length + chunkLength - 1) >> chunkBits);
+    mChunks = new LongBuffer[numChunks];
+    for (int i = 0; i < numChunks; ++i) {
+      final long start = (long) i << chunkBits;
+      final long len = Math.min(chunkLength, length - start);
+      mChunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start * Long.BYTES, len * Long.BYTES).asLongBuffer();
+    }
+  }
+
+  /**
+   * @param index position in the array.
+   * @return the value stored at <code>index</code>.
+   */
+  public long get(final long index) {
+    return mChunks[(int) (index >>> mChunkBits)].get((int) (index & mChunkMask));
+  }
+
+  /**
+   * @return number of longs in the array.
+   */
+  public long length() {
+    return mLength;
+  }
+
+  /**
+   * @return number of bytes of the file mapped by this array.
+   */
+  public long bytes() {
+    return mLength * Long.BYTES;
+  }
+}
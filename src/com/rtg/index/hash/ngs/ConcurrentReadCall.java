@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.hash.ngs;
+
+import com.rtg.index.IndexCompressed;
+import com.rtg.index.IndexSet;
+
+/**
+ * Does the actions for each window when scanning a range of reads from one of several threads.
+ * Each instance adds through its own slot of the indexes, so is used by one thread at a time and
+ * must be given the same reads in both passes. The indexes must have had slot adds enabled.
+ */
+public class ConcurrentReadCall implements ReadCall {
+  private final IndexCompressed[] mIndexes;
+  private final int mSlot;
+
+  /**
+   * @param indexes indexes selected by the hash function, all of which must be compressed indexes.
+   * @param slot the slot of the indexes to add through.
+   */
+  public ConcurrentReadCall(final IndexSet indexes, final int slot) {
+    mIndexes = new IndexCompressed[indexes.size()];
+    for (int i = 0; i < mIndexes.length; ++i) {
+      mIndexes[i] = (IndexCompressed) indexes.get(i);
+    }
+    mSlot = slot;
+  }
+
+  @Override
+  public void readCall(final int id, final long hash, final int index) {
+    mIndexes[index].addConcurrent(mSlot, hash, id);
+  }
+}
@@ -127,6 +127,32 @@ public abstract class ImplementHashFunction extends IntegralAbstract implements
     }
   }
 
+  /**
+   * Create a clone of this hash function suitable for hashing a disjoint range of reads in an
+   * independent thread. The read sequence arrays are shared with this hash function, but the
+   * clone reports its windows to the supplied read call, which must be thread safe.
+   * @param readCall destination for read windows found by the clone.
+   * @return the clone.
+   */
+  public ImplementHashFunction readClone(final ReadCall readCall) {
+    try {
+      final ImplementHashFunction clone = (ImplementHashFunction) clone();
+      clone.mReadCall = readCall;
+      clone.setReadCall();
+      clone.reset();
+      return clone;
+    } catch (final CloneNotSupportedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Called after the read call has been replaced in a clone, so that subclasses
+   * holding per read state can recreate it.
+   */
+  protected void setReadCall() {
+  }
+
   @Override
   public void threadFinish() throws IOException {
     mTemplateCall.threadFinish();
@@ -12,6 +12,9 @@
 package com.rtg.index.hash.ngs;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 import com.rtg.launcher.HashingRegion;
 import com.rtg.launcher.ISequenceParams;
@@ -44,8 +47,6 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
   private final long mReadProgressMask;
   private final long mTemplateProgressMask;
   private long mThreadPadding;
-  /** Value to use for the generation of a valid base when an N is seen. */
-  private int mUnknownVictim = 0;
 
   protected long mMinChunkSize = HashingRegion.DEFAULT_MIN_CHUNK_SIZE;
 
@@ -80,24 +81,100 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
 
   @Override
   public long readLoop(final ISequenceParams params, final ReadHashFunction hashFunction, final ReadEncoder encoder, final boolean reverse) throws IOException {
-    final SequenceMode mode = SequenceMode.UNIDIRECTIONAL;
-    final UnidirectionalFrame frame = UnidirectionalFrame.FORWARD;
+    final SequencesReader reader = params.reader();
+    final long end = reader.numberSequences();
+    if (end > Integer.MAX_VALUE) {
+      throw new RuntimeException("Too many reads");
+    }
+    final AtomicInteger badLengthCount = new AtomicInteger();
+    final long totalLength = readRange(reader, hashFunction, encoder, reverse, 0, (int) end, badLengthCount);
+    if (badLengthCount.get() >= WRONG_LENGTH_REPORT_LIMIT) {
+      Diagnostic.warning(WarningType.NUMBER_OF_INCORRECT_LENGTH, String.valueOf(badLengthCount.get()));
+    }
 
+    mReadSequencesDefined = true;
+    assert Exam.globalIntegrity(hashFunction);
+    return totalLength;
+  }
+
+  /**
+   * Scans the reads and makes calls to the hash function, splitting the reads into
+   * contiguous ranges that are each processed by their own thread. There are at most
+   * <code>numberThreads</code> ranges, numbered from zero in read order.
+   * @param params specifies the reads.
+   * @param hashFunction model used to create a read clone of the hash function for each thread.
+   * @param readCalls supplies the destination for the windows found in each numbered range of reads.
+   * @param encoder the encoder used to create read ids.
+   * @param reverse if true store reverse complement.
+   * @param numberThreads the number of threads to use.
+   * @return total length of the reads processed.
+   * @throws IOException if an I/O error occurs.
+   */
+  public long readLoopMultiCore(final ISequenceParams params, final ImplementHashFunction hashFunction, final IntFunction<ReadCall> readCalls, final ReadEncoder encoder, final boolean reverse, final int numberThreads) throws IOException {
     final SequencesReader reader = params.reader();
-    final long start = 0;
     final long end = reader.numberSequences();
     if (end > Integer.MAX_VALUE) {
       throw new RuntimeException("Too many reads");
     }
+    final AtomicInteger badLengthCount = new AtomicInteger();
+    final AtomicLong totalLength = new AtomicLong();
+    final int chunks = (int) Math.max(1, Math.min(numberThreads, end));
+    final SimpleThreadPool pool = new SimpleThreadPool(numberThreads, "ReadHash", true);
+    pool.enableBasicProgress(chunks);
+    for (int i = 0; i < chunks; ++i) {
+      final int chunkStart = (int) (end * i / chunks);
+      final int chunkEnd = (int) (end * (i + 1) / chunks);
+      pool.execute(new ReadRangeLoop(this, reader, hashFunction.readClone(readCalls.apply(i)), encoder, reverse, chunkStart, chunkEnd, badLengthCount, totalLength));
+    }
+    pool.terminate();
+    if (badLengthCount.get() >= WRONG_LENGTH_REPORT_LIMIT) {
+      Diagnostic.warning(WarningType.NUMBER_OF_INCORRECT_LENGTH, String.valueOf(badLengthCount.get()));
+    }
 
-    assert mode.codeType().firstValid() == 1;
+    mReadSequencesDefined = true;
+    return totalLength.get();
+  }
+
+  private static final class ReadRangeLoop implements IORunnable {
+    private final NgsHashLoopImpl mParent;
+    private final SequencesReader mReader;
+    private final ReadHashFunction mHashFunction;
+    private final ReadEncoder mEncoder;
+    private final boolean mReverse;
+    private final int mStart;
+    private final int mEnd;
+    private final AtomicInteger mBadLengthCount;
+    private final AtomicLong mTotalLength;
+
+    ReadRangeLoop(final NgsHashLoopImpl parent, final SequencesReader reader, final ReadHashFunction hashFunction, final ReadEncoder encoder, final boolean reverse, final int start, final int end, final AtomicInteger badLengthCount, final AtomicLong totalLength) {
+      mParent = parent;
+      mReader = reader;
+      mHashFunction = hashFunction;
+      mEncoder = encoder;
+      mReverse = reverse;
+      mStart = start;
+      mEnd = end;
+      mBadLengthCount = badLengthCount;
+      mTotalLength = totalLength;
+    }
+
+    @Override
+    public void run() throws IOException {
+      try (final SequencesReader reader = mReader.copy()) {
+        mTotalLength.addAndGet(mParent.readRange(reader, mHashFunction, mEncoder, mReverse, mStart, mEnd, mBadLengthCount));
+      }
+    }
+  }
+
+  private long readRange(final SequencesReader reader, final ReadHashFunction hashFunction, final ReadEncoder encoder, final boolean reverse, final int start, final int end, final AtomicInteger badLengthCount) throws IOException {
+    final UnidirectionalFrame frame = UnidirectionalFrame.FORWARD;
+    assert SequenceMode.UNIDIRECTIONAL.codeType().firstValid() == 1;
     final byte[] byteBuffer = makeBuffer(reader);
-    int badLengthCount = 0;
     long totalLength = 0;
-    for (int seq = (int) start; seq < end; ++seq) {
-      mUnknownVictim = -1;
+    for (int seq = start; seq < end; ++seq) {
+      int unknownVictim = -1;
       final int readId = encoder.encode(seq);
-      final int id2 = encoder.encode((int) (seq - start));
+      final int id2 = encoder.encode(seq);
       //System.err.println("id2=" + id2);
       if ((id2 & mReadProgressMask) == 0) {
         ProgramState.checkAbort();
@@ -105,7 +182,7 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
       //System.err.println("seq=" + seq);
       final int currentLength = reader.length(seq);
       if (currentLength != hashFunction.readLength()) {
-        if (badLengthCount++ < WRONG_LENGTH_REPORT_LIMIT) {
+        if (badLengthCount.getAndIncrement() < WRONG_LENGTH_REPORT_LIMIT) {
           Diagnostic.warning(WarningType.INCORRECT_LENGTH, reader.names() != null ? reader.name(seq) : ("" + seq), currentLength + "", hashFunction.readLength() + "");
         }
         hashFunction.setValues(id2, false);
@@ -124,13 +201,13 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
         //System.err.println("c=" + c);
         final byte v;
         if (c < 0) {
-          if (DAVE_N_HACK || mUnknownVictim == -1) {
-            mUnknownVictim = prev;
+          if (DAVE_N_HACK || unknownVictim == -1) {
+            unknownVictim = prev;
           }
-          v = (byte) mUnknownVictim;
+          v = (byte) unknownVictim;
           if (!DAVE_N_HACK) {
-            ++mUnknownVictim;
-            mUnknownVictim &= 3;
+            ++unknownVictim;
+            unknownVictim &= 3;
           }
         } else {
           v = (byte) c;
@@ -142,12 +219,6 @@ public class NgsHashLoopImpl extends IntegralAbstract implements NgsHashLoop {
       hashFunction.setValues(id2, reverse);
       hashFunction.reset();
     }
-    if (badLengthCount >= WRONG_LENGTH_REPORT_LIMIT) {
-      Diagnostic.warning(WarningType.NUMBER_OF_INCORRECT_LENGTH, String.valueOf(badLengthCount));
-    }
-
-    mReadSequencesDefined = true;
-    assert Exam.globalIntegrity(hashFunction);
     return totalLength;
   }
 
@@ -121,15 +121,24 @@ public final class Mask extends ImplementHashFunction {
     setMasks();
   }
 
+  @Override
+  protected void setReadCall() {
+    setReadMasks(mSkeleton.masks().toArray(new SingleMask[mNumberMasks]));
+  }
+
+  private void setReadMasks(final SingleMask[] ma) {
+    mReadMasks = new ExtractRead[mNumberMasks];
+    for (int i = 0; i < mNumberMasks; ++i) {
+      mReadMasks[i] = new ExtractRead(ma[i], mReadCall, i);
+    }
+  }
+
   private void setMasks() {
     final Collection<SingleMask> masks = mSkeleton.masks();
     //System.err.println(masks);
     assert masks.size() == mNumberMasks;
     final SingleMask[] ma = masks.toArray(new SingleMask[mNumberMasks]);
-    mReadMasks = new ExtractRead[mNumberMasks];
-    for (int i = 0; i < mNumberMasks; ++i) {
-      mReadMasks[i] = new ExtractRead(ma[i], mReadCall, i);
-    }
+    setReadMasks(ma);
     //System.err.println("set masks HashFunction:" + System.identityHashCode(this) + " mTemplateCall:" + System.identityHashCode(mTemplateCall));
     mTemplateMasks = new ExtractTemplate[mNumberMasks];
     for (int i = 0; i < mNumberMasks; ++i) {
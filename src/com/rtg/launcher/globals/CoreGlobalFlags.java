@@ -26,6 +26,8 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String SPECIES_LTERMINATION_FLAG = "com.rtg.species.ltermination";
   /** Test early termination for p-values */
   public static final String SPECIES_TERMINATION_TARGET_FLAG = "com.rtg.species.ltermination-target";
+  /** Split calculations over the fragments of large blocks across threads in Species */
+  public static final String SPECIES_PARALLEL_FRAGMENTS = "com.rtg.species.parallel-fragments";
   /** Allow shut off of principle component analysis in similarity. */
   public static final String SIMILARITY_PCA_FLAG = "com.rtg.similarity.pca";
   /** Specify how many reads to log */
@@ -44,6 +46,12 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String TEMP_FILES_DUMP_ALIGN_STATS_FLAG = "com.rtg.ngs.tempstage.AbstractTempFileWriter.dump-alignment-stats";
   /** keep temporary files from mapping run instead of deleting them */
   public static final String MAP_KEEP_TEMPORARY_FILES = "com.rtg.map.keep-temporary-files";
+  /** Directory in which to save the read index after building it, or from which to map a previously saved read index */
+  public static final String MAP_INDEX_CACHE_DIR = "com.rtg.map.index-cache-dir";
+  /** Hash reads and build the read index using multiple threads */
+  public static final String MAP_PARALLEL_INDEX_BUILD = "com.rtg.map.parallel-index-build";
+  /** Write filtered mapping output directly to the final output file, rather than concatenating intermediate files */
+  public static final String MAP_STREAMING_OUTPUT = "com.rtg.map.streaming-output";
   /** Maximum number of hits at a given position in the sliding window collector */
   //see bug #1476 for consequences of this on larger datasets
   public static final String SLIDING_WINDOW_MAX_HITS_PER_POS_FLAG = "com.rtg.pairedend.SlidingWindow.max-hits-per-position";
@@ -81,6 +89,8 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String COMPLEX_CALLER_UNROLL_CG_FLAG = "com.rtg.variant.bayes.EvidenceComplex.unroll-cg";
   /** If true, use the class loader hack to prevent JIT from de-optimizing all-paths due to call bi-morphism */
   public static final String COMPLEX_CALLER_HOTSPOT_HACK = "com.rtg.variant.bayes.complex.hotspot-hack";
+  /** Reuse per-position models that did not result in a call, rather than allocating new ones */
+  public static final String VARIANT_RECYCLE_MODELS = "com.rtg.variant.recycle-models";
   /** Variant caller min depth for call-at-N triggering */
   public static final String CALLER_N_MIN_DEPTH = "com.rtg.variant.n-min-depth";
   /** If true, the population command will fall back to using forward backward when disagreeing calls are encountered (currently slow for large pops) */
@@ -101,6 +111,10 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
   public static final String GZIP_LEVEL = "com.rtg.calibrate.Recalibrate.gzip-level";
   /** Allow fallback to a slower alternative when reading non-indexed SAM files with region restrictions requested */
   public static final String SAM_ALLOW_FALLBACK_FOR_NON_INDEXED_REGIONS = "com.rtg.sam.allow-region-fallback";
+  /** Use spare reading threads to decompress blocks of a BAM file in parallel when reading the whole file */
+  public static final String SAM_PARALLEL_INFLATE = "com.rtg.sam.parallel-inflate";
+  /** Use multiple threads to compress BAM output when merging SAM/BAM files */
+  public static final String SAM_PARALLEL_DEFLATE = "com.rtg.sam.parallel-deflate";
   /** Use code page 437 characters for deletes*/
   public static final String CP437_DELETES = "com.rtg.visualization.cp437-deletes";
   /** Number of DP when displaying coverage levels */
@@ -115,6 +129,7 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
     // Metagenomics
     registerFlag(SPECIES_LTERMINATION_FLAG, Double.class, 0.1);
     registerFlag(SPECIES_TERMINATION_TARGET_FLAG, Double.class, 0.01);
+    registerFlag(SPECIES_PARALLEL_FRAGMENTS, Boolean.class, false);
     registerFlag(SIMILARITY_PCA_FLAG, Boolean.class, true);
 
 
@@ -129,11 +144,16 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
 
     registerFlag(TEMP_FILES_DUMP_ALIGN_STATS_FLAG);
     registerFlag(MAP_KEEP_TEMPORARY_FILES);
+    registerFlag(MAP_INDEX_CACHE_DIR, String.class, "");
+    registerFlag(MAP_PARALLEL_INDEX_BUILD, Boolean.class, false);
+    registerFlag(MAP_STREAMING_OUTPUT, Boolean.class, false);
     registerFlag(SLIDING_WINDOW_MAX_HITS_PER_POS_FLAG, Integer.class, 0);
     registerFlag(SLIDING_WINDOW_MAX_HITS_PER_READ_FLAG, Integer.class, 0);
 
     //SAM
     registerFlag(SAM_ALLOW_FALLBACK_FOR_NON_INDEXED_REGIONS);
+    registerFlag(SAM_PARALLEL_INFLATE, Boolean.class, false);
+    registerFlag(SAM_PARALLEL_DEFLATE, Boolean.class, false);
 
     // Aligners / all-paths
     registerFlag(DEFAULT_INDEL_LENGTH_FLAG, Integer.class, 7);
@@ -160,6 +180,7 @@ public class CoreGlobalFlags extends GlobalFlagsInitializer {
 
     // Misc calling
     registerFlag(CALLER_N_MIN_DEPTH, Integer.class, 5);
+    registerFlag(VARIANT_RECYCLE_MODELS, Boolean.class, true);
     registerFlag(FAMILY_CALLER_FALLBACK_FLAG, Boolean.class, false);
     registerFlag(FAMILY_CALLER_SORTED_HYPOTHESES, Boolean.class, true);
     registerFlag(MIN_BASE_QUALITY_AS_TWO, Boolean.class, false);
@@ -13,6 +13,7 @@
 package com.rtg.metagenomics;
 
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 import com.reeltwo.jumble.annotations.TestClass;
 import com.rtg.metagenomics.matrix.Vector;
@@ -48,6 +49,8 @@ public class BlockInfo extends IntegralAbstract {
 
   private final int mTotalReads;
 
+  private ForkJoinPool mPool = null;
+
   /**
    * @param blockId unique id for this block.
    * @param globalSpeciesMap translates global species id to taxon id
@@ -115,6 +118,21 @@ public class BlockInfo extends IntegralAbstract {
     return mFrags;
   }
 
+  /**
+   * Set the pool used to split calculations over the fragments of this block.
+   * @param pool the pool, or null to perform calculations on the calling thread.
+   */
+  void setPool(ForkJoinPool pool) {
+    mPool = pool;
+  }
+
+  /**
+   * @return the pool used to split calculations over the fragments of this block, or null if there is none.
+   */
+  ForkJoinPool getPool() {
+    return mPool;
+  }
+
   public SpeciesMap getSpeciesMap() {
     return mSpeciesMap;
   }
@@ -78,14 +78,22 @@ public class Frag extends IntegralAbstract {
    * @param gens list of genomes contained in this fragment.
    */
   public Frag(final List<Integer> gens) {
-    final int gn = gens.size();
+    this(toArray(gens), 0, gens.size());
+  }
+
+  /**
+   * @param gens array containing the genomes of this fragment, equal genomes must be adjacent.
+   * @param start index of the first genome of this fragment.
+   * @param end index after the last genome of this fragment.
+   */
+  Frag(final int[] gens, final int start, final int end) {
     int last = -1;
     int n = 0;
-    for (final int g : gens) {
-      if (last != g) {
+    for (int i = start; i < end; ++i) {
+      if (last != gens[i]) {
         ++n;
       }
-      last = g;
+      last = gens[i];
     }
     mGenomes = new int[n];
     mCounts = new int[n];
@@ -93,10 +101,10 @@ public class Frag extends IntegralAbstract {
     assert n > 0;
 
     int c = 1;
-    int l = gens.get(0);
+    int l = gens[start];
     int j = 0;
-    for (int i = 1; ; ++i) {
-      if (i == gn || l != gens.get(i)) {
+    for (int i = start + 1; ; ++i) {
+      if (i == end || l != gens[i]) {
         //another one
         assert c > 0;
         mGenomes[j] = l;
@@ -104,16 +112,25 @@ public class Frag extends IntegralAbstract {
         ++j;
         c = 0;
       }
-      if (i == gn) {
+      if (i == end) {
         break;
       }
-      l = gens.get(i);
+      l = gens[i];
       ++c;
     }
-    mTotalCount = gens.size();
+    mTotalCount = end - start;
     assert j == n; // : "j=" + j + " n=" + n;
   }
 
+  private static int[] toArray(final List<Integer> gens) {
+    final int[] res = new int[gens.size()];
+    int k = 0;
+    for (final int g : gens) {
+      res[k++] = g;
+    }
+    return res;
+  }
+
   void init(final Vector mv) {
     final double m = multiplicity();
     for (int i = 0; i < mN; ++i) {
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import com.rtg.metagenomics.matrix.Matrix;
+import com.rtg.metagenomics.matrix.Vector;
+
+/**
+ * Accumulates per fragment contributions over the fragments of a block, splitting large blocks
+ * across the threads of a fork-join pool. The fragments are always split into the same ranges and
+ * partial results combined in the same order, so results do not depend on thread timing. Without a
+ * pool, or for small blocks, fragments are accumulated directly into the result in order.
+ * When partial results are large (for example Hessians) the number of partials is limited to one
+ * per pool thread, and to a memory budget beyond which the accumulation is done serially.
+ */
+final class FragReduction {
+
+  /** Minimum number of fragments handled by a single task */
+  static final int MIN_FRAGMENTS = 2048;
+
+  /** Number of tasks per pool thread, so that uneven fragments still balance */
+  private static final int TASKS_PER_THREAD = 4;
+
+  /** Partial results at least this size get at most one task per pool thread */
+  static final long LARGE_PARTIAL_BYTES = 1L << 20;
+
+  /** Upper bound on the memory held by the partial results of one accumulation */
+  private static final long PARTIAL_MEMORY = Runtime.getRuntime().maxMemory() / 8;
+
+  private FragReduction() { }
+
+  /**
+   * Adds the contribution of one fragment to an accumulator.
+   * @param <A> type of the accumulator
+   */
+  interface Accumulator<A> {
+    /**
+     * @param acc the accumulator
+     * @param i index of the fragment
+     */
+    void add(A acc, int i);
+  }
+
+  static boolean isParallel(final ForkJoinPool pool, final int size) {
+    return pool != null && size >= 2 * MIN_FRAGMENTS;
+  }
+
+  private static int grain(final ForkJoinPool pool, final int size) {
+    final int tasks = pool.getParallelism() * TASKS_PER_THREAD;
+    return Math.max(MIN_FRAGMENTS, (size + tasks - 1) / tasks);
+  }
+
+  /**
+   * Number of tasks to split an accumulation into, each of which creates one partial result.
+   * @param pool pool used to compute partial results, or null to accumulate serially.
+   * @param size number of fragments.
+   * @param partialBytes approximate size of one partial result.
+   * @param budget upper bound on the memory held by all the partial results.
+   * @return number of tasks, or 1 if the accumulation should be done serially.
+   */
+  static int tasks(final ForkJoinPool pool, final int size, final long partialBytes, final long budget) {
+    if (!isParallel(pool, size)) {
+      return 1;
+    }
+    final int threads = pool.getParallelism();
+    final int tasks = Math.min(size / MIN_FRAGMENTS, partialBytes >= LARGE_PARTIAL_BYTES ? threads : threads * TASKS_PER_THREAD);
+    return partialBytes * tasks > budget ? 1 : tasks;
+  }
+
+  /**
+   * Accumulate the contributions of all the fragments into a result, where partial results are small.
+   * @param pool pool used to compute partial results, or null to accumulate serially.
+   * @param size number of fragments.
+   * @param result accumulator receiving the total.
+   * @param partial creates an empty accumulator for a partial result.
+   * @param add adds the contribution of a fragment to an accumulator.
+   * @param merge adds the second accumulator into the first.
+   * @param <A> type of the accumulator
+   */
+  static <A> void reduce(final ForkJoinPool pool, final int size, final A result, final Supplier<A> partial, final Accumulator<A> add, final BiConsumer<A, A> merge) {
+    reduce(pool, size, 0, result, partial, add, merge);
+  }
+
+  /**
+   * Accumulate the contributions of all the fragments into a result.
+   * @param pool pool used to compute partial results, or null to accumulate serially.
+   * @param size number of fragments.
+   * @param partialBytes approximate size in bytes of one partial result.
+   * @param result accumulator receiving the total.
+   * @param partial creates an empty accumulator for a partial result.
+   * @param add adds the contribution of a fragment to an accumulator.
+   * @param merge adds the second accumulator into the first.
+   * @param <A> type of the accumulator
+   */
+  static <A> void reduce(final ForkJoinPool pool, final int size, final long partialBytes, final A result, final Supplier<A> partial, final Accumulator<A> add, final BiConsumer<A, A> merge) {
+    final int tasks = tasks(pool, size, partialBytes, PARTIAL_MEMORY);
+    if (tasks <= 1) {
+      for (int i = 0; i < size; ++i) {
+        add.add(result, i);
+      }
+    } else {
+      merge.accept(result, pool.invoke(new ReduceTask<>(size, tasks, 0, tasks, partial, add, merge)));
+    }
+  }
+
+  /**
+   * Run a body for each fragment index, where the results for different fragments are independent.
+   * @param pool pool used to run the body, or null to run serially.
+   * @param size number of fragments.
+   * @param body the body to run for each index.
+   */
+  static void forEach(final ForkJoinPool pool, final int size, final IntConsumer body) {
+    if (!isParallel(pool, size)) {
+      for (int i = 0; i < size; ++i) {
+        body.accept(i);
+      }
+    } else {
+      pool.invoke(new ForEachTask(0, size, grain(pool, size), body));
+    }
+  }
+
+  /**
+   * Add one array of sums into another.
+   * @param into sums to be updated.
+   * @param from sums to be added.
+   */
+  static void add(final double[] into, final double[] from) {
+    for (int i = 0; i < into.length; ++i) {
+      into[i] += from[i];
+    }
+  }
+
+  /**
+   * Add one vector into another.
+   * @param into vector to be updated.
+   * @param from vector to be added.
+   */
+  static void add(final Vector into, final Vector from) {
+    for (int i = 0; i < into.size(); ++i) {
+      into.incr(i, from.get(i));
+    }
+  }
+
+  /**
+   * Add one symmetric matrix into another.
+   * @param into matrix to be updated.
+   * @param from matrix to be added.
+   */
+  static void add(final Matrix into, final Matrix from) {
+    assert into.isSymmetric() && from.isSymmetric();
+    for (int i = 0; i < into.size(); ++i) {
+      for (int j = 0; j <= i; ++j) {
+        into.incr(i, j, from.get(i, j));
+      }
+    }
+  }
+
+  private static final class ReduceTask<A> extends RecursiveTask<A> {
+    private final int mSize;
+    private final int mTasks;
+    private final int mStart;
+    private final int mEnd;
+    private final Supplier<A> mPartial;
+    private final Accumulator<A> mAdd;
+    private final BiConsumer<A, A> mMerge;
+
+    // Computes tasks start to end, where task t covers fragments from start(t) up to start(t + 1)
+    ReduceTask(final int size, final int tasks, final int start, final int end, final Supplier<A> partial, final Accumulator<A> add, final BiConsumer<A, A> merge) {
+      mSize = size;
+      mTasks = tasks;
+      mStart = start;
+      mEnd = end;
+      mPartial = partial;
+      mAdd = add;
+      mMerge = merge;
+    }
+
+    private int start(final int task) {
+      return (int) ((long) task * mSize / mTasks);
+    }
+
+    @Override
+    protected A compute() {
+      if (mEnd - mStart == 1) {
+        final A acc = mPartial.get();
+        final int end = start(mEnd);
+        for (int i = start(mStart); i < end; ++i) {
+          mAdd.add(acc, i);
+        }
+        return acc;
+      }
+      final int mid = (mStart + mEnd) >>> 1;
+      final ReduceTask<A> left = new ReduceTask<>(mSize, mTasks, mStart, mid, mPartial, mAdd, mMerge);
+      final ReduceTask<A> right = new ReduceTask<>(mSize, mTasks, mid, mEnd, mPartial, mAdd, mMerge);
+      right.fork();
+      final A acc = left.compute();
+      mMerge.accept(acc, right.join());
+      return acc;
+    }
+  }
+
+  private static final class ForEachTask extends RecursiveAction {
+    private final int mStart;
+    private final int mEnd;
+    private final int mGrain;
+    private final IntConsumer mBody;
+
+    ForEachTask(final int start, final int end, final int grain, final IntConsumer body) {
+      mStart = start;
+      mEnd = end;
+      mGrain = grain;
+      mBody = body;
+    }
+
+    @Override
+    protected void compute() {
+      if (mEnd - mStart <= mGrain) {
+        for (int i = mStart; i < mEnd; ++i) {
+          mBody.accept(i);
+        }
+      } else {
+        final int mid = (mStart + mEnd) >>> 1;
+        invokeAll(new ForEachTask(mStart, mid, mGrain, mBody), new ForEachTask(mid, mEnd, mGrain, mBody));
+      }
+    }
+  }
+}
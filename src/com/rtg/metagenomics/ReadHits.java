@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import com.rtg.util.QuickSort;
+import com.rtg.util.array.intindex.IntChunks;
+import com.rtg.util.array.longindex.LongChunks;
+
+/**
+ * Holds the species hit by each read, as parallel primitive arrays of read identifier and species.
+ * After sorting, all the hits of a read are adjacent and in increasing order of species.
+ */
+final class ReadHits {
+
+  private final LongChunks mReadIds;
+  private final IntChunks mSpecies;
+  private long mCount = 0;
+
+  ReadHits(final long size) {
+    final long newSize = Math.max(2, size);
+    mReadIds = new LongChunks(newSize);
+    mSpecies = new IntChunks(newSize);
+  }
+
+  /**
+   * Add a hit.
+   * @param readId identifier of the read.
+   * @param species the species hit by the read.
+   */
+  void add(final long readId, final int species) {
+    if (mCount == mReadIds.length()) {
+      final long extend = mCount / 2;
+      mReadIds.extendBy(extend);
+      mSpecies.extendBy(extend);
+    }
+    mReadIds.set(mCount, readId);
+    mSpecies.setInt(mCount, species);
+    ++mCount;
+  }
+
+  long size() {
+    return mCount;
+  }
+
+  long readId(final long index) {
+    return mReadIds.get(index);
+  }
+
+  int species(final long index) {
+    return mSpecies.getInt(index);
+  }
+
+  /**
+   * Sort the hits by read identifier and then species.
+   */
+  void sort() {
+    QuickSort.sort(new ReadHitsSortProxy());
+  }
+
+  private final class ReadHitsSortProxy implements QuickSort.SortProxy {
+    @Override
+    public int compare(final long index1, final long index2) {
+      final int c = Long.compare(mReadIds.get(index1), mReadIds.get(index2));
+      return c != 0 ? c : Integer.compare(mSpecies.getInt(index1), mSpecies.getInt(index2));
+    }
+
+    @Override
+    public long length() {
+      return mCount;
+    }
+
+    @Override
+    public void swap(final long index1, final long index2) {
+      mReadIds.swap(index1, index2);
+      mSpecies.swap(index1, index2);
+    }
+  }
+}
@@ -38,6 +38,31 @@ public class Species extends IntegralAbstract {
 
   private static final int[] EMPTY = new int[0];
 
+  /**
+   * Partial sums of L and its derivatives over a range of fragments.
+   */
+  private static final class Derivatives {
+    private final Vector mJacobian;
+    private final Matrix mHessian;
+    private double mL;
+
+    Derivatives(final Vector jacobian, final Matrix hessian, final double l) {
+      mJacobian = jacobian;
+      mHessian = hessian;
+      mL = l;
+    }
+
+    void add(final Derivatives other) {
+      mL += other.mL;
+      if (mJacobian != null) {
+        FragReduction.add(mJacobian, other.mJacobian);
+      }
+      if (mHessian != null) {
+        FragReduction.add(mHessian, other.mHessian);
+      }
+    }
+  }
+
   private final BlockInfo mBlockInfo;
 
   private final int[][] mMembersOf;
@@ -77,6 +102,18 @@ public class Species extends IntegralAbstract {
    * @return result of species calculation
    */
   public SubBlockResult solve(final int minIter) {
+    return solve(minIter, null);
+  }
+
+  /**
+   * Solve starting from a prior estimate of the relative abundances, for example the result of
+   * an earlier run on a similar sample. The prior is scaled so that the expected number of
+   * fragments matches those in the block, and species without a prior start from the default estimate.
+   * @param minIter minimum number of iterations
+   * @param prior relative abundance of each species in the block, zero where unknown, or null to use the default start
+   * @return result of species calculation
+   */
+  public SubBlockResult solve(final int minIter, final Vector prior) {
     final int numSpecies = mBlockInfo.getN();
     final Vector m = new Vector(numSpecies);
     for (final Frag frag : mBlockInfo.getFrags()) {
@@ -94,6 +131,9 @@ public class Species extends IntegralAbstract {
       //rv should be valid so long as m.get(i) is finite and positive (see comments in Frag.init).
       initialR.set(i, rv);
     }
+    if (prior != null) {
+      warmStart(initialR, prior);
+    }
     solve(initialR, EMPTY, minIter, mSimpleTerminator);
     final Matrix hessian = hessian(mLastR);
     //System.err.println("Hessian:");
@@ -107,6 +147,30 @@ public class Species extends IntegralAbstract {
 
   }
 
+  // Replace the default estimate for species with a prior, keeping the expected number of fragments for them unchanged
+  private void warmStart(final Vector initialR, final Vector prior) {
+    double fragments = 0;
+    double priorFragments = 0;
+    for (int i = 0; i < initialR.size(); ++i) {
+      final double p = prior.get(i);
+      if (p > 0 && initialR.get(i) > 0) {
+        final long l = mBlockInfo.getGenomeLength(i);
+        fragments += initialR.get(i) * l;
+        priorFragments += p * l;
+      }
+    }
+    final double scale = fragments / priorFragments;
+    if (!(scale > 0) || Double.isInfinite(scale)) {
+      return;
+    }
+    for (int i = 0; i < initialR.size(); ++i) {
+      final double p = prior.get(i);
+      if (p > 0 && initialR.get(i) > 0) {
+        initialR.set(i, p * scale);
+      }
+    }
+  }
+
   private boolean checkRemainedFixed(final Vector v, final int[] fixedIds) {
     for (final int i : fixedIds) {
       final long l = mBlockInfo.getGenomeLength(i);
@@ -377,13 +441,15 @@ public class Species extends IntegralAbstract {
       ll += lr;
       jacobian.set(i, length);
     }
-    for (final Frag frag : blockInfo.getFrags()) {
-      ll += frag.increment(r, jacobian);
-    }
+    final int n = blockInfo.getN();
+    final Derivatives sums = new Derivatives(jacobian, null, ll);
+    final Frag[] frags = blockInfo.getFrags();
+    FragReduction.reduce(blockInfo.getPool(), frags.length, sums, () -> new Derivatives(new Vector(n), null, 0.0),
+      (acc, i) -> acc.mL += frags[i].increment(r, acc.mJacobian), Derivatives::add);
     for (final int id : fixedIds) {
       jacobian.set(id, 0);
     }
-    return new Pair<>(jacobian, ll);
+    return new Pair<>(jacobian, sums.mL);
   }
 
   /**
@@ -401,12 +467,10 @@ public class Species extends IntegralAbstract {
       //System.err.println("lr=" + lr);
       ll += lr;
     }
-    for (final Frag frag : blockInfo.getFrags()) {
-      final double lf = frag.l(r);
-      //System.err.println("lf=" + lf);
-      ll += lf;
-    }
-    return ll;
+    final double[] sum = {ll};
+    final Frag[] frags = blockInfo.getFrags();
+    FragReduction.reduce(blockInfo.getPool(), frags.length, sum, () -> new double[1], (acc, i) -> acc[0] += frags[i].l(r), FragReduction::add);
+    return sum[0];
   }
 
   /**
@@ -415,10 +479,12 @@ public class Species extends IntegralAbstract {
    * @return the Jacobian in frequency space.
    */
   Matrix hessianR(final Vector r) {
-    final Matrix hessian = new MatrixSymmetric(mBlockInfo.getN());
-    for (final Frag frag : mBlockInfo.getFrags()) {
-      frag.incrementR(r, hessian);
-    }
+    final int n = mBlockInfo.getN();
+    final Matrix hessian = new MatrixSymmetric(n);
+    final Frag[] frags = mBlockInfo.getFrags();
+    final long partialBytes = (long) Double.BYTES * n * (n + 1) / 2;
+    FragReduction.reduce(mBlockInfo.getPool(), frags.length, partialBytes, new Derivatives(null, hessian, 0.0), () -> new Derivatives(null, new MatrixSymmetric(n), 0.0),
+      (acc, i) -> acc.mL += frags[i].incrementR(r, acc.mHessian), Derivatives::add);
     return hessian;
   }
 
@@ -428,18 +494,20 @@ public class Species extends IntegralAbstract {
    * @return the Jacobian in frequency space.
    */
   Matrix hessian(final Vector r) {
-    final Matrix hessian = new MatrixSymmetric(mBlockInfo.getN());
-    final Vector jacobian = new Vector(mBlockInfo.getN());
-    for (int i = 0; i < mBlockInfo.getN(); ++i) {
+    final int n = mBlockInfo.getN();
+    final Matrix hessian = new MatrixSymmetric(n);
+    final Vector jacobian = new Vector(n);
+    for (int i = 0; i < n; ++i) {
       final long length = mBlockInfo.getGenomeLength(i);
       final double lr = length * r.get(i);
       jacobian.set(i, lr);
       hessian.set(i, i, lr);
     }
 
-    for (final Frag frag : mBlockInfo.getFrags()) {
-      frag.increment(r, jacobian, hessian);
-    }
+    final Frag[] frags = mBlockInfo.getFrags();
+    final long partialBytes = (long) Double.BYTES * n * (n + 3) / 2;
+    FragReduction.reduce(mBlockInfo.getPool(), frags.length, partialBytes, new Derivatives(jacobian, hessian, 0.0), () -> new Derivatives(new Vector(n), new MatrixSymmetric(n), 0.0),
+      (acc, i) -> acc.mL += frags[i].increment(r, acc.mJacobian, acc.mHessian), Derivatives::add);
     return hessian;
   }
 
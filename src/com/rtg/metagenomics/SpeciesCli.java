@@ -23,9 +23,11 @@ import java.io.OutputStream;
 import java.util.Collection;
 
 import com.rtg.launcher.CommonFlags;
+import com.rtg.launcher.DefaultReaderParams;
 import com.rtg.launcher.OutputParams;
 import com.rtg.launcher.ParamsCli;
-import com.rtg.launcher.SequenceParams;
+import com.rtg.launcher.ReaderParams;
+import com.rtg.mode.SequenceMode;
 import com.rtg.sam.SamFilterOptions;
 import com.rtg.util.IORunnable;
 import com.rtg.util.InvalidParamsException;
@@ -34,6 +36,7 @@ import com.rtg.util.cli.CommonFlagCategories;
 import com.rtg.util.cli.Flag;
 import com.rtg.util.cli.Validator;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.intervals.LongRange;
 
 /**
  * Perform a species analysis of a metagenomics sample.
@@ -50,6 +53,8 @@ public class SpeciesCli extends ParamsCli<SpeciesParams> {
   private static final String STD_DEV_GRAPH_FLAG = "Xstddev-graph";
   private static final String VERBOSE_FLAG = "Xverbose";
   private static final String NAMESPACE_FLAG = "Xsimple-names";
+  private static final String REFERENCE_CACHE_FLAG = "Xreference-cache";
+  private static final String WARM_START_FLAG = "Xwarm-start";
 
   private static class SpeciesFlagsValidator implements Validator {
     @Override
@@ -64,6 +69,20 @@ public class SpeciesCli extends ParamsCli<SpeciesParams> {
           return false;
         }
       }
+      if (flags.isSet(WARM_START_FLAG)) {
+        final File prior = (File) flags.getValue(WARM_START_FLAG);
+        if (!prior.isFile()) {
+          flags.setParseMessage("Given input file \"" + prior.getPath() + "\" for --" + WARM_START_FLAG + " does not exist or is not a file");
+          return false;
+        }
+      }
+      if (flags.isSet(REFERENCE_CACHE_FLAG)) {
+        final File cache = (File) flags.getValue(REFERENCE_CACHE_FLAG);
+        if (cache.exists() && !cache.isDirectory()) {
+          flags.setParseMessage("Given cache \"" + cache.getPath() + "\" for --" + REFERENCE_CACHE_FLAG + " is a file, must be a directory");
+          return false;
+        }
+      }
       return CommonFlags.validateThreads(flags)
         && CommonFlags.validateSDF(flags, TEMPLATE_FLAG)
         && CommonFlags.validateOutputDirectory(flags)
@@ -90,7 +109,8 @@ public class SpeciesCli extends ParamsCli<SpeciesParams> {
     final File output = (File) mFlags.getValue(OUTPUT_FLAG);
     final OutputParams outParams = new OutputParams(output, false, false);
     final File genomes = (File) mFlags.getValue(TEMPLATE_FLAG);
-    final SequenceParams genomesParams = SequenceParams.builder().directory(genomes).create();
+    // The reader is opened lazily, so that a reference cache hit need not open the SDF
+    final ReaderParams genomesParams = new DefaultReaderParams(genomes, LongRange.NONE, SequenceMode.BIDIRECTIONAL, null, false, false, false);
     final int minIter = (Integer) mFlags.getValue(ITERATIONS_FLAG);
     final File referenceMap = mFlags.isSet(RELABEL_SPECIES_FLAG) ? (File) mFlags.getValue(RELABEL_SPECIES_FLAG) : null;
     final double minConfidence = (Double) mFlags.getValue(MIN_CONFIDENCE_VALUE_FLAG);
@@ -98,10 +118,12 @@ public class SpeciesCli extends ParamsCli<SpeciesParams> {
       .outputParams(outParams)
       .mapped(inputFiles)
       .filterParams(SamFilterOptions.makeFilterParamsBuilder(mFlags).create())
-      .genome(genomesParams.readerParams())
+      .genome(genomesParams)
       .minIter(minIter)
       .verbose(mFlags.isSet(VERBOSE_FLAG))
       .referenceMap(referenceMap)
+      .referenceCache(mFlags.isSet(REFERENCE_CACHE_FLAG) ? (File) mFlags.getValue(REFERENCE_CACHE_FLAG) : null)
+      .warmStart(mFlags.isSet(WARM_START_FLAG) ? (File) mFlags.getValue(WARM_START_FLAG) : null)
       .printAll(mFlags.isSet(PRINT_ALL_FLAG))
       .execThreads(CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG)))
       .minConfidence(minConfidence)
@@ -145,6 +167,8 @@ public class SpeciesCli extends ParamsCli<SpeciesParams> {
     final Flag<File> listFlag = flags.registerOptional('I', CommonFlags.INPUT_LIST_FLAG, File.class, CommonFlags.FILE, "file containing a list of SAM/BAM format files (1 per line) containing mapped reads").setCategory(INPUT_OUTPUT);
     flags.registerOptional(VERBOSE_FLAG, "turn on output of convergence information").setCategory(UTILITY);
     flags.registerOptional(STD_DEV_GRAPH_FLAG, "output graph across 1 standard deviation").setCategory(INPUT_OUTPUT);
+    flags.registerOptional(REFERENCE_CACHE_FLAG, File.class, CommonFlags.DIR, "directory in which to cache reference information between runs against the same genomes").setCategory(UTILITY);
+    flags.registerOptional(WARM_START_FLAG, File.class, CommonFlags.FILE, "species output from a previous run used as the starting estimate of abundances").setCategory(SENSITIVITY_TUNING);
     //You should never filter in IH (it is expected that there will be hits on multiple bacterial species)
     //SamFilterOptions.registerMaxHitsFlag(flags, 'c');
     SamFilterOptions.registerMaxASMatedFlag(flags, 'm');
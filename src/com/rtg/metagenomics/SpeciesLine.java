@@ -12,6 +12,8 @@
 
 package com.rtg.metagenomics;
 
+import java.util.concurrent.ForkJoinPool;
+
 import com.rtg.metagenomics.matrix.MatrixUtils;
 import com.rtg.metagenomics.matrix.Vector;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -25,6 +27,7 @@ class SpeciesLine extends Line {
   private final Vector mRD;
   private final Vector mLRD;
   private final Frag[] mFrags;
+  private final ForkJoinPool mPool;
   private final int mN;
 
 
@@ -34,6 +37,7 @@ class SpeciesLine extends Line {
     mRD = MatrixUtils.pointProduct(r, delta);
     mLRD = MatrixUtils.pointProduct(blockInfo.getGenomeLengthsVector(), mRD);
     mFrags = blockInfo.getFrags();
+    mPool = blockInfo.getPool();
     mN = blockInfo.getN();
   }
 
@@ -51,14 +55,16 @@ class SpeciesLine extends Line {
     final Vector re = MatrixUtils.pointProduct(mR, e);
     final Vector red = MatrixUtils.pointProduct(mRD, e);
     //System.err.println("v0=" + v0 + " re=" + re + " red=" + red);
-    double v1 = 0.0;
-    for (final Frag frag : mFrags) {
+    final double[] sum = new double[1];
+    FragReduction.reduce(mPool, mFrags.length, sum, () -> new double[1], (acc, i) -> {
+      final Frag frag = mFrags[i];
       final double a = frag.sum(red);
       final double b = frag.sum(re);
       final double h = a / b;
       //System.err.println("h=" + h + " a=" + a + " b=" + b);
-      v1 += h * frag.multiplicity();
-    }
+      acc[0] += h * frag.multiplicity();
+    }, FragReduction::add);
+    final double v1 = sum[0];
     if (BlockInfo.VERY_VERBOSE) {
       Diagnostic.developerLog("v1=" + v1);
     }
@@ -12,6 +12,8 @@
 
 package com.rtg.metagenomics;
 
+import java.util.concurrent.ForkJoinPool;
+
 import com.rtg.metagenomics.matrix.MatrixUtils;
 import com.rtg.metagenomics.matrix.Vector;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -27,6 +29,7 @@ class SpeciesLineDeriv extends Line {
   private final Vector mLRD;
   private final Vector mLRD2;
   private final Frag[] mFrags;
+  private final ForkJoinPool mPool;
   private final int mN;
 
 
@@ -38,6 +41,7 @@ class SpeciesLineDeriv extends Line {
     mLRD = MatrixUtils.pointProduct(blockInfo.getGenomeLengthsVector(), mRD);
     mLRD2 = MatrixUtils.pointProduct(mLRD, delta);
     mFrags = blockInfo.getFrags();
+    mPool = blockInfo.getPool();
     mN = blockInfo.getN();
   }
 
@@ -67,21 +71,24 @@ class SpeciesLineDeriv extends Line {
     final Vector red = MatrixUtils.pointProduct(mRD, e);
     final Vector red2 = MatrixUtils.pointProduct(mRD2, e);
     //System.err.println("v0=" + v0 + " re=" + re + " red=" + red);
-    double v1 = 0.0;
-    double v22 = 0.0;
-    double v21 = 0.0;
-    for (final Frag frag : mFrags) {
+    // Sums of v1, v22 and v21 over the fragments
+    final double[] sums = new double[3];
+    FragReduction.reduce(mPool, mFrags.length, sums, () -> new double[3], (acc, i) -> {
+      final Frag frag = mFrags[i];
       final double a = frag.sum(red);
       final double a2 = frag.sum(red2);
       final double b = frag.sum(re);
       final double h = a / b;
       //System.err.println("h=" + h + " a=" + a + " b=" + b);
       final int mult = frag.multiplicity();
-      v1 -= h * mult;
-      v22 += h * h * mult;
+      acc[0] -= h * mult;
+      acc[1] += h * h * mult;
       final double h2 = a2 / b;
-      v21 -= h2  * mult;
-    }
+      acc[2] -= h2  * mult;
+    }, FragReduction::add);
+    final double v1 = sums[0];
+    final double v22 = sums[1];
+    final double v21 = sums[2];
     if (BlockInfo.VERY_VERBOSE) {
       Diagnostic.developerLog("v1=" + v1);
     }
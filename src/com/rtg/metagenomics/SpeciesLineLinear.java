@@ -12,6 +12,8 @@
 
 package com.rtg.metagenomics;
 
+import java.util.concurrent.ForkJoinPool;
+
 import com.rtg.metagenomics.matrix.MatrixUtils;
 import com.rtg.metagenomics.matrix.Vector;
 
@@ -22,6 +24,7 @@ class SpeciesLineLinear extends Line {
   private final double mL;
   private final double[] mC;
   private final Frag[] mFrags;
+  private final ForkJoinPool mPool;
 
 
   SpeciesLineLinear(final Vector r, final Vector delta, final BlockInfo blockInfo) {
@@ -29,25 +32,26 @@ class SpeciesLineLinear extends Line {
     mL = MatrixUtils.trace(li);
     //System.err.println("mL=" + mL);
     mFrags = blockInfo.getFrags();
+    mPool = blockInfo.getPool();
     mC = new double[mFrags.length];
-    for (int i = 0; i < mFrags.length; ++i) {
+    FragReduction.forEach(mPool, mFrags.length, i -> {
       final Frag frag = mFrags[i];
       final double d = frag.sum(delta);
       final double m = frag.sum(r);
       final double c = d == 0.0 ? 0.0 : m / d;
       mC[i] = c;
       //System.err.println("i=" + i + " d=" + d + " m=" + m + " c=" + c);
-    }
+    });
   }
 
   @Override
   public double value(final double delta) {
-    double v0 = 0.0;
-    for (int i = 0; i < mFrags.length; ++i) {
+    final double[] v0 = new double[1];
+    FragReduction.reduce(mPool, mFrags.length, v0, () -> new double[1], (acc, i) -> {
       final double c = mC[i];
       final int mult = mFrags[i].multiplicity();
-      v0 += mult / (c + delta);
-    }
-    return mL - v0;
+      acc[0] += mult / (c + delta);
+    }, FragReduction::add);
+    return mL - v0[0];
   }
 }
@@ -12,6 +12,8 @@
 
 package com.rtg.metagenomics;
 
+import java.util.concurrent.ForkJoinPool;
+
 import com.rtg.metagenomics.matrix.MatrixUtils;
 import com.rtg.metagenomics.matrix.Vector;
 
@@ -22,6 +24,7 @@ class SpeciesLineLinearDeriv extends Line {
   private final double mL;
   private final double[] mC;
   private final Frag[] mFrags;
+  private final ForkJoinPool mPool;
 
 
   SpeciesLineLinearDeriv(final Vector r, final Vector delta, final BlockInfo blockInfo) {
@@ -29,15 +32,16 @@ class SpeciesLineLinearDeriv extends Line {
     mL = MatrixUtils.trace(li);
     //System.err.println("mL=" + mL);
     mFrags = blockInfo.getFrags();
+    mPool = blockInfo.getPool();
     mC = new double[mFrags.length];
-    for (int i = 0; i < mFrags.length; ++i) {
+    FragReduction.forEach(mPool, mFrags.length, i -> {
       final Frag frag = mFrags[i];
       final double d = frag.sum(delta);
       final double m = frag.sum(r);
       final double c = d == 0.0 ? 0.0 : m / d;
       mC[i] = c;
       //System.err.println("i=" + i + " d=" + d + " m=" + m + " c=" + c);
-    }
+    });
   }
 
   @Override
@@ -52,18 +56,18 @@ class SpeciesLineLinearDeriv extends Line {
 
   @Override
   public double[] values(final double delta) {
-    double v0 = 0.0;
-    double v1 = 0.0;
-    for (int i = 0; i < mFrags.length; ++i) {
+    // Sums of v0 and v1 over the fragments
+    final double[] sums = new double[2];
+    FragReduction.reduce(mPool, mFrags.length, sums, () -> new double[2], (acc, i) -> {
       final double c = mC[i];
       final int mult = mFrags[i].multiplicity();
       final double t = 1.0 / (c + delta);
       final double tt = mult * t;
-      v0 += tt;
-      v1 += tt * t;
-    }
-    final double res0 = mL - v0;
-    //System.err.println("delta=" + delta + " v0=" + v0 + "v1=" + v1 + " res=" + res);
-    return new double[] {res0, v1};
+      acc[0] += tt;
+      acc[1] += tt * t;
+    }, FragReduction::add);
+    final double res0 = mL - sums[0];
+    //System.err.println("delta=" + delta + " v0=" + sums[0] + "v1=" + sums[1] + " res=" + res);
+    return new double[] {res0, sums[1]};
   }
 }
@@ -34,6 +34,8 @@ public final class SpeciesParams extends SingleMappedParams {
    */
   public static final class SpeciesParamsBuilder extends SingleMappedParamsBuilder<SpeciesParamsBuilder> {
     File mReferenceMap;
+    File mReferenceCache;
+    File mWarmStart;
     int mMinIter;
     boolean mVerbose;
     boolean mPrintAll;
@@ -75,6 +77,26 @@ public final class SpeciesParams extends SingleMappedParams {
       return self();
     }
 
+    /**
+     * Set the directory used to cache reference information between runs
+     * @param referenceCache the cache directory, or null to not use a cache
+     * @return this builder, so calls can be chained.
+     */
+    public SpeciesParamsBuilder referenceCache(File referenceCache) {
+      mReferenceCache = referenceCache;
+      return self();
+    }
+
+    /**
+     * Set the species output of a previous run to use as the starting estimate
+     * @param warmStart the previous species output, or null to use the default start
+     * @return this builder, so calls can be chained.
+     */
+    public SpeciesParamsBuilder warmStart(File warmStart) {
+      mWarmStart = warmStart;
+      return self();
+    }
+
     /**
      * @param printAll true, if print non present species in output
      * @return this builder, so calls can be chained.
@@ -115,6 +137,8 @@ public final class SpeciesParams extends SingleMappedParams {
   private final int mMinIter;
   private final boolean mVerbose;
   private final File mReferenceMap;
+  private final File mReferenceCache;
+  private final File mWarmStart;
   private final boolean mPrintAll;
   private final double mMinConfidence;
   private final IdentifierCreator mIdentifierCreator;
@@ -124,6 +148,8 @@ public final class SpeciesParams extends SingleMappedParams {
     mMinIter = builder.mMinIter;
     mVerbose = builder.mVerbose;
     mReferenceMap = builder.mReferenceMap;
+    mReferenceCache = builder.mReferenceCache;
+    mWarmStart = builder.mWarmStart;
     mPrintAll = builder.mPrintAll;
     mMinConfidence = builder.mMinConfidence;
     mIdentifierCreator = builder.mIdentifierCreator;
@@ -162,6 +188,22 @@ public final class SpeciesParams extends SingleMappedParams {
     return mReferenceMap;
   }
 
+  /**
+   * Get the directory used to cache reference information between runs.
+   * @return the cache directory, or null if no cache is used.
+   */
+  public File referenceCache() {
+    return mReferenceCache;
+  }
+
+  /**
+   * Get the species output of a previous run used as the starting estimate.
+   * @return the previous species output, or null if the default start is used.
+   */
+  public File warmStart() {
+    return mWarmStart;
+  }
+
   /**
    * @return print non present species as well;
    */
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.rtg.reader.SdfId;
+import com.rtg.taxonomy.Taxonomy;
+import com.rtg.taxonomy.TaxonomyUtils;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Reference side information used by the species module, saved in a directory so that it can be
+ * reused by later runs against the same reference. This holds the mapping from sequence names to
+ * taxon ids, the lengths of the reference sequences in SDF order, and the taxonomy.
+ * The cache is keyed on the SDF id of the reference and the relabel file used, and is ignored
+ * if either of these has changed.
+ */
+final class SpeciesReferenceCache {
+
+  static final String REFERENCE_FILE = "reference.tsv";
+  static final String TAXONOMY_FILE = "taxonomy.tsv";
+
+  private static final String VERSION_LINE = "#species reference cache v1";
+  private static final String KEY_PREFIX = "#key\t";
+  private static final String TAB = "\t";
+
+  private final String mKey;
+  private final Map<String, Integer> mSequenceMap;
+  private final List<String> mSequenceNames;
+  private final int[] mSequenceLengths;
+  private final Taxonomy mTaxonomy;
+
+  /**
+   * @param key identifies the reference this information was derived from.
+   * @param sequenceMap mapping from sequence (and species) names to taxon ids.
+   * @param sequenceNames names of the reference sequences in SDF order.
+   * @param sequenceLengths lengths of the reference sequences in SDF order.
+   * @param taxonomy the taxonomy covering all the taxon ids.
+   */
+  SpeciesReferenceCache(String key, Map<String, Integer> sequenceMap, List<String> sequenceNames, int[] sequenceLengths, Taxonomy taxonomy) {
+    assert sequenceNames.size() == sequenceLengths.length;
+    mKey = key;
+    mSequenceMap = sequenceMap;
+    mSequenceNames = sequenceNames;
+    mSequenceLengths = sequenceLengths;
+    mTaxonomy = taxonomy;
+  }
+
+  /**
+   * Construct the key identifying a reference. Taxonomy files are often added to or replaced in an
+   * SDF without changing its id, so they are identified by their size and modification time.
+   * @param sdfId id of the reference SDF.
+   * @param sdfDir directory of the reference SDF, may be null.
+   * @param referenceMap the relabel file, may be null.
+   * @return the key, or null if the SDF has no id and so cannot be cached.
+   */
+  static String key(SdfId sdfId, File sdfDir, File referenceMap) {
+    if (!sdfId.available()) {
+      return null;
+    }
+    final StringBuilder sb = new StringBuilder(sdfId.toString());
+    if (sdfDir != null) {
+      appendFile(sb, new File(sdfDir, TaxonomyUtils.TAXONOMY_FILE));
+      appendFile(sb, new File(sdfDir, TaxonomyUtils.TAXONOMY_TO_SEQUENCE_FILE));
+    }
+    if (referenceMap != null) {
+      appendFile(sb, referenceMap);
+    }
+    return sb.toString();
+  }
+
+  private static void appendFile(StringBuilder sb, File file) {
+    if (file.exists()) {
+      sb.append(TAB).append(file.getAbsolutePath()).append(TAB).append(file.length()).append(TAB).append(file.lastModified());
+    }
+  }
+
+  /**
+   * Load the cache from a directory.
+   * @param dir directory containing the cache.
+   * @param key the key of the current reference.
+   * @return the cache, or null if there is no cache or it was built from a different reference.
+   * @throws IOException if the cache cannot be read.
+   */
+  static SpeciesReferenceCache load(File dir, String key) throws IOException {
+    final File referenceFile = new File(dir, REFERENCE_FILE);
+    final File taxonomyFile = new File(dir, TAXONOMY_FILE);
+    if (!referenceFile.isFile() || !taxonomyFile.isFile()) {
+      return null;
+    }
+    final Map<String, Integer> sequenceMap = new LinkedHashMap<>();
+    final List<String> names = new ArrayList<>();
+    int[] lengths = new int[16];
+    try (BufferedReader in = new BufferedReader(new FileReader(referenceFile))) {
+      if (!VERSION_LINE.equals(in.readLine())) {
+        Diagnostic.userLog("Reference cache " + referenceFile.getPath() + " has an unsupported version");
+        return null;
+      }
+      if (!(KEY_PREFIX + key).equals(in.readLine())) {
+        Diagnostic.userLog("Reference cache " + referenceFile.getPath() + " was built for a different reference");
+        return null;
+      }
+      String line;
+      while ((line = in.readLine()) != null) {
+        final String[] parts = line.split(TAB, 3);
+        if (parts.length != 3) {
+          throw new IOException("Invalid line in reference cache " + referenceFile.getPath() + ": " + line);
+        }
+        try {
+          final int taxonId = Integer.parseInt(parts[0]);
+          final int length = Integer.parseInt(parts[1]);
+          sequenceMap.put(parts[2], taxonId);
+          if (length >= 0) {
+            if (names.size() == lengths.length) {
+              lengths = Arrays.copyOf(lengths, 2 * lengths.length);
+            }
+            lengths[names.size()] = length;
+            names.add(parts[2]);
+          }
+        } catch (final NumberFormatException e) {
+          throw new IOException("Invalid line in reference cache " + referenceFile.getPath() + ": " + line, e);
+        }
+      }
+    }
+    final Taxonomy taxonomy = new Taxonomy();
+    try (InputStream in = new FileInputStream(taxonomyFile)) {
+      taxonomy.read(in);
+    }
+    if (!taxonomy.isConsistent()) {
+      throw new IOException("The taxonomy in reference cache " + taxonomyFile.getPath() + " is invalid: " + taxonomy.getInconsistencyReason());
+    }
+    return new SpeciesReferenceCache(key, sequenceMap, names, Arrays.copyOf(lengths, names.size()), taxonomy);
+  }
+
+  /**
+   * Save the cache to a directory, replacing any existing cache. Each file is written to a
+   * temporary file and then renamed, so that concurrent runs do not see partial files.
+   * @param dir directory to contain the cache, created if necessary.
+   * @throws IOException if the cache cannot be written.
+   */
+  void save(File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create reference cache directory " + dir.getPath());
+    }
+    final File taxonomyTmp = File.createTempFile(TAXONOMY_FILE, ".tmp", dir);
+    try (Writer out = new BufferedWriter(new FileWriter(taxonomyTmp))) {
+      mTaxonomy.write(out);
+    }
+    replace(taxonomyTmp, new File(dir, TAXONOMY_FILE));
+    final File referenceTmp = File.createTempFile(REFERENCE_FILE, ".tmp", dir);
+    try (Writer out = new BufferedWriter(new FileWriter(referenceTmp))) {
+      out.write(VERSION_LINE + "\n");
+      out.write(KEY_PREFIX + mKey + "\n");
+      for (int i = 0; i < mSequenceNames.size(); ++i) {
+        final String name = mSequenceNames.get(i);
+        out.write(mSequenceMap.get(name) + TAB + mSequenceLengths[i] + TAB + name + "\n");
+      }
+      // Remaining names, such as species names from the relabel file
+      final HashSet<String> sequenceNames = new HashSet<>(mSequenceNames);
+      for (final Map.Entry<String, Integer> e : mSequenceMap.entrySet()) {
+        if (!sequenceNames.contains(e.getKey())) {
+          out.write(e.getValue() + TAB + "-1" + TAB + e.getKey() + "\n");
+        }
+      }
+    }
+    replace(referenceTmp, new File(dir, REFERENCE_FILE));
+  }
+
+  private static void replace(File src, File dest) throws IOException {
+    // Rename over the destination where the platform allows it, otherwise remove it first
+    if (!src.renameTo(dest) && (!dest.delete() || !src.renameTo(dest))) {
+      if (!src.delete()) {
+        Diagnostic.userLog("Failed to delete temporary file: " + src.getPath());
+      }
+      throw new IOException("Could not write reference cache file " + dest.getPath());
+    }
+  }
+
+  /**
+   * @return mapping from sequence (and species) names to taxon ids.
+   */
+  Map<String, Integer> sequenceMap() {
+    return mSequenceMap;
+  }
+
+  /**
+   * @return names of the reference sequences in SDF order.
+   */
+  List<String> sequenceNames() {
+    return mSequenceNames;
+  }
+
+  /**
+   * @return lengths of the reference sequences in SDF order.
+   */
+  int[] sequenceLengths() {
+    return mSequenceLengths;
+  }
+
+  /**
+   * @return the taxonomy.
+   */
+  Taxonomy taxonomy() {
+    return mTaxonomy;
+  }
+}
@@ -20,6 +20,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,16 +32,20 @@ import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 import com.reeltwo.jumble.annotations.TestClass;
 import com.rtg.launcher.ParamsTask;
-import com.rtg.launcher.ReaderParams;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.metagenomics.krona.KronaSpeciesNode;
 import com.rtg.metagenomics.krona.KronaSpeciesReportWriter;
 import com.rtg.metagenomics.matrix.Vector;
+import com.rtg.reader.IndexFile;
 import com.rtg.reader.NamesInterface;
 import com.rtg.reader.ReaderUtils;
+import com.rtg.reader.SdfId;
 import com.rtg.reader.SequencesReader;
 import com.rtg.sam.SamReadingContext;
 import com.rtg.sam.SamRecordPopulator;
@@ -65,7 +70,10 @@ import com.rtg.util.diagnostic.NoTalkbackSlimException;
 import com.rtg.util.io.IOUtils;
 import com.rtg.util.io.LineWriter;
 
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
 
 /**
  */
@@ -109,7 +117,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   private static final String NUM_FORMAT_CONFIDENCE = "%1.2g";
 
   protected final Map<String, Integer> mSequenceMap = new HashMap<>();
-  private final Map<Long, ArrayList<Integer>> mHits = new HashMap<>();
+  private final ReadHits mHits = new ReadHits(1 << 16);
   private final Set<Integer> mSpeciesWithHits = new HashSet<>();
 
   //TODO get rid of these protected declarations - this is not a civilized way to test things
@@ -118,6 +126,8 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   final Map<Integer, SpeciesInfo> mSpeciesInfo = new HashMap<>();
   protected SpeciesMap mSpeciesMap = null;
   protected Taxonomy mTaxonomy;
+  private long[] mGenomeLengths = null;
+  private Map<Integer, Double> mPrior = null;
 
   static class MyInteger {
     int mValue = 1;
@@ -128,11 +138,13 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   }
 
   static SpeciesMap getSpeciesMap(Map<String, Integer> sequenceMap, SequencesReader sr, Taxonomy taxonomy) throws IOException {
+    return getSpeciesMap(sequenceMap, sequenceNames(sr), taxonomy);
+  }
+
+  static SpeciesMap getSpeciesMap(Map<String, Integer> sequenceMap, List<String> sequenceNames, Taxonomy taxonomy) {
     final SpeciesMap speciesMap = new SpeciesMap();
     // Preload species map to ensure names in correct order
-    final NamesInterface names = sr.names();
-    for (int k = 0; k < names.length(); ++k) {
-      final String name = names.name(k);
+    for (final String name : sequenceNames) {
       final Integer taxonId = sequenceMap.get(name);
       TaxonNode taxon = taxonomy.get(taxonId);
       do {
@@ -144,6 +156,15 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     return speciesMap;
   }
 
+  private static List<String> sequenceNames(SequencesReader sr) throws IOException {
+    final NamesInterface names = sr.names();
+    final List<String> res = new ArrayList<>((int) names.length());
+    for (int k = 0; k < names.length(); ++k) {
+      res.add(names.name(k));
+    }
+    return res;
+  }
+
   protected void buildDefaultTaxonomy(File referenceMap, SequencesReader sr) throws IOException {
     mTaxonomy = new Taxonomy();
     int warningCount = 0;
@@ -244,8 +265,86 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
   @Override
   protected void exec() throws IOException {
     Diagnostic.progress("Reading names.");
-    final SequencesReader sr = mParams.genome().reader();
+    final File cacheDir = mParams.referenceCache();
+    final File genomeDir = mParams.genome().directory();
+    final SdfId sdfId = new IndexFile(genomeDir).getSdfId();
+    final String cacheKey = cacheDir == null ? null : SpeciesReferenceCache.key(sdfId, genomeDir, mParams.referenceMap());
+    if (cacheDir != null && cacheKey == null) {
+      Diagnostic.warning("The reference SDF has no SDF-ID, the reference cache will not be used.");
+    }
+    final SpeciesReferenceCache cache = cacheKey == null ? null : SpeciesReferenceCache.load(cacheDir, cacheKey);
+    // On a cache hit the reference is only opened if it is needed to decode CRAM input
+    final SequencesReader sr = cache == null || hasCram(mParams.mapped()) ? mParams.genome().reader() : null;
+    if (cache != null) {
+      Diagnostic.userLog("Using reference cache " + cacheDir.getPath());
+      mSequenceMap.putAll(cache.sequenceMap());
+      mTaxonomy = cache.taxonomy();
+    } else {
+      loadReference(sr);
+    }
+    Diagnostic.userLog("Number of reference sequences: " + mSequenceMap.size());
+    Diagnostic.userLog("Number of reference species: " + new HashSet<>(mSequenceMap.values()).size());
+    Diagnostic.userLog("Number of taxonomy nodes: " + mTaxonomy.size());
+    final List<String> sequenceNames = cache != null ? cache.sequenceNames() : sequenceNames(sr);
+    final int[] sequenceLengths = cache != null ? cache.sequenceLengths() : mParams.genome().lengths();
+    mSpeciesMap = getSpeciesMap(mSequenceMap, sequenceNames, mTaxonomy);
+    mGenomeLengths = new long[mSpeciesMap.taxonIds().length];
+    for (int i = 0; i < sequenceLengths.length; ++i) {
+      mGenomeLengths[mSpeciesMap.id(mSequenceMap.get(sequenceNames.get(i)))] += sequenceLengths[i];
+    }
+    if (cache == null && cacheKey != null) {
+      Diagnostic.userLog("Writing reference cache " + cacheDir.getPath());
+      new SpeciesReferenceCache(cacheKey, mSequenceMap, sequenceNames, sequenceLengths, mTaxonomy).save(cacheDir);
+    }
+    if (mParams.warmStart() != null) {
+      mPrior = readPriorAbundances(mParams.warmStart());
+      Diagnostic.userLog("Read starting abundances for " + mPrior.size() + " taxa from " + mParams.warmStart().getPath());
+    }
+
+    if (cache != null) {
+      checkUberHeaderAgainstNames(SamUtils.getUberHeader(sr, mParams.mapped(), true, null), sequenceNames, sequenceLengths);
+    } else {
+      SamUtils.checkUberHeaderAgainstReference(sr, SamUtils.getUberHeader(sr, mParams.mapped(), true, null), false);
+    }
+
+    accumulateMappings(sr, sdfId);
+
+  }
+
+  private static boolean hasCram(final Collection<File> files) {
+    for (final File f : files) {
+      if (f.getName().endsWith(SamReader.Type.CRAM_TYPE.fileExtension())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check that every sequence in the SAM header is present, with the same length, among the
+   * reference sequences. Used in place of checking against the SDF when the reference names
+   * come from the reference cache.
+   * @param header the SAM header to check.
+   * @param sequenceNames names of the reference sequences.
+   * @param sequenceLengths lengths of the reference sequences.
+   */
+  static void checkUberHeaderAgainstNames(final SAMFileHeader header, final List<String> sequenceNames, final int[] sequenceLengths) {
+    final Map<String, Integer> lengths = new HashMap<>();
+    for (int i = 0; i < sequenceNames.size(); ++i) {
+      lengths.put(sequenceNames.get(i), sequenceLengths[i]);
+    }
+    for (final SAMSequenceRecord rec : header.getSequenceDictionary().getSequences()) {
+      final Integer length = lengths.get(rec.getSequenceName());
+      if (length == null) {
+        throw new NoTalkbackSlimException("Sequence \"" + rec.getSequenceName() + "\" in the SAM header is not in the reference");
+      }
+      if (length != rec.getSequenceLength()) {
+        throw new NoTalkbackSlimException("Sequence \"" + rec.getSequenceName() + "\" has length " + rec.getSequenceLength() + " in the SAM header but length " + length + " in the reference");
+      }
+    }
+  }
 
+  private void loadReference(final SequencesReader sr) throws IOException {
     if (TaxonomyUtils.hasTaxonomyInfo(sr)) {
       mSequenceMap.putAll(TaxonomyUtils.loadTaxonomyMapping(sr));
       final Taxonomy baseTaxonomy = TaxonomyUtils.loadTaxonomy(sr);
@@ -265,52 +364,115 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     } else {
       buildDefaultTaxonomy(mParams.referenceMap(), sr);
     }
-    Diagnostic.userLog("Number of reference sequences: " + mSequenceMap.size());
-    Diagnostic.userLog("Number of reference species: " + new HashSet<>(mSequenceMap.values()).size());
-    Diagnostic.userLog("Number of taxonomy nodes: " + mTaxonomy.size());
-    mSpeciesMap = getSpeciesMap(mSequenceMap, sr, mTaxonomy);
-
-    SamUtils.checkUberHeaderAgainstReference(sr, SamUtils.getUberHeader(sr, mParams.mapped(), true, null), false);
+  }
 
-    accumulateMappings(sr);
+  /**
+   * Read the abundance of each taxon from the species output of a previous run. As the output
+   * abundance of a node includes that of its descendants, the abundance of the node itself is
+   * obtained by subtracting the abundances of its children.
+   * @param speciesFile species output from a previous run.
+   * @return map from taxon id to the abundance of that taxon excluding its descendants.
+   * @throws IOException if the file cannot be read or is not species output.
+   */
+  static Map<Integer, Double> readPriorAbundances(File speciesFile) throws IOException {
+    final Map<Integer, Double> abundances = new HashMap<>();
+    final Map<Integer, Integer> parents = new HashMap<>();
+    int abundanceCol = -1;
+    int taxonCol = -1;
+    int parentCol = -1;
+    try (BufferedReader in = new BufferedReader(new FileReader(speciesFile))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.startsWith(COMMENT_CHAR)) {
+          if (line.startsWith(COMMENT_CHAR + ABUNDANCE_LABEL + TAB)) {
+            final List<String> header = Arrays.asList(line.substring(COMMENT_CHAR.length()).split(TAB));
+            abundanceCol = header.indexOf(ABUNDANCE_LABEL);
+            taxonCol = header.indexOf(TAXON_ID_LABEL);
+            parentCol = header.indexOf(PARENT_ID_LABEL);
+          }
+          continue;
+        }
+        if (abundanceCol < 0 || taxonCol < 0 || parentCol < 0) {
+          throw new NoTalkbackSlimException("The file " + speciesFile.getPath() + " is not species output");
+        }
+        final String[] parts = line.split(TAB);
+        try {
+          final int taxonId = Integer.parseInt(parts[taxonCol]);
+          abundances.put(taxonId, Double.parseDouble(parts[abundanceCol]));
+          parents.put(taxonId, Integer.parseInt(parts[parentCol]));
+        } catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+          throw new NoTalkbackSlimException("Invalid line in " + speciesFile.getPath() + ": " + line);
+        }
+      }
+    }
+    final Map<Integer, Double> own = new HashMap<>(abundances);
+    for (final Map.Entry<Integer, Integer> e : parents.entrySet()) {
+      final Integer parent = e.getValue();
+      if (own.containsKey(parent)) {
+        own.put(parent, own.get(parent) - abundances.get(e.getKey()));
+      }
+    }
+    own.replaceAll((taxonId, abundance) -> Math.max(0, abundance));
+    return own;
+  }
 
+  // Starting abundances for the genomes in a block from the prior, or null if there is no prior
+  private Vector prior(final BlockInfo block) {
+    if (mPrior == null) {
+      return null;
+    }
+    final Vector prior = new Vector(block.getN());
+    for (int i = 0; i < block.getN(); ++i) {
+      final Double p = mPrior.get(block.getTaxonId(i));
+      if (p != null) {
+        prior.set(i, p);
+      }
+    }
+    return prior;
   }
 
-  private void processMappings(final SequencesReader sr) throws IOException {
+  private void processMappings(final SdfId sdfId) throws IOException {
     final Frag[] frags = preprocessHits();
 
     Diagnostic.progress("Block Construction Started");
     final BlockMapping blockMapping = new BlockMapping(frags, mSpeciesMap.taxonIds().length);
     Diagnostic.developerLog(blockMapping.statistics());
 
-    final long[] genomeLengths = new long[mSpeciesMap.taxonIds().length];
-
-    final ReaderParams genomes = mParams.genome();
-    final int[] initGenomeLengths = genomes.lengths();
-    for (int i = 0; i < initGenomeLengths.length; ++i) {
-      final int id = mSpeciesMap.id(mSequenceMap.get(genomes.reader().name(i)));
-      genomeLengths[id] += initGenomeLengths[i];
-    }
+    final long[] genomeLengths = mGenomeLengths;
     //separate into blocks
     final BlockInfo blockInfo = new BlockInfo(-1, null, frags, mSpeciesMap, genomeLengths, mParams.verbose());
     Diagnostic.progress("Block Construction Finished");
     final BlockResult result = solveBlocks(frags, blockMapping, genomeLengths, blockInfo);
     //OUTPUT
     try (final LineWriter out = new LineWriter(new OutputStreamWriter(mParams.speciesStream()))) {
-      result(sr, out, result, blockInfo);
+      result(sdfId, out, result, blockInfo);
     }
   }
 
   private Frag[] preprocessHits() {
     Diagnostic.progress("Pre-processing Started");
     final Frag[] frags;
-    // Collapse identical frags
+    // Collapse identical frags, the hits of each read are adjacent once sorted
+    mHits.sort();
     final HashMap<Frag, SpeciesTask.MyInteger> uniq = new HashMap<>();
-    for (final ArrayList<Integer> g : mHits.values()) {
-      Collections.sort(g); // needed for frag construction?
-      final Frag f = new Frag(g);
-      if (uniq.containsKey(f)) {
-        uniq.get(f).mValue++;
+    final long numberHits = mHits.size();
+    int[] genomes = new int[16];
+    long reads = 0;
+    long i = 0;
+    while (i < numberHits) {
+      final long readId = mHits.readId(i);
+      int n = 0;
+      do {
+        if (n == genomes.length) {
+          genomes = Arrays.copyOf(genomes, 2 * n);
+        }
+        genomes[n++] = mHits.species(i++);
+      } while (i < numberHits && mHits.readId(i) == readId);
+      ++reads;
+      final Frag f = new Frag(genomes, 0, n);
+      final SpeciesTask.MyInteger count = uniq.get(f);
+      if (count != null) {
+        count.mValue++;
       } else {
         uniq.put(f, new SpeciesTask.MyInteger());
       }
@@ -337,12 +499,12 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
       f.setMultiplicity(e.getValue().mValue);
       frags[k++] = f;
     }
-    Diagnostic.developerLog("Frag collapsed count = " + frags.length + ", original count = " + mHits.size());
+    Diagnostic.developerLog("Frag collapsed count = " + frags.length + ", original count = " + reads);
     Diagnostic.progress("Pre-processing Finished");
     return frags;
   }
 
-  protected void accumulateMappings(final SequencesReader sr) throws IOException {
+  protected void accumulateMappings(final SequencesReader sr, final SdfId sdfId) throws IOException {
     Diagnostic.progress("SAM Reading Started");
     String lastSequenceName = null;
     double cov = 0.0;
@@ -393,8 +555,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
               Diagnostic.developerLog("Starting: " + sequenceName);
             }
             final Integer speciesId = mSpeciesMap.id(taxonId);
-            final ArrayList<Integer> hitList = mHits.computeIfAbsent(readId, k -> new ArrayList<>());
-            hitList.add(speciesId);
+            mHits.add(readId, speciesId);
             mSpeciesWithHits.add(speciesId);
             final int len = rec.getReadLength();
             cov += len * mappedIncr;
@@ -431,7 +592,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     }
     mUsageMetric.setMetric(usageStats);
     Diagnostic.progress("SAM Reading Finished");
-    processMappings(sr);
+    processMappings(sdfId);
   }
 
   private SpeciesResult solveBlocks(Frag[] frags, final BlockMapping blockMapping, long[] genomeLengths, final BlockInfo blockInfo) throws IOException {
@@ -440,7 +601,11 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     final SimpleThreadPool stp = new SimpleThreadPool(mParams.execThreads(), "SolveBlocks", true); // Block-level parallelism
     stp.enableBasicProgress(subBlocks.length);
     final ExecutorService pvalueExecutor = Executors.newFixedThreadPool(mParams.execThreads()); // Gives parallism to p-value calculation
+    final ForkJoinPool fragmentPool = GlobalFlags.getBooleanValue(CoreGlobalFlags.SPECIES_PARALLEL_FRAGMENTS) ? new ForkJoinPool(mParams.execThreads()) : null; // Gives parallelism within large blocks
     try {
+      for (final BlockInfo subBlockInfo : subBlocks) {
+        subBlockInfo.setPool(fragmentPool);
+      }
       for (final BlockInfo subBlockInfo : subBlocks) {
         final IORunnable run = new IORunnable() {
           final BlockMapping mBlockMapping = blockMapping;
@@ -484,7 +649,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
 
           private SubBlockResult runBlock() throws IOException {
             final Species sp = new Species(mMembersOf, mCurrentBlock);
-            final SubBlockResult subBlockResults = sp.solve(mCurrentBlock.getN() * mParams.minIter());
+            final SubBlockResult subBlockResults = sp.solve(mCurrentBlock.getN() * mParams.minIter(), prior(mCurrentBlock));
 
             // Calculate P values, for every global taxon id that could be affected:
             final Vector initialR = subBlockResults.getR();
@@ -530,6 +695,9 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
       stp.terminate();
     } finally {
       pvalueExecutor.shutdownNow(); // Should already be finished by the time stp is finished.
+      if (fragmentPool != null) {
+        fragmentPool.shutdownNow();
+      }
     }
 
     Diagnostic.progress("Merging Block Results Started");
@@ -589,7 +757,7 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     return si.getMappedReads();
   }
 
-  void result(SequencesReader templateReader, LineWriter out, BlockResult result, BlockInfo blockInfo) throws IOException {
+  void result(SdfId sdfId, LineWriter out, BlockResult result, BlockInfo blockInfo) throws IOException {
     final int[] allRef = blockInfo.getSpeciesMap().taxonIds();
     final int[] parentList = makeParentLookup();
     final Vector r = result.getR();
@@ -637,8 +805,8 @@ class SpeciesTask extends ParamsTask<SpeciesParams, SpeciesStatistics> {
     if (CommandLine.getCommandLine() != null) {
       out.writeln(COMMENT_CHAR + "CL\t" + CommandLine.getCommandLine());
     }
-    if (templateReader.getSdfId().available()) {
-      out.writeln(COMMENT_CHAR + TEMPLATE_SDF_ATTRIBUTE + TAB + templateReader.getSdfId().toString());
+    if (sdfId.available()) {
+      out.writeln(COMMENT_CHAR + TEMPLATE_SDF_ATTRIBUTE + TAB + sdfId.toString());
     }
 
     out.writeln(COMMENT_CHAR + SPECIES_HEADER);
@@ -63,6 +63,10 @@ final class BaggedClassifier implements PredictClassifier {
     }
   }
 
+  PredictClassifier[] classifiers() {
+    return mClassifiers;
+  }
+
   @Override
   public double predict(double[] instance) {
     double prob = 0;
@@ -12,7 +12,6 @@
 package com.rtg.ml;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Properties;
 
 import com.rtg.util.ContingencyTable;
@@ -173,9 +172,9 @@ public class BaggedClassifierBuilder implements BuildClassifier, ThreadAware, Se
           }
           if (mEvaluateImportances) {
             for (int a = 0; a < attributes.length; ++a) {
-              final Dataset permuted = testSet.deepCopy();
-              permuteAttribute(permuted.getInstances(), a, randoms[j]);
-              evaluate(attEvals[a], subpredictors[j], permuted); // Importances
+              final double[] permuted = testSet.values(a);
+              permute(permuted, randoms[j]);
+              evaluate(attEvals[a], subpredictors[j], testSet.replaceAttribute(a, permuted)); // Importances
             }
           }
           Diagnostic.developerLog("Finished bag build " + j);
@@ -211,15 +210,13 @@ public class BaggedClassifierBuilder implements BuildClassifier, ThreadAware, Se
     }
   }
 
-  /* Randomly permute the attribute across the given set of instances */
-  private static void permuteAttribute(ArrayList<Instance> instances, int attribute, PortableRandom random) {
-    for (int i = instances.size() - 1; i > 0; --i) {
-      final double[] current = instances.get(i).instance();
-      final double[] target = instances.get(random.nextInt(i + 1)).instance();
-
-      final double tmp = target[attribute];
-      target[attribute] = current[attribute];
-      current[attribute] = tmp;
+  /* Randomly permute the values of an attribute */
+  private static void permute(double[] values, PortableRandom random) {
+    for (int i = values.length - 1; i > 0; --i) {
+      final int target = random.nextInt(i + 1);
+      final double tmp = values[target];
+      values[target] = values[i];
+      values[i] = tmp;
     }
   }
 
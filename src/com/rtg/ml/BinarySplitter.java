@@ -162,6 +162,22 @@ public final class BinarySplitter {
     return split(instance[mAttributeIndex]);
   }
 
+  int getAttributeIndex() {
+    return mAttributeIndex;
+  }
+
+  double getSplitValue() {
+    return mSplitValue;
+  }
+
+  boolean isNumeric() {
+    return mNumeric;
+  }
+
+  boolean isSplitMissing() {
+    return mSplitMissing;
+  }
+
   Direction split(double splitValue) {
     if (mSplitMissing) {
       return Attribute.isMissingValue(splitValue) ? Direction.LEFT : Direction.RIGHT;
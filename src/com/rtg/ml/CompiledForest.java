@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ml;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A tree or bagged ensemble of trees flattened into arrays of nodes for fast prediction.
+ * The nodes of each tree are held in pre-order, so the left child of a node immediately follows it.
+ * Predictions are identical to those of the classifier it was compiled from, which is retained for
+ * saving and display.
+ */
+final class CompiledForest implements PredictClassifier {
+
+  // Types of node
+  private static final byte LEAF = 0;
+  private static final byte NUMERIC = 1;
+  private static final byte NOMINAL = 2;
+  private static final byte SPLIT_MISSING = 3;
+
+  private final PredictClassifier mSource;
+  private final int[] mRoots;
+  private final byte[] mType;
+  private final int[] mAttribute;
+  private final double[] mValue; // split value, or probability for a leaf
+  private final int[] mRight;
+  private final double[] mLeftFraction;
+  private final double[] mRightFraction;
+  private int mSize = 0;
+
+  /**
+   * Compile a classifier, if it is a tree or bagged trees.
+   * @param classifier the classifier to compile
+   * @return the compiled classifier, or the original classifier if it cannot be compiled
+   */
+  static PredictClassifier compile(PredictClassifier classifier) {
+    final PredictClassifier[] trees = classifier instanceof BaggedClassifier ? ((BaggedClassifier) classifier).classifiers() : new PredictClassifier[] {classifier};
+    int nodes = 0;
+    for (final PredictClassifier tree : trees) {
+      final int n = countNodes(tree);
+      if (n < 0) {
+        return classifier;
+      }
+      nodes += n;
+    }
+    return new CompiledForest(classifier, trees, nodes);
+  }
+
+  // Number of nodes in the tree, or -1 if it contains anything other than splits and 0R leaves
+  private static int countNodes(PredictClassifier tree) {
+    if (tree instanceof ZeroRBuilder.ZeroRClassifier) {
+      return 1;
+    } else if (tree instanceof BinaryTreeClassifier) {
+      final int left = countNodes(((BinaryTreeClassifier) tree).mLeft);
+      final int right = countNodes(((BinaryTreeClassifier) tree).mRight);
+      return left < 0 || right < 0 ? -1 : 1 + left + right;
+    }
+    return -1;
+  }
+
+  private CompiledForest(PredictClassifier source, PredictClassifier[] trees, int nodes) {
+    mSource = source;
+    mRoots = new int[trees.length];
+    mType = new byte[nodes];
+    mAttribute = new int[nodes];
+    mValue = new double[nodes];
+    mRight = new int[nodes];
+    mLeftFraction = new double[nodes];
+    mRightFraction = new double[nodes];
+    for (int i = 0; i < trees.length; ++i) {
+      mRoots[i] = add(trees[i]);
+    }
+    assert mSize == nodes;
+  }
+
+  private int add(PredictClassifier tree) {
+    final int node = mSize++;
+    if (tree instanceof BinaryTreeClassifier) {
+      final BinaryTreeClassifier btc = (BinaryTreeClassifier) tree;
+      final BinarySplitter director = btc.mDirector;
+      mType[node] = director.isSplitMissing() ? SPLIT_MISSING : director.isNumeric() ? NUMERIC : NOMINAL;
+      mAttribute[node] = director.getAttributeIndex();
+      mValue[node] = director.getSplitValue();
+      mLeftFraction[node] = btc.mLeftFraction;
+      mRightFraction[node] = btc.mRightFraction;
+      add(btc.mLeft);
+      mRight[node] = add(btc.mRight);
+    } else {
+      mType[node] = LEAF;
+      mAttribute[node] = -1;
+      mValue[node] = ((ZeroRBuilder.ZeroRClassifier) tree).probability();
+    }
+    return node;
+  }
+
+  @Override
+  public double predict(double[] instance) {
+    double prob = 0;
+    for (final int root : mRoots) {
+      prob += predict(root, instance);
+    }
+    return prob / mRoots.length;
+  }
+
+  /**
+   * Evaluates one tree at a time across all the instances, so that the nodes of each tree stay in cache.
+   */
+  @Override
+  public void predict(double[][] instances, double[] predictions) {
+    Arrays.fill(predictions, 0, instances.length, 0);
+    for (final int root : mRoots) {
+      for (int i = 0; i < instances.length; ++i) {
+        predictions[i] += predict(root, instances[i]);
+      }
+    }
+    for (int i = 0; i < instances.length; ++i) {
+      predictions[i] /= mRoots.length;
+    }
+  }
+
+  // Follows the same decisions as BinarySplitter.split and BinaryTreeClassifier.predict
+  private double predict(int root, double[] instance) {
+    int node = root;
+    while (mType[node] != LEAF) {
+      final double value = instance[mAttribute[node]];
+      final boolean left;
+      if (mType[node] == SPLIT_MISSING) {
+        left = Attribute.isMissingValue(value);
+      } else if (Attribute.isMissingValue(value)) {
+        return mLeftFraction[node] * predict(node + 1, instance) + mRightFraction[node] * predict(mRight[node], instance);
+      } else if (mType[node] == NUMERIC) {
+        left = Double.compare(mValue[node], value) >= 0;
+      } else {
+        left = value == mValue[node];
+      }
+      node = left ? node + 1 : mRight[node];
+    }
+    return mValue[node];
+  }
+
+  @Override
+  public void save(DataOutputStream dos, Dataset data) throws IOException {
+    mSource.save(dos, data);
+  }
+
+  @Override
+  public StringBuilder toString(StringBuilder out, String indent, Dataset data) {
+    return mSource.toString(out, indent, data);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof CompiledForest && mSource.equals(((CompiledForest) obj).mSource);
+  }
+
+  @Override
+  public int hashCode() {
+    return mSource.hashCode();
+  }
+}
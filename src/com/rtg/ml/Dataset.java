@@ -11,21 +11,37 @@
  */
 package com.rtg.ml;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.rtg.util.PortableRandom;
 
 /**
  * Encapsulate a dataset suitable for training a two-class classifier.
- *
+ * Values are held column-wise in primitive arrays, one per attribute, along with arrays of
+ * classifications and weights. A subset of a dataset (such as a bootstrap sample) refers to the
+ * rows of its parent rather than copying them.
  */
 public class Dataset {
 
+  private static final int INITIAL_CAPACITY = 16;
+
   private final Attribute[] mAttr;
   private double mPosWeight = 0;
   private double mNegWeight = 0;
   private long mPosCount = 0;
-  private final ArrayList<Instance> mInstances = new ArrayList<>();
+  private int mSize = 0;
+
+  // Storage, may be shared with subsets of this dataset
+  private double[][] mColumns;
+  private boolean[] mPositive;
+  private double[] mWeights;
+
+  // For a subset, the storage row of each instance, otherwise null
+  private final int[] mRows;
+
+  // Attribute whose values are supplied separately for each instance, or -1
+  private final int mReplacedAttribute;
+  private final double[] mReplacedValues;
 
   /**
    * Construct a container for a dataset with specified attributes.
@@ -34,20 +50,31 @@ public class Dataset {
   public Dataset(final Attribute... attr) {
     assert attr.length > 0;
     mAttr = attr;
+    mColumns = new double[attr.length][INITIAL_CAPACITY];
+    mPositive = new boolean[INITIAL_CAPACITY];
+    mWeights = new double[INITIAL_CAPACITY];
+    mRows = null;
+    mReplacedAttribute = -1;
+    mReplacedValues = null;
   }
 
-  /**
-   * @return a copy of the dataset (instances can be added or altered without affecting the original)
-   */
-  public Dataset deepCopy() {
-    final Dataset result = new Dataset(mAttr);
-    result.mNegWeight = mNegWeight;
-    result.mPosWeight = mPosWeight;
-    result.mInstances.ensureCapacity(mInstances.size());
-    for (Instance inst : mInstances) {
-      result.mInstances.add(inst.deepCopy());
+  private Dataset(final Dataset parent, final int[] rows, final int replacedAttribute, final double[] replacedValues) {
+    mAttr = parent.mAttr;
+    mColumns = parent.mColumns;
+    mPositive = parent.mPositive;
+    mWeights = parent.mWeights;
+    mRows = rows;
+    mSize = rows.length;
+    mReplacedAttribute = replacedAttribute;
+    mReplacedValues = replacedValues;
+    for (int i = 0; i < mSize; ++i) {
+      if (isPositive(i)) {
+        mPosWeight += weight(i);
+        ++mPosCount;
+      } else {
+        mNegWeight += weight(i);
+      }
     }
-    return result;
   }
 
   /**
@@ -56,13 +83,38 @@ public class Dataset {
    * @param instance the instance
    */
   public void addInstance(final Instance instance) {
-    assert instance.instance().length == mAttr.length;
-    mInstances.add(instance);
-    if (instance.isPositive()) {
-      mPosWeight += instance.weight();
+    addInstance(instance.instance(), instance.isPositive(), instance.weight());
+  }
+
+  /**
+   * Add a training instance. It is assumed the values match those of the attributes.
+   * The values are copied, so the array may be reused by the caller.
+   * @param instance the attribute values
+   * @param isPositive true if the instance is a positive example
+   * @param weight the weight of the instance
+   */
+  public void addInstance(final double[] instance, final boolean isPositive, final double weight) {
+    assert instance.length == mAttr.length;
+    checkStorage();
+    if (mSize == mWeights.length) {
+      final int capacity = mSize + (mSize >> 1);
+      for (int k = 0; k < mColumns.length; ++k) {
+        mColumns[k] = Arrays.copyOf(mColumns[k], capacity);
+      }
+      mPositive = Arrays.copyOf(mPositive, capacity);
+      mWeights = Arrays.copyOf(mWeights, capacity);
+    }
+    for (int k = 0; k < mColumns.length; ++k) {
+      mColumns[k][mSize] = instance[k];
+    }
+    mPositive[mSize] = isPositive;
+    mWeights[mSize] = weight;
+    ++mSize;
+    if (isPositive) {
+      mPosWeight += weight;
       ++mPosCount;
     } else {
-      mNegWeight += instance.weight();
+      mNegWeight += weight;
     }
   }
 
@@ -70,13 +122,113 @@ public class Dataset {
     return mAttr;
   }
 
-  ArrayList<Instance> getInstances() {
-    return mInstances;
+  /**
+   * Get a subset of this dataset. Instances are shared with this dataset rather than copied.
+   * @param indexes the index within this dataset of each instance of the subset, may contain repeats
+   * @return the subset
+   */
+  Dataset subset(final int[] indexes) {
+    final int[] rows = new int[indexes.length];
+    for (int i = 0; i < rows.length; ++i) {
+      rows[i] = row(indexes[i]);
+    }
+    final double[] replaced;
+    if (mReplacedValues == null) {
+      replaced = null;
+    } else {
+      replaced = new double[indexes.length];
+      for (int i = 0; i < replaced.length; ++i) {
+        replaced[i] = mReplacedValues[indexes[i]];
+      }
+    }
+    return new Dataset(this, rows, mReplacedAttribute, replaced);
+  }
+
+  /**
+   * Get a dataset containing the instances of this dataset, but with different values for one attribute.
+   * @param attribute the attribute to replace
+   * @param values the value of the attribute for each instance
+   * @return the dataset
+   */
+  Dataset replaceAttribute(final int attribute, final double[] values) {
+    assert values.length == mSize;
+    assert mReplacedValues == null;
+    final int[] rows = new int[mSize];
+    for (int i = 0; i < rows.length; ++i) {
+      rows[i] = row(i);
+    }
+    return new Dataset(this, rows, attribute, values);
+  }
+
+  private int row(final int i) {
+    return mRows == null ? i : mRows[i];
+  }
+
+  /**
+   * @param i index of the instance
+   * @param attribute index of the attribute
+   * @return the value of the attribute for the instance
+   */
+  double value(final int i, final int attribute) {
+    return attribute == mReplacedAttribute ? mReplacedValues[i] : mColumns[attribute][row(i)];
+  }
+
+  /**
+   * @param attribute index of the attribute
+   * @return a copy of the value of the attribute for each instance
+   */
+  double[] values(final int attribute) {
+    final double[] values = new double[mSize];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = value(i, attribute);
+    }
+    return values;
+  }
+
+  /**
+   * Fill an array with the attribute values of an instance.
+   * @param i index of the instance
+   * @param instance receives the attribute values
+   * @return the array of attribute values
+   */
+  double[] instance(final int i, final double[] instance) {
+    final int row = row(i);
+    for (int k = 0; k < mColumns.length; ++k) {
+      instance[k] = mColumns[k][row];
+    }
+    if (mReplacedAttribute >= 0) {
+      instance[mReplacedAttribute] = mReplacedValues[i];
+    }
+    return instance;
+  }
+
+  /**
+   * @param i index of the instance
+   * @return a new array containing the attribute values of the instance
+   */
+  double[] instance(final int i) {
+    return instance(i, new double[mAttr.length]);
+  }
+
+  /**
+   * @param i index of the instance
+   * @return true if the instance is a positive example
+   */
+  boolean isPositive(final int i) {
+    return mPositive[row(i)];
+  }
+
+  /**
+   * @param i index of the instance
+   * @return the weight of the instance
+   */
+  double weight(final int i) {
+    return mWeights[row(i)];
   }
 
   /** @return the number of instances in the dataset */
   public int size() {
-    return mInstances.size();
+    return mSize;
   }
 
   /** @return the total weight of positive instances in the dataset */
@@ -106,18 +258,19 @@ public class Dataset {
 
   /** Equalize the total positive and negative weights of the dataset. */
   public void reweight() {
+    checkStorage();
     // Includes a Laplace style correction to guard against potential of no positives or negatives
     final double targetWeightPerClass = 0.5 * (size() + 2);
     final double posWeight = targetWeightPerClass / (totalPositives() + 1);
     final double negWeight = targetWeightPerClass / (totalNegatives() + 1);
     mPosWeight = 0;
     mNegWeight = 0;
-    for (final Instance i : getInstances()) {
-      if (i.isPositive()) {
-        i.setWeight(posWeight);
+    for (int i = 0; i < mSize; ++i) {
+      if (mPositive[i]) {
+        mWeights[i] = posWeight;
         mPosWeight += posWeight;
       } else {
-        i.setWeight(negWeight);
+        mWeights[i] = negWeight;
         mNegWeight += negWeight;
       }
     }
@@ -147,12 +300,13 @@ public class Dataset {
    * @param newValue the value to inject
    */
   public void injectErrors(double posErrorRate, double negErrorRate, double newValue) {
+    checkStorage();
     final PortableRandom rand = new PortableRandom(42);
     final int numAtts = getAttributes().length;
-    for (Instance inst : getInstances()) {
+    for (int j = 0; j < mSize; ++j) {
       for (int i = 0; i < numAtts; ++i) {
-        if (rand.nextDouble() < (inst.isPositive() ? posErrorRate : negErrorRate)) {
-          inst.instance()[i] = newValue;
+        if (rand.nextDouble() < (mPositive[j] ? posErrorRate : negErrorRate)) {
+          mColumns[i][j] = newValue;
         }
       }
     }
@@ -165,9 +319,9 @@ public class Dataset {
   public long[] missingValueCounts() {
     final int numAtts = getAttributes().length;
     final long[] counts = new long[numAtts];
-    for (Instance inst : getInstances()) {
-      for (int attribute = 0; attribute < numAtts; attribute++) {
-        if (Attribute.isMissingValue(inst.instance()[attribute])) {
+    for (int attribute = 0; attribute < numAtts; attribute++) {
+      for (int i = 0; i < mSize; ++i) {
+        if (Attribute.isMissingValue(value(i, attribute))) {
           counts[attribute]++;
         }
       }
@@ -175,4 +329,11 @@ public class Dataset {
     return counts;
   }
 
+  // Operations that alter the stored instances are not allowed on subsets, which share their storage
+  private void checkStorage() {
+    if (mRows != null) {
+      throw new UnsupportedOperationException("Cannot modify a subset of a dataset");
+    }
+  }
+
 }
@@ -68,6 +68,18 @@ public final class MlPredictLoader {
     return loadPredictClassifier(new DataInputStream(is), data);
   }
 
+  /**
+   * Loads the next classifier in the stream, flattening trees into arrays for faster prediction.
+   * Predictions are the same as for the classifier returned by <code>loadPredictClassifier</code>.
+   * @param is stream to load from
+   * @param data set of attributes for encoding/decoding values
+   * @return the classifier
+   * @throws IOException if an IO error occurs
+   */
+  public static PredictClassifier loadCompiledPredictClassifier(InputStream is, Dataset data) throws IOException {
+    return CompiledForest.compile(loadPredictClassifier(is, data));
+  }
+
   /**
    * Loads the next classifier in the stream
    * @param dis stream to load from
@@ -35,6 +35,17 @@ public interface PredictClassifier {
    */
   double predict(double[] instance);
 
+  /**
+   * Return the classifier probability that each of a set of instances is an exemplar of the positive class.
+   * @param instances the instances
+   * @param predictions receives the probability of positive for each instance
+   */
+  default void predict(double[][] instances, double[] predictions) {
+    for (int i = 0; i < instances.length; ++i) {
+      predictions[i] = predict(instances[i]);
+    }
+  }
+
   /**
    * Get a human readable representation of the classifier
    * @param out where to send the output
@@ -11,14 +11,11 @@
  */
 package com.rtg.ml;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Properties;
 
 import com.rtg.ml.ZeroRBuilder.ZeroRClassifier;
-import com.rtg.util.DoubleMultiSet;
 import com.rtg.util.PortableRandom;
 import com.rtg.util.Seedable;
 import com.rtg.util.array.ArrayUtils;
@@ -86,7 +83,7 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
     final PortableRandom random = new PortableRandom(mSeed);
     mActualNumAttributes = (mNumAttributes == 0) ? (int) (Math.log(dataset.getAttributes().length) / Math.log(2) + 1) : mNumAttributes;
     Diagnostic.userLog(toString());
-    mClassifier = buildSubtree(random, dataset, 0);
+    mClassifier = buildSubtree(random, new Node(dataset), 0);
   }
 
   private static final int POS = 0;
@@ -94,60 +91,309 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
   private static final int IN = 0;
   private static final int OUT = 1;
 
-  private PredictClassifier buildSubtree(PortableRandom random, Dataset dataset, int currentDepth) {
+  // Which subtrees a row of a node is sent to
+  private static final byte TO_LEFT = 1;
+  private static final byte TO_RIGHT = 2;
+  private static final byte TO_BOTH = TO_LEFT | TO_RIGHT;
 
-    if ((dataset.totalWeight() < mMinInstances)
+  /**
+   * The instances reaching a node of the tree under construction. Each row of the node refers to
+   * an instance of the training dataset, in dataset order, together with its weight at this node.
+   * For each numeric attribute the rows having a value are held sorted by that value (ties in row
+   * order), so split points are found by a linear scan. The training set is sorted once. When a
+   * node is split its sorted rows are stably partitioned in place into those of the two subtrees,
+   * so all the nodes of a tree share the same sorted arrays. Only when some rows are sent to both
+   * subtrees do the subtrees get arrays of their own.
+   */
+  private static final class Node {
+    private final Attribute[] mAttributes;
+    private final Dataset mDataset;
+    private final int[] mRows;
+    private final double[] mWeights;
+    private double mPosWeight = 0;
+    private double mNegWeight = 0;
+    // Per numeric attribute, indexes into mRows sorted by value, held in mSorted[attribute] from
+    // mStart[attribute] up to mEnd[attribute]
+    private int[][] mSorted = null;
+    private int[] mStart = null;
+    private int[] mEnd = null;
+
+    Node(Dataset dataset) {
+      mAttributes = dataset.getAttributes();
+      mDataset = dataset;
+      mRows = new int[dataset.size()];
+      mWeights = new double[dataset.size()];
+      for (int i = 0; i < mRows.length; ++i) {
+        mRows[i] = i;
+        mWeights[i] = dataset.weight(i);
+        addWeight(i);
+      }
+    }
+
+    /**
+     * @param parent the node being split
+     * @param sides the subtrees each row of the parent is sent to
+     * @param side the subtree this node is
+     * @param fraction weight fraction applied to rows sent to both subtrees
+     * @param parentIndex receives the index in this node of each parent row (or -1)
+     */
+    private Node(Node parent, byte[] sides, byte side, double fraction, int[] parentIndex) {
+      mAttributes = parent.mAttributes;
+      mDataset = parent.mDataset;
+      int size = 0;
+      for (final byte s : sides) {
+        if ((s & side) != 0) {
+          ++size;
+        }
+      }
+      mRows = new int[size];
+      mWeights = new double[size];
+      int k = 0;
+      for (int i = 0; i < sides.length; ++i) {
+        if ((sides[i] & side) != 0) {
+          mRows[k] = parent.mRows[i];
+          mWeights[k] = sides[i] == TO_BOTH ? fraction * parent.mWeights[i] : parent.mWeights[i];
+          addWeight(k);
+          parentIndex[i] = k++;
+        } else {
+          parentIndex[i] = -1;
+        }
+      }
+      mSorted = new int[mAttributes.length][];
+      mStart = new int[mAttributes.length];
+      mEnd = new int[mAttributes.length];
+    }
+
+    private void addWeight(int i) {
+      if (isPositive(i)) {
+        mPosWeight += mWeights[i];
+      } else {
+        mNegWeight += mWeights[i];
+      }
+    }
+
+    int size() {
+      return mRows.length;
+    }
+
+    boolean isPositive(int i) {
+      return mDataset.isPositive(mRows[i]);
+    }
+
+    double value(int i, int attribute) {
+      return mDataset.value(mRows[i], attribute);
+    }
+
+    double weight(int i) {
+      return mWeights[i];
+    }
+
+    double totalPositiveWeight() {
+      return mPosWeight;
+    }
+
+    double totalNegativeWeight() {
+      return mNegWeight;
+    }
+
+    double totalWeight() {
+      return mNegWeight + mPosWeight;
+    }
+
+    int[] sorted(int attribute) {
+      return mSorted[attribute];
+    }
+
+    int start(int attribute) {
+      return mStart[attribute];
+    }
+
+    int end(int attribute) {
+      return mEnd[attribute];
+    }
+
+    /**
+     * Fill in the sorted rows for the numeric attributes of the training set, only needed once it is to be split.
+     */
+    void presort() {
+      if (mSorted != null) {
+        return;
+      }
+      mSorted = new int[mAttributes.length][];
+      mStart = new int[mAttributes.length];
+      mEnd = new int[mAttributes.length];
+      for (int attribute = 0; attribute < mAttributes.length; ++attribute) {
+        if (mAttributes[attribute].getDataType().isNumeric()) {
+          mSorted[attribute] = sortRows(attribute);
+          mEnd[attribute] = mSorted[attribute].length;
+        }
+      }
+    }
+
+    // Sort rows with a value by value then row, by sorting (value rank, row) pairs packed into longs
+    private int[] sortRows(int attribute) {
+      int n = 0;
+      final double[] values = new double[size()];
+      for (int i = 0; i < values.length; ++i) {
+        final double v = value(i, attribute);
+        if (!Attribute.isMissingValue(v)) {
+          values[n++] = v + 0.0; // Adding zero turns -0.0 into 0.0, they compare equal when splitting
+        }
+      }
+      final double[] distinct = Arrays.copyOf(values, n);
+      Arrays.sort(distinct);
+      int numDistinct = 0;
+      for (int i = 0; i < distinct.length; ++i) {
+        if (i == 0 || distinct[i] != distinct[numDistinct - 1]) {
+          distinct[numDistinct++] = distinct[i];
+        }
+      }
+      final long[] keys = new long[n];
+      int k = 0;
+      for (int i = 0; i < size(); ++i) {
+        final double v = value(i, attribute);
+        if (!Attribute.isMissingValue(v)) {
+          keys[k++] = ((long) Arrays.binarySearch(distinct, 0, numDistinct, v + 0.0) << 32) | i;
+        }
+      }
+      Arrays.sort(keys);
+      final int[] sorted = new int[n];
+      for (int i = 0; i < n; ++i) {
+        sorted[i] = (int) keys[i];
+      }
+      return sorted;
+    }
+
+    /**
+     * Create the two subtrees of this node, handing its sorted rows over to them.
+     * @param sides the subtrees each row is sent to
+     * @param leftFraction weight fraction applied to rows sent to both subtrees for the left subtree
+     * @return the left and right subtrees
+     */
+    Node[] split(byte[] sides, double leftFraction) {
+      final int[] leftIndex = new int[sides.length];
+      final int[] rightIndex = new int[sides.length];
+      final Node left = new Node(this, sides, TO_LEFT, leftFraction, leftIndex);
+      final Node right = new Node(this, sides, TO_RIGHT, 1.0 - leftFraction, rightIndex);
+      boolean both = false;
+      for (final byte s : sides) {
+        if (s == TO_BOTH) {
+          both = true;
+          break;
+        }
+      }
+      final int[] scratch = both ? null : new int[size()];
+      for (int attribute = 0; attribute < mAttributes.length; ++attribute) {
+        final int[] sorted = mSorted[attribute];
+        if (sorted == null) {
+          continue;
+        }
+        if (both) {
+          left.mSorted[attribute] = filterRows(sorted, mStart[attribute], mEnd[attribute], leftIndex);
+          left.mEnd[attribute] = left.mSorted[attribute].length;
+          right.mSorted[attribute] = filterRows(sorted, mStart[attribute], mEnd[attribute], rightIndex);
+          right.mEnd[attribute] = right.mSorted[attribute].length;
+        } else {
+          // Stable partition, the left rows are moved down in place and the right rows follow them
+          int k = mStart[attribute];
+          int r = 0;
+          for (int j = mStart[attribute]; j < mEnd[attribute]; ++j) {
+            final int p = sorted[j];
+            if (leftIndex[p] >= 0) {
+              sorted[k++] = leftIndex[p];
+            } else if (rightIndex[p] >= 0) {
+              scratch[r++] = rightIndex[p];
+            }
+          }
+          System.arraycopy(scratch, 0, sorted, k, r);
+          left.mSorted[attribute] = sorted;
+          left.mStart[attribute] = mStart[attribute];
+          left.mEnd[attribute] = k;
+          right.mSorted[attribute] = sorted;
+          right.mStart[attribute] = k;
+          right.mEnd[attribute] = k + r;
+        }
+      }
+      // The subtrees now hold the sorted rows
+      mSorted = null;
+      mStart = null;
+      mEnd = null;
+      return new Node[] {left, right};
+    }
+
+    private static int[] filterRows(int[] parentSorted, int start, int end, int[] parentIndex) {
+      int n = 0;
+      for (int j = start; j < end; ++j) {
+        if (parentIndex[parentSorted[j]] >= 0) {
+          ++n;
+        }
+      }
+      final int[] sorted = new int[n];
+      int k = 0;
+      for (int j = start; j < end; ++j) {
+        final int i = parentIndex[parentSorted[j]];
+        if (i >= 0) {
+          sorted[k++] = i;
+        }
+      }
+      return sorted;
+    }
+  }
+
+  private PredictClassifier buildSubtree(PortableRandom random, Node node, int currentDepth) {
+
+    if ((node.totalWeight() < mMinInstances)
         || (mMaxDepth > 0 && currentDepth >= mMaxDepth)
-        || (dataset.totalPositiveWeight() == 0)
-        || (dataset.totalNegativeWeight() == 0)) {
-      return new ZeroRBuilder.ZeroRClassifier(dataset.totalPositiveWeight(), dataset.totalNegativeWeight());
+        || (node.totalPositiveWeight() == 0)
+        || (node.totalNegativeWeight() == 0)) {
+      return new ZeroRBuilder.ZeroRClassifier(node.totalPositiveWeight(), node.totalNegativeWeight());
     }
+    node.presort();
 
     // Choose set of attribute that the tree is allowed to select from
+    final Attribute[] attributes = node.mAttributes;
     BinarySplitter bestDirector = null;
     double bestFrac = Double.NaN;
     final double[][] priorDist = new double[2][2];
-    priorDist[OUT][POS] = dataset.totalPositiveWeight();
-    priorDist[OUT][NEG] = dataset.totalNegativeWeight();
+    priorDist[OUT][POS] = node.totalPositiveWeight();
+    priorDist[OUT][NEG] = node.totalNegativeWeight();
     double bestEntropy = entropy(priorDist) - mSplitCost;
     //final long seed = random.getSeed();
-    for (int attribute : getAttributes(random, dataset.getAttributes().length, mActualNumAttributes)) {
+    for (int attribute : getAttributes(random, attributes.length, mActualNumAttributes)) {
       // Evaluate each attribute for best split point
-      final MlDataType dataType = dataset.getAttributes()[attribute].getDataType();
+      final MlDataType dataType = attributes[attribute].getDataType();
       if (dataType.isNumeric()) {
 
-        // Create set of instances with non-missing attribute value, and initial counts
+        // Initial counts of instances with non-missing attribute value
         final double[][] dist = new double[2][2];
-        final ArrayList<Instance> sorted = new ArrayList<>();
-        for (Instance inst : dataset.getInstances()) {
-          if (!Attribute.isMissingValue(inst.instance()[attribute])) {
-            sorted.add(inst);
-            dist[OUT][inst.isPositive() ? POS : NEG] += inst.weight();
+        for (int i = 0; i < node.size(); ++i) {
+          if (!Attribute.isMissingValue(node.value(i, attribute))) {
+            dist[OUT][node.isPositive(i) ? POS : NEG] += node.weight(i);
           }
         }
-        final double missingPos = dataset.totalPositiveWeight() - dist[OUT][POS];
-        final double missingNeg = dataset.totalNegativeWeight() - dist[OUT][NEG];
+        final double missingPos = node.totalPositiveWeight() - dist[OUT][POS];
+        final double missingNeg = node.totalNegativeWeight() - dist[OUT][NEG];
         if (mSplitMissing) {
           assert mEntropyMissing;
           final double entropy = entropy(dist) + entropy(missingPos, missingNeg);
           if (entropy < bestEntropy) {
-            bestDirector = new BinarySplitter(dataset.getAttributes()[attribute].getName(), attribute, Double.NaN, dataType);
+            bestDirector = new BinarySplitter(attributes[attribute].getName(), attribute, Double.NaN, dataType);
             bestEntropy = entropy;
           }
         }
 
-        sorted.sort(new AttributeComparator(attribute));
-
-        // Scan through and find the best numeric split point
+        // Scan through the presorted instances and find the best numeric split point
         double prevValue = Double.NaN;
-        for (Instance inst : sorted) {
-          final double currentValue = inst.instance()[attribute];
+        final int[] sorted = node.sorted(attribute);
+        for (int j = node.start(attribute); j < node.end(attribute); ++j) {
+          final int i = sorted[j];
+          final double currentValue = node.value(i, attribute);
           if (!Attribute.isMissingValue(prevValue) && prevValue != currentValue) {
             // Evaluate gain
             final double entropy = mEntropyMissing ? entropy(dist, missingPos, missingNeg) : entropy(dist);
             if (entropy < bestEntropy) {
               final double splitPoint = getSplitPoint(dataType, prevValue, currentValue);
-              bestDirector = new BinarySplitter(dataset.getAttributes()[attribute].getName(), attribute, splitPoint, dataType);
+              bestDirector = new BinarySplitter(attributes[attribute].getName(), attribute, splitPoint, dataType);
               bestFrac = in(dist) / total(dist);
 
               assert BinarySplitter.Direction.LEFT == bestDirector.split(prevValue);
@@ -157,46 +403,58 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
             }
           }
           // Update dist
-          if (inst.isPositive()) {
-            dist[IN][POS] += inst.weight();
-            dist[OUT][POS] -= inst.weight();
+          final double weight = node.weight(i);
+          if (node.isPositive(i)) {
+            dist[IN][POS] += weight;
+            dist[OUT][POS] -= weight;
           } else {
-            dist[IN][NEG] += inst.weight();
-            dist[OUT][NEG] -= inst.weight();
+            dist[IN][NEG] += weight;
+            dist[OUT][NEG] -= weight;
           }
           prevValue = currentValue;
         }
 
       } else { // Nominal attributes
         // Collect distribution for all distinct values
-        final DoubleMultiSet<Double> posCounts = new DoubleMultiSet<>();
-        final DoubleMultiSet<Double> negCounts = new DoubleMultiSet<>();
-        for (Instance inst : dataset.getInstances()) {
-          final double attValue = inst.instance()[attribute];
-          if (inst.isPositive()) {
-            posCounts.add(Attribute.isMissingValue(attValue) ? null : attValue, inst.weight());
+        final int nonimalSize = attributes[attribute].nominalSize();
+        final double[] posCounts = new double[nonimalSize];
+        final double[] negCounts = new double[nonimalSize];
+        double missingPos = 0;
+        double missingNeg = 0;
+        for (int i = 0; i < node.size(); ++i) {
+          final double attValue = node.value(i, attribute);
+          final boolean positive = node.isPositive(i);
+          if (Attribute.isMissingValue(attValue)) {
+            if (positive) {
+              missingPos += node.weight(i);
+            } else {
+              missingNeg += node.weight(i);
+            }
           } else {
-            negCounts.add(Attribute.isMissingValue(attValue) ? null : attValue, inst.weight());
+            final int intKey = (int) attValue;
+            if (intKey == attValue && intKey >= 0 && intKey < nonimalSize) {
+              if (positive) {
+                posCounts[intKey] += node.weight(i);
+              } else {
+                negCounts[intKey] += node.weight(i);
+              }
+            }
           }
         }
         final double[][] dist = new double[2][2];
-        final double missingPos = posCounts.get(null);
-        final double missingNeg = negCounts.get(null);
         if (mSplitMissing) {
           assert mEntropyMissing;
           final double entropy = entropy(dist) + entropy(missingPos, missingNeg);
           if (entropy < bestEntropy) {
-            bestDirector = new BinarySplitter(dataset.getAttributes()[attribute].getName(), attribute, Double.NaN, dataType);
+            bestDirector = new BinarySplitter(attributes[attribute].getName(), attribute, Double.NaN, dataType);
             bestEntropy = entropy;
           }
         }
-        final double posNonMissing = dataset.totalPositiveWeight() - missingPos;
-        final double negNonMissing = dataset.totalNegativeWeight() - missingNeg;
-        final int nonimalSize = dataset.getAttributes()[attribute].nominalSize();
+        final double posNonMissing = node.totalPositiveWeight() - missingPos;
+        final double negNonMissing = node.totalNegativeWeight() - missingNeg;
         for (int intKey = 0; intKey < nonimalSize; ++intKey) {
-          final Double key = (double) intKey;
-          final double numpos = posCounts.get(key);
-          final double numneg = negCounts.get(key);
+          final double numpos = posCounts[intKey];
+          final double numneg = negCounts[intKey];
           dist[IN][POS] = numpos;
           dist[IN][NEG] = numneg;
           dist[OUT][POS] = posNonMissing - numpos;
@@ -204,7 +462,7 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
 
           final double entropy = mEntropyMissing ? entropy(dist, missingPos, missingNeg) : entropy(dist);
           if (entropy < bestEntropy) {
-            bestDirector = new BinarySplitter(dataset.getAttributes()[attribute].getName(), attribute, key, dataType);
+            bestDirector = new BinarySplitter(attributes[attribute].getName(), attribute, intKey, dataType);
             bestFrac = in(dist) / total(dist);
             bestEntropy = entropy;
           }
@@ -214,29 +472,28 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
 
     // Recurse for the chosen split point, or stop if no information gain
     if (bestDirector == null) {
-      return new ZeroRBuilder.ZeroRClassifier(dataset.totalPositiveWeight(), dataset.totalNegativeWeight());
+      return new ZeroRBuilder.ZeroRClassifier(node.totalPositiveWeight(), node.totalNegativeWeight());
 
     } else {
-      final long seed = random.nextLong(); // We need to use this same seed for both times we run the filterInstances.
-      Dataset subData = new Dataset(dataset.getAttributes());
+      final long seed = random.nextLong();
+      final byte[] sides = new byte[node.size()];
       // bestFrac = 0.5; // Equivalent to old behaviour
-      final double minWeight = filterInstances(bestDirector, bestFrac, dataset, subData, null, mPropagateMissing == PropagateMissingType.RANDOM ? new PortableRandom(seed) : null);
+      final double minWeight = filterInstances(bestDirector, bestFrac, node, sides, mPropagateMissing == PropagateMissingType.RANDOM ? new PortableRandom(seed) : null);
       // If all instances ever get filtered into the same branch then something has gone
       // wrong with the split point selection.  Ideally this should not happen, but
       // perhaps could with some combination of missing values.  In this situation
       // rather than further splitting, we just return a 0R on the input data.
       if (minWeight <= ZeroRClassifier.MINIMUM_WEIGHT) {
         Diagnostic.userLog("Unexpected empty branch during tree construction, using 0R instead of branching");
-        return new ZeroRBuilder.ZeroRClassifier(dataset.totalPositiveWeight(), dataset.totalNegativeWeight());
+        return new ZeroRBuilder.ZeroRClassifier(node.totalPositiveWeight(), node.totalNegativeWeight());
       }
-      final double leftSize = subData.totalWeight();
-      final PredictClassifier left = buildSubtree(random, subData, currentDepth + 1);
-
-      subData = new Dataset(dataset.getAttributes());
-      filterInstances(bestDirector, bestFrac, dataset, null, subData, mPropagateMissing == PropagateMissingType.RANDOM ? new PortableRandom(seed) : null);
-      final PredictClassifier right = buildSubtree(random, subData, currentDepth + 1);
+      final Node[] subData = node.split(sides, bestFrac);
+      final double leftSize = subData[0].totalWeight();
+      final PredictClassifier left = buildSubtree(random, subData[0], currentDepth + 1);
+      subData[0] = null; // Release the left rows while the right subtree is built
+      final PredictClassifier right = buildSubtree(random, subData[1], currentDepth + 1);
 
-      final double leftFraction = leftSize / (leftSize + subData.totalWeight());
+      final double leftFraction = leftSize / (leftSize + subData[1].totalWeight());
       return new BinaryTreeClassifier(bestDirector, left, right,  leftFraction);
     }
   }
@@ -261,21 +518,20 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
   }
 
   /**
-   * Split the instances into left and right according to the director.  Returns the weight
-   * of the smaller of the two sides (useful for aborting computation).  Supports two pass
-   * approach by setting left or right to null.
+   * Decide which subtrees the rows of a node are sent to according to the director.  Returns the weight
+   * of the smaller of the two sides (useful for aborting computation).
    * @param director how to choose
    * @param leftFraction fraction of missing value instances to assign to the left subtree
-   * @param left ends up with left instances (can be null if you don't want left)
-   * @param right ends up with right instances (can be null if you don't want right)
+   * @param node the node being split
+   * @param sides receives the subtrees each row is sent to, zero if it is sent to neither
    * @param random if non-null, use stochastic selection of subtree for missing values
-   * @return weight of the smaller set (irrespective of whether it was null as a parameter)
+   * @return weight of the smaller set
    */
-  private double filterInstances(BinarySplitter director, double leftFraction, Dataset instances, Dataset left, Dataset right, PortableRandom random) {
+  private double filterInstances(BinarySplitter director, double leftFraction, Node node, byte[] sides, PortableRandom random) {
     double leftWeight = 0;
     double rightWeight = 0;
-    for (Instance inst : instances.getInstances()) {
-      BinarySplitter.Direction d = director.split(inst.instance());
+    for (int i = 0; i < node.size(); ++i) {
+      BinarySplitter.Direction d = director.split(node.value(i, director.getAttributeIndex()));
       if (d == BinarySplitter.Direction.MISSING && random != null) {
         if (Double.isNaN(leftFraction)) {
           throw new IllegalStateException("leftFraction should be set");
@@ -284,32 +540,21 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
       }
       switch (d) {
       case LEFT:
-        leftWeight += inst.weight();
-        if (left != null) {
-          left.addInstance(inst);
-        }
+        leftWeight += node.weight(i);
+        sides[i] = TO_LEFT;
         break;
       case RIGHT:
-        rightWeight += inst.weight();
-        if (right != null) {
-          right.addInstance(inst);
-        }
+        rightWeight += node.weight(i);
+        sides[i] = TO_RIGHT;
         break;
       case MISSING:
       default:
         if (mPropagateMissing == PropagateMissingType.BOTH) {
           assert !Double.isNaN(leftFraction);
           // Send instances with missing values down both branches with proportional weight
-          final double lWeight = leftFraction * inst.weight();
-          final double rWeight = (1.0 - leftFraction) * inst.weight();
-          leftWeight += lWeight;
-          rightWeight += rWeight;
-          if (left != null) {
-            left.addInstance(inst.reweight(lWeight));
-          }
-          if (right != null) {
-            right.addInstance(inst.reweight(rWeight));
-          }
+          leftWeight += leftFraction * node.weight(i);
+          rightWeight += (1.0 - leftFraction) * node.weight(i);
+          sides[i] = TO_BOTH;
         }
         break;
       }
@@ -422,29 +667,4 @@ public class RandomTreeBuilder implements BuildClassifier, Seedable {
   public void setSeed(int seed) {
     mSeed = seed;
   }
-
-  static class AttributeComparator implements Comparator<Instance>, Serializable {
-    private final int mAttributeIndex;
-
-    AttributeComparator(int attributeIndex) {
-      mAttributeIndex = attributeIndex;
-    }
-
-    @Override
-    public int compare(Instance o1, Instance o2) {
-      final double a1 = o1.instance()[mAttributeIndex];
-      final double a2 = o2.instance()[mAttributeIndex];
-      if (a1 == a2) {
-        return 0;
-      }
-      if (Attribute.isMissingValue(a1)) {
-        return -1;
-      } else if (Attribute.isMissingValue(a2)) {
-        return 1;
-      }
-      @SuppressWarnings(value = {"unchecked", "rawtypes"})
-      final int result = ((Comparable) a1).compareTo(a2);
-      return result;
-    }
-  }
 }
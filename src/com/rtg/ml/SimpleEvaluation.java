@@ -24,10 +24,11 @@ public class SimpleEvaluation extends ContingencyTable {
    * @param dataset the dataset to evaluate on
    */
   public void evaluate(PredictClassifier classifier, Dataset dataset) {
-    for (Instance instance : dataset.getInstances()) {
-      final int actual = instance.isPositive() ? POS : NEG;
-      final int predicted = classifier.predict(instance.instance()) > 0.5 ? POS : NEG;
-      add(actual, predicted, instance.weight());
+    final double[] instance = new double[dataset.getAttributes().length];
+    for (int i = 0; i < dataset.size(); ++i) {
+      final int actual = dataset.isPositive(i) ? POS : NEG;
+      final int predicted = classifier.predict(dataset.instance(i, instance)) > 0.5 ? POS : NEG;
+      add(actual, predicted, dataset.weight(i));
     }
   }
 
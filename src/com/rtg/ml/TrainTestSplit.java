@@ -14,7 +14,7 @@ package com.rtg.ml;
 import com.rtg.util.PortableRandom;
 
 /**
- * Encapsulates a training test set split.
+ * Encapsulates a training test set split. Both sets are subsets sharing the instances of the input dataset.
  *
  */
 public class TrainTestSplit {
@@ -45,22 +45,29 @@ public class TrainTestSplit {
     final int size = input.size();
     final boolean[] used = new boolean[size];
 
-    // Choose subsetSize instances from d, poke into split.mTrain
-    final Dataset train = new Dataset(input.getAttributes());
+    // Choose subsetSize instances from d, these form split.mTrain
+    final int[] train = new int[subsetSize];
     for (int i = 0; i < subsetSize; ++i) {
       final int index = seed.nextInt(size);
-      train.addInstance(input.getInstances().get(index));
+      train[i] = index;
       used[index] = true;
     }
 
-    // Put any instances not used for training into split.mTest
-    final Dataset test = new Dataset(input.getAttributes());
+    // Any instances not used for training form split.mTest
+    int testSize = 0;
+    for (final boolean u : used) {
+      if (!u) {
+        ++testSize;
+      }
+    }
+    final int[] test = new int[testSize];
+    int k = 0;
     for (int i = 0; i < size; ++i) {
       if (!used[i]) {
-        test.addInstance(input.getInstances().get(i));
+        test[k++] = i;
       }
     }
 
-    return new TrainTestSplit(train, test);
+    return new TrainTestSplit(input.subset(train), input.subset(test));
   }
 }
@@ -122,6 +122,10 @@ public class ZeroRBuilder implements BuildClassifier {
       return mProb;
     }
 
+    double probability() {
+      return mProb;
+    }
+
     @Override
     public StringBuilder toString(StringBuilder out, String indent, Dataset data) {
       out.append(indent).append("0R: ");
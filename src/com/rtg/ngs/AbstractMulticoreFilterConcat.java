@@ -29,6 +29,7 @@ import com.rtg.launcher.globals.CoreGlobalFlags;
 import com.rtg.reader.SequencesReader;
 import com.rtg.sam.BamIndexMerge;
 import com.rtg.sam.BamIndexer;
+import com.rtg.sam.BgzfOutputStream;
 import com.rtg.tabix.IndexingStreamCreator;
 import com.rtg.tabix.TabixIndexMerge;
 import com.rtg.tabix.TabixIndexer;
@@ -42,6 +43,7 @@ import com.rtg.util.intervals.ReferenceRegions;
 import com.rtg.util.io.FileUtils;
 
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 
 /**
  * Multicore version of filter concatenation. This class determines
@@ -56,6 +58,9 @@ public abstract class AbstractMulticoreFilterConcat {
   // Each thread can zip 30MB/sec to end up writing 5MB/sec to disk. Disks can write ~50MB, so at most ~10 threads
   protected static final int MAX_FILTERCONCAT_THREADS = 10; //Integer.parseInt(System.getProperty("rtg.max_filterconcat_threads", "10"));
 
+  // Memory per filtering thread for holding the output of regions ahead of the one being written when streaming
+  static final long STREAMING_BUFFER_PER_THREAD = 32L * 1024 * 1024;
+
   protected final NgsParams mParams;
 
   protected String mThreadNamePrefix = "";
@@ -97,6 +102,15 @@ public abstract class AbstractMulticoreFilterConcat {
     // Default implementation does nothing
   }
 
+  /**
+   * Test if the filtered output can be written directly to the final output file, which is only
+   * possible when the intermediate files do not need any post-processing.
+   * @return true if streaming output is possible.
+   */
+  protected boolean canStream() {
+    return true;
+  }
+
   /**
    * Create and return output streams and index runners for given intermediate file.
    * @param numThreads number of threads being used to output intermediate files.
@@ -160,6 +174,9 @@ public abstract class AbstractMulticoreFilterConcat {
     }
     final boolean createIndex = mParams.outputParams().outputIndex() && (samGzipIntFiles || mParams.outputParams().bam()) && noLongSequences && !delayMerge;
     final ReferenceRegions referenceRegions = mParams.outputParams().calibrateRegions();
+    if (!delayMerge && canStream() && GlobalFlags.getBooleanValue(CoreGlobalFlags.MAP_STREAMING_OUTPUT)) {
+      return streamingFilterConcat(tempFiles, outFile, header, calibrate, createIndex, referenceRegions);
+    }
     final OneShotTimer timer = new OneShotTimer("filterConcat");
     final int numIntermediateFiles = numberIntermediateFiles(tempFiles.length, mParams.numberThreads());
     final SimpleThreadPool pool = new SimpleThreadPool(Math.min(numIntermediateFiles, MAX_FILTERCONCAT_THREADS), mThreadNamePrefix + "FilterConcat", true);
@@ -230,6 +247,90 @@ public abstract class AbstractMulticoreFilterConcat {
     return new FilterConcatIntermediateFiles(intermediate, intermediateCal, intermediateIndexes);
   }
 
+  /**
+   * Filters the supplied temp files writing the results directly to the final output file. Each temp file
+   * is filtered as a separate job, and the results are written in order by a single writer,
+   * which also feeds the indexer so the index is complete when the output is.
+   */
+  private FilterConcatIntermediateFiles streamingFilterConcat(File[] tempFiles, File outFile, SAMFileHeader header, boolean calibrate, boolean createIndex, ReferenceRegions referenceRegions) throws IOException {
+    final OneShotTimer timer = new OneShotTimer("filterConcat");
+    final boolean compress = mParams.outputParams().bam() || mParams.outputParams().isCompressOutput();
+    final boolean index = createIndex && SamSingleEndOutputProcessor.canIndex(mParams, outFile);
+    final int numberSlots = tempFiles.length;
+    final int numberThreads = Math.min(numberIntermediateFiles(tempFiles.length, mParams.numberThreads()), MAX_FILTERCONCAT_THREADS);
+    final File indexFile = index ? indexFileName(outFile, mParams.outputParams().bam()) : null;
+    final IORunnableProxy indexProxy;
+    final OutputStream out;
+    if (index) {
+      final PipedInputStream pipeToIndexIn = new PipedInputStream(); //closed by IndexRunner
+      out = FileUtils.createTeedOutputStream(outFile, new PipedOutputStream(pipeToIndexIn), false, false, false); // data is already compressed
+      final TabixIndexer.IndexerFactory indexer = mParams.outputParams().bam() ? null : new TabixIndexer.SamIndexerFactory();
+      indexProxy = new IORunnableProxy(new IndexingStreamCreator.IndexRunner(pipeToIndexIn, new FileOutputStream(indexFile), indexer, true, (int) mParams.searchParams().numberSequences(), outFile.toString()));
+    } else {
+      out = FileUtils.createOutputStream(outFile, false, false);
+      indexProxy = null;
+    }
+    final OrderedStreamWriter writer = new OrderedStreamWriter(out, numberSlots, tempFiles[0].getParentFile(), numberThreads * STREAMING_BUFFER_PER_THREAD);
+    final IORunnableProxy writerProxy = new IORunnableProxy(writer);
+    final Thread writerThread = new Thread(writerProxy, mThreadNamePrefix + "FilterConcat-Writer");
+    final Thread indexThread = index ? new Thread(indexProxy, mThreadNamePrefix + "FilterConcat-Index") : null;
+    if (indexThread != null) {
+      indexThread.start();
+    }
+    writerThread.start();
+
+    final File[] slotCal = calibrate ? new File[numberSlots] : null;
+    try {
+      final SimpleThreadPool pool = new SimpleThreadPool(numberThreads, mThreadNamePrefix + "FilterConcat", true);
+      pool.enableBasicProgress(numberSlots);
+      final int level = BlockCompressedOutputStream.getDefaultCompressionLevel();
+      for (int i = 0; i < numberSlots; ++i) {
+        // Compression happens in the filtering threads, the writer only copies compressed blocks
+        final OutputStream slot = compress ? new BgzfOutputStream(writer.slot(i), level, i == numberSlots - 1) : writer.slot(i);
+        final OutputStream calStream;
+        if (calibrate) {
+          slotCal[i] = new File(tempFiles[i].getParent(), tempFiles[i].getName() + Recalibrate.EXTENSION);
+          calStream = FileUtils.createOutputStream(slotCal[i], false, false);
+        } else {
+          calStream = null;
+        }
+        final AbstractSamResultsFilter filter = makeFilter();
+        filter.setHeader(header);
+        filter.setWriteHeader(i == 0);
+        filter.setWriteBogusBamHeader(false);
+        pool.execute(new SubFilter(filter, new OutputWrapper(slot, null), calStream, referenceRegions, mParams.searchParams().reader().copy(), new File[] {tempFiles[i]}, header));
+      }
+      pool.terminate();
+    } catch (final IOException | RuntimeException e) {
+      writer.abort();
+      throw e;
+    } finally {
+      join(writerThread);
+      join(indexThread);
+      writer.cleanup();
+    }
+    writerProxy.checkError();
+    if (indexProxy != null) {
+      indexProxy.checkError();
+    }
+    Diagnostic.progress(mThreadNamePrefix + "ResultsConcat: 1/1 Jobs Finished");
+    if (calibrate) {
+      mergeCalibration(outFile, referenceRegions, slotCal);
+    }
+    timer.stopLog();
+    return new FilterConcatIntermediateFiles(new File[] {outFile}, slotCal, index ? new File[] {indexFile} : null);
+  }
+
+  private static void join(Thread thread) throws IOException {
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (final InterruptedException e) {
+        throw new IOException("Execution was interrupted", e);
+      }
+    }
+  }
+
   static int numberIntermediateFiles(int numberRegions, int numberThreads) {
     return Math.min(numberRegions, numberThreads);
   }
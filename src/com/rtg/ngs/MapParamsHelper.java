@@ -28,6 +28,7 @@ import com.rtg.index.BlacklistFilterMethod;
 import com.rtg.index.FixedRepeatFrequencyFilterMethod;
 import com.rtg.index.HashBlacklist;
 import com.rtg.index.IndexFilterMethod;
+import com.rtg.index.MappedBlacklistFilterMethod;
 import com.rtg.index.ProportionalRepeatFrequencyFilterMethod;
 import com.rtg.launcher.CommonFlags;
 import com.rtg.launcher.DefaultReaderParams;
@@ -132,7 +133,9 @@ public final class MapParamsHelper {
         throw new InvalidParamsException("A blacklist does not exist in " + refDir + " for word size " + wordSize);
       } else {
         final Integer blacklistThreshold = (Integer) flags.getValue(MapFlags.BLACKLIST_THRESHOLD);
-        final IndexFilterMethod method = BlacklistFilterMethod.loadBlacklist(refDir, wordSize, blacklistThreshold, builder.mNumberThreads);
+        final IndexFilterMethod method = HashBlacklist.binaryBlacklistExists(refDir, wordSize)
+          ? MappedBlacklistFilterMethod.loadBlacklist(refDir, wordSize, blacklistThreshold)
+          : BlacklistFilterMethod.loadBlacklist(refDir, wordSize, blacklistThreshold, builder.mNumberThreads);
         builder.indexFilter(method);
         return;
       }
@@ -30,8 +30,11 @@ import com.rtg.calibrate.Calibrator;
 import com.rtg.calibrate.ChrStats;
 import com.rtg.calibrate.Recalibrate;
 import com.rtg.index.Index;
+import com.rtg.index.IndexMapped;
 import com.rtg.index.IndexSet;
+import com.rtg.index.hash.ngs.ConcurrentReadCall;
 import com.rtg.index.hash.ngs.HashFunctionFactory;
+import com.rtg.index.hash.ngs.ImplementHashFunction;
 import com.rtg.index.hash.ngs.NgsHashFunction;
 import com.rtg.index.hash.ngs.NgsHashLoop;
 import com.rtg.index.hash.ngs.NgsHashLoopImpl;
@@ -43,11 +46,14 @@ import com.rtg.index.hash.ngs.TemplateCallImplementation;
 import com.rtg.index.params.CreateParams;
 import com.rtg.launcher.ISequenceParams;
 import com.rtg.launcher.ParamsTask;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.ngs.longread.LongReadTask;
 import com.rtg.position.output.PositionParams;
 import com.rtg.reader.CgUtils;
 import com.rtg.reader.PrereadType;
 import com.rtg.reader.ReaderUtils;
+import com.rtg.reader.SequencesReader;
 import com.rtg.report.MapFSummaryReport;
 import com.rtg.report.MapReport;
 import com.rtg.report.MapSummaryReport;
@@ -57,6 +63,7 @@ import com.rtg.util.Environment;
 import com.rtg.util.MathUtils;
 import com.rtg.util.cli.CommandLine;
 import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
 import com.rtg.util.diagnostic.OneShotTimer;
 import com.rtg.util.diagnostic.SlimException;
 import com.rtg.util.intervals.RegionRestriction;
@@ -261,6 +268,8 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
 
   private static final int INDEX_USAGE_REPORTING_THRESHOLD = 50;
 
+  private static final boolean PARALLEL_INDEX_BUILD = GlobalFlags.getBooleanValue(CoreGlobalFlags.MAP_PARALLEL_INDEX_BUILD);
+
   /**
    * Run query on short read data
    * @param params {@link NgsParams} object
@@ -273,7 +282,21 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
   static long indexThenSearchShortReads(final NgsParams params, final NgsHashLoop shl, final MapStatistics statistics, final CreateParams indexParams) throws IOException {
     Diagnostic.developerLog("index params: " + indexParams.toString());
     final HashFunctionFactory hashFunctionFactory = params.maskParams().maskFactory((int) params.getMaxReadLength());
-    final IndexSet indexes = new IndexSet(params, indexParams, hashFunctionFactory.numberWindows());
+    final String cacheDirName = GlobalFlags.getStringValue(CoreGlobalFlags.MAP_INDEX_CACHE_DIR);
+    File cacheDir = cacheDirName.length() == 0 ? null : new File(cacheDirName);
+    if (cacheDir != null && !IndexMapped.canSave(indexParams)) {
+      Diagnostic.developerLog("Read index cannot be saved with index params: " + indexParams + ", not using index cache");
+      cacheDir = null;
+    }
+    final boolean cached = cacheDir != null && IndexSet.isSaved(cacheDir, hashFunctionFactory.numberWindows());
+    final IndexSet indexes;
+    if (cached) {
+      Diagnostic.userLog("Mapping saved read index from " + cacheDir.getPath());
+      checkCachedIndexes(cacheDir, indexDescription(params, indexParams));
+      indexes = IndexSet.load(cacheDir, hashFunctionFactory.numberWindows());
+    } else {
+      indexes = new IndexSet(params, indexParams, hashFunctionFactory.numberWindows());
+    }
     if (indexes.size() > INDEX_USAGE_REPORTING_THRESHOLD) {
       Diagnostic.warning("Selected parameters produce " + indexes.size() + " indexes (this is high and could be slow to run).");
     }
@@ -285,7 +308,17 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     final long numberReads = params.buildFirstParams().numberSequences() + (params.paired() ? params.buildSecondParams().numberSequences() : 0);
     hf.setReadSequences(numberReads);
 
-    final long totalLength = index(params, shl, indexParams, indexes, hf);
+    final long totalLength;
+    if (cached) {
+      totalLength = cachedReadLength(params.buildFirstParams(), hf.readLength()) + (params.paired() ? cachedReadLength(params.buildSecondParams(), hf.readLength()) : 0);
+    } else {
+      totalLength = index(params, shl, indexParams, indexes, hf);
+      if (cacheDir != null) {
+        final OneShotTimer saveTimer = new OneShotTimer("Index_save");
+        indexes.save(cacheDir, params.numberThreads(), indexDescription(params, indexParams));
+        saveTimer.stopLog();
+      }
+    }
     final OutputFilter filter = params.outputParams().outFilter();
     try (OutputProcessor outProcessor = filter.makeProcessor(params, statistics)) {
       tci.setOutputProcessor(outProcessor);
@@ -296,13 +329,66 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     return totalLength;
   }
 
+  // Identifies the reads and parameters used to build a read index, so a saved index is only used for the same run
+  private static String indexDescription(final NgsParams params, final CreateParams indexParams) {
+    final StringBuilder sb = new StringBuilder();
+    describeReads(sb, "left", params.buildFirstParams());
+    if (params.paired()) {
+      describeReads(sb, "right", params.buildSecondParams());
+    }
+    sb.append("mask=").append(params.maskParams()).append(LS);
+    sb.append("step=").append(params.stepSize()).append(LS);
+    sb.append("max-read-length=").append(params.getMaxReadLength()).append(LS);
+    sb.append("index=").append(indexParams).append(" window bits=").append(indexParams.windowBits()).append(" compressed=").append(indexParams.compressHashes()).append(LS);
+    return sb.toString();
+  }
+
+  private static void describeReads(final StringBuilder sb, final String label, final ISequenceParams reads) {
+    final SequencesReader reader = reads.reader();
+    sb.append(label).append(" sdf-id=").append(reader.getSdfId());
+    if (!reader.getSdfId().available()) {
+      sb.append(" path=").append(reader.path());
+    }
+    sb.append(" start=").append(reads.readerRestriction().getStart());
+    sb.append(" end=").append(reads.readerRestriction().getEnd());
+    sb.append(" reads=").append(reader.numberSequences());
+    sb.append(LS);
+  }
+
+  private static void checkCachedIndexes(final File cacheDir, final String description) throws IOException {
+    final String saved = IndexSet.savedDescription(cacheDir);
+    if (!saved.equals(description)) {
+      Diagnostic.userLog("Saved read index description:" + LS + saved + "Current read index description:" + LS + description);
+      throw new NoTalkbackSlimException("The saved read index in " + cacheDir.getPath() + " was built with different reads or mask parameters, remove it or use a different cache directory.");
+    }
+  }
+
+  // Total length of the reads that would have been hashed by index(), which skips reads of the wrong length
+  private static long cachedReadLength(final ISequenceParams reads, final int readLength) throws IOException {
+    final SequencesReader reader = reads.reader();
+    long totalLength = 0;
+    for (long seq = 0; seq < reader.numberSequences(); ++seq) {
+      final int length = reader.length(seq);
+      if (length == readLength) {
+        totalLength += length;
+      }
+    }
+    return totalLength;
+  }
+
   private static long index(NgsParams params, NgsHashLoop shl, CreateParams indexParams, IndexSet indexes, NgsHashFunction hf) throws IOException {
     Diagnostic.developerLog("index start");
+    final int numberThreads = params.numberThreads();
+    // Each thread adds through its own slot, and each pass over the reads of one arm uses a slot per thread
+    if (PARALLEL_INDEX_BUILD && numberThreads > 1 && indexParams.compressHashes() && shl instanceof NgsHashLoopImpl && hf instanceof ImplementHashFunction
+        && indexes.enableConcurrentAdd(params.paired() ? 2 * numberThreads : numberThreads)) {
+      return indexMultiCore(params, (NgsHashLoopImpl) shl, indexParams, indexes, (ImplementHashFunction) hf, numberThreads);
+    }
     long totalLength = 0;
     for (int pass = 1; pass <= (indexParams.compressHashes() ? 2 : 1); ++pass) {
       totalLength = 0; //only count for one pass
       if (params.paired()) {
-        final boolean cgFlip = params.buildFirstParams().reader().getPrereadType() == PrereadType.CG && params.buildFirstParams().reader().minLength() == CgUtils.CG_RAW_READ_LENGTH;
+        final boolean cgFlip = cgFlip(params);
         final long l1 = shl.readLoop(params.buildFirstParams(), hf, ReadEncoder.PAIRED_FIRST, false);
         final long l2 = shl.readLoop(params.buildSecondParams(), hf, ReadEncoder.PAIRED_SECOND, cgFlip);
         totalLength += l1 + l2;
@@ -315,6 +401,33 @@ public class NgsTask extends ParamsTask<NgsParams, MapStatistics> {
     return totalLength;
   }
 
+  private static boolean cgFlip(NgsParams params) {
+    return params.buildFirstParams().reader().getPrereadType() == PrereadType.CG && params.buildFirstParams().reader().minLength() == CgUtils.CG_RAW_READ_LENGTH;
+  }
+
+  /**
+   * Equivalent of <code>index</code> where each pass over the reads is split into ranges hashed by separate threads,
+   * with adds made concurrently into the indexes. Each range of reads adds through its own slot of the indexes, with
+   * the slots in read order, so the indexes are the same as those built by a single thread.
+   */
+  private static long indexMultiCore(NgsParams params, NgsHashLoopImpl shl, CreateParams indexParams, IndexSet indexes, ImplementHashFunction hf, int numberThreads) throws IOException {
+    Diagnostic.developerLog("index multi-core start threads=" + numberThreads);
+    assert indexParams.compressHashes();
+    long totalLength = 0;
+    for (int pass = 1; pass <= 2; ++pass) {
+      totalLength = 0; //only count for one pass
+      if (params.paired()) {
+        final long l1 = shl.readLoopMultiCore(params.buildFirstParams(), hf, range -> new ConcurrentReadCall(indexes, range), ReadEncoder.PAIRED_FIRST, false, numberThreads);
+        final long l2 = shl.readLoopMultiCore(params.buildSecondParams(), hf, range -> new ConcurrentReadCall(indexes, numberThreads + range), ReadEncoder.PAIRED_SECOND, cgFlip(params), numberThreads);
+        totalLength += l1 + l2;
+      } else {
+        totalLength += shl.readLoopMultiCore(params.buildFirstParams(), hf, range -> new ConcurrentReadCall(indexes, range), ReadEncoder.SINGLE_END, false, numberThreads);
+      }
+      indexes.freeze(numberThreads);
+    }
+    return totalLength;
+  }
+
   /**
    * Runs a search on the supplied template and indexes
    * @param params search parameters
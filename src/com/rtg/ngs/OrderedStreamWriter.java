@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rtg.util.IORunnable;
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ * Writes the output of several producer threads to a single stream, in a fixed order of slots.
+ * Each producer writes a slot via the stream returned by <code>slot</code>, and a single consumer
+ * running <code>run</code> copies the slots to the destination in order.
+ * Data for the slot currently being written is passed directly to the consumer, with producers
+ * blocking when the consumer falls behind. Data for later slots is held in memory while the total
+ * held is within a limit, beyond that it is spilled to a temporary file until the slot is reached.
+ */
+final class OrderedStreamWriter implements IORunnable {
+
+  /** Size of the chunks passed from producers to the consumer */
+  static final int CHUNK_SIZE = 1 << 18;
+
+  /** Number of chunks the slot being written may have outstanding before its producer blocks */
+  static final int HEAD_CHUNKS = 16;
+
+  private final class Slot extends OutputStream {
+    private final int mIndex;
+    private final ArrayDeque<byte[]> mChunks = new ArrayDeque<>();
+    private byte[] mBuffer = new byte[CHUNK_SIZE];
+    private int mBufferLength = 0;
+    private boolean mHead = false;
+    private boolean mClosed = false;
+    private File mSpill = null;
+    private OutputStream mSpillOut = null;
+
+    Slot(final int index) {
+      mIndex = index;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (mBufferLength == mBuffer.length) {
+        emit();
+      }
+      mBuffer[mBufferLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      int pos = off;
+      int remaining = len;
+      while (remaining > 0) {
+        if (mBufferLength == mBuffer.length) {
+          emit();
+        }
+        final int n = Math.min(remaining, mBuffer.length - mBufferLength);
+        System.arraycopy(b, pos, mBuffer, mBufferLength, n);
+        mBufferLength += n;
+        pos += n;
+        remaining -= n;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (mClosed) {
+        return;
+      }
+      try {
+        if (mBufferLength > 0) {
+          emit();
+        }
+      } finally {
+        try {
+          if (mSpillOut != null) {
+            mSpillOut.close();
+          }
+        } finally {
+          synchronized (this) {
+            mClosed = true;
+            notifyAll();
+          }
+        }
+      }
+    }
+
+    // Pass the buffered chunk on to the consumer, or to the spill file
+    private void emit() throws IOException {
+      final byte[] chunk = mBufferLength == mBuffer.length ? mBuffer : Arrays.copyOf(mBuffer, mBufferLength);
+      boolean queued = false;
+      if (mSpillOut == null) {
+        synchronized (this) {
+          while (mHead && mChunks.size() >= HEAD_CHUNKS && !mAborted) {
+            waitOn(this);
+          }
+          checkAborted();
+          if (mHead || mBuffered.get() + chunk.length <= mMemoryLimit) {
+            mBuffered.addAndGet(chunk.length);
+            mChunks.add(chunk);
+            queued = true;
+            notifyAll();
+          }
+        }
+      }
+      if (queued) {
+        mBuffer = new byte[CHUNK_SIZE];
+      } else {
+        checkAborted();
+        if (mSpillOut == null) {
+          mSpill = File.createTempFile("TEMP_ORDERED_" + mIndex + "_", ".bin", mTempDir);
+          mSpillOut = new BufferedOutputStream(new FileOutputStream(mSpill), CHUNK_SIZE);
+        }
+        mSpillOut.write(chunk);
+      }
+      mBufferLength = 0;
+    }
+
+    // Copy this slot to the destination, called by the consumer
+    private void drain(final OutputStream out) throws IOException {
+      synchronized (this) {
+        mHead = true;
+        notifyAll();
+      }
+      while (true) {
+        final byte[] chunk;
+        synchronized (this) {
+          while (mChunks.isEmpty() && !mClosed && !mAborted) {
+            waitOn(this);
+          }
+          checkAborted();
+          chunk = mChunks.poll();
+          if (chunk == null) {
+            break;
+          }
+          mBuffered.addAndGet(-chunk.length);
+          notifyAll();
+        }
+        out.write(chunk);
+      }
+      // Once spilling starts all further data for the slot goes to the spill file, so it comes last
+      if (mSpill != null) {
+        try (final InputStream in = new FileInputStream(mSpill)) {
+          final byte[] buf = new byte[CHUNK_SIZE];
+          int n;
+          while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+          }
+        }
+        deleteSpill();
+      }
+    }
+
+    private void deleteSpill() {
+      if (mSpill != null && mSpill.exists() && !mSpill.delete()) {
+        Diagnostic.userLog("Failed to delete temporary file: " + mSpill.getPath());
+      }
+    }
+  }
+
+  private final OutputStream mOut;
+  private final File mTempDir;
+  private final long mMemoryLimit;
+  private final Slot[] mSlots;
+  private final AtomicLong mBuffered = new AtomicLong();
+  private volatile boolean mAborted = false;
+
+  /**
+   * @param out the destination stream, this is closed by <code>run</code>.
+   * @param numberSlots number of slots to be written.
+   * @param tempDir directory in which to create any spill files.
+   * @param memoryLimit maximum number of bytes to hold in memory for slots beyond the current one.
+   */
+  OrderedStreamWriter(final OutputStream out, final int numberSlots, final File tempDir, final long memoryLimit) {
+    mOut = out;
+    mTempDir = tempDir;
+    mMemoryLimit = memoryLimit;
+    mSlots = new Slot[numberSlots];
+    for (int i = 0; i < numberSlots; ++i) {
+      mSlots[i] = new Slot(i);
+    }
+  }
+
+  /**
+   * Get the stream for a slot, each slot must be written by a single thread and closed when complete.
+   * @param i the index of the slot.
+   * @return the stream for the slot.
+   */
+  OutputStream slot(final int i) {
+    return mSlots[i];
+  }
+
+  /**
+   * Copy all the slots to the destination in order, returning once all slots have been closed and copied.
+   * @throws IOException if the destination cannot be written, or the writer has been aborted.
+   */
+  @Override
+  public void run() throws IOException {
+    try (final OutputStream out = mOut) {
+      for (final Slot slot : mSlots) {
+        slot.drain(out);
+      }
+    } catch (final IOException | RuntimeException e) {
+      abort();
+      throw e;
+    }
+  }
+
+  /**
+   * Stop writing, any producers or consumer waiting will fail with an exception.
+   */
+  void abort() {
+    mAborted = true;
+    for (final Slot slot : mSlots) {
+      synchronized (slot) {
+        slot.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Remove any spill files left after an abort, should only be called once all producers have finished.
+   */
+  void cleanup() {
+    for (final Slot slot : mSlots) {
+      slot.deleteSpill();
+    }
+  }
+
+  private void checkAborted() throws IOException {
+    if (mAborted) {
+      throw new IOException("Ordered output was aborted");
+    }
+  }
+
+  private static void waitOn(final Object lock) throws InterruptedIOException {
+    try {
+      lock.wait();
+    } catch (final InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    }
+  }
+}
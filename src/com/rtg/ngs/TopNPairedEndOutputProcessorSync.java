@@ -368,6 +368,11 @@ public class TopNPairedEndOutputProcessorSync extends AbstractMapOutputProcessor
       return filter;
     }
 
+    @Override
+    protected boolean canStream() {
+      return mAugmenterMerger == null;
+    }
+
     @Override
     protected OutputWrapper createStreams(int numThreads, File[] intermediate, File[] intermediateIndexes, boolean samGzipIntFiles, boolean createIndex, int i) throws IOException {
       //Don't want to index files yet due to need to post-process intermediate files.
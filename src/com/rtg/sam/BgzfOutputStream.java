@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses data into BGZF blocks (as used by BAM files) written to an arbitrary stream.
+ * Unlike a normal block compressed file, the end of file terminator block is optional, so that
+ * the outputs of several of these streams can be concatenated to form a single valid file.
+ */
+public final class BgzfOutputStream extends OutputStream {
+
+  /** Maximum amount of uncompressed data in a block, chosen so that a stored block still fits */
+  static final int BLOCK_DATA_SIZE = 0xff00;
+
+  private static final int HEADER_LENGTH = 18;
+  private static final int TRAILER_LENGTH = 8;
+  private static final int MAX_BLOCK_SIZE = 1 << 16;
+
+  /** The empty block used to mark the end of a BGZF file */
+  static final byte[] TERMINATOR = {
+    31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 66, 67, 2, 0, 27, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0
+  };
+
+  /**
+   * Compresses blocks of data into complete BGZF blocks, reusing its buffers between blocks.
+   */
+  static final class BlockCompressor {
+    private final Deflater mDeflater;
+    private final Deflater mStoreDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+    private final CRC32 mCrc = new CRC32();
+    private final byte[] mBlock = new byte[MAX_BLOCK_SIZE];
+
+    BlockCompressor(int level) {
+      mDeflater = new Deflater(level, true);
+    }
+
+    /**
+     * Compress a block of data, the result is left in <code>block()</code>.
+     * @param data the data to compress.
+     * @param length number of bytes of data, at most <code>BLOCK_DATA_SIZE</code>.
+     * @return the length of the compressed block.
+     */
+    int compress(byte[] data, int length) {
+      assert length <= BLOCK_DATA_SIZE;
+      int compressedLength = deflate(mDeflater, data, length);
+      if (compressedLength < 0) {
+        // Incompressible data, store it instead
+        compressedLength = deflate(mStoreDeflater, data, length);
+        assert compressedLength >= 0;
+      }
+      mCrc.reset();
+      mCrc.update(data, 0, length);
+      final int blockSize = HEADER_LENGTH + compressedLength + TRAILER_LENGTH;
+      mBlock[0] = 31; // gzip magic
+      mBlock[1] = (byte) 139;
+      mBlock[2] = 8; // deflate
+      mBlock[3] = 4; // extra field present
+      mBlock[4] = 0; // modification time
+      mBlock[5] = 0;
+      mBlock[6] = 0;
+      mBlock[7] = 0;
+      mBlock[8] = 0; // extra flags
+      mBlock[9] = (byte) 255; // unknown operating system
+      putShort(mBlock, 10, 6); // extra length
+      mBlock[12] = 66; // BGZF subfield
+      mBlock[13] = 67;
+      putShort(mBlock, 14, 2);
+      putShort(mBlock, 16, blockSize - 1);
+      putInt(mBlock, HEADER_LENGTH + compressedLength, (int) mCrc.getValue());
+      putInt(mBlock, HEADER_LENGTH + compressedLength + 4, length);
+      return blockSize;
+    }
+
+    byte[] block() {
+      return mBlock;
+    }
+
+    void end() {
+      mDeflater.end();
+      mStoreDeflater.end();
+    }
+
+    // Deflate the data into the block, returns the compressed length or -1 if it does not fit
+    private int deflate(Deflater deflater, byte[] data, int length) {
+      final int available = MAX_BLOCK_SIZE - HEADER_LENGTH - TRAILER_LENGTH;
+      deflater.reset();
+      deflater.setInput(data, 0, length);
+      deflater.finish();
+      final int n = deflater.deflate(mBlock, HEADER_LENGTH, available);
+      return deflater.finished() ? n : -1;
+    }
+  }
+
+  private final OutputStream mOut;
+  private final boolean mTerminate;
+  private final BlockCompressor mCompressor;
+  private final byte[] mData = new byte[BLOCK_DATA_SIZE];
+  private final byte[] mSingle = new byte[1];
+  private int mDataLength = 0;
+  private boolean mClosed = false;
+
+  /**
+   * @param out destination for the compressed blocks, this is closed when this stream is closed.
+   * @param level compression level, as for <code>Deflater</code>.
+   * @param terminate true if the end of file terminator block should be written on close.
+   */
+  public BgzfOutputStream(OutputStream out, int level, boolean terminate) {
+    mOut = out;
+    mTerminate = terminate;
+    mCompressor = new BlockCompressor(level);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    mSingle[0] = (byte) b;
+    write(mSingle, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    int pos = off;
+    int remaining = len;
+    while (remaining > 0) {
+      final int n = Math.min(remaining, BLOCK_DATA_SIZE - mDataLength);
+      System.arraycopy(b, pos, mData, mDataLength, n);
+      mDataLength += n;
+      pos += n;
+      remaining -= n;
+      if (mDataLength == BLOCK_DATA_SIZE) {
+        writeBlock();
+      }
+    }
+  }
+
+  /**
+   * Compresses any buffered data into a block, then flushes the underlying stream.
+   * Note that this may result in small blocks.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (mDataLength > 0) {
+      writeBlock();
+    }
+    mOut.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!mClosed) {
+      mClosed = true;
+      try (final OutputStream out = mOut) {
+        if (mDataLength > 0) {
+          writeBlock();
+        }
+        if (mTerminate) {
+          out.write(TERMINATOR);
+        }
+      } finally {
+        mCompressor.end();
+      }
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    final int blockSize = mCompressor.compress(mData, mDataLength);
+    mOut.write(mCompressor.block(), 0, blockSize);
+    mDataLength = 0;
+  }
+
+  private static void putShort(byte[] b, int off, int v) {
+    b[off] = (byte) v;
+    b[off + 1] = (byte) (v >>> 8);
+  }
+
+  private static void putInt(byte[] b, int off, int v) {
+    putShort(b, off, v);
+    putShort(b, off + 2, v >>> 16);
+  }
+}
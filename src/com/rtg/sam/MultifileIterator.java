@@ -58,6 +58,17 @@ public class MultifileIterator implements RecordIterator<SAMRecord> {
    * @throws IOException if an IO error occurs
    */
   public MultifileIterator(SamReadingContext context) throws IOException {
+    this(context, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param context the SAM reading context
+   * @param inflateThreads if positive, the number of threads used to decompress BAM files that are read in their entirety
+   * @throws IOException if an IO error occurs
+   */
+  public MultifileIterator(SamReadingContext context, int inflateThreads) throws IOException {
     if (context.header() == null) {
       throw new NullPointerException();
     }
@@ -75,7 +86,9 @@ public class MultifileIterator implements RecordIterator<SAMRecord> {
         final RecordIterator<SAMRecord> adaptor;    // Initial source of (possibly region-restricted) SAMRecords
         try {
           final boolean streamOk = context.referenceRanges() == null || context.referenceRanges().allAvailable();
-          if (file.isFile() && (!FALLBACK || streamOk || SamUtils.isIndexed(file))) {
+          if (inflateThreads > 0 && streamOk && file.isFile() && ParallelInflateBamReader.isBam(file)) {
+            adaptor = new ParallelInflateBamReader(file, inflateThreads, context.header());
+          } else if (file.isFile() && (!FALLBACK || streamOk || SamUtils.isIndexed(file))) {
             adaptor = new SamClosedFileReader(file, context.referenceRanges(), context.reference(), context.header());
           } else { // Fall back to SamFileAndRecord for non-file (i.e. pipes)
             Diagnostic.userLog("Using fallback for non-file or non-indexed SAM source: " + file.toString());
@@ -61,10 +61,11 @@ final class MultifileIteratorRunner<T> implements RecordIterator<T>, IORunnable,
    * @param populator the populator
    * @param id an id number to keep track of instances within a single <code>ThreadedMultifileIterator</code>
    * @param packetSize the size of packets
+   * @param inflateThreads number of threads used to decompress BAM files, 0 to decompress in this thread
    * @throws IOException when an error in file access occurs
    */
-  MultifileIteratorRunner(SamReadingContext context, Populator<T> populator, int id, int packetSize) throws IOException {
-    mIterator = new MultifileIterator(context);
+  MultifileIteratorRunner(SamReadingContext context, Populator<T> populator, int id, int packetSize, int inflateThreads) throws IOException {
+    mIterator = new MultifileIterator(context, inflateThreads);
     mId = id;
     mPacketSize = packetSize;
     mPopulator = populator;
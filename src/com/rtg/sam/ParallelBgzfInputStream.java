@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a BGZF stream (as used by BAM files) inflating blocks in parallel.
+ * Compressed blocks are read in order by the consuming thread and handed to a pool of
+ * inflater threads, up to a bounded number of blocks ahead of the block currently being read.
+ * The decompressed bytes are returned in their original order.
+ */
+public final class ParallelBgzfInputStream extends InputStream {
+
+  /** Number of blocks read ahead per inflating thread */
+  static final int BLOCKS_PER_THREAD = 8;
+
+  private static final int GZIP_ID1 = 31;
+  private static final int GZIP_ID2 = 139;
+  private static final int GZIP_CM_DEFLATE = 8;
+  private static final int GZIP_FLG_EXTRA = 4;
+  private static final int FIXED_HEADER_LENGTH = 12;
+  private static final int TRAILER_LENGTH = 8;
+  private static final int BGZF_SI1 = 66;
+  private static final int BGZF_SI2 = 67;
+  private static final int BGZF_SLEN = 2;
+
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+  private final InputStream mIn;
+  private final ExecutorService mExecutor;
+  private final int mReadAhead;
+  private final ArrayDeque<Future<byte[]>> mPending = new ArrayDeque<>();
+  private final byte[] mHeader = new byte[FIXED_HEADER_LENGTH];
+  private final byte[] mSingle = new byte[1];
+
+  private boolean mInputFinished = false;
+  private byte[] mCurrent = null;
+  private int mPosition = 0;
+
+  /**
+   * @param in the compressed stream, this is closed when this stream is closed.
+   * @param threads number of threads to use for inflating blocks.
+   */
+  public ParallelBgzfInputStream(InputStream in, int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Illegal number of threads: " + threads);
+    }
+    mIn = in;
+    mReadAhead = threads * BLOCKS_PER_THREAD;
+    mExecutor = Executors.newFixedThreadPool(threads, r -> {
+      final Thread t = new Thread(r, "ParallelBgzfInputStream");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(mSingle, 0, 1) == -1 ? -1 : mSingle[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextBlock()) {
+      return -1;
+    }
+    final int n = Math.min(len, mCurrent.length - mPosition);
+    System.arraycopy(mCurrent, mPosition, b, off, n);
+    mPosition += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return mCurrent == null ? 0 : mCurrent.length - mPosition;
+  }
+
+  @Override
+  public void close() throws IOException {
+    mExecutor.shutdownNow();
+    mPending.clear();
+    mCurrent = null;
+    mIn.close();
+  }
+
+  // Ensure there are bytes available in the current block, returns false at end of stream
+  private boolean nextBlock() throws IOException {
+    while (mCurrent == null || mPosition == mCurrent.length) {
+      fill();
+      final Future<byte[]> next = mPending.poll();
+      if (next == null) {
+        mCurrent = null;
+        return false;
+      }
+      mCurrent = result(next);
+      mPosition = 0;
+    }
+    return true;
+  }
+
+  private void fill() throws IOException {
+    while (!mInputFinished && mPending.size() < mReadAhead) {
+      final byte[] block = readBlock();
+      if (block == null) {
+        mInputFinished = true;
+      } else {
+        mPending.add(mExecutor.submit(() -> inflate(block)));
+      }
+    }
+  }
+
+  private static byte[] result(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  // Read a complete compressed block, returns null at end of input
+  private byte[] readBlock() throws IOException {
+    final int first = readFully(mHeader, 0, FIXED_HEADER_LENGTH);
+    if (first == 0) {
+      return null;
+    }
+    if (first < FIXED_HEADER_LENGTH) {
+      throw new EOFException("Premature end of BGZF stream");
+    }
+    if ((mHeader[0] & 0xFF) != GZIP_ID1 || (mHeader[1] & 0xFF) != GZIP_ID2 || mHeader[2] != GZIP_CM_DEFLATE || (mHeader[3] & GZIP_FLG_EXTRA) == 0) {
+      throw new IOException("Input is not in BGZF format");
+    }
+    final int extraLength = unsignedShort(mHeader, 10);
+    final byte[] extra = new byte[extraLength];
+    if (readFully(extra, 0, extraLength) != extraLength) {
+      throw new EOFException("Premature end of BGZF stream");
+    }
+    final int blockSize = blockSize(extra) + 1;
+    final int remaining = blockSize - FIXED_HEADER_LENGTH - extraLength;
+    if (remaining < TRAILER_LENGTH) {
+      throw new IOException("Invalid BGZF block size: " + blockSize);
+    }
+    final byte[] block = new byte[remaining];
+    if (readFully(block, 0, remaining) != remaining) {
+      throw new EOFException("Premature end of BGZF stream");
+    }
+    return block;
+  }
+
+  private static int blockSize(byte[] extra) throws IOException {
+    int i = 0;
+    while (i + 4 <= extra.length) {
+      final int length = unsignedShort(extra, i + 2);
+      if (extra[i] == BGZF_SI1 && extra[i + 1] == BGZF_SI2 && length == BGZF_SLEN && i + 6 <= extra.length) {
+        return unsignedShort(extra, i + 4);
+      }
+      i += 4 + length;
+    }
+    throw new IOException("Input is not in BGZF format, no block size present");
+  }
+
+  private int readFully(byte[] buf, int off, int len) throws IOException {
+    int total = 0;
+    while (total < len) {
+      final int n = mIn.read(buf, off + total, len - total);
+      if (n < 0) {
+        break;
+      }
+      total += n;
+    }
+    return total;
+  }
+
+  // Inflate the deflated data and trailer of a block
+  static byte[] inflate(byte[] block) throws IOException {
+    final int dataLength = block.length - TRAILER_LENGTH;
+    final long expectedCrc = unsignedInt(block, dataLength);
+    final int uncompressedLength = (int) unsignedInt(block, dataLength + 4);
+    final byte[] res = new byte[uncompressedLength];
+    final Inflater inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(block, 0, dataLength);
+    try {
+      int done = 0;
+      while (done < uncompressedLength) {
+        final int n = inflater.inflate(res, done, uncompressedLength - done);
+        if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        done += n;
+      }
+      if (done != uncompressedLength) {
+        throw new IOException("Corrupt BGZF block, expected " + uncompressedLength + " bytes but inflated " + done);
+      }
+    } catch (final DataFormatException e) {
+      throw new IOException("Corrupt BGZF block: " + e.getMessage(), e);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(res, 0, uncompressedLength);
+    if (crc.getValue() != expectedCrc) {
+      throw new IOException("Corrupt BGZF block, CRC mismatch");
+    }
+    return res;
+  }
+
+  private static int unsignedShort(byte[] b, int off) {
+    return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8);
+  }
+
+  private static long unsignedInt(byte[] b, int off) {
+    return unsignedShort(b, off) | ((long) unsignedShort(b, off + 2) << 16);
+  }
+}
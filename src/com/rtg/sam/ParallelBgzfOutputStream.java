@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compresses data into BGZF blocks (as used by BAM files), deflating blocks in parallel.
+ * Blocks of data are handed to a pool of deflater threads, and the compressed blocks are
+ * written by the writing thread in their original order, up to a bounded number of blocks behind
+ * the block currently being filled.
+ */
+public final class ParallelBgzfOutputStream extends OutputStream {
+
+  /** Number of blocks in flight per deflating thread */
+  static final int BLOCKS_PER_THREAD = 8;
+
+  private final OutputStream mOut;
+  private final boolean mTerminate;
+  private final ExecutorService mExecutor;
+  private final ThreadLocal<BgzfOutputStream.BlockCompressor> mCompressor;
+  private final int mMaxPending;
+  private final ArrayDeque<Future<byte[]>> mPending = new ArrayDeque<>();
+  private final byte[] mSingle = new byte[1];
+  private byte[] mData = new byte[BgzfOutputStream.BLOCK_DATA_SIZE];
+  private int mDataLength = 0;
+  private boolean mClosed = false;
+
+  /**
+   * @param out destination for the compressed blocks, this is closed when this stream is closed.
+   * @param threads number of threads to use for deflating blocks.
+   * @param level compression level, as for <code>Deflater</code>.
+   * @param terminate true if the end of file terminator block should be written on close.
+   */
+  public ParallelBgzfOutputStream(OutputStream out, int threads, int level, boolean terminate) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Illegal number of threads: " + threads);
+    }
+    mOut = out;
+    mTerminate = terminate;
+    mMaxPending = threads * BLOCKS_PER_THREAD;
+    mCompressor = ThreadLocal.withInitial(() -> new BgzfOutputStream.BlockCompressor(level));
+    mExecutor = Executors.newFixedThreadPool(threads, r -> {
+      final Thread t = new Thread(r, "ParallelBgzfOutputStream");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    mSingle[0] = (byte) b;
+    write(mSingle, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    int pos = off;
+    int remaining = len;
+    while (remaining > 0) {
+      final int n = Math.min(remaining, mData.length - mDataLength);
+      System.arraycopy(b, pos, mData, mDataLength, n);
+      mDataLength += n;
+      pos += n;
+      remaining -= n;
+      if (mDataLength == mData.length) {
+        submit();
+      }
+    }
+  }
+
+  /**
+   * Compresses any buffered data, waits for all blocks to be written, then flushes the underlying stream.
+   * Note that this may result in small blocks.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (mDataLength > 0) {
+      submit();
+    }
+    while (!mPending.isEmpty()) {
+      writeNext();
+    }
+    mOut.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!mClosed) {
+      mClosed = true;
+      try (final OutputStream out = mOut) {
+        if (mDataLength > 0) {
+          submit();
+        }
+        while (!mPending.isEmpty()) {
+          writeNext();
+        }
+        if (mTerminate) {
+          out.write(BgzfOutputStream.TERMINATOR);
+        }
+      } finally {
+        mExecutor.shutdownNow();
+        mPending.clear();
+      }
+    }
+  }
+
+  private void submit() throws IOException {
+    if (mPending.size() >= mMaxPending) {
+      writeNext();
+    }
+    final byte[] data = mData;
+    final int length = mDataLength;
+    mPending.add(mExecutor.submit(() -> {
+      final BgzfOutputStream.BlockCompressor compressor = mCompressor.get();
+      return Arrays.copyOf(compressor.block(), compressor.compress(data, length));
+    }));
+    mData = new byte[BgzfOutputStream.BLOCK_DATA_SIZE];
+    mDataLength = 0;
+  }
+
+  private void writeNext() throws IOException {
+    final Future<byte[]> next = mPending.poll();
+    try {
+      mOut.write(next.get());
+    } catch (final InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    } catch (final ExecutionException e) {
+      throw new IOException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+}
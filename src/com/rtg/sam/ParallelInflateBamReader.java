@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.ErrorType;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+import com.rtg.util.diagnostic.WarningType;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BufferedLineReader;
+
+/**
+ * Reads all the records of a BAM file in order, using a <code>ParallelBgzfInputStream</code>
+ * so that decompression is spread over several threads. Region restriction is not supported,
+ * so this is only suitable when the whole file is required.
+ */
+public class ParallelInflateBamReader implements RecordIterator<SAMRecord> {
+
+  private static final byte[] BAM_MAGIC = {'B', 'A', 'M', 1};
+  private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+  private final String mSource;
+  private final InputStream mStream;
+  private final SAMFileHeader mHeader;
+  private final BAMRecordCodec mCodec;
+
+  private SAMRecord mNext = null;
+  private boolean mFinished = false;
+  private boolean mIsClosed = false;
+  private long mRecordCount = 0;
+  private long mNucleotides = 0;
+
+  /**
+   * @param file the BAM file to read.
+   * @param threads number of threads to use for decompression.
+   * @param header header to use in place of the header of the file, or null to use the header of the file.
+   * Its sequence dictionary must be compatible with that of the file.
+   * @throws IOException if the file cannot be read or is not a BAM file.
+   */
+  public ParallelInflateBamReader(File file, int threads, SAMFileHeader header) throws IOException {
+    mSource = file.getPath();
+    mStream = new ParallelBgzfInputStream(new BufferedInputStream(new FileInputStream(file), INPUT_BUFFER_SIZE), threads);
+    try {
+      final SAMFileHeader fileHeader = readHeader(new BinaryCodec(mStream), mSource);
+      if (header != null && !SamUtils.checkHeaderDictionary(header, fileHeader)) {
+        Diagnostic.warning(WarningType.SAM_INCOMPATIBLE_HEADERS, "the supplied header", mSource);
+        throw new NoTalkbackSlimException(ErrorType.SAM_INCOMPATIBLE_HEADER_ERROR, "1");
+      }
+      mHeader = header != null ? header : fileHeader;
+      mCodec = new BAMRecordCodec(mHeader);
+      mCodec.setInputStream(mStream, mSource);
+    } catch (final IOException | RuntimeException e) {
+      mStream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Test if a file looks like a BAM file, that is, the first gzip block decompresses to the BAM magic number.
+   * @param file the file to test.
+   * @return true if the file is a BAM file.
+   */
+  public static boolean isBam(File file) {
+    try (final InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+      final byte[] magic = new byte[BAM_MAGIC.length];
+      int total = 0;
+      while (total < magic.length) {
+        final int n = in.read(magic, total, magic.length - total);
+        if (n < 0) {
+          return false;
+        }
+        total += n;
+      }
+      return Arrays.equals(BAM_MAGIC, magic);
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  private static SAMFileHeader readHeader(BinaryCodec codec, String source) throws IOException {
+    final byte[] magic = new byte[BAM_MAGIC.length];
+    codec.readBytes(magic);
+    if (!Arrays.equals(BAM_MAGIC, magic)) {
+      throw new IOException("Invalid BAM file header in " + source);
+    }
+    final int textLength = codec.readInt();
+    final String text = codec.readString(textLength);
+    final SAMFileHeader header = new SAMTextHeaderCodec().decode(BufferedLineReader.fromString(text), source);
+    final int numberSequences = codec.readInt();
+    final List<SAMSequenceRecord> sequences = new ArrayList<>(numberSequences);
+    for (int i = 0; i < numberSequences; ++i) {
+      final int nameLength = codec.readInt();
+      final String name = codec.readString(nameLength);
+      final int length = codec.readInt();
+      sequences.add(new SAMSequenceRecord(name.substring(0, nameLength - 1), length)); // Name includes trailing NUL
+    }
+    // The binary sequence list is authoritative, it is what the record reference indexes refer to
+    if (header.getSequenceDictionary().size() != numberSequences) {
+      header.setSequenceDictionary(new SAMSequenceDictionary(sequences));
+    }
+    return header;
+  }
+
+  @Override
+  public SAMFileHeader header() {
+    return mHeader;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (mNext == null && !mFinished) {
+      mNext = mCodec.decode();
+      if (mNext == null) {
+        mFinished = true;
+      } else {
+        ++mRecordCount;
+        mNucleotides += mNext.getReadLength();
+      }
+    }
+    return mNext != null;
+  }
+
+  @Override
+  public SAMRecord next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final SAMRecord res = mNext;
+    mNext = null;
+    return res;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public long getInvalidRecordsCount() {
+    return 0;
+  }
+
+  @Override
+  public long getDuplicateRecordsCount() {
+    return 0;
+  }
+
+  @Override
+  public long getFilteredRecordsCount() {
+    return 0;
+  }
+
+  @Override
+  public long getOutputRecordsCount() {
+    return mRecordCount;
+  }
+
+  @Override
+  public long getTotalRecordsCount() {
+    return mRecordCount;
+  }
+
+  @Override
+  public long getTotalNucleotides() {
+    return mNucleotides;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!mIsClosed) {
+      mIsClosed = true;
+      mStream.close();
+    }
+  }
+}
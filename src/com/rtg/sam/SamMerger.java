@@ -12,15 +12,22 @@
 package com.rtg.sam;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.util.Collection;
 
 import com.reeltwo.jumble.annotations.TestClass;
 import com.rtg.calibrate.Calibrator;
 import com.rtg.calibrate.Recalibrate;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.reader.SequencesReader;
+import com.rtg.tabix.IndexingStreamCreator;
 import com.rtg.tabix.TabixIndexer;
+import com.rtg.util.IORunnableProxy;
 import com.rtg.util.SingletonPopulatorFactory;
 import com.rtg.util.StringUtils;
 import com.rtg.util.diagnostic.Diagnostic;
@@ -28,13 +35,17 @@ import com.rtg.util.io.FileUtils;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 
 /**
  */
 @TestClass("com.rtg.sam.SamMergeCliTest")
 public class SamMerger {
 
+  private static final boolean PARALLEL_DEFLATE = GlobalFlags.getBooleanValue(CoreGlobalFlags.SAM_PARALLEL_DEFLATE);
+
   private final boolean mCreateIndex;
   private final boolean mGzip;
   private final boolean mLegacy;
@@ -92,15 +103,14 @@ public class SamMerger {
       }
       SamUtils.updateRunId(header);
 
-      try (SamOutput so = SamOutput.getSamOutput(output, out, header, mGzip, true, writeHeader, terminateBlockedGzip, mCreateIndex, reference)) {
-        alignmentOutputFile = so.getOutFile();
-        try (SAMFileWriter writer = so.getWriter()) {
-          while (it.hasNext()) {
-            final SAMRecord rec = it.next();
-            if (mLegacy) {
-              SamUtils.convertToLegacyCigar(rec);
-            }
-            writer.addAlignment(rec);
+      if (PARALLEL_DEFLATE && mNumberThreads > 1 && !isStdio && output.getName().endsWith(SamUtils.BAM_SUFFIX)) {
+        alignmentOutputFile = output;
+        writeBam(it, output, header, writeHeader, terminateBlockedGzip);
+      } else {
+        try (SamOutput so = SamOutput.getSamOutput(output, out, header, mGzip, true, writeHeader, terminateBlockedGzip, mCreateIndex, reference)) {
+          alignmentOutputFile = so.getOutFile();
+          try (SAMFileWriter writer = so.getWriter()) {
+            writeRecords(it, writer);
           }
         }
       }
@@ -142,4 +152,48 @@ public class SamMerger {
       }
     }
   }
+
+  private void writeRecords(RecordIterator<SAMRecord> it, SAMFileWriter writer) {
+    while (it.hasNext()) {
+      final SAMRecord rec = it.next();
+      if (mLegacy) {
+        SamUtils.convertToLegacyCigar(rec);
+      }
+      writer.addAlignment(rec);
+    }
+  }
+
+  // Write BAM output with blocks deflated by multiple threads, indexing as the output is written
+  private void writeBam(RecordIterator<SAMRecord> it, File output, SAMFileHeader header, boolean writeHeader, boolean terminate) throws IOException {
+    final OutputStream fileOut;
+    final IORunnableProxy indexProxy;
+    final Thread indexThread;
+    if (mCreateIndex) {
+      final PipedInputStream pipeToIndexIn = new PipedInputStream(); //closed by IndexRunner
+      fileOut = FileUtils.createTeedOutputStream(output, new PipedOutputStream(pipeToIndexIn), false, false, false); // data is already compressed
+      indexProxy = new IORunnableProxy(new IndexingStreamCreator.IndexRunner(pipeToIndexIn, new FileOutputStream(BamIndexer.indexFileName(output)), null, writeHeader, header.getSequenceDictionary().size(), output.toString()));
+      indexThread = new Thread(indexProxy, "SamMerger-Index");
+      indexThread.start();
+    } else {
+      fileOut = FileUtils.createOutputStream(output, false, false);
+      indexProxy = null;
+      indexThread = null;
+    }
+    try {
+      final OutputStream bgzf = new ParallelBgzfOutputStream(fileOut, mNumberThreads, BlockCompressedOutputStream.getDefaultCompressionLevel(), terminate);
+      try (SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, bgzf, writeHeader, false, true)) {
+        writeRecords(it, writer);
+      }
+    } finally {
+      if (indexThread != null) {
+        try {
+          indexThread.join();
+        } catch (final InterruptedException e) {
+          throw new IOException("Execution was interrupted", e);
+        } finally {
+          indexProxy.checkError();
+        }
+      }
+    }
+  }
 }
@@ -22,6 +22,8 @@ import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Vector;
 
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.util.IORunnable;
 import com.rtg.util.Populator;
 import com.rtg.util.PopulatorFactory;
@@ -48,6 +50,7 @@ import htsjdk.samtools.util.RuntimeIOException;
 public final class ThreadedMultifileIterator<T> implements RecordIterator<T> {
 
   private static final int DEFAULT_PACKET_SIZE = 100;
+  private static final boolean PARALLEL_INFLATE = GlobalFlags.getBooleanValue(CoreGlobalFlags.SAM_PARALLEL_INFLATE);
   private boolean mIsClosed = false;
 
   private SimpleThreadPool mPool;
@@ -95,6 +98,8 @@ public final class ThreadedMultifileIterator<T> implements RecordIterator<T> {
     }
 
     final int actualNumThreads = Math.min(nonEmptyFiles.size(), context.numThreads());
+    // When there are fewer files than threads, use the remaining threads to decompress BAM blocks in parallel
+    final int inflateThreads = PARALLEL_INFLATE ? (context.numThreads() - actualNumThreads) / Math.max(actualNumThreads, 1) : 0;
 
     final List<List<File>> fileLists = Partition.partition(actualNumThreads, nonEmptyFiles);
     mPool = new SimpleThreadPool(actualNumThreads, "ThreadedMultifileIterator", true);
@@ -112,7 +117,7 @@ public final class ThreadedMultifileIterator<T> implements RecordIterator<T> {
         stp.execute(new IORunnable() {
           @Override
           public void run() throws IOException {
-            runners.add(new MultifileIteratorRunner<>(subcontext, populator, runnerId, DEFAULT_PACKET_SIZE));
+            runners.add(new MultifileIteratorRunner<>(subcontext, populator, runnerId, DEFAULT_PACKET_SIZE, inflateThreads));
           }
         });
       }
@@ -13,6 +13,7 @@
 package com.rtg.sam;
 
 import java.io.IOException;
+import java.util.NoSuchElementException;
 
 import com.rtg.util.PopulatorFactory;
 import com.rtg.util.intervals.RangeList;
@@ -30,6 +31,7 @@ public class ThreadedMultifileIteratorWrapper<T extends ReaderRecord<T> & MateIn
   private T mNext;
   private int mSequenceId = -1;
   private RangeList<String> mCurrentRangeList;
+  private int mLastOpened = -1;
 
   /**
    * Constructor
@@ -129,6 +131,126 @@ public class ThreadedMultifileIteratorWrapper<T extends ReaderRecord<T> & MateIn
     return mIterator.getTotalRecordsCount();
   }
 
+  /**
+   * Get an iterator over the records for a single reference sequence. Iterators for several
+   * sequences may be open at once, so that the end of one sequence can be processed concurrently
+   * with the start of the next. As the input is read in a single pass, any records of an earlier
+   * sequence that have not been read when a later sequence is read or tested for records are
+   * skipped, so iterators must be opened in increasing sequence order and a sequence should
+   * have read all the records it needs before the next sequence is started. Should not be mixed
+   * with <code>setSequenceId</code>.
+   * @param index reference sequence index
+   * @return the iterator, which should be closed when the sequence has been processed
+   */
+  public synchronized RecordIterator<T> sequenceIterator(int index) {
+    assert index > mLastOpened : index + " > " + mLastOpened;
+    assert mSequenceId < 0 : "cannot mix with setSequenceId";
+    mLastOpened = index;
+    return new SequenceIterator(index);
+  }
+
+  /**
+   * Test if there are records for a reference sequence, without opening an iterator for it.
+   * Any unread records of earlier sequences are skipped.
+   * @param index reference sequence index, which must be after any sequence already opened
+   * @return true iff the input contains records for the sequence.
+   */
+  public synchronized boolean hasRecords(int index) {
+    assert index > mLastOpened : index + " > " + mLastOpened;
+    return advanceTo(index);
+  }
+
+  /**
+   * Get the ranges applying to a reference sequence
+   * @param index reference sequence index
+   * @return the ranges, or null if there are no region restrictions.
+   */
+  public RangeList<String> getRangeList(int index) {
+    return mContext.hasRegions() ? mContext.rangeList(index) : null;
+  }
+
+  // Move through the input until reaching a record for the specified sequence or a later one,
+  // skipping records of earlier sequences rather than holding them, so that no records are buffered.
+  private boolean advanceTo(int index) {
+    while (mNext != null) {
+      final int seq = mNext.getSequenceId();
+      if (seq >= index) {
+        return seq == index;
+      }
+      next();
+    }
+    return false;
+  }
+
+  private final class SequenceIterator implements RecordIterator<T> {
+    private final int mIndex;
+
+    SequenceIterator(int index) {
+      mIndex = index;
+    }
+
+    @Override
+    public boolean hasNext() {
+      synchronized (ThreadedMultifileIteratorWrapper.this) {
+        return advanceTo(mIndex);
+      }
+    }
+
+    @Override
+    public T next() {
+      synchronized (ThreadedMultifileIteratorWrapper.this) {
+        if (!advanceTo(mIndex)) {
+          throw new NoSuchElementException();
+        }
+        return ThreadedMultifileIteratorWrapper.this.next();
+      }
+    }
+
+    @Override
+    public void remove() {
+    }
+
+    @Override
+    public void close() {
+      // The underlying input is shared with later sequences and is closed with the wrapper
+    }
+
+    @Override
+    public SAMFileHeader header() {
+      return ThreadedMultifileIteratorWrapper.this.header();
+    }
+
+    @Override
+    public long getTotalNucleotides() {
+      return ThreadedMultifileIteratorWrapper.this.getTotalNucleotides();
+    }
+
+    @Override
+    public long getInvalidRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getInvalidRecordsCount();
+    }
+
+    @Override
+    public long getFilteredRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getFilteredRecordsCount();
+    }
+
+    @Override
+    public long getDuplicateRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getDuplicateRecordsCount();
+    }
+
+    @Override
+    public long getOutputRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getOutputRecordsCount();
+    }
+
+    @Override
+    public long getTotalRecordsCount() {
+      return ThreadedMultifileIteratorWrapper.this.getTotalRecordsCount();
+    }
+  }
+
   /**
    * Get the context used for input reading
    * @return the context
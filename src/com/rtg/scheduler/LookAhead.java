@@ -173,6 +173,13 @@ public class LookAhead extends IntegralAbstract {
     }
   }
 
+  /**
+   * @return the earliest active time, or -1 if there are no active times.
+   */
+  public synchronized int current() {
+    return mCurrent;
+  }
+
   /**
    * @return the look ahead.
    */
@@ -23,7 +23,6 @@ import java.util.Map;
 import com.rtg.ml.BuildClassifier;
 import com.rtg.ml.BuilderFactory;
 import com.rtg.ml.Dataset;
-import com.rtg.ml.Instance;
 import com.rtg.ml.PredictClassifier;
 import com.rtg.util.StringUtils;
 import com.rtg.util.ThreadAware;
@@ -132,7 +131,7 @@ public class MlAvrModelBuilder extends AbstractModelBuilder<MlAvrPredictModel> i
           throw new NoTalkbackSlimException("The input VCF header is missing required fields:" + StringUtils.LS + ihe.getMessage());
         }
         while (reader.hasNext()) {
-          dataset.addInstance(new Instance(ae.getInstance(reader.next(), vcfDataset.getSampleNum()), vcfDataset.isPositive(), vcfDataset.getInstanceWeight()));
+          dataset.addInstance(ae.getInstance(reader.next(), vcfDataset.getSampleNum()), vcfDataset.isPositive(), vcfDataset.getInstanceWeight());
         }
       }
     }
@@ -70,7 +70,7 @@ public class MlAvrPredictModel extends AbstractPredictModel {
     mCurrentVersion = dis.readInt();
     if (mCurrentVersion == 1) {
       mAttributeExtractor = AttributeExtractor.load(is);
-      mClassifier = MlPredictLoader.loadPredictClassifier(is, mAttributeExtractor.getDataset());
+      mClassifier = MlPredictLoader.loadCompiledPredictClassifier(is, mAttributeExtractor.getDataset());
     } else {
       throw new IOException("Unsupported model version: " + mCurrentVersion);
     }
@@ -95,9 +95,17 @@ public class MlAvrPredictModel extends AbstractPredictModel {
 
   @Override
   public void annotate(VcfRecord record) {
+    // Score all the samples together
+    final double[][] instances = new double[record.getNumberOfSamples()][];
+    for (int s = 0; s < instances.length; ++s) {
+      instances[s] = mAttributeExtractor.getInstance(record, s);
+    }
+    final double[] predictions = new double[instances.length];
+    mClassifier.predict(instances, predictions);
     boolean aboveThreshold = false;
-    for (int s = 0; s < record.getNumberOfSamples(); ++s) {
-      final double prediction = annotateSampleNoPadding(record, s);
+    for (int s = 0; s < instances.length; ++s) {
+      final double prediction = predictions[s];
+      setPrediction(record, s, prediction);
       if (prediction >= mPredictionThreshold) {
         aboveThreshold = true;
       }
@@ -117,11 +125,15 @@ public class MlAvrPredictModel extends AbstractPredictModel {
     // extract fields from record to build instance object array
     final double[] instance = mAttributeExtractor.getInstance(record, sampleNumber);
     final double prediction = mClassifier.predict(instance);
+    setPrediction(record, sampleNumber, prediction);
+    return prediction;
+  }
+
+  private void setPrediction(VcfRecord record, int sampleNumber, double prediction) {
     // TODO: check the field and add/update as appropriate
     //record.addInfo(getField(), Utils.realFormat(prediction, 4));
     record.setFormatAndSample(getField(), Utils.realFormat(prediction, 4), sampleNumber);
     incrementScore(prediction);
-    return prediction;
   }
 
 
@@ -129,4 +129,9 @@ public abstract class AlleleStatistics<T extends AlleleStatistics<T>> {
    * @return T new AlleleStatistics instance with remapped entries
    */
   public abstract T remap(Description newDescription, int[] mapping);
+
+  /**
+   * Clear all counts, as if no evidence had been seen.
+   */
+  abstract void reset();
 }
@@ -11,6 +11,8 @@
  */
 package com.rtg.variant.bayes;
 
+import java.util.Arrays;
+
 import com.rtg.util.MathUtils;
 
 /**
@@ -126,6 +128,16 @@ public class AlleleStatisticsInt extends AlleleStatistics<AlleleStatisticsInt> {
   }
 
 
+  @Override
+  void reset() {
+    Arrays.fill(mCountsForwards, 0);
+    Arrays.fill(mCountsBackwards, 0);
+    Arrays.fill(mCountsMated, 0);
+    Arrays.fill(mCountsUnmated, 0);
+    Arrays.fill(mErrors, 0.0);
+    Arrays.fill(mQualityProduct, 0.0);
+  }
+
   @Override
   public AlleleStatisticsInt remap(Description newDescription, int[] mapping) {
     final AlleleStatisticsInt newCounts = new AlleleStatisticsInt(newDescription);
@@ -182,6 +182,15 @@ public class Model<D extends Description> extends IntegralAbstract implements Mo
     }
   }
 
+  /**
+   * Restore this model to the state it had on construction, so that it can be reused at another position.
+   */
+  public void reset() {
+    Arrays.fill(mPosteriors, arithmetic().one());
+    mStatistics.reset();
+    mFrozen = false;
+  }
+
   protected void incrementStatistics(EvidenceInterface distribution) {
     mStatistics.increment(distribution, mHypotheses.reference());
   }
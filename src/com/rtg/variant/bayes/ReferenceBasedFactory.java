@@ -27,4 +27,12 @@ public interface ReferenceBasedFactory<D> {
    */
   D make(int ref);
 
+  /**
+   * Indicate that an object made by this factory is no longer referenced by the caller,
+   * so that the factory may reuse it. By default nothing is retained.
+   *
+   * @param object the object no longer in use.
+   */
+  default void release(D object) { }
+
 }
@@ -56,6 +56,17 @@ public abstract class Statistics<T extends AlleleStatistics<T>> implements Clone
     mCounts = alleleStats;
   }
 
+  /**
+   * Clear all counts, as if no evidence had been seen.
+   */
+  public void reset() {
+    mCounts.reset();
+    mNonRefCount = 0;
+    mCountLeft = 0;
+    mCountRight = 0;
+    mCountUnmapped = 0;
+  }
+
   /**
    * Increment the statistics.
    * @param evidence with probabilities for hypotheses.
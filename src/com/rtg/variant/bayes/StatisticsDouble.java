@@ -33,6 +33,16 @@ public class StatisticsDouble extends Statistics<AlleleStatisticsDouble> {
     super(description, new AlleleStatisticsDouble(description));
   }
 
+  @Override
+  public void reset() {
+    super.reset();
+    mAmbiguous = 0;
+    mTotalCoverage = 0;
+    mTotalError = 0;
+    mMatedCount = 0;
+    mUnmatedCount = 0;
+  }
+
   @Override
   protected void incrementBest(final EvidenceInterface evidence, int bestHyp) {
 
@@ -37,6 +37,16 @@ public class StatisticsInt extends Statistics<AlleleStatisticsInt> {
     super(description, new AlleleStatisticsInt(description));
   }
 
+  @Override
+  public void reset() {
+    super.reset();
+    mAmbiguous = 0;
+    mTotalCoverage = 0;
+    mTotalError = 0;
+    mMatedCount = 0;
+    mUnmatedCount = 0;
+  }
+
   @Override
   protected void incrementBest(final EvidenceInterface evidence, int bestHyp) {
 
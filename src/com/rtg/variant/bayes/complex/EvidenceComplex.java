@@ -19,7 +19,6 @@ import com.rtg.util.MaxShiftUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.machine.MachineType;
 import com.rtg.variant.MachineErrorChooserInterface;
-import com.rtg.variant.ThreadingEnvironment;
 import com.rtg.variant.VariantAlignmentRecord;
 import com.rtg.variant.VariantParams;
 import com.rtg.variant.bayes.Evidence;
@@ -36,8 +35,6 @@ import com.rtg.variant.realign.Environment;
 import com.rtg.variant.realign.EnvironmentCombined;
 import com.rtg.variant.realign.InvertCgTemplateEnvironment;
 import com.rtg.variant.realign.RealignParams;
-import com.rtg.variant.realign.ScoreFastUnderflow;
-import com.rtg.variant.realign.ScoreFastUnderflowCG;
 import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
 
 /**
@@ -58,13 +55,6 @@ public class EvidenceComplex extends Evidence {
     SCORE_INTERFACE_MEMO = new ScoreInterfaceMemo();
   }
 
-  private static AllPaths getAllPaths(final RealignParams params) {
-    if (params.machineType() != null && params.machineType().isCG() && CG_ALLPATHS) {
-      return new ScoreFastUnderflowCG(params);
-    }
-    return new ScoreFastUnderflow(params);
-  }
-
   private final int mReference;
 
   private final double[] mProb;
@@ -122,12 +112,8 @@ public class EvidenceComplex extends Evidence {
     final VariantAlignmentRecord alignmentRecord = match.alignmentRecord();
     final RealignParams me = chooser.realignParams(alignmentRecord.getReadGroup(), alignmentRecord.isReadPaired());
     final boolean cg = me.machineType() != null && me.machineType().isCG();
-    final AllPaths sm;
-    if (params.threadingEnvironment() == ThreadingEnvironment.PARALLEL) {
-      sm = getAllPaths(me);
-    } else {
-      sm = SCORE_INTERFACE_MEMO.getScoreInterface(me);
-    }
+    // Score interfaces are confined to the calling thread, so can be shared by all evidence created in it
+    final AllPaths sm = SCORE_INTERFACE_MEMO.getScoreInterface(me);
 
     final AlignmentEnvironment se;
     if (cg) {
@@ -13,6 +13,7 @@
 package com.rtg.variant.bayes.complex;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import com.rtg.variant.realign.AllPaths;
 import com.rtg.variant.realign.RealignParams;
@@ -21,27 +22,31 @@ import com.rtg.variant.realign.ScoreFastUnderflowCG;
 
 /**
  * Keep singleton score interfaces per read group and CG flag.
+ * A single instance may be shared by all threads, each thread is given its own
+ * score interfaces, since these hold the working matrices of the alignment and so
+ * are only valid until the next alignment in that thread.
  */
 public final class ScoreInterfaceMemo implements ScoreInterfaceMemoInterface {
 
-  final HashMap<RealignParams, AllPaths> mCache = new HashMap<>();
-  final HashMap<RealignParams, AllPaths> mCacheCG = new HashMap<>();
+  /** Maximum number of score interfaces retained by a thread, bounds the memory held if many parameter sets are seen. */
+  static final int MAX_CACHED = 64;
+
+  private final ThreadLocal<Map<RealignParams, AllPaths>> mCache = ThreadLocal.withInitial(HashMap::new);
 
   @Override
   public AllPaths getScoreInterface(final RealignParams params) {
-    AllPaths s;
-    if (params.machineType() != null && params.machineType().isCG() && EvidenceComplex.CG_ALLPATHS) {
-      s = mCacheCG.get(params);
-      if (s == null) {
+    final Map<RealignParams, AllPaths> cache = mCache.get();
+    AllPaths s = cache.get(params);
+    if (s == null) {
+      if (params.machineType() != null && params.machineType().isCG() && EvidenceComplex.CG_ALLPATHS) {
         s = new ScoreFastUnderflowCG(params);
-        mCacheCG.put(params, s);
-      }
-    } else {
-      s = mCache.get(params);
-      if (s == null) {
+      } else {
         s = new ScoreFastUnderflow(params);
-        mCache.put(params, s);
       }
+      if (cache.size() >= MAX_CACHED) {
+        cache.clear();
+      }
+      cache.put(params, s);
     }
     return s;
   }
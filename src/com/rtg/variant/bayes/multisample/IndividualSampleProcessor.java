@@ -58,6 +58,13 @@ public class IndividualSampleProcessor<D extends Description> {
     return mMatcherCurrent.step(start);
   }
 
+  // The model must not be referenced after release, in particular by a call
+  void release(final ModelInterface<?> model) {
+    @SuppressWarnings("unchecked")
+    final ModelInterface<D> m = (ModelInterface<D>) model;
+    mMatcherCurrent.release(m);
+  }
+
   IndelDetector stepIndel(final int start) {
     return mMatcherIndel.step(start);
   }
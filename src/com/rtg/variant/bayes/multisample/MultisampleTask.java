@@ -18,6 +18,8 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.rtg.bed.BedUtils;
 import com.rtg.launcher.ParamsTask;
@@ -28,6 +30,7 @@ import com.rtg.reference.SexMemo;
 import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindowSync;
 import com.rtg.sam.ReaderRecord;
 import com.rtg.sam.ReaderWindow;
+import com.rtg.sam.RecordIterator;
 import com.rtg.sam.SamReadingContext;
 import com.rtg.sam.SamUtils;
 import com.rtg.sam.ThreadedMultifileIteratorWrapper;
@@ -70,7 +73,7 @@ import com.rtg.variant.bayes.Description;
 import com.rtg.variant.bayes.ModelInterface;
 import com.rtg.variant.bayes.complex.IonTorrentCallFilter;
 import com.rtg.variant.bayes.complex.Trimming;
-import com.rtg.variant.bayes.multisample.multithread.DependenciesMultiSample;
+import com.rtg.variant.bayes.multisample.multithread.DependenciesMultiSequence;
 import com.rtg.variant.bayes.multisample.multithread.EventListMultiSample;
 import com.rtg.variant.bayes.multisample.multithread.JobIdMultisample;
 import com.rtg.variant.bayes.multisample.multithread.MultisampleStatistics;
@@ -112,8 +115,9 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
   private VcfHeader mVcfHeader;
   private ThreadedMultifileIteratorWrapper<VariantAlignmentRecord> mWrapper;
   private List<SAMSequenceRecord> mSequences;
+  private int[] mSequenceLengths;
+  private JobFactoryMultiSequence mJobFactory;
   private ReferenceRegions mBedFilterRegions;
-  private ParallelProgress mPP = null;
 
   private final JointCallerConfigurator<V> mConfigurator;
 
@@ -153,14 +157,13 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
   private static final byte OVERFLOW = 1;
   private static final byte SKIP = 2;
 
-  private int processNtPositions(List<Variant> calls, MultisampleJointCaller jointCaller, ChunkInfo chunkInfo, byte[] template, ReaderWindow<VariantAlignmentRecord> tribble, int start, int end) throws IOException {
+  private int processNtPositions(List<Variant> calls, MultisampleJointCaller jointCaller, ChunkInfo chunkInfo, byte[] template, ReaderWindow<VariantAlignmentRecord> tribble, RangeList<String> currentRangeList, ParallelProgress pp, int start, int end) throws IOException {
 
     int maxReadLen = 0;
     List<RangeList.RangeData<String>> ranges = null;
     int rangeIndex = 0;
     boolean skipWholeChunk = false;
     if (mWrapper.context().hasRegions()) {
-      final RangeList<String> currentRangeList = mWrapper.getCurrentRangeList();
       ranges = currentRangeList.getFullRangeList();
       rangeIndex = currentRangeList.findFullRangeIndex(start);
       assert rangeIndex < ranges.size();
@@ -214,7 +217,7 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
             final int oldpos = pos;
             do {
               for (final IndividualSampleProcessor<?> ssProcessor1 : ssProcessors) {
-                ssProcessor1.step(pos);
+                ssProcessor1.release(ssProcessor1.step(pos));
               }
               for (final IndividualSampleProcessor<?> ssProcessor : ssProcessors) {
                 ssProcessor.stepIndel(pos);
@@ -257,17 +260,28 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
 
               if (variant != null) {
                 calls.add(variant);
+              } else {
+                releaseModels(ssProcessors, models);
               }
+            } else {
+              releaseModels(ssProcessors, models);
             }
             ++pos;
           }
         }
       }
     }
-    mPP.updateProgress(chunkInfo.percent(end));
+    pp.updateProgress(chunkInfo.percent(end));
     return maxReadLen;
   }
 
+  // Models that did not contribute to a call are not referenced elsewhere and can be reused
+  private static void releaseModels(IndividualSampleProcessor<?>[] ssProcessors, List<ModelInterface<?>> models) {
+    for (int i = 0; i < ssProcessors.length; ++i) {
+      ssProcessors[i].release(models.get(i));
+    }
+  }
+
   // Sets the status of any positions within the interval to SKIP if they are contained within a no-call range entry (one without metadata)
   private static void addRangeStatuses(StatusInterval statusInterval, List<RangeList.RangeData<String>> ranges, int startIndex, int endPos) {
     for (int rangeIndex = startIndex; rangeIndex < ranges.size(); ++rangeIndex) {
@@ -310,21 +324,109 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
   private final Object mExcessiveCoverageLock = new Object();
   private final Object mExcessiveHypothesesLock = new Object();
   private final Object mNoHypothesesLock = new Object();
+  private final Object mTossedRecordsLock = new Object();
+
+  /**
+   * Creates the jobs for each of the sequences being processed, and
+   * supplies the sequences to the scheduler in reference order.
+   */
+  private class JobFactoryMultiSequence implements JobFactory<JobIdMultisample>, DependenciesMultiSequence.SequenceSource {
+
+    private final Map<String, Long> mSequenceNameMap;
+    private final TreeMap<Integer, JobFactoryMultiSample> mFactories = new TreeMap<>();
+    private int mNextSequence = 0;
+
+    JobFactoryMultiSequence(final Map<String, Long> sequenceNameMap) {
+      mSequenceNameMap = sequenceNameMap;
+    }
+
+    @Override
+    public int nextSequence(final int offset) {
+      while (mNextSequence < mSequences.size()) {
+        final SAMSequenceRecord r = mSequences.get(mNextSequence++);
+        final String sequenceName = r.getSequenceName();
+        // Only process this sequence if we are doing them all, or if it is
+        // in the restriction specified by the user
+        if ((!mWrapper.context().hasRegions() || mWrapper.context().referenceRanges().containsSequence(sequenceName))
+          && mWrapper.hasRecords(r.getSequenceIndex())) {
+          if (!mSequenceNameMap.containsKey(sequenceName)) { //this means our SDF does not have reference
+            throw new NoTalkbackSlimException("Reference SDF does not contain sequence '" + sequenceName + "'");
+          }
+          final JobFactoryMultiSample factory = sequenceFactory(offset, r.getSequenceIndex(), sequenceName, mSequenceNameMap.get(sequenceName));
+          if (factory != null) {
+            synchronized (this) {
+              mFactories.put(offset, factory);
+            }
+            return factory.mInfo.numberChunks();
+          }
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public synchronized Job<JobIdMultisample> job(final JobIdMultisample id, final Result[] arguments) {
+      return mFactories.floorEntry(id.time()).getValue().job(id, arguments);
+    }
+
+    synchronized void remove(final JobFactoryMultiSample factory) {
+      mFactories.remove(factory.mOffset);
+    }
+  }
+
+  private JobFactoryMultiSample sequenceFactory(final int offset, final int sequenceIndex, final String refName, final long sdfSeqId) {
+    final Ploidy ploidy = mSexMemo.getRealPloidy(mParams.sex(), refName);
+    if (!mConfig.handlesPloidy(ploidy)) {
+      Diagnostic.userLog(ploidy + " sequence " + refName + " not supported in this caller");
+      return null;
+    }
+    Diagnostic.userLog("Sequence " + refName + " filter on maximum per-sample coverage is " + mParams.maxCoverageFilter().thresholdSingle(refName));
+    Diagnostic.userLog("Sequence " + refName + " extreme coverage bypass level is "
+                       + mParams.maxCoverageBypass().thresholdTotal(refName));
+
+    final RangeList<String> rangeList = mWrapper.getRangeList(sequenceIndex);
+    final List<RangeList.RangeData<String>> ranges = rangeList.getRangeList();
+    assert ranges.size() > 0;
+    final int sequenceLength = mSequenceLengths[(int) sdfSeqId];
+    final int startPos = ranges.get(0).getStart();
+    if (startPos >= sequenceLength) {
+      throw new NoTalkbackSlimException("Desired start position for sequence " + refName + " (" + startPos + ") is greater than available reference SDF sequence length (" + sequenceLength + ")");
+    }
+    int endPos = ranges.get(ranges.size() - 1).getEnd();
+    if (endPos > sequenceLength) {
+      Diagnostic.warning("Sequence length disparity between reference SDF and SAM headers for sequence " + refName + ". Clipping end position to available SDF sequence length (" + sequenceLength + ")");
+      endPos = sequenceLength;
+    }
+    final ChunkInfo info = new ChunkInfo(sequenceLength, refName, mParams.chunkSize(), startPos, endPos, mParams.execThreads(), mParams.maxReadLength());
+    return new JobFactoryMultiSample(offset, info, refName, sdfSeqId, mWrapper.sequenceIterator(sequenceIndex), rangeList);
+  }
 
-  private class JobFactoryMultiSample extends IntegralAbstract implements JobFactory<JobIdMultisample>, AutoCloseable {
+  private class JobFactoryMultiSample extends IntegralAbstract implements JobFactory<JobIdMultisample> {
 
+    private final int mOffset;
     private final ChunkInfo mInfo;
+    private final RecordIterator<VariantAlignmentRecord> mRecords;
     private final CircularBufferMultifileSinglePassReaderWindowSync<VariantAlignmentRecord> mBuffer;
+    private final RangeList<String> mRangeList;
     private final String mRefName;
-    private final byte[] mRefNts;
+    private final long mSdfSeqId;
+    private byte[] mRefNts = null;
     private final MultisampleJointCaller mJointCaller;
     private final BedComplexitiesWriter mBed;
+    private final ParallelProgress mPP;
 
     /** Minimum position on reference, either 0 or supplied by restriction */
     private final int mMinimumPosition;
 
-    JobFactoryMultiSample(final ChunkInfo info, final String refName, final byte[] refNts) throws IOException {
+    /** The last <code>BED</code> and the last <code>OUT</code> job of the sequence may complete in either order */
+    private final AtomicInteger mUnfinished = new AtomicInteger(2);
+
+    JobFactoryMultiSample(final int offset, final ChunkInfo info, final String refName, final long sdfSeqId, final RecordIterator<VariantAlignmentRecord> records, final RangeList<String> rangeList) {
+      mOffset = offset;
       mInfo = info;
+      mRecords = records;
+      mRangeList = rangeList;
+      mPP = new ParallelProgress(refName);
       String[] genomeNames = mConfig.getGenomeNames();
       if (genomeNames.length == 1) {
         genomeNames = new String[] {}; // Special case for singleton caller, map all records to 0
@@ -338,20 +440,40 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       } else {
         mMinimumPosition = restriction.getStart();
       }
-      mBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(mWrapper, pop, mParams.uberHeader().getSequenceIndex(refName), restriction.getStart(), depth);
+      mBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(mRecords, pop, mParams.uberHeader().getSequenceIndex(refName), restriction.getStart(), depth);
       mRefName = refName;
-      mRefNts = refNts;
+      mSdfSeqId = sdfSeqId;
       mJointCaller = mConfig.getJointCaller();
       mBed = new BedComplexitiesWriter(mBedOut, refName, info.start());
     }
 
-    @Override
-    public void close() throws IOException {
-      mTossedRecords += mBuffer.getTossedRecordCount();
-      mBed.finish();
-      mBuffer.close();
-      mPP.close();
-      mJointCaller.endOfSequence();
+    // The reference is only read once the sequence is reached by the scheduler
+    private synchronized byte[] template() throws IOException {
+      if (mRefNts == null) {
+        final byte[] refNts = new byte[mSequenceLengths[(int) mSdfSeqId]];
+        synchronized (mReferenceSequences) {
+          mReferenceSequences.read(mSdfSeqId, refNts);
+        }
+        mRefNts = refNts;
+      }
+      return mRefNts;
+    }
+
+    private int time(final JobIdMultisample id) {
+      return id.time() - mOffset;
+    }
+
+    private void finished() throws IOException {
+      if (mUnfinished.decrementAndGet() == 0) {
+        synchronized (mTossedRecordsLock) {
+          mTossedRecords += mBuffer.getTossedRecordCount();
+        }
+        mBuffer.close();
+        mRecords.close();
+        mPP.close();
+        mJointCaller.endOfSequence();
+        mJobFactory.remove(this);
+      }
     }
 
     @Override
@@ -396,7 +518,7 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
         // The positions reported here are only a proxy for the true positions, since for example, the DANGLING
         // job can make adjustments to the positions processed.  The idea is to try and make the position
         // reported here correspond to the original INCR job used to generate the inputs of this chunk.
-        final int delta = Math.max((id().time() - mTimeOffset) * mInfo.chunkSize(), 0);
+        final int delta = Math.max((time(id()) - mTimeOffset) * mInfo.chunkSize(), 0);
         final int start = Math.min(delta, mInfo.end());
         final int end = Math.min(start + mInfo.chunkSize(), mInfo.end());
         return super.toString() + " " + mRefName + ":" + start + "-" + end;
@@ -416,10 +538,11 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
 
       @Override
       public Result run() throws IOException {
-        final int start = id().time() * mInfo.chunkSize() + mInfo.start();
+        final int start = time(id()) * mInfo.chunkSize() + mInfo.start();
         final int end = Math.min(start + mInfo.chunkSize(), mInfo.end());
+        final byte[] refNts = template();
         List<Variant> calls = new ArrayList<>();
-        final int maxReadLen = processNtPositions(calls, mJointCaller, mInfo, mRefNts, mBuffer, start, end);
+        final int maxReadLen = processNtPositions(calls, mJointCaller, mInfo, refNts, mBuffer, mRangeList, mPP, start, end);
         final boolean simpleRepeats = mParams.simpleRepeatExtension() && !mParams.ionTorrent();
         final RegionRestriction forcedComplexRegion = mParams.forceComplexRegion();
         if (forcedComplexRegion != null) {
@@ -430,7 +553,7 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
             calls = OutputUtils.merge(calls, Collections.singletonList(v));
           }
         }
-        final Complexities cx = new Complexities(calls, mRefName, start, end, mParams.interestingSeparation(), mParams.hyperComplexLength(), mRefNts, simpleRepeats, mConfig.getSiteSpecificPriors());
+        final Complexities cx = new Complexities(calls, mRefName, start, end, mParams.interestingSeparation(), mParams.hyperComplexLength(), refNts, simpleRepeats, mConfig.getSiteSpecificPriors());
         return new Result(cx, maxReadLen);
       }
     }
@@ -461,6 +584,10 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
         if (last != null) {
           mBed.write(last);
         }
+        if (time(id()) == mInfo.numberChunks()) {
+          mBed.finish();
+          finished();
+        }
         return new Result();
       }
     }
@@ -485,7 +612,7 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
             }
           } else {
             final ComplexCaller caller = new ComplexCaller(mParams, mConfig /*, mWrapper.getCurrentRangeList() */);
-            final List<Variant> complexCalls = caller.makeComplexCalls(complexRegions, mBuffer, mRefNts, mRefName);
+            final List<Variant> complexCalls = caller.makeComplexCalls(complexRegions, mBuffer, template(), mRefName);
             final List<Variant> nonComplexCalls = OutputUtils.nonShadowed(complexRegions.getOriginalCalls(), complexRegions);
             calls = OutputUtils.merge(nonComplexCalls, complexCalls);
             updateCounts(caller);
@@ -528,7 +655,8 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       }
 
       @Override
-      public Result run() {
+      public Result run() throws IOException {
+        final byte[] refNts = template();
         final List<Variant> prevLastCall = mArguments[2] == null ? null : getList(mArguments[2].result(1));
 
         final List<Variant> equivFiltered;
@@ -540,12 +668,12 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
           final Integer maxReadLen = (Integer) mArguments[0].result(1);
           final List<Variant> initialCalls = getList(mArguments[1].result(0));
           final List<Variant> split = trimSplit(initialCalls);
-          final EquivalentFilter filter = new EquivalentFilter(mRefNts, prevLastCall);
+          final EquivalentFilter filter = new EquivalentFilter(refNts, prevLastCall);
           equivFiltered = filter.filter(split, maxReadLen);
           lastCalls = filter.lastCall(); // Remember last calls for checking equivalence across chunks
         }
 
-        final List<Variant> filtered = locusAndIonTorrentFilters(equivFiltered, mRefNts);
+        final List<Variant> filtered = locusAndIonTorrentFilters(equivFiltered, refNts);
         return new Result(filtered, lastCalls);
       }
     }
@@ -577,8 +705,12 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
             }
           }
         }
-        if (mBuffer.finishedTo() < Math.min(id().time() * mInfo.chunkSize() + mInfo.start() - 1, mInfo.end())) { //flushing should be keeping up with output
-          throw new RuntimeException("Failed to flush chunk: " + mBuffer.finishedTo() + " : " + id().time() * mInfo.chunkSize());
+        final int time = time(id());
+        if (mBuffer.finishedTo() < Math.min(time * mInfo.chunkSize() + mInfo.start() - 1, mInfo.end())) { //flushing should be keeping up with output
+          throw new RuntimeException("Failed to flush chunk: " + mBuffer.finishedTo() + " : " + time * mInfo.chunkSize());
+        }
+        if (time == mInfo.numberChunks() + 1) {
+          finished();
         }
         return null;
       }
@@ -626,40 +758,16 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
     return result;
   }
 
-  private void processAnEntireSequence(final String refName, final byte[] refNts) throws IOException {
-    mPP = new ParallelProgress(refName);
-    final Ploidy ploidy = mSexMemo.getRealPloidy(mParams.sex(), refName);
-    if (!mConfig.handlesPloidy(ploidy)) {
-      Diagnostic.userLog(ploidy + " sequence " + refName + " not supported in this caller");
-      return;
-    }
-    Diagnostic.userLog("Sequence " + refName + " filter on maximum per-sample coverage is " + mParams.maxCoverageFilter().thresholdSingle(refName));
-    Diagnostic.userLog("Sequence " + refName + " extreme coverage bypass level is "
-                       + mParams.maxCoverageBypass().thresholdTotal(refName));
-
-    final List<RangeList.RangeData<String>> ranges = mWrapper.getCurrentRangeList().getRangeList();
-    assert ranges.size() > 0;
-    final int startPos = ranges.get(0).getStart();
-    if (startPos >= refNts.length) {
-      throw new NoTalkbackSlimException("Desired start position for sequence " + refName + " (" + startPos + ") is greater than available reference SDF sequence length (" + refNts.length + ")");
-    }
-    int endPos = ranges.get(ranges.size() - 1).getEnd();
-    if (endPos > refNts.length) {
-      Diagnostic.warning("Sequence length disparity between reference SDF and SAM headers for sequence " + refName + ". Clipping end position to available SDF sequence length (" + refNts.length + ")");
-      endPos = refNts.length;
-    }
-    final ChunkInfo info = new ChunkInfo(refNts.length, refName, mParams.chunkSize(), startPos, endPos, mParams.execThreads(), mParams.maxReadLength());
-    final DependenciesMultiSample depen = new DependenciesMultiSample(info.numberChunks());
-    try (final JobFactoryMultiSample jobFac = new JobFactoryMultiSample(info, refName, refNts)) {
-      final EventList<JobIdMultisample> eventList = new EventListMultiSample<>();
-      final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, jobFac, eventList, null, mJobStatistics, mParams.threadingLookAhead());
-      //final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, jobFac, eventList, System.err, mJobStatistics, mParams.threadingLookAhead());
-      final String msg = "Processing " + refName;
-      final Executor<JobIdMultisample> exec = createExecutor(sched, msg, mParams);
-      exec.run();
-      assert eventList.next(sched.lookAhead()) == null;
-      assert sched.lookAhead().total() == 0;
-    }
+  private void processSequences(final Map<String, Long> sequenceNameMap) throws IOException {
+    mJobFactory = new JobFactoryMultiSequence(sequenceNameMap);
+    final DependenciesMultiSequence depen = new DependenciesMultiSequence(mJobFactory);
+    final EventList<JobIdMultisample> eventList = new EventListMultiSample<>();
+    final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, mJobFactory, eventList, null, mJobStatistics, mParams.threadingLookAhead());
+    //final Scheduler<JobIdMultisample> sched = new SchedulerSynchronized<>(depen, mJobFactory, eventList, System.err, mJobStatistics, mParams.threadingLookAhead());
+    final Executor<JobIdMultisample> exec = createExecutor(sched, "Processing sequences", mParams);
+    exec.run();
+    assert eventList.next(sched.lookAhead()) == null;
+    assert sched.lookAhead().total() == 0;
   }
 
   private static Executor<JobIdMultisample> createExecutor(final Scheduler<JobIdMultisample> sched, final String msg, VariantParams params) {
@@ -773,24 +881,11 @@ public class MultisampleTask<V extends VariantStatistics> extends ParamsTask<Var
       SamUtils.checkUberHeaderAgainstReference(mReferenceSequences, mParams.uberHeader(), !mParams.ignoreIncompatibleSamHeaders());
       init();
       final Map<String, Long> sequenceNameMap = ReaderUtils.getSequenceNameMap(mReferenceSequences);
-      for (final SAMSequenceRecord r : mSequences) {
-        final String sequenceName = r.getSequenceName(); //mReferenceSequences.name(l);
-        // Only process this sequence if we are doing them all, or if it is
-        // in the restriction specified by the user
-        if (!mWrapper.context().hasRegions() || mWrapper.context().referenceRanges().containsSequence(sequenceName)) {
-          mWrapper.setSequenceId(r.getSequenceIndex());
-          if (mWrapper.hasNext()) {
-            if (!sequenceNameMap.containsKey(sequenceName)) { //this means our SDF does not have reference
-              throw new NoTalkbackSlimException("Reference SDF does not contain sequence '" + sequenceName + "'");
-            }
-            final long sdfSeqId = sequenceNameMap.get(sequenceName);
-            final int sequenceLength = mReferenceSequences.length(sdfSeqId);
-            final byte[] sequenceNt = new byte[sequenceLength];
-            mReferenceSequences.read(sdfSeqId, sequenceNt);
-            processAnEntireSequence(sequenceName, sequenceNt);
-          }
-        }
+      mSequenceLengths = new int[(int) mReferenceSequences.numberSequences()];
+      for (int i = 0; i < mSequenceLengths.length; ++i) {
+        mSequenceLengths[i] = mReferenceSequences.length(i);
       }
+      processSequences(sequenceNameMap);
       logRecordCounts();
       mStatistics.setExcessiveCoverageCount(mExcessiveCoverageCount);
       mStatistics.setExcessiveHypothesesCount(mExcessiveHypothesesCount);
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+
+package com.rtg.variant.bayes.multisample.multithread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.rtg.scheduler.Dependencies;
+import com.rtg.scheduler.LookAhead;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.IntegralAbstract;
+
+/**
+ * Dependencies for calling a series of reference sequences with a single scheduler.
+ * Each sequence occupies a contiguous range of times, one per chunk plus the two extra times
+ * used by <code>DependenciesMultiSample</code> to finish a sequence, so the end of one sequence can
+ * be processed at the same time as the start of the next.
+ * Within a sequence the dependencies are those of <code>DependenciesMultiSample</code>. In addition, the first
+ * <code>BED</code> and <code>OUT</code> jobs of a sequence wait for the last ones of the previous
+ * sequence, so that output is written in reference order.
+ * The following sequence is only requested from the source once the last <code>INCR</code> job of a
+ * sequence has completed, so that all the records needed by a sequence have been read before the
+ * source looks ahead in the input for the next one.
+ */
+public class DependenciesMultiSequence extends IntegralAbstract implements Dependencies<JobIdMultisample> {
+
+  /**
+   * Supplies the sequences to be processed, in order.
+   */
+  public interface SequenceSource {
+    /**
+     * Prepare the next sequence to be processed.
+     * @param offset the time of the first chunk of the sequence.
+     * @return the number of chunks in the sequence, or 0 if there are no more sequences.
+     */
+    int nextSequence(int offset);
+  }
+
+  // Times are not bounded by a single sequence, but job identifiers insist on a bound
+  private static final int MAX_TIME = Integer.MAX_VALUE - 1;
+
+  private static final class Segment {
+    private final int mOffset;
+    private final int mNumberChunks;
+    private final DependenciesMultiSample mDependencies;
+    // Last jobs of the previous sequence, kept as identifiers so that finished segments can be released
+    private final JobIdMultisample mPreviousBed;
+    private final JobIdMultisample mPreviousOut;
+    private Segment mNext = null;
+
+    Segment(final int offset, final int numberChunks, final Segment previous) {
+      mOffset = offset;
+      mNumberChunks = numberChunks;
+      mDependencies = new DependenciesMultiSample(numberChunks);
+      mPreviousBed = previous == null ? null : previous.lastBed();
+      mPreviousOut = previous == null ? null : previous.lastOut();
+    }
+
+    int end() {
+      return mOffset + mNumberChunks + 2;
+    }
+
+    JobIdMultisample local(final JobIdMultisample id) {
+      return new JobIdMultisample(mNumberChunks, id.time() - mOffset, id.type());
+    }
+
+    JobIdMultisample global(final JobIdMultisample id) {
+      return id == null ? null : new JobIdMultisample(MAX_TIME, id.time() + mOffset, id.type());
+    }
+
+    JobIdMultisample lastBed() {
+      return new JobIdMultisample(MAX_TIME, mOffset + mNumberChunks, JobType.BED);
+    }
+
+    JobIdMultisample lastOut() {
+      return new JobIdMultisample(MAX_TIME, mOffset + mNumberChunks + 1, JobType.OUT);
+    }
+  }
+
+  private final SequenceSource mSource;
+
+  private final TreeMap<Integer, Segment> mSegments = new TreeMap<>();
+
+  /** Sequence whose <code>INCR</code> jobs are being issued or awaited, null when all have been issued. */
+  private Segment mCurrent;
+
+  private int mNext = 0;
+
+  /**
+   * @param source supplies the sequences to be processed.
+   */
+  public DependenciesMultiSequence(final SequenceSource source) {
+    mSource = source;
+    mCurrent = nextSegment(0, null);
+  }
+
+  private Segment nextSegment(final int offset, final Segment previous) {
+    final int numberChunks = mSource.nextSequence(offset);
+    if (numberChunks == 0) {
+      return null;
+    }
+    final Segment segment = new Segment(offset, numberChunks, previous);
+    if (previous != null) {
+      previous.mNext = segment;
+    }
+    mSegments.put(offset, segment);
+    return segment;
+  }
+
+  private Segment segment(final int time) {
+    final Map.Entry<Integer, Segment> entry = mSegments.floorEntry(time);
+    assert entry != null && time < entry.getValue().end() : time;
+    return entry.getValue();
+  }
+
+  @Override
+  public int delta() {
+    // The last BED job of a sequence is two times before the first BED job of the next
+    return 2;
+  }
+
+  @Override
+  public Collection<JobIdMultisample> from(final JobIdMultisample id) {
+    final Segment segment = segment(id.time());
+    final JobIdMultisample local = segment.local(id);
+    final List<JobIdMultisample> res = new ArrayList<>();
+    for (final JobIdMultisample from : segment.mDependencies.from(local)) {
+      res.add(segment.global(from));
+    }
+    if (segment.mPreviousBed != null) {
+      // The first argument of BED and OUT is the same job type at the previous time
+      if (local.type() == JobType.BED && local.time() == 0) {
+        assert res.get(0) == null;
+        res.set(0, segment.mPreviousBed);
+      } else if (local.type() == JobType.OUT && local.time() == 1) {
+        assert res.get(0) == null;
+        res.set(0, segment.mPreviousOut);
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public Collection<JobIdMultisample> to(final JobIdMultisample id) {
+    final Segment segment = segment(id.time());
+    final JobIdMultisample local = segment.local(id);
+    final Set<JobIdMultisample> res = new HashSet<>();
+    for (final JobIdMultisample to : segment.mDependencies.to(local)) {
+      res.add(segment.global(to));
+    }
+    if (segment == mCurrent && local.type() == JobType.INCR && local.time() == segment.mNumberChunks - 1) {
+      // All the records for this sequence have been read, so find the following sequence now,
+      // which also makes the links between the sequences known before the last jobs of this one complete
+      mCurrent = nextSegment(segment.end(), segment);
+      mNext = 0;
+    }
+    final Segment next = segment.mNext;
+    if (next != null) {
+      // Job identifier equality only orders the types, so compare the types directly
+      if (local.type() == JobType.BED && local.time() == segment.mNumberChunks) {
+        res.add(new JobIdMultisample(MAX_TIME, next.mOffset, JobType.BED));
+      } else if (local.type() == JobType.OUT && local.time() == segment.mNumberChunks + 1) {
+        res.add(new JobIdMultisample(MAX_TIME, next.mOffset + 1, JobType.OUT));
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public JobIdMultisample next(final LookAhead lookAhead) {
+    // No job earlier than both the earliest active time and the next time to be issued can still be referenced
+    final int time = mCurrent == null ? Integer.MAX_VALUE : mCurrent.mOffset + mNext;
+    final int active = lookAhead.current();
+    prune(active == -1 ? time : Math.min(active, time));
+    if (mCurrent == null || mNext == mCurrent.mNumberChunks || !lookAhead.ok(time, 0)) {
+      return null;
+    }
+    final JobIdMultisample res = new JobIdMultisample(MAX_TIME, time, JobType.INCR);
+    ++mNext;
+    return res;
+  }
+
+  /**
+   * Release the sequences all of whose jobs are earlier than <code>time</code>.
+   * @param time earliest time that may still be referenced.
+   */
+  private void prune(final int time) {
+    while (!mSegments.isEmpty() && mSegments.firstEntry().getValue().end() <= time) {
+      mSegments.pollFirstEntry();
+    }
+  }
+
+  /**
+   * @return the number of sequences whose jobs may still be referenced.
+   */
+  int segments() {
+    return mSegments.size();
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertNotNull(mSource);
+    if (mCurrent != null) {
+      Exam.assertTrue(0 <= mNext && mNext <= mCurrent.mNumberChunks);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean globalIntegrity() {
+    integrity();
+    Segment last = null;
+    for (final Segment segment : mSegments.values()) {
+      Exam.assertTrue(segment.mNumberChunks > 0);
+      if (last != null) {
+        Exam.assertEquals(last.end(), segment.mOffset);
+        Exam.assertTrue(last.mNext == segment);
+        Exam.assertTrue(last.lastBed().equals(segment.mPreviousBed));
+        Exam.assertTrue(last.lastOut().equals(segment.mPreviousOut));
+      }
+      last = segment;
+    }
+    return true;
+  }
+}
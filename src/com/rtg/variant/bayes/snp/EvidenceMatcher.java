@@ -75,6 +75,14 @@ public class EvidenceMatcher<D extends EvidenceAcceptor> implements MatcherInter
     return mBuffer.step();
   }
 
+  /**
+   * Return an <code>EvidenceAcceptor</code> obtained from <code>step</code> for reuse.
+   * @param acceptor no longer in use.
+   */
+  public void release(final D acceptor) {
+    mBuffer.release(acceptor);
+  }
+
   @Override
   public String toString() {
     return "Matcher:" + StringUtils.LS + mBuffer.toString();
@@ -12,10 +12,15 @@
 
 package com.rtg.variant.bayes.snp;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.reeltwo.jumble.annotations.TestClass;
+import com.rtg.launcher.globals.CoreGlobalFlags;
+import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.util.integrity.Exam;
 import com.rtg.util.integrity.IntegralAbstract;
 import com.rtg.variant.bayes.AlleleBalanceProbability;
@@ -32,10 +37,18 @@ import com.rtg.variant.bayes.ModelInterface;
 @TestClass("com.rtg.variant.bayes.snp.ModelSnpFactoryTest")
 public abstract class ModelCommonFactory<D extends Description, H extends Hypotheses<D>> extends IntegralAbstract implements ModelFactory<D, H> {
 
+  private static final boolean RECYCLE_MODELS = GlobalFlags.getBooleanValue(CoreGlobalFlags.VARIANT_RECYCLE_MODELS);
+
+  /** Maximum number of released models retained per thread for each set of hypotheses */
+  static final int MAX_POOLED = 4096;
+
   protected H mHypothesisUnknown = null;
   protected final List<H> mHypothesesCache = new ArrayList<>();
   private final AlleleBalanceProbability mAlleleBalance;
 
+  // Models are made and released by the thread processing a chunk, so keep released models per thread
+  private final ThreadLocal<Map<Hypotheses<?>, ArrayDeque<Model<D>>>> mPool = ThreadLocal.withInitial(IdentityHashMap::new);
+
   /**
    * @param alleleBalance allele balance probability implementation
    */
@@ -46,9 +59,33 @@ public abstract class ModelCommonFactory<D extends Description, H extends Hypoth
   @Override
   public ModelInterface<D> make(final int ref) {
     final Hypotheses<D> hyp = defaultHypotheses(ref);
+    final ArrayDeque<Model<D>> pool = mPool.get().get(hyp);
+    if (pool != null) {
+      final Model<D> model = pool.poll();
+      if (model != null) {
+        model.reset();
+        return model;
+      }
+    }
     return makeModel(hyp);
   }
 
+  /**
+   * Retain a model for reuse by subsequent calls to <code>make</code> on the current thread.
+   * Only plain models made by this factory are retained.
+   * @param model no longer referenced by the caller.
+   */
+  @Override
+  public void release(final ModelInterface<D> model) {
+    if (RECYCLE_MODELS && model.getClass() == Model.class && model.statistics().getClass() == StatisticsSnp.class
+      && model.hypotheses() == defaultHypotheses(model.reference())) {
+      final ArrayDeque<Model<D>> pool = mPool.get().computeIfAbsent(model.hypotheses(), k -> new ArrayDeque<>());
+      if (pool.size() < MAX_POOLED) {
+        pool.push((Model<D>) model);
+      }
+    }
+  }
+
   @Override
   public H defaultHypotheses(int ref) {
     //return mHypothesesCache.get(ref);
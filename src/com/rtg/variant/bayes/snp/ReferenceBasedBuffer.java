@@ -123,6 +123,15 @@ public class ReferenceBasedBuffer<D> extends IntegralAbstract {
     return res;
   }
 
+  /**
+   * Return an object previously obtained from <code>step</code> to the factory for reuse.
+   * The caller must not retain any reference to the object.
+   * @param obj the object no longer in use.
+   */
+  public void release(final D obj) {
+    mFactory.release(obj);
+  }
+
   /**
    * Locate index in the internal index range (that is it is a valid reference into
    * our buffer). May as a side-effect resize the buffer and alter the current position.
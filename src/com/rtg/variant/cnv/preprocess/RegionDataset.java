@@ -29,12 +29,16 @@ import com.rtg.util.array.ArrayUtils;
 import com.rtg.util.diagnostic.Diagnostic;
 import com.rtg.util.intervals.SequenceNameLocus;
 import com.rtg.util.intervals.SequenceNameLocusSimple;
+import com.rtg.variant.coverage.CoverageTrackReader;
 
 /**
  * Holds regions grouped by chromosome
  */
 public class RegionDataset {
 
+  private static final String TRACK_LABEL_COLUMN = "label";
+  private static final String TRACK_COVERAGE_COLUMN = "coverage";
+
   /**
    * Reads a dataset from a BED file importing all columns
    * @param file the bed file
@@ -42,6 +46,9 @@ public class RegionDataset {
    * @throws IOException if there was a problem reading the input
    */
   public static RegionDataset readFromBed(File file) throws IOException {
+    if (CoverageTrackReader.isTrack(file)) {
+      return readFromCoverageTrack(file, null);
+    }
     try (BedReader br = BedReader.openBedReader(null, file, 0)) {
       final String[] columnNames = getColumnNames(br.getHeader());
       final RegionDataset dataset = new RegionDataset(columnNames);
@@ -61,6 +68,9 @@ public class RegionDataset {
    * @throws IOException if there was a problem reading the input
    */
   public static RegionDataset readFromBed(File file, List<Column> desiredColumns) throws IOException {
+    if (CoverageTrackReader.isTrack(file)) {
+      return readFromCoverageTrack(file, desiredColumns);
+    }
     try (BedReader br = BedReader.openBedReader(null, file, 0)) {
       final List<String> columnNames = Arrays.asList(getColumnNames(br.getHeader()));
       final RegionDataset dataset = new RegionDataset(desiredColumns, columnNames);
@@ -71,6 +81,78 @@ public class RegionDataset {
     }
   }
 
+  /**
+   * Reads a dataset from a binary coverage track, which has the same columns as coverage BED output.
+   * @param file the coverage track
+   * @param desiredColumns restrict column loading to the provided columns, or null to load all columns
+   * @return the dataset
+   * @throws IOException if there was a problem reading the input
+   */
+  public static RegionDataset readFromCoverageTrack(File file, List<Column> desiredColumns) throws IOException {
+    final RegionDataset dataset = desiredColumns == null
+      ? new RegionDataset(new String[] {TRACK_LABEL_COLUMN}).withColumn(new NumericColumn(TRACK_COVERAGE_COLUMN))
+      : new RegionDataset(desiredColumns, Arrays.asList(TRACK_LABEL_COLUMN, TRACK_COVERAGE_COLUMN));
+    try (CoverageTrackReader reader = new CoverageTrackReader(file)) {
+      for (final String sequenceName : reader.sequenceNames()) {
+        Diagnostic.userLog("Reading data for sequence " + sequenceName);
+        reader.query(sequenceName, (start, end, coverage, label) -> dataset.addTrackRow(sequenceName, start, end, label, coverage));
+      }
+    }
+    Diagnostic.userLog("Read dataset containing " + dataset.size() + " regions and " + dataset.columns() + " columns from " + file);
+    dataset.integrity();
+    return dataset;
+  }
+
+  /**
+   * Reads a dataset of mean coverage within fixed size bins from a binary coverage track, making use of
+   * the precomputed zoom levels of the track where possible.
+   * @param file the coverage track
+   * @param binSize size of each bin
+   * @return the dataset, containing a single numeric coverage column
+   * @throws IOException if there was a problem reading the input
+   */
+  public static RegionDataset readFromCoverageTrack(File file, int binSize) throws IOException {
+    final RegionDataset dataset = new RegionDataset(new String[0]);
+    final NumericColumn coverage = dataset.addColumn(new NumericColumn(TRACK_COVERAGE_COLUMN));
+    try (CoverageTrackReader reader = new CoverageTrackReader(file)) {
+      for (final String sequenceName : reader.sequenceNames()) {
+        final double[] bins = reader.binnedCoverage(sequenceName, binSize);
+        final int length = reader.sequenceLength(sequenceName);
+        for (int i = 0; i < bins.length; ++i) {
+          if (!Double.isNaN(bins[i])) {
+            dataset.mRegions.add(new SequenceNameLocusSimple(sequenceName, i * binSize, Math.min(length, (i + 1) * binSize)));
+            coverage.add(bins[i]);
+          }
+        }
+      }
+    }
+    Diagnostic.userLog("Read dataset containing " + dataset.size() + " bins of size " + binSize + " from " + file);
+    dataset.integrity();
+    return dataset;
+  }
+
+  private RegionDataset withColumn(Column column) {
+    mColumnIndexes = ArrayUtils.identity(columns() + 1);
+    addColumn(column);
+    return this;
+  }
+
+  // Add a row read from a coverage track, avoiding conversion of the coverage value to text
+  private void addTrackRow(String sequenceName, int start, int end, String label, double coverage) {
+    mRegions.add(new SequenceNameLocusSimple(sequenceName, start, end));
+    for (int i = 0; i < mColumnIndexes.length; ++i) {
+      if (mColumnIndexes[i] == 0) {
+        column(i).add(label);
+      } else if (mColumnIndexes[i] == 1) {
+        if (column(i) instanceof NumericColumn) {
+          ((NumericColumn) column(i)).add(coverage);
+        } else {
+          column(i).add(String.valueOf(coverage));
+        }
+      }
+    }
+  }
+
   private static void loadBedRecords(BedReader br, RegionDataset dataset, boolean addNewColumns) throws IOException {
     String sequenceName = null;
     while (br.hasNext()) {
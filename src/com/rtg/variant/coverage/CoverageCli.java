@@ -47,6 +47,7 @@ public class CoverageCli extends ParamsCli<CoverageParams> {
   private static final String BEDGRAPH_FLAG = "bedgraph";
   private static final String PER_BASE_FLAG = "per-base";
   private static final String PER_REGION_FLAG = "per-region";
+  private static final String TRACK_FLAG = "track";
   private static final String X_COVERAGE_THRESHOLD_FLAG = "Xcoverage-threshold";
   private static final String X_IGNORE_SAM_HEADER_INCOMPATIBILITY_FLAG = "Xignore-incompatible-sam-headers";
   private static final String X_BINARIZE_BED_FLAG = "Xbinarize-bed";
@@ -103,6 +104,12 @@ public class CoverageCli extends ParamsCli<CoverageParams> {
       if (!flags.checkNand(PER_BASE_FLAG, PER_REGION_FLAG)) {
         return false;
       }
+      if (!flags.checkNand(TRACK_FLAG, PER_BASE_FLAG)) {
+        return false;
+      }
+      if (!flags.checkNand(TRACK_FLAG, BEDGRAPH_FLAG)) {
+        return false;
+      }
       if (!flags.checkNand(PER_BASE_FLAG, SMOOTHING_LEVEL_FLAG)) {
         return false;
       }
@@ -148,6 +155,7 @@ public class CoverageCli extends ParamsCli<CoverageParams> {
     mFlags.registerOptional(PER_BASE_FLAG, "if set, output per-base counts in TSV format (suppresses BED file output)").setCategory(INPUT_OUTPUT);
     mFlags.registerOptional(PER_REGION_FLAG, "if set, output BED/BEDGRAPH entries per-region rather than every coverage level change").setCategory(INPUT_OUTPUT);
     mFlags.registerOptional(BEDGRAPH_FLAG, "if set, output in BEDGRAPH format (suppresses BED file output)").setCategory(INPUT_OUTPUT);
+    mFlags.registerOptional(TRACK_FLAG, "if set, output a binary coverage track with random access and multi-resolution summaries (suppresses BED file output)").setCategory(INPUT_OUTPUT);
     mFlags.registerOptional('s', SMOOTHING_LEVEL_FLAG, Integer.class, CommonFlags.INT, "smooth with this number of neighboring values (0 means no smoothing)", 50).setCategory(SENSITIVITY_TUNING);
     CommonFlags.initThreadsFlag(mFlags);
     SamFilterOptions.registerMinMapQFlag(mFlags);
@@ -187,7 +195,9 @@ public class CoverageCli extends ParamsCli<CoverageParams> {
     builder.tsvOutput(mFlags.isSet(PER_BASE_FLAG));
     builder.perRegion(mFlags.isSet(PER_REGION_FLAG));
     builder.bedgraphOutput(mFlags.isSet(BEDGRAPH_FLAG));
+    builder.trackOutput(mFlags.isSet(TRACK_FLAG));
     builder.ioThreads(CommonFlags.parseIOThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG)));
+    builder.execThreads(CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG)));
     builder.outputIndex(!mFlags.isSet(CommonFlags.NO_INDEX));
     builder.ignoreIncompatibleSamHeaders(mFlags.isSet(X_IGNORE_SAM_HEADER_INCOMPATIBILITY_FLAG));
     builder.minimumCoverageThreshold((Integer) mFlags.getValue(X_COVERAGE_THRESHOLD_FLAG));
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import com.rtg.scheduler.Result;
+
+/**
+ * Execution phases within one chunk of coverage.
+ */
+enum CoverageJobType {
+  /** Accumulate the coverage of the records overlapping a chunk. */
+  INCR {
+    @Override
+    boolean validArguments(Result[] results) {
+      return results.length == 0;
+    }
+  },
+
+  /** Output the coverage of the chunk before, in order. */
+  OUT {
+    @Override
+    boolean validArguments(Result[] results) {
+      return results.length == 3
+        && (results[0] == null || validChunk(results[0]))
+        && validChunk(results[1])
+        && (results[2] == null || validChunk(results[2]));
+    }
+  };
+
+  /**
+   * @param results to be validated.
+   * @return true iff the number and types of the results are correct as arguments for a job of this type.
+   */
+  abstract boolean validArguments(Result[] results);
+
+  /**
+   * Both types of job result in the chunk they have processed.
+   * @param result to be validated.
+   * @return true iff the number and types of the objects in result are correct as the result of a job of this type.
+   */
+  boolean validResult(Result result) {
+    return validChunk(result);
+  }
+
+  private static boolean validChunk(Result result) {
+    return result.length() == 1 && result.result(0) instanceof CoverageTask.CoverageChunk;
+  }
+}
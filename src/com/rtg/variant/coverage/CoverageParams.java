@@ -33,6 +33,9 @@ public final class CoverageParams extends SingleMappedParams {
   /** name of tab separated file */
   public static final String TSV_NAME = "coverage.tsv";
 
+  /** name of binary coverage track file */
+  public static final String TRACK_NAME = "coverage.track";
+
   /**
    * Creates a <code>CoverageParamsBuilder</code>.
    * @return the builder.
@@ -51,6 +54,7 @@ public final class CoverageParams extends SingleMappedParams {
     boolean mErrorRates = false;
     boolean mTsvOutput = false;
     boolean mBedgraphOutput = false;
+    boolean mTrackOutput = false;
     private boolean mPerRegion = false;
     boolean mOutputIndex = true;
     int mChunkSize = 10000;
@@ -74,6 +78,17 @@ public final class CoverageParams extends SingleMappedParams {
       return self();
     }
 
+    /**
+     * Sets the number of reference positions processed together as a unit of work.
+     *
+     * @param chunkSize the chunk size.
+     * @return this builder, so calls can be chained.
+     */
+    public CoverageParamsBuilder chunkSize(final int chunkSize) {
+      mChunkSize = chunkSize;
+      return self();
+    }
+
     /**
      * Turns on reporting of sequencer error rates.
      *
@@ -135,6 +150,16 @@ public final class CoverageParams extends SingleMappedParams {
       return self();
     }
 
+    /**
+     * Turns on binary coverage track output.
+     * @param track true means generate output as a binary coverage track.
+     * @return this builder, so calls can be chained.
+     */
+    public CoverageParamsBuilder trackOutput(final boolean track) {
+      mTrackOutput = track;
+      return self();
+    }
+
     /**
      * Minimum coverage for breadth calculation
      *
@@ -182,6 +207,7 @@ public final class CoverageParams extends SingleMappedParams {
   private final boolean mPerRegion;
   private final boolean mTsvOutput;
   private final boolean mBedgraphOutput;
+  private final boolean mTrackOutput;
   private final int mMinimumCoverageThreshold;
   private final int mChunkSize;
   private final boolean mDisableHtmlReport;
@@ -200,6 +226,7 @@ public final class CoverageParams extends SingleMappedParams {
     mTsvOutput = builder.mTsvOutput;
     mPerRegion = builder.mPerRegion && !mTsvOutput;
     mBedgraphOutput = builder.mBedgraphOutput && !mTsvOutput; // TSV takes priority if both set
+    mTrackOutput = builder.mTrackOutput && !mTsvOutput && !mBedgraphOutput;
     mMinimumCoverageThreshold = builder.mMinimumCoverageThreshold;
     mOutputIndex = builder.mOutputIndex;
     mChunkSize = builder.mChunkSize;
@@ -240,6 +267,14 @@ public final class CoverageParams extends SingleMappedParams {
     return outStream(fileName());
   }
 
+  /**
+   * @return the file for writing the binary coverage track, which is never block compressed.
+   */
+  @ParamsNoField
+  public File trackFile() {
+    return file(TRACK_NAME);
+  }
+
   /**
    * @return output file to be used
    */
@@ -282,7 +317,7 @@ public final class CoverageParams extends SingleMappedParams {
    */
   @ParamsNoField
   public boolean bedOutput() {
-    return !mBedgraphOutput && !mTsvOutput;
+    return !mBedgraphOutput && !mTsvOutput && !mTrackOutput;
   }
 
   /**
@@ -292,6 +327,13 @@ public final class CoverageParams extends SingleMappedParams {
     return mBedgraphOutput;
   }
 
+  /**
+   * @return true if output is being written as a binary coverage track
+   */
+  public boolean trackOutput() {
+    return mTrackOutput;
+  }
+
   /**
    * @return minimum coverage for breadth calculations and binarization
    */
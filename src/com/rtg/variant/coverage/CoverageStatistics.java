@@ -92,7 +92,7 @@ public class CoverageStatistics extends AbstractStatistics {
   /** the total coverage across all regions, with overlaps being flattened. */
   private double mTotalCoverage;
 
-  private CoverageBedWriter mCoverageWriter;
+  private CoverageProcessor mCoverageWriter;
 
   /**
    * @param outputDirectory The base output directory to generate statistics and reports in. May be null if no statistics or reports are to be generated.
@@ -285,7 +285,7 @@ public class CoverageStatistics extends AbstractStatistics {
     }
   }
 
-  void setPerRegionCoverageWriter(CoverageBedWriter writer) {
+  void setPerRegionCoverageWriter(CoverageProcessor writer) {
     mCoverageWriter = writer;
   }
 
@@ -24,9 +24,19 @@ import com.rtg.mode.DnaUtils;
 import com.rtg.reader.ReaderUtils;
 import com.rtg.reader.SequencesReader;
 import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindow;
+import com.rtg.sam.CircularBufferMultifileSinglePassReaderWindowSync;
 import com.rtg.sam.SamReadingContext;
 import com.rtg.sam.SamUtils;
 import com.rtg.sam.ThreadedMultifileIteratorWrapper;
+import com.rtg.scheduler.EventList;
+import com.rtg.scheduler.Executor;
+import com.rtg.scheduler.ExecutorSequential;
+import com.rtg.scheduler.ExecutorThreaded;
+import com.rtg.scheduler.Job;
+import com.rtg.scheduler.JobFactory;
+import com.rtg.scheduler.Result;
+import com.rtg.scheduler.Scheduler;
+import com.rtg.scheduler.SchedulerSynchronized;
 import com.rtg.tabix.TabixIndexer;
 import com.rtg.tabix.UnindexableDataException;
 import com.rtg.util.MathUtils;
@@ -39,6 +49,7 @@ import com.rtg.util.intervals.RangeList;
 import com.rtg.util.intervals.RangeList.RangeData;
 import com.rtg.util.intervals.ReferenceRanges;
 import com.rtg.variant.bayes.multisample.ChunkInfo;
+import com.rtg.variant.bayes.multisample.multithread.EventListMultiSample;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
@@ -54,21 +65,8 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
   // arithmetic for the situation of interest
   private static final double SCALE = 16.0 * 9.0 * 5 * 7 * 11;
   private static final double INV_SCALE = 1.0 / SCALE;
-  private long[] mChunkCovPrev;
-  private long[] mChunkCov;
-  private int[] mIH1Prev;
-  private int[] mIH1;
-  private int[] mIHgt1Prev;
-  private int[] mIHgt1;
-  private CircularBufferMultifileSinglePassReaderWindow<CoverageReaderRecord> mCircularBuffer;
-  private ChunkInfo mInfo;
-  private Long mReferenceSequenceIndex;
-  private byte[] mReferenceBytes;
-  private byte[] mPrevReferenceBytes;
-  private int mChunkStart;
-  private int mChunkEnd;
-  private int mChunkNumber;
-  private ParallelProgress mPP = null;
+  // Number of chunks per thread that may be in progress ahead of the chunk being output
+  private static final int LOOK_AHEAD_PER_THREAD = 2;
   private Map<String, Long> mReferenceNames = null;
 
   private ThreadedMultifileIteratorWrapper<CoverageReaderRecord> mWrapper;
@@ -112,11 +110,11 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
       Diagnostic.warning("No reference supplied - unable to determine regions of unknown nucleotides.");
     }
 
-    try (final CoverageProcessor coverageWriter = mParams.tsvOutput() ? new CoverageTsvWriter(mParams) : new CoverageBedWriter(mParams)) {
+    try (final CoverageProcessor coverageWriter = createWriter()) {
       coverageWriter.init();
       if (mParams.perRegion()) {
         // delegate output to the statistics object, it's already tracking per-region statistics
-        mStatistics.setPerRegionCoverageWriter((CoverageBedWriter) coverageWriter);
+        mStatistics.setPerRegionCoverageWriter(coverageWriter);
       }
       final SingletonPopulatorFactory<CoverageReaderRecord> pf = new SingletonPopulatorFactory<>(new CoverageReaderRecordPopulator(mParams.includeDeletions()));
       final SamReadingContext context = new SamReadingContext(mParams.mapped(), mParams.ioThreads(), mParams.filterParams(), uberHeader, reference);
@@ -137,7 +135,7 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
       }
     }
     recCounts.reportCounts();
-    if (mParams.blockCompressed() && mParams.outputIndex()) {
+    if (mParams.blockCompressed() && mParams.outputIndex() && !mParams.trackOutput()) {
       final Timer indexing = new Timer("CoverageIndex");
       indexing.start();
       final File file = mParams.outFile();
@@ -160,6 +158,15 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
     }
   }
 
+  private CoverageProcessor createWriter() throws IOException {
+    if (mParams.tsvOutput()) {
+      return new CoverageTsvWriter(mParams);
+    } else if (mParams.trackOutput()) {
+      return new CoverageTrackWriter(mParams);
+    }
+    return new CoverageBedWriter(mParams);
+  }
+
 
   /**
    * @param coverageWriter writer for coverage values
@@ -173,269 +180,327 @@ public class CoverageTask extends ParamsTask<CoverageParams, CoverageStatistics>
     if (ranges.size() == 0) { //no ranges were specified for this reference, so bail out
       return;
     }
-    final String sequenceName = r.getSequenceName();
-    mPP = new ParallelProgress(sequenceName);
-    setReferenceSequence(r, ranges.get(0).getStart(), ranges.get(ranges.size() - 1).getEnd());
-
+    final SequenceCoverage sequence = new SequenceCoverage(coverageWriter, r, ranges);
     try {
+      final DependenciesCoverage dependencies = new DependenciesCoverage(sequence.mInfo.numberChunks());
+      final EventList<JobIdCoverage> eventList = new EventListMultiSample<>();
+      final int threads = mParams.execThreads();
+      final Scheduler<JobIdCoverage> sched = new SchedulerSynchronized<>(dependencies, sequence, eventList, null, null, LOOK_AHEAD_PER_THREAD * threads + 1);
+      final Executor<JobIdCoverage> exec = threads == 1 ? new ExecutorSequential<>(sched) : new ExecutorThreaded<>(sched, threads);
+      exec.run();
+      recCounts.incrementCounts(sequence.mCircularBuffer);
+      sequence.mPP.updateProgress(100);
+      Diagnostic.progress("Finished: " + r.getSequenceName());
+    } finally {
+      sequence.mCircularBuffer.close();
+    }
+  }
+
+  /**
+   * Coverage accumulated over one chunk of a reference sequence.
+   */
+  static final class CoverageChunk {
+    private final int mStart;
+    private final int mEnd;
+    private final long[] mCoverage;
+    private final int[] mIH1;
+    private final int[] mIHgt1;
+    private final byte[] mReference;
+
+    CoverageChunk(int start, int end, int chunkSize, boolean ihCounts, byte[] reference) {
+      mStart = start;
+      mEnd = end;
+      mCoverage = new long[chunkSize];
+      mIH1 = ihCounts ? new int[chunkSize] : null;
+      mIHgt1 = ihCounts ? new int[chunkSize] : null;
+      mReference = reference;
+    }
 
-      final int minCoverage = mParams.minimumCoverageThreshold();
-      final boolean byRegions = mParams.perRegion();
-      final boolean byLevels = !mParams.tsvOutput() && !byRegions;
+    private void addBitSet(int start, int ih, double multiplier, BitSet coverageBitSet) {
+      for (int j = 0; j < coverageBitSet.length(); ++j) {
+        if (coverageBitSet.get(j)) {
+          final int index = start + j - mStart;
+          if (index >= 0 && index < mCoverage.length) {
+            mCoverage[index] += MathUtils.round(multiplier * SCALE);
+            if (mIH1 != null) {
+              if (ih == 1) {
+                mIH1[index]++;
+              } else {
+                mIHgt1[index]++;
+              }
+            }
+          }
+        }
+      }
+    }
+  }
 
-      int rangeIndex = 0;
-      RangeData<String> range = ranges.get(rangeIndex);
-      assert mInfo.start() == range.getStart();
-      mStatistics.setRange(sequenceName, range);
+  /**
+   * Computes and outputs the coverage of one reference sequence.
+   * Coverage of each chunk is accumulated by <code>INCR</code> jobs, which may run concurrently. The
+   * <code>OUT</code> jobs then walk the positions of each chunk in order, so all state about levels,
+   * ranges and output is only touched by one job at a time.
+   */
+  private final class SequenceCoverage implements JobFactory<JobIdCoverage> {
+    private final CoverageProcessor mCoverageWriter;
+    private final String mSequenceName;
+    private final List<RangeData<String>> mRanges;
+    private final ChunkInfo mInfo;
+    private final Long mReferenceSequenceIndex;
+    private final CircularBufferMultifileSinglePassReaderWindowSync<CoverageReaderRecord> mCircularBuffer;
+    private final ParallelProgress mPP;
+    private final int mMinCoverageThreshold;
+    private final boolean mByLevels;
+
+    // Chunks available to the running OUT job, the one being output and those either side of it
+    private CoverageChunk mPrevChunk = null;
+    private CoverageChunk mChunk = null;
+    private CoverageChunk mNextChunk = null;
+
+    // State of the walk over positions, carried from one OUT job to the next
+    private CoverageLeveller mLeveller = null;
+    private int mCurrentTemplatePosition;
+    private int mRangeIndex = 0;
+    private RangeData<String> mRange;
+    private int mLastLevel = -1;
+    private int mLastLevelStartPos;
+    private String mLevelLabel;
+
+    SequenceCoverage(CoverageProcessor coverageWriter, SAMSequenceRecord r, List<RangeData<String>> ranges) {
+      mCoverageWriter = coverageWriter;
+      mSequenceName = r.getSequenceName();
+      mRanges = ranges;
+      mPP = new ParallelProgress(mSequenceName);
+      mReferenceSequenceIndex = mParams.genome() != null ? mReferenceNames.get(mSequenceName) : null;
+      final int chunkSize = mParams.smoothing() < (mParams.chunkSize() / 2) ? mParams.chunkSize() : (mParams.smoothing() * 2 + 2);
+      mInfo = new ChunkInfo(r.getSequenceLength(), mSequenceName, chunkSize, ranges.get(0).getStart(), ranges.get(ranges.size() - 1).getEnd(), mParams.execThreads(), 1000);
+      final CoverageReaderRecordPopulator populator = new CoverageReaderRecordPopulator(mParams.includeDeletions());
+      mCircularBuffer = new CircularBufferMultifileSinglePassReaderWindowSync<>(mWrapper, populator, r.getSequenceIndex(), mInfo.start(), Integer.MAX_VALUE);
+      mMinCoverageThreshold = mParams.minimumCoverageThreshold();
+      mByLevels = !mParams.tsvOutput() && !mParams.perRegion();
+      mCurrentTemplatePosition = mInfo.start();
+      mRange = ranges.get(0);
+      assert mInfo.start() == mRange.getStart();
+      mLastLevelStartPos = mRange.getStart();
+      mLevelLabel = formatMetaForBed(mRange.getMeta());
+    }
 
-      int lastLevel = -1;
-      int lastLevelStartPos = range.getStart();
-      String levelLabel = formatMetaForBed(range.getMeta());
+    @Override
+    public Job<JobIdCoverage> job(final JobIdCoverage id, final Result[] arguments) {
+      switch (id.type()) {
+        case INCR:
+          return new Job<JobIdCoverage>(id) {
+            @Override
+            protected Result run() throws IOException {
+              return new Result(accumulate(id.time()));
+            }
+          };
+        case OUT:
+          return new Job<JobIdCoverage>(id) {
+            @Override
+            protected Result run() throws IOException {
+              final CoverageChunk next = arguments[0] == null ? null : (CoverageChunk) arguments[0].result(0);
+              final CoverageChunk chunk = (CoverageChunk) arguments[1].result(0);
+              final CoverageChunk prev = arguments[2] == null ? null : (CoverageChunk) arguments[2].result(0);
+              output(prev, chunk, next);
+              return new Result(chunk);
+            }
+          };
+        default:
+          throw new RuntimeException();
+      }
+    }
 
-      final CoverageLeveller cl;
-      if (!byLevels) {
-        cl = new CoverageLeveller(); // No-op implementation
-      } else if (mParams.binarizeBed()) {
-        cl = new CoverageBinarizer(minCoverage);
+    /**
+     * Accumulate the coverage of the records overlapping a chunk, then release them from the buffer.
+     * @param chunkNumber the chunk.
+     * @return the coverage of the chunk.
+     * @throws IOException if an exception occurs while reading.
+     */
+    private CoverageChunk accumulate(int chunkNumber) throws IOException {
+      final int chunkStart = chunkNumber * mInfo.chunkSize() + mInfo.start();
+      final int chunkEnd = Math.min(chunkStart + mInfo.chunkSize(), mInfo.end());
+      final byte[] referenceBytes;
+      if (mReferenceSequenceIndex != null) {
+        referenceBytes = new byte[mInfo.chunkSize()];
+        final SequencesReader reader = mParams.genome().reader();
+        synchronized (reader) {
+          reader.read(mReferenceSequenceIndex, referenceBytes, chunkStart, chunkEnd - chunkStart);
+        }
       } else {
-        cl = new CoverageSmoothingWindow(mParams.smoothing());
+        referenceBytes = null;
+      }
+      final CoverageChunk chunk = new CoverageChunk(chunkStart, chunkEnd, mInfo.chunkSize(), mParams.tsvOutput(), referenceBytes);
+      final Iterator<CoverageReaderRecord> it = mCircularBuffer.recordsOverlap(chunkStart, chunkEnd);
+      while (it.hasNext()) {
+        final CoverageReaderRecord crr = it.next();
+        chunk.addBitSet(crr.getStart(), crr.getIH(), crr.getCoverageMultiplier(), crr.getCoverageBitSet());
+      }
+      mCircularBuffer.flush(chunkStart, chunkEnd);
+      return chunk;
+    }
+
+    /**
+     * Output the coverage of the positions in a chunk.
+     * @param prev the chunk before, null at the start of the sequence.
+     * @param chunk the chunk to output.
+     * @param next the chunk after, null at the end of the sequence.
+     * @throws IOException if an exception occurs while writing.
+     */
+    private void output(CoverageChunk prev, CoverageChunk chunk, CoverageChunk next) throws IOException {
+      mPrevChunk = prev;
+      mChunk = chunk;
+      mNextChunk = next;
+      if (mLeveller == null) {
+        mStatistics.setRange(mSequenceName, mRange);
+        if (!mByLevels) {
+          mLeveller = new CoverageLeveller(); // No-op implementation
+        } else if (mParams.binarizeBed()) {
+          mLeveller = new CoverageBinarizer(mMinCoverageThreshold);
+        } else {
+          mLeveller = new CoverageSmoothingWindow(mParams.smoothing());
+        }
       }
-      //main coverage loop.
-      int currentTemplatePosition = mInfo.start();
-      while (currentTemplatePosition <= mInfo.end()) {
-        if (currentTemplatePosition == range.getEnd()) {
+      // The end of the last range is handled at the position just past the end of the last chunk
+      final int end = next == null ? mInfo.end() + 1 : chunk.mEnd;
+      while (mRange != null && mCurrentTemplatePosition < end) {
+        if (mCurrentTemplatePosition == mRange.getEnd()) {
           // do things necessary at the end of a range BEFORE processing the base at this position.
 
-          if (byLevels) { // Write new level at range boundary
-            coverageWriter.setRegionLabel(levelLabel);
-            coverageWriter.finalCoverageRegion(sequenceName, lastLevelStartPos, currentTemplatePosition, lastLevel);
+          if (mByLevels) { // Write new level at range boundary
+            mCoverageWriter.setRegionLabel(mLevelLabel);
+            mCoverageWriter.finalCoverageRegion(mSequenceName, mLastLevelStartPos, mCurrentTemplatePosition, mLastLevel);
           }
 
           // get the next range
-          ++rangeIndex;
-          range = rangeIndex < ranges.size() ? ranges.get(rangeIndex) : null;
-          mStatistics.setRange(sequenceName, range);
+          ++mRangeIndex;
+          mRange = mRangeIndex < mRanges.size() ? mRanges.get(mRangeIndex) : null;
+          mStatistics.setRange(mSequenceName, mRange);
 
-          if (range == null) {
+          if (mRange == null) {
             break;
           }
 
           //deal with gaps and reset variables
-          lastLevel = -1;
-          lastLevelStartPos = range.getStart();
-          levelLabel = formatMetaForBed(range.getMeta());
+          mLastLevel = -1;
+          mLastLevelStartPos = mRange.getStart();
+          mLevelLabel = formatMetaForBed(mRange.getMeta());
         }
 
         // now deal with the base at this template position.
-        if (currentTemplatePosition >= range.getStart()) { //we're within a range
-          final double nonSmoothCov = getCoverageForPosition(currentTemplatePosition) * INV_SCALE;
+        if (mCurrentTemplatePosition >= mRange.getStart()) { //we're within a range
+          final double nonSmoothCov = getCoverageForPosition(mCurrentTemplatePosition) * INV_SCALE;
 
           if (mParams.tsvOutput()) { //tsv outputs something at every position within a range.
-            coverageWriter.finalCoveragePosition(sequenceName, currentTemplatePosition, getIH1ForPosition(currentTemplatePosition), getIHgt1ForPosition(currentTemplatePosition), nonSmoothCov);
-          } else if (byLevels) {
-            final int currentLevel = cl.level();
-            if (lastLevel != -1 && currentLevel != lastLevel) { // we have a level change, write the previous
-              coverageWriter.setRegionLabel(levelLabel);
-              coverageWriter.finalCoverageRegion(sequenceName, lastLevelStartPos, currentTemplatePosition, lastLevel);
-              lastLevelStartPos = currentTemplatePosition;
+            final CoverageChunk c = chunkForPosition(mCurrentTemplatePosition);
+            final int index = mCurrentTemplatePosition - c.mStart;
+            mCoverageWriter.finalCoveragePosition(mSequenceName, mCurrentTemplatePosition, c.mIH1[index], c.mIHgt1[index], nonSmoothCov);
+          } else if (mByLevels) {
+            final int currentLevel = mLeveller.level();
+            if (mLastLevel != -1 && currentLevel != mLastLevel) { // we have a level change, write the previous
+              mCoverageWriter.setRegionLabel(mLevelLabel);
+              mCoverageWriter.finalCoverageRegion(mSequenceName, mLastLevelStartPos, mCurrentTemplatePosition, mLastLevel);
+              mLastLevelStartPos = mCurrentTemplatePosition;
             }
-            lastLevel = currentLevel;
+            mLastLevel = currentLevel;
           }
 
           //update statistics for this base.
-          final byte base = getBaseForPosition(currentTemplatePosition);
-          mStatistics.updateCoverageHistogram(nonSmoothCov, mReferenceSequenceIndex != null && base == DnaUtils.UNKNOWN_RESIDUE, minCoverage);
+          final byte base = getBaseForPosition(mCurrentTemplatePosition);
+          mStatistics.updateCoverageHistogram(nonSmoothCov, mReferenceSequenceIndex != null && base == DnaUtils.UNKNOWN_RESIDUE, mMinCoverageThreshold);
         }
-        cl.step();
-        ++currentTemplatePosition;
+        mLeveller.step();
+        ++mCurrentTemplatePosition;
       }
-
-      recCounts.incrementCounts(mCircularBuffer);
-
-      mPP.updateProgress(100);
-      Diagnostic.progress("Finished: " + sequenceName);
-
-    } finally {
-      mCircularBuffer.close();
-    }
-  }
-
-  private class CoverageLeveller {
-    protected void step() throws IOException { }
-    protected int level() {
-      return -1;
-    }
-  }
-
-  private final class CoverageBinarizer extends CoverageLeveller {
-    private final int mMinCoverage;
-    private int mPos;
-    private boolean mCurrent;
-    CoverageBinarizer(int minCoverage) throws IOException {
-      mMinCoverage = minCoverage;
-      mPos = mInfo.start();
-      step();
-    }
-    @Override
-    protected void step() throws IOException {
-      mCurrent = mPos < mInfo.end() && MathUtils.round(getCoverageForPosition(mPos++) * INV_SCALE) >= mMinCoverage;
+      mPP.updateProgress(mInfo.percent(chunk.mEnd));
     }
-    @Override
-    protected int level() {
-      return mCurrent ? mMinCoverage : 0;
-    }
-  }
 
-  private final class CoverageSmoothingWindow extends CoverageLeveller {
-    private final int mSmoothWindowSize;
-    private int mPos;
-    private int mNumInDaSum = 0;
-    private long mCoverageSum = 0;
-
-    CoverageSmoothingWindow(int smoothWindowSize) throws IOException {
-      mPos = mInfo.start();
-      mSmoothWindowSize = smoothWindowSize;
-      for (int i = mPos; i < mPos + mSmoothWindowSize + 1 && i < mInfo.end(); ++i) {
-        mCoverageSum += getCoverageForPosition(i);
-        ++mNumInDaSum;
-      }
-    }
-    @Override
-    protected int level() {
-      return (int) MathUtils.round((mCoverageSum * INV_SCALE) / mNumInDaSum);
-    }
-    @Override
-    protected void step() throws IOException {
-      if (mPos + mSmoothWindowSize + 1 < mInfo.end()) {
-        mCoverageSum += getCoverageForPosition(mPos + mSmoothWindowSize + 1);
-        ++mNumInDaSum;
-      }
-      if (mPos - mSmoothWindowSize >= mInfo.start()) {
-        mCoverageSum -= getCoverageForPosition(mPos - mSmoothWindowSize);
-        --mNumInDaSum;
+    private CoverageChunk chunkForPosition(int sequencePosition) {
+      if (sequencePosition < mChunk.mStart) {
+        assert mPrevChunk != null && sequencePosition >= mPrevChunk.mStart;
+        return mPrevChunk;
+      } else if (sequencePosition >= mChunk.mEnd) {
+        if (mNextChunk == null) {
+          throw new ArrayIndexOutOfBoundsException(sequencePosition);
+        }
+        assert sequencePosition < mNextChunk.mEnd;
+        return mNextChunk;
       }
-      ++mPos;
-    }
-  }
-
-  private void setReferenceSequence(SAMSequenceRecord r, int restrictionStart, int restrictionEnd) {
-    if (mParams.genome() != null) {
-      mReferenceSequenceIndex = mReferenceNames.get(r.getSequenceName());
-    }
-    final int chunkSize = mParams.smoothing() < (mParams.chunkSize() / 2) ? mParams.chunkSize() : (mParams.smoothing() * 2 + 2);
-    mInfo = new ChunkInfo(r.getSequenceLength(), r.getSequenceName(), chunkSize, restrictionStart, restrictionEnd, mParams.execThreads(), 1000);
-    if (mCircularBuffer != null) {
-      mCircularBuffer.close();
+      return mChunk;
     }
 
-    final CoverageReaderRecordPopulator populator = new CoverageReaderRecordPopulator(mParams.includeDeletions());
-    mCircularBuffer = new CircularBufferMultifileSinglePassReaderWindow<>(mWrapper, populator, r.getSequenceIndex(), mInfo.start(), Integer.MAX_VALUE);
-    mChunkCov = null;
-    mChunkStart = -1;
-    mChunkEnd = -1;
-    mChunkNumber = 0;
-  }
-
-  private byte getBaseForPosition(int sequencePosition) {
-    if (mReferenceSequenceIndex == null) {
-      return DnaUtils.UNKNOWN_RESIDUE;
-    }
-    final int currChunkPos = sequencePosition - mChunkStart;
-    if (currChunkPos < 0) {
-      assert -currChunkPos < mInfo.chunkSize();
-      return mPrevReferenceBytes[mInfo.chunkSize() + currChunkPos]; //currChunkPos is -ve
-    } else {
-      assert currChunkPos < mInfo.chunkSize();
-      return mReferenceBytes[currChunkPos];
+    private byte getBaseForPosition(int sequencePosition) {
+      if (mReferenceSequenceIndex == null) {
+        return DnaUtils.UNKNOWN_RESIDUE;
+      }
+      final CoverageChunk c = chunkForPosition(sequencePosition);
+      return c.mReference[sequencePosition - c.mStart];
     }
-  }
 
-  private int getValueForPosition(int sequencePosition, int[] arr, int[] prevArr) {
-    final int currChunkPos = sequencePosition - mChunkStart;
-    if (currChunkPos < 0) {
-      assert -currChunkPos < mInfo.chunkSize();
-      return prevArr[mInfo.chunkSize() + currChunkPos]; //currChunkPos is -ve
-    } else {
-      assert currChunkPos < mInfo.chunkSize();
-      return arr[currChunkPos];
+    private long getCoverageForPosition(int sequencePosition) {
+      final CoverageChunk c = chunkForPosition(sequencePosition);
+      return c.mCoverage[sequencePosition - c.mStart];
     }
-  }
 
-  private int getIH1ForPosition(int sequencePosition) {
-    return getValueForPosition(sequencePosition, mIH1, mIH1Prev);
-  }
-
-  private int getIHgt1ForPosition(int sequencePosition) {
-    return getValueForPosition(sequencePosition, mIHgt1, mIHgt1Prev);
-  }
-
-  private long getCoverageForPosition(int sequencePosition) throws IOException {
-    while (sequencePosition >= mChunkEnd) {
-      mPP.updateProgress(mInfo.percent(mChunkEnd));
-      if (!loadNextChunk()) {
-        throw new ArrayIndexOutOfBoundsException(sequencePosition);
+    private class CoverageLeveller {
+      protected void step() { }
+      protected int level() {
+        return -1;
       }
     }
-    final int currChunkPos = sequencePosition - mChunkStart;
-    if (currChunkPos < 0) {
-      assert -currChunkPos < mInfo.chunkSize();
-      return mChunkCovPrev[mChunkCovPrev.length + currChunkPos]; //currChunkPos is -ve
-    } else {
-      assert currChunkPos < mInfo.chunkSize();
-      return mChunkCov[currChunkPos];
-    }
-  }
 
-  private boolean loadNextChunk() throws IOException {
-    if (mChunkNumber < mInfo.numberChunks()) {
-      mChunkCovPrev = mChunkCov;
-      mChunkCov = new long[mInfo.chunkSize()];
-      if (mParams.tsvOutput()) {
-        mIH1Prev = mIH1;
-        mIH1 = new int[mInfo.chunkSize()];
-        mIHgt1Prev = mIHgt1;
-        mIHgt1 = new int[mInfo.chunkSize()];
-      }
-      if (mChunkNumber > 0) {
-        mCircularBuffer.flush(mChunkStart, mChunkEnd);
+    private final class CoverageBinarizer extends CoverageLeveller {
+      private final int mMinCoverage;
+      private int mPos;
+      private boolean mCurrent;
+      CoverageBinarizer(int minCoverage) {
+        mMinCoverage = minCoverage;
+        mPos = mInfo.start();
+        step();
       }
-      mChunkStart = mChunkNumber * mInfo.chunkSize() + mInfo.start();
-      mChunkEnd = Math.min(mChunkStart + mInfo.chunkSize(), mInfo.end());
-      mPrevReferenceBytes = mReferenceBytes;
-      if (mReferenceSequenceIndex != null) {
-        mReferenceBytes = new byte[mInfo.chunkSize()];
-        mParams.genome().reader().read(mReferenceSequenceIndex, mReferenceBytes, mChunkStart, mChunkEnd - mChunkStart);
+      @Override
+      protected void step() {
+        mCurrent = mPos < mInfo.end() && MathUtils.round(getCoverageForPosition(mPos++) * INV_SCALE) >= mMinCoverage;
       }
-      ++mChunkNumber;
-      final Iterator<CoverageReaderRecord> it = mCircularBuffer.recordsOverlap(mChunkStart, mChunkEnd);
-      while (it.hasNext()) {
-        final CoverageReaderRecord crr = it.next();
-        addBitSet(crr.getStart(), crr.getIH(), crr.getCoverageMultiplier(), crr.getCoverageBitSet());
+      @Override
+      protected int level() {
+        return mCurrent ? mMinCoverage : 0;
       }
-      return true;
     }
-    return false;
-  }
 
-  private void addBitSet(int start, int ih, double multiplier, BitSet coverageBitSet) {
-    for (int j = 0; j < coverageBitSet.length(); ++j) {
-      if (coverageBitSet.get(j)) {
-        final int index = start + j - mChunkStart;
-        if (index >= 0 && index < mChunkCov.length) {
-          mChunkCov[index] += MathUtils.round(multiplier * SCALE);
-          if (mParams.tsvOutput()) {
-            if (ih == 1) {
-              mIH1[index]++;
-            } else {
-              mIHgt1[index]++;
-            }
-          }
+    private final class CoverageSmoothingWindow extends CoverageLeveller {
+      private final int mSmoothWindowSize;
+      private int mPos;
+      private int mNumInDaSum = 0;
+      private long mCoverageSum = 0;
+
+      CoverageSmoothingWindow(int smoothWindowSize) {
+        mPos = mInfo.start();
+        mSmoothWindowSize = smoothWindowSize;
+        for (int i = mPos; i < mPos + mSmoothWindowSize + 1 && i < mInfo.end(); ++i) {
+          mCoverageSum += getCoverageForPosition(i);
+          ++mNumInDaSum;
         }
       }
+      @Override
+      protected int level() {
+        return (int) MathUtils.round((mCoverageSum * INV_SCALE) / mNumInDaSum);
+      }
+      @Override
+      protected void step() {
+        if (mPos + mSmoothWindowSize + 1 < mInfo.end()) {
+          mCoverageSum += getCoverageForPosition(mPos + mSmoothWindowSize + 1);
+          ++mNumInDaSum;
+        }
+        if (mPos - mSmoothWindowSize >= mInfo.start()) {
+          mCoverageSum -= getCoverageForPosition(mPos - mSmoothWindowSize);
+          --mNumInDaSum;
+        }
+        ++mPos;
+      }
     }
   }
 
-
   private static final class CoverageReaderRecordPopulator implements Populator<CoverageReaderRecord> {
     final boolean mIncludeDeletions;
     private CoverageReaderRecordPopulator(boolean includeDeletions) {
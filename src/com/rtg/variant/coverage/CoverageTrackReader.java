@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+
+/**
+ * Provides random access to a binary coverage track written by <code>CoverageTrackWriter</code>.
+ */
+public final class CoverageTrackReader implements Closeable {
+
+  /**
+   * Receives coverage intervals read from a track.
+   */
+  public interface IntervalConsumer {
+    /**
+     * @param start start position, zero based inclusive
+     * @param end end position, zero based exclusive
+     * @param coverage coverage of the interval
+     * @param label label of the interval
+     * @throws IOException if the consumer has a problem with the interval
+     */
+    void accept(int start, int end, double coverage, String label) throws IOException;
+  }
+
+  private static final class SequenceIndex {
+    private final int mLength;
+    private final int[] mBlockStarts;
+    private final int[] mBlockEnds;
+    private final long[] mBlockOffsets;
+    private final int[] mBlockLengths;
+    private final int[] mBlockCounts;
+    private final long[] mZoomOffsets;
+    private final int[] mZoomLengths;
+    private final int[] mZoomBins;
+
+    private SequenceIndex(DataInputStream in, int zoomLevels) throws IOException {
+      mLength = in.readInt();
+      final int blocks = in.readInt();
+      mBlockStarts = new int[blocks];
+      mBlockEnds = new int[blocks];
+      mBlockOffsets = new long[blocks];
+      mBlockLengths = new int[blocks];
+      mBlockCounts = new int[blocks];
+      for (int b = 0; b < blocks; ++b) {
+        mBlockStarts[b] = in.readInt();
+        mBlockEnds[b] = in.readInt();
+        mBlockOffsets[b] = in.readLong();
+        mBlockLengths[b] = in.readInt();
+        mBlockCounts[b] = in.readInt();
+      }
+      mZoomOffsets = new long[zoomLevels];
+      mZoomLengths = new int[zoomLevels];
+      mZoomBins = new int[zoomLevels];
+      for (int z = 0; z < zoomLevels; ++z) {
+        mZoomOffsets[z] = in.readLong();
+        mZoomLengths[z] = in.readInt();
+        mZoomBins[z] = in.readInt();
+      }
+    }
+  }
+
+  /**
+   * Test whether a file is a coverage track.
+   * @param file the file to test
+   * @return true if the file starts with the coverage track magic number
+   * @throws IOException if the file cannot be read
+   */
+  public static boolean isTrack(File file) throws IOException {
+    if (!file.isFile()) {
+      return false;
+    }
+    final byte[] magic = new byte[CoverageTrackWriter.MAGIC.length];
+    try (final FileInputStream in = new FileInputStream(file)) {
+      int pos = 0;
+      int n;
+      while (pos < magic.length && (n = in.read(magic, pos, magic.length - pos)) != -1) {
+        pos += n;
+      }
+      return pos == magic.length && Arrays.equals(magic, CoverageTrackWriter.MAGIC);
+    }
+  }
+
+  private final File mFile;
+  private final RandomAccessFile mIn;
+  private final Inflater mInflater = new Inflater();
+  private final String[] mLabels;
+  private final int[] mZoomBinSizes;
+  private final Map<String, SequenceIndex> mSequences = new LinkedHashMap<>();
+
+  /**
+   * Open a coverage track, reading its index.
+   * @param file the track file
+   * @throws IOException if the file cannot be read
+   */
+  public CoverageTrackReader(File file) throws IOException {
+    mFile = file;
+    mIn = new RandomAccessFile(file, "r");
+    try {
+      final byte[] magic = new byte[CoverageTrackWriter.MAGIC.length];
+      final long length = mIn.length();
+      if (length < magic.length + 4 + CoverageTrackWriter.FOOTER_LENGTH) {
+        throw corrupt();
+      }
+      mIn.readFully(magic);
+      final int version = mIn.readInt();
+      if (!Arrays.equals(magic, CoverageTrackWriter.MAGIC)) {
+        throw corrupt();
+      }
+      if (version != CoverageTrackWriter.VERSION) {
+        throw new NoTalkbackSlimException("Unsupported coverage track version " + version + " in " + file);
+      }
+      mIn.seek(length - CoverageTrackWriter.FOOTER_LENGTH);
+      final long indexOffset = mIn.readLong();
+      mIn.readFully(magic);
+      if (!Arrays.equals(magic, CoverageTrackWriter.MAGIC) || indexOffset < 0 || indexOffset > length - CoverageTrackWriter.FOOTER_LENGTH) {
+        throw corrupt();
+      }
+      final byte[] index = new byte[(int) (length - CoverageTrackWriter.FOOTER_LENGTH - indexOffset)];
+      mIn.seek(indexOffset);
+      mIn.readFully(index);
+      try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(index))) {
+        mLabels = new String[in.readInt()];
+        for (int i = 0; i < mLabels.length; ++i) {
+          mLabels[i] = in.readUTF();
+        }
+        mZoomBinSizes = new int[in.readInt()];
+        for (int z = 0; z < mZoomBinSizes.length; ++z) {
+          mZoomBinSizes[z] = in.readInt();
+        }
+        final int sequences = in.readInt();
+        for (int s = 0; s < sequences; ++s) {
+          final String name = in.readUTF();
+          mSequences.put(name, new SequenceIndex(in, mZoomBinSizes.length));
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private NoTalkbackSlimException corrupt() {
+    return new NoTalkbackSlimException("The file " + mFile + " is not a valid coverage track");
+  }
+
+  /**
+   * @return the names of the sequences in the track, in the order they were written
+   */
+  public List<String> sequenceNames() {
+    return Collections.unmodifiableList(new ArrayList<>(mSequences.keySet()));
+  }
+
+  /**
+   * @param sequence name of the sequence
+   * @return the end of the last interval on the sequence, or -1 if the sequence is not present
+   */
+  public int sequenceLength(String sequence) {
+    final SequenceIndex index = mSequences.get(sequence);
+    return index == null ? -1 : index.mLength;
+  }
+
+  /**
+   * @return the bin sizes of the precomputed zoom levels
+   */
+  public int[] zoomBinSizes() {
+    return mZoomBinSizes.clone();
+  }
+
+  /**
+   * Report the intervals of a sequence overlapping a region, in order of start position.
+   * @param sequence name of the sequence
+   * @param start start of the region, zero based inclusive
+   * @param end end of the region, zero based exclusive
+   * @param consumer receives the overlapping intervals
+   * @throws IOException if the track cannot be read
+   */
+  public void query(String sequence, int start, int end, IntervalConsumer consumer) throws IOException {
+    final SequenceIndex index = mSequences.get(sequence);
+    if (index == null) {
+      return;
+    }
+    for (int b = 0; b < index.mBlockStarts.length && index.mBlockStarts[b] < end; ++b) {
+      if (index.mBlockEnds[b] <= start) {
+        continue;
+      }
+      final int count = index.mBlockCounts[b];
+      try (final DataInputStream in = read(index.mBlockOffsets[b], index.mBlockLengths[b], count * 16)) {
+        final int[] starts = new int[count];
+        int last = 0;
+        for (int i = 0; i < count; ++i) {
+          last += in.readInt();
+          starts[i] = last;
+        }
+        final int[] ends = new int[count];
+        for (int i = 0; i < count; ++i) {
+          ends[i] = starts[i] + in.readInt();
+        }
+        final float[] values = new float[count];
+        for (int i = 0; i < count; ++i) {
+          values[i] = in.readFloat();
+        }
+        for (int i = 0; i < count; ++i) {
+          final int label = in.readInt();
+          if (starts[i] < end && ends[i] > start) {
+            consumer.accept(starts[i], ends[i], values[i], mLabels[label]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Report all the intervals of a sequence, in order of start position.
+   * @param sequence name of the sequence
+   * @param consumer receives the intervals
+   * @throws IOException if the track cannot be read
+   */
+  public void query(String sequence, IntervalConsumer consumer) throws IOException {
+    query(sequence, Integer.MIN_VALUE, Integer.MAX_VALUE, consumer);
+  }
+
+  /**
+   * Compute the mean coverage within fixed size bins along a sequence. When the bin size is a multiple of
+   * one of the precomputed zoom levels the result is derived from the zoom level alone, otherwise the
+   * intervals of the sequence are read.
+   * @param sequence name of the sequence
+   * @param binSize size of each bin
+   * @return the mean coverage of the bases covered by intervals within each bin, <code>NaN</code> for bins without any
+   * @throws IOException if the track cannot be read
+   */
+  public double[] binnedCoverage(String sequence, int binSize) throws IOException {
+    if (binSize <= 0) {
+      throw new IllegalArgumentException("Illegal bin size: " + binSize);
+    }
+    final SequenceIndex index = mSequences.get(sequence);
+    if (index == null) {
+      return new double[0];
+    }
+    final int bins = index.mLength == 0 ? 0 : (index.mLength - 1) / binSize + 1;
+    final double[] sums = new double[bins];
+    final long[] bases = new long[bins];
+    int level = -1;
+    for (int z = 0; z < mZoomBinSizes.length; ++z) {
+      if (binSize % mZoomBinSizes[z] == 0) {
+        level = z;
+      }
+    }
+    if (level >= 0) {
+      final int zoomBins = index.mZoomBins[level];
+      final int factor = binSize / mZoomBinSizes[level];
+      try (final DataInputStream in = read(index.mZoomOffsets[level], index.mZoomLengths[level], zoomBins * 12)) {
+        for (int i = 0; i < zoomBins; ++i) {
+          sums[i / factor] += in.readDouble();
+        }
+        for (int i = 0; i < zoomBins; ++i) {
+          bases[i / factor] += in.readInt();
+        }
+      }
+    } else {
+      // As for the zoom levels, bases covered by more than one interval are counted once
+      final int[] covered = {0};
+      query(sequence, (intervalStart, end, coverage, label) -> {
+        final int start = Math.max(intervalStart, covered[0]);
+        if (start < end) {
+          covered[0] = end;
+          for (int bin = start / binSize; bin <= (end - 1) / binSize; ++bin) {
+            final int overlap = Math.min(end, (bin + 1) * binSize) - Math.max(start, bin * binSize);
+            sums[bin] += coverage * overlap;
+            bases[bin] += overlap;
+          }
+        }
+      });
+    }
+    final double[] means = new double[bins];
+    for (int i = 0; i < bins; ++i) {
+      means[i] = bases[i] == 0 ? Double.NaN : sums[i] / bases[i];
+    }
+    return means;
+  }
+
+  // Read and decompress a section of the file
+  private DataInputStream read(long offset, int length, int uncompressedLength) throws IOException {
+    final byte[] compressed = new byte[length];
+    mIn.seek(offset);
+    mIn.readFully(compressed);
+    final byte[] data = new byte[uncompressedLength];
+    mInflater.reset();
+    mInflater.setInput(compressed);
+    try {
+      int pos = 0;
+      while (pos < data.length) {
+        final int n = mInflater.inflate(data, pos, data.length - pos);
+        if (n == 0 && (mInflater.finished() || mInflater.needsInput())) {
+          throw corrupt();
+        }
+        pos += n;
+      }
+    } catch (final DataFormatException e) {
+      throw corrupt();
+    }
+    return new DataInputStream(new ByteArrayInputStream(data));
+  }
+
+  @Override
+  public void close() throws IOException {
+    mInflater.end();
+    mIn.close();
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * Writes coverage as a binary track, an alternative to BED output that can be read with random access.
+ * <p>
+ * The track consists of a header, followed by blocks of coverage intervals for each sequence, each
+ * block holding columns of starts, lengths, coverage values and labels compressed together. After
+ * the blocks of a sequence come summaries of its coverage at a series of bin sizes (zoom levels),
+ * giving the total coverage and number of bases covered by intervals within each bin, where bases
+ * covered by more than one interval (as with overlapping regions) are counted once. At the end
+ * of the file is an index of the blocks and zoom levels for each sequence, followed by a footer
+ * giving the position of the index.
+ */
+public class CoverageTrackWriter extends CoverageProcessor {
+
+  static final byte[] MAGIC = "RTGCOVTR".getBytes(StandardCharsets.US_ASCII);
+  static final int VERSION = 1;
+
+  /** Size of the footer, the index position followed by the magic number */
+  static final int FOOTER_LENGTH = 8 + 8;
+
+  /** Maximum number of intervals held in each block */
+  static final int BLOCK_INTERVALS = 4096;
+
+  /** Bin sizes of the precomputed zoom levels, each a multiple of the previous one */
+  static final int[] ZOOM_BIN_SIZES = {1000, 10000, 100000, 1000000};
+
+  private final DataOutputStream mOut;
+  private final boolean mSort;
+  private final Deflater mDeflater = new Deflater();
+  private final Map<String, Integer> mLabels = new LinkedHashMap<>();
+  private final Set<String> mSeenSequences = new HashSet<>();
+  private final ByteArrayOutputStream mIndexBytes = new ByteArrayOutputStream();
+  private final DataOutputStream mIndex = new DataOutputStream(mIndexBytes);
+  private int mNumberSequences = 0;
+  private long mOffset = 0;
+  private int mLabel;
+
+  // Intervals of the current sequence not yet written to a block
+  private String mSequenceName = null;
+  private int[] mStarts = new int[BLOCK_INTERVALS];
+  private int[] mEnds = new int[BLOCK_INTERVALS];
+  private float[] mValues = new float[BLOCK_INTERVALS];
+  private int[] mLabelIds = new int[BLOCK_INTERVALS];
+  private int mSize = 0;
+  private int mSequenceLength = 0;
+
+  // Index entries for the blocks of the current sequence
+  private final ByteArrayOutputStream mBlockIndexBytes = new ByteArrayOutputStream();
+  private final DataOutputStream mBlockIndex = new DataOutputStream(mBlockIndexBytes);
+  private int mNumberBlocks = 0;
+
+  // Zoom level accumulators for the current sequence
+  private final double[][] mBinSums = new double[ZOOM_BIN_SIZES.length][];
+  private final int[][] mBinBases = new int[ZOOM_BIN_SIZES.length][];
+  private int mZoomEnd = 0;
+
+  /**
+   * Create a new coverage track writer
+   * @param params output options
+   * @throws IOException if there is a problem creating the output file
+   */
+  public CoverageTrackWriter(CoverageParams params) throws IOException {
+    this(params.trackFile(), params);
+  }
+
+  /**
+   * Create a new coverage track writer
+   * @param file destination file
+   * @param params output options
+   * @throws IOException if there is a problem creating the output file
+   */
+  public CoverageTrackWriter(File file, CoverageParams params) throws IOException {
+    this(new FileOutputStream(file), params);
+  }
+
+  CoverageTrackWriter(OutputStream out, CoverageParams params) {
+    mOut = new DataOutputStream(new BufferedOutputStream(out));
+    mSort = params.perRegion(); // Per-region can result in out-of-order records, so we need to sort
+    mLabel = labelId(CoverageBedWriter.DEFAULT_LABEL);
+    resetZoom();
+  }
+
+  @Override
+  public void init() throws IOException {
+    mOut.write(MAGIC);
+    mOut.writeInt(VERSION);
+    mOffset += MAGIC.length + 4;
+  }
+
+  @Override
+  public void setRegionLabel(String label) {
+    final String trimmed = label.trim();
+    mLabel = labelId(trimmed.length() == 0 ? CoverageBedWriter.DEFAULT_LABEL : trimmed);
+  }
+
+  @Override
+  public void finalCoverageRegion(String name, int start, int end, double coverage) throws IOException {
+    if (!name.equals(mSequenceName)) {
+      endSequence();
+      if (!mSeenSequences.add(name)) {
+        throw new IllegalStateException("Coverage for sequence " + name + " is not contiguous");
+      }
+      mSequenceName = name;
+    }
+    if (mSize == mStarts.length) {
+      if (mSort) {
+        grow();
+      } else {
+        writeBlock(0, mSize);
+        mSize = 0;
+      }
+    }
+    mStarts[mSize] = start;
+    mEnds[mSize] = end;
+    mValues[mSize] = (float) coverage;
+    mLabelIds[mSize] = mLabel;
+    ++mSize;
+    mSequenceLength = Math.max(mSequenceLength, end);
+    if (!mSort) {
+      addToZoom(start, end, coverage);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      endSequence();
+      final long indexOffset = mOffset;
+      mOut.writeInt(mLabels.size());
+      for (final String label : mLabels.keySet()) {
+        mOut.writeUTF(label);
+      }
+      mOut.writeInt(ZOOM_BIN_SIZES.length);
+      for (final int binSize : ZOOM_BIN_SIZES) {
+        mOut.writeInt(binSize);
+      }
+      mOut.writeInt(mNumberSequences);
+      mIndex.flush();
+      mIndexBytes.writeTo(mOut);
+      mOut.writeLong(indexOffset);
+      mOut.write(MAGIC);
+    } finally {
+      mDeflater.end();
+      mOut.close();
+    }
+  }
+
+  private int labelId(String label) {
+    return mLabels.computeIfAbsent(label, k -> mLabels.size());
+  }
+
+  private void grow() {
+    final int length = mStarts.length * 2;
+    mStarts = Arrays.copyOf(mStarts, length);
+    mEnds = Arrays.copyOf(mEnds, length);
+    mValues = Arrays.copyOf(mValues, length);
+    mLabelIds = Arrays.copyOf(mLabelIds, length);
+  }
+
+  // Intervals must be added in order of start position, any part already covered by an earlier interval is skipped
+  private void addToZoom(int intervalStart, int end, double coverage) {
+    final int start = Math.max(intervalStart, mZoomEnd);
+    if (start >= end) {
+      return;
+    }
+    mZoomEnd = end;
+    for (int z = 0; z < ZOOM_BIN_SIZES.length; ++z) {
+      final int binSize = ZOOM_BIN_SIZES[z];
+      final int lastBin = (end - 1) / binSize;
+      if (lastBin >= mBinSums[z].length) {
+        final int length = Math.max(lastBin + 1, mBinSums[z].length * 2);
+        mBinSums[z] = Arrays.copyOf(mBinSums[z], length);
+        mBinBases[z] = Arrays.copyOf(mBinBases[z], length);
+      }
+      for (int bin = start / binSize; bin <= lastBin; ++bin) {
+        final int bases = Math.min(end, (bin + 1) * binSize) - Math.max(start, bin * binSize);
+        mBinSums[z][bin] += coverage * bases;
+        mBinBases[z][bin] += bases;
+      }
+    }
+  }
+
+  private void resetZoom() {
+    for (int z = 0; z < ZOOM_BIN_SIZES.length; ++z) {
+      mBinSums[z] = new double[16];
+      mBinBases[z] = new int[16];
+    }
+    mZoomEnd = 0;
+  }
+
+  // Write out any remaining intervals and the zoom levels of the current sequence, and add it to the index
+  private void endSequence() throws IOException {
+    if (mSequenceName == null) {
+      return;
+    }
+    if (mSort) {
+      sortIntervals();
+      for (int i = 0; i < mSize; ++i) {
+        addToZoom(mStarts[i], mEnds[i], mValues[i]);
+      }
+    }
+    for (int i = 0; i < mSize; i += BLOCK_INTERVALS) {
+      writeBlock(i, Math.min(mSize, i + BLOCK_INTERVALS));
+    }
+    mIndex.writeUTF(mSequenceName);
+    mIndex.writeInt(mSequenceLength);
+    mIndex.writeInt(mNumberBlocks);
+    mBlockIndex.flush();
+    mBlockIndexBytes.writeTo(mIndex);
+    for (int z = 0; z < ZOOM_BIN_SIZES.length; ++z) {
+      final int bins = mSequenceLength == 0 ? 0 : (mSequenceLength - 1) / ZOOM_BIN_SIZES[z] + 1;
+      final ByteArrayOutputStream zoomBytes = new ByteArrayOutputStream();
+      try (final DataOutputStream zoom = new DataOutputStream(zoomBytes)) {
+        for (int bin = 0; bin < bins; ++bin) {
+          zoom.writeDouble(mBinSums[z][bin]);
+        }
+        for (int bin = 0; bin < bins; ++bin) {
+          zoom.writeInt(mBinBases[z][bin]);
+        }
+      }
+      final long offset = mOffset;
+      final int length = writeCompressed(zoomBytes.toByteArray());
+      mIndex.writeLong(offset);
+      mIndex.writeInt(length);
+      mIndex.writeInt(bins);
+    }
+    ++mNumberSequences;
+    mSequenceName = null;
+    mSize = 0;
+    mSequenceLength = 0;
+    mNumberBlocks = 0;
+    mBlockIndexBytes.reset();
+    resetZoom();
+  }
+
+  // Sort buffered intervals by start position, then end position
+  private void sortIntervals() {
+    final Integer[] order = new Integer[mSize];
+    for (int i = 0; i < mSize; ++i) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> mStarts[a] != mStarts[b] ? Integer.compare(mStarts[a], mStarts[b]) : Integer.compare(mEnds[a], mEnds[b]));
+    final int[] starts = new int[mStarts.length];
+    final int[] ends = new int[mEnds.length];
+    final float[] values = new float[mValues.length];
+    final int[] labels = new int[mLabelIds.length];
+    for (int i = 0; i < mSize; ++i) {
+      final int j = order[i];
+      starts[i] = mStarts[j];
+      ends[i] = mEnds[j];
+      values[i] = mValues[j];
+      labels[i] = mLabelIds[j];
+    }
+    mStarts = starts;
+    mEnds = ends;
+    mValues = values;
+    mLabelIds = labels;
+  }
+
+  // Write intervals [from, to) of the buffer as a block of columns, starts being delta encoded
+  private void writeBlock(int from, int to) throws IOException {
+    final int count = to - from;
+    final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(count * 16);
+    int maxEnd = 0;
+    try (final DataOutputStream block = new DataOutputStream(blockBytes)) {
+      int last = 0;
+      for (int i = from; i < to; ++i) {
+        block.writeInt(mStarts[i] - last);
+        last = mStarts[i];
+      }
+      for (int i = from; i < to; ++i) {
+        block.writeInt(mEnds[i] - mStarts[i]);
+        maxEnd = Math.max(maxEnd, mEnds[i]);
+      }
+      for (int i = from; i < to; ++i) {
+        block.writeFloat(mValues[i]);
+      }
+      for (int i = from; i < to; ++i) {
+        block.writeInt(mLabelIds[i]);
+      }
+    }
+    final long offset = mOffset;
+    final int length = writeCompressed(blockBytes.toByteArray());
+    mBlockIndex.writeInt(mStarts[from]);
+    mBlockIndex.writeInt(maxEnd);
+    mBlockIndex.writeLong(offset);
+    mBlockIndex.writeInt(length);
+    mBlockIndex.writeInt(count);
+    ++mNumberBlocks;
+  }
+
+  private int writeCompressed(byte[] data) throws IOException {
+    mDeflater.reset();
+    mDeflater.setInput(data);
+    mDeflater.finish();
+    final byte[] buf = new byte[Math.max(64, data.length / 2)];
+    int length = 0;
+    while (!mDeflater.finished()) {
+      final int n = mDeflater.deflate(buf);
+      mOut.write(buf, 0, n);
+      length += n;
+    }
+    mOffset += length;
+    return length;
+  }
+}
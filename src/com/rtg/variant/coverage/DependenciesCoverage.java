@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.rtg.scheduler.Dependencies;
+import com.rtg.scheduler.LookAhead;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.integrity.IntegralAbstract;
+
+/**
+ * Dependencies between the jobs computing coverage over the chunks of a reference sequence.
+ * <code>INCR</code> jobs accumulate the coverage of each chunk and are independent of each other.
+ * The <code>OUT</code> job at time <code>t</code> writes chunk <code>t - 1</code>, after the <code>OUT</code> job before it.
+ * It is given the chunk either side as well, since smoothing looks at coverage beyond the chunk being written.
+ */
+class DependenciesCoverage extends IntegralAbstract implements Dependencies<JobIdCoverage> {
+
+  private final int mNumberChunks;
+
+  private int mNext = 0;
+
+  /**
+   * @param numberChunks number of chunks.
+   */
+  DependenciesCoverage(final int numberChunks) {
+    mNumberChunks = numberChunks;
+  }
+
+  @Override
+  public int delta() {
+    return 1;
+  }
+
+  /**
+   * The arguments of an <code>OUT</code> job are the next chunk (null at the end), the chunk to be written,
+   * and the previously written chunk (null at the start).
+   */
+  @Override
+  public Collection<JobIdCoverage> from(final JobIdCoverage id) {
+    final List<JobIdCoverage> res = new ArrayList<>();
+    if (id.type() == CoverageJobType.OUT) {
+      final int time = id.time();
+      res.add(time < mNumberChunks ? new JobIdCoverage(time, CoverageJobType.INCR) : null);
+      res.add(new JobIdCoverage(time - 1, CoverageJobType.INCR));
+      res.add(time > 1 ? new JobIdCoverage(time - 1, CoverageJobType.OUT) : null);
+    }
+    return res;
+  }
+
+  @Override
+  public Collection<JobIdCoverage> to(final JobIdCoverage id) {
+    final List<JobIdCoverage> res = new ArrayList<>();
+    final int time = id.time();
+    if (id.type() == CoverageJobType.INCR && time > 0) {
+      res.add(new JobIdCoverage(time, CoverageJobType.OUT));
+    }
+    if (time < mNumberChunks) {
+      res.add(new JobIdCoverage(time + 1, CoverageJobType.OUT));
+    }
+    return res;
+  }
+
+  @Override
+  public JobIdCoverage next(LookAhead lookAhead) {
+    if (mNext >= mNumberChunks || !lookAhead.ok(mNext, 0)) {
+      return null;
+    }
+    return new JobIdCoverage(mNext++, CoverageJobType.INCR);
+  }
+
+  @Override
+  public boolean integrity() {
+    Exam.assertTrue(mNumberChunks > 0);
+    Exam.assertTrue(0 <= mNext && mNext <= mNumberChunks);
+    return true;
+  }
+}
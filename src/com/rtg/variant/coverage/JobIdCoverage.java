@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import com.rtg.scheduler.JobId;
+import com.rtg.scheduler.Result;
+import com.rtg.scheduler.enumtime.EnumTimeId;
+import com.rtg.util.integrity.Exam;
+
+/**
+ * Identifies a coverage job, ordered by time and then by type.
+ */
+class JobIdCoverage extends EnumTimeId<CoverageJobType> implements JobId<JobIdCoverage> {
+
+  /**
+   * @param time time of the job, chunk number for <code>INCR</code> jobs and one more than the chunk number for <code>OUT</code> jobs.
+   * @param type of the job.
+   */
+  JobIdCoverage(final int time, final CoverageJobType type) {
+    super(time, type);
+  }
+
+  @Override
+  public boolean validArguments(Result[] results) {
+    return type().validArguments(results);
+  }
+
+  @Override
+  public boolean validResult(Result result) {
+    return type().validResult(result);
+  }
+
+  @Override
+  public int compareTo(final JobIdCoverage that) {
+    final int c0 = this.time() - that.time();
+    if (c0 != 0) {
+      return c0;
+    }
+    return this.type().ordinal() - that.type().ordinal();
+  }
+
+  @Override
+  public boolean equals(Object arg0) {
+    return arg0 instanceof JobIdCoverage && 0 == compareTo((JobIdCoverage) arg0);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  @Override
+  public boolean integrity() {
+    super.integrity();
+    Exam.assertTrue(time() >= 0);
+    return true;
+  }
+}
@@ -12,6 +12,8 @@
 
 package com.rtg.variant.realign;
 
+import java.util.Arrays;
+
 import com.reeltwo.jumble.annotations.TestClass;
 import com.rtg.mode.DNA;
 import com.rtg.util.StringUtils;
@@ -79,9 +81,10 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
   protected double mDeleteStartPoss;
   protected double mMatchStartPoss;
 
-  private double[][] mMatch;  // Possibility values
-  private double[][] mInsert; // Possibility values
-  private double[][] mDelete; // Possibility values
+  // Flat row-major matrices, cell <code>(row, col)</code> is at <code>row * mMaxWidth + col</code>
+  double[] mMatch;  // Possibility values
+  double[] mInsert; // Possibility values
+  double[] mDelete; // Possibility values
 
   /**
    * Cumulative sums along the 'final' row (which is the first row for a reverse matrix).
@@ -148,9 +151,10 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
   void resizeMatrix(int length, int width) {
     mMaxLength = length;
     mMaxWidth = width;
-    mMatch = new double[mMaxLength + 1][mMaxWidth];
-    mInsert = new double[mMaxLength + 1][mMaxWidth];
-    mDelete = new double[mMaxLength + 1][mMaxWidth];
+    final int size = (mMaxLength + 1) * mMaxWidth;
+    mMatch = new double[size];
+    mInsert = new double[size];
+    mDelete = new double[size];
     mEndScores = new double[mMaxWidth];
   }
 
@@ -186,11 +190,11 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
   protected abstract void calculateProbabilities();
 
   protected final void calculateInitialRow(final int initRow, final double delete, final double match) {
-    for (int j = 0; j < mWidth; ++j) {
-      mDelete[initRow][j] = delete;
-      mMatch[initRow][j] = match;
-      mInsert[initRow][j] = mZeroPoss;
-    }
+    final int start = initRow * mMaxWidth;
+    final int end = start + mWidth;
+    Arrays.fill(mDelete, start, end, delete);
+    Arrays.fill(mMatch, start, end, match);
+    Arrays.fill(mInsert, start, end, mZeroPoss);
   }
 
   /**
@@ -269,12 +273,12 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
         ++fragTot;
       }
     }
-    double best = rescale(mArith.poss2Ln(mInsert[0][0]), 0);
+    double best = rescale(mArith.poss2Ln(insert(0, 0)), 0);
     for (int row = 0; row <= mLength; ++row) {
       for (int col = 0; col < mWidth; ++col) {
-        best = Math.max(best, rescale(mArith.poss2Ln(mInsert[row][col]), 0));
-        best = Math.max(best, rescale(mArith.poss2Ln(mMatch[row][col]), 0));
-        best = Math.max(best, rescale(mArith.poss2Ln(mDelete[row][col]), 0));
+        best = Math.max(best, rescale(mArith.poss2Ln(insert(row, col)), 0));
+        best = Math.max(best, rescale(mArith.poss2Ln(match(row, col)), 0));
+        best = Math.max(best, rescale(mArith.poss2Ln(delete(row, col)), 0));
       }
     }
     System.err.println("Best: " + best);
@@ -299,9 +303,9 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
       }
       for (int col = 0; col < mWidth; ++col) {
         ppmColor(sb,
-          rescale(mArith.poss2Ln(mInsert[row][col]), 0, best),
-          rescale(mArith.poss2Ln(mMatch[row][col]), 0, best),
-          rescale(mArith.poss2Ln(mDelete[row][col]), 0, best));
+          rescale(mArith.poss2Ln(insert(row, col)), 0, best),
+          rescale(mArith.poss2Ln(match(row, col)), 0, best),
+          rescale(mArith.poss2Ln(delete(row, col)), 0, best));
       }
       for (int i = rowOffset(row) - rowStart + mWidth; i < mLength + mWidth; ++i) {
         ppmColor(sb, 0, 0, 0);
@@ -378,9 +382,9 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
       }
       int bi = -1, bm = -1, bd = -1;
       for (int col = 0; col < mWidth; ++col) {
-        bi = update(itmp, mArith.poss2Ln(mInsert[row][col]), bi, col);
-        bm = update(mtmp, mArith.poss2Ln(mMatch[row][col]), bm, col);
-        bd = update(dtmp, mArith.poss2Ln(mDelete[row][col]), bd, col);
+        bi = update(itmp, mArith.poss2Ln(insert(row, col)), bi, col);
+        bm = update(mtmp, mArith.poss2Ln(match(row, col)), bm, col);
+        bd = update(dtmp, mArith.poss2Ln(delete(row, col)), bd, col);
       }
       for (int col = 0; col < mWidth; ++col) {
         sb.append(cell(dh, format(itmp[col]), col == bi, DisplayHelper.MAGENTA));
@@ -432,16 +436,12 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
   public boolean globalIntegrity() {
     integrity();
     for (int i = 0; i < mLength; ++i) {
-      // the three matrices have exactly the same shape.
-      Exam.assertEquals(mMaxWidth, mMatch[i].length);
-      Exam.assertEquals(mMaxWidth, mDelete[i].length);
-      Exam.assertEquals(mMaxWidth, mInsert[i].length);
       for (int j = 0; j < mWidth; ++j) {
-        final double vi = mInsert[i][j];
+        final double vi = insert(i, j);
         Exam.assertTrue("i=" + i + " j=" + j + " vi=" + vi, mArith.isValidPoss(vi));
-        final double vm = mMatch[i][j];
+        final double vm = match(i, j);
         Exam.assertTrue("i=" + i + " j=" + j + " vm=" + vm, mArith.isValidPoss(vm));
-        final double vd = mDelete[i][j];
+        final double vd = delete(i, j);
         Exam.assertTrue("i=" + i + " j=" + j + " vd=" + vd, mArith.isValidPoss(vd));
       }
     }
@@ -482,38 +482,39 @@ public abstract class AbstractAllPaths extends IntegralAbstract implements AllPa
       Exam.assertTrue(mWidth <= mMaxWidth);
       Exam.assertTrue(mLength <= mMaxLength);
       Exam.assertTrue(rowOffset(0) < rowOffset(mLength));
-      Exam.assertEquals(mMaxLength + 1, mMatch.length);
-      Exam.assertEquals(mMaxLength + 1, mDelete.length);
-      Exam.assertEquals(mMaxLength + 1, mInsert.length);
+      // the three matrices have exactly the same shape.
+      Exam.assertEquals((mMaxLength + 1) * mMaxWidth, mMatch.length);
+      Exam.assertEquals((mMaxLength + 1) * mMaxWidth, mDelete.length);
+      Exam.assertEquals((mMaxLength + 1) * mMaxWidth, mInsert.length);
       Exam.assertNotNull(mEnv);
     }
     return true;
   }
 
   final double insert(final int row, final int col) {
-    return mInsert[row][col];
+    return mInsert[row * mMaxWidth + col];
   }
 
   final void setInsert(final int row, final int col, final double poss) {
 //    assert !Double.isNaN(poss) && poss != Double.POSITIVE_INFINITY : poss + " @ " + row + ":" + col;
-    mInsert[row][col] = poss;
+    mInsert[row * mMaxWidth + col] = poss;
   }
 
   final double delete(final int row, final int col) {
-    return mDelete[row][col];
+    return mDelete[row * mMaxWidth + col];
   }
 
   final void setDelete(final int row, final int col, final double poss) {
 //    assert !Double.isNaN(poss) && poss != Double.POSITIVE_INFINITY : poss + " @ " + row + ":" + col;
-    mDelete[row][col] = poss;
+    mDelete[row * mMaxWidth + col] = poss;
   }
 
   final double match(final int row, final int col) {
-    return mMatch[row][col];
+    return mMatch[row * mMaxWidth + col];
   }
 
   final void setMatch(final int row, final int col, final double poss) {
 //    assert !Double.isNaN(poss) && poss != Double.POSITIVE_INFINITY : poss + " @ " + row + ":" + col;
-    mMatch[row][col] = poss;
+    mMatch[row * mMaxWidth + col] = poss;
   }
 }
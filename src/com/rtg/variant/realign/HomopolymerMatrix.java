@@ -67,6 +67,11 @@ public class HomopolymerMatrix extends ScoreMatrix {
     return (EnvironmentHomopolymer) mEnv;
   }
 
+  @Override
+  protected final boolean plainMatch() {
+    return false;
+  }
+
   @Override
   protected final void matchIt(final int i, final int j) {
     final int ti = templateIndex(i - 1, j);
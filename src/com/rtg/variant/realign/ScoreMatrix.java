@@ -12,7 +12,10 @@
 
 package com.rtg.variant.realign;
 
+import java.util.Arrays;
+
 import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
+import com.rtg.variant.util.arithmetic.SimplePossibility;
 
 
 /**
@@ -25,6 +28,9 @@ import com.rtg.variant.util.arithmetic.PossibilityArithmetic;
  */
 public class ScoreMatrix extends AbstractAllPaths {
 
+  /** Match/mismatch probabilities for the row currently being calculated by <code>calculateRowSimple</code>. */
+  private double[] mEqRow = null;
+
   /**
    * A score matrix with the given maximum band width.
    * @param arith helper object that does the arithmetic so that this code can be independent of the representation.
@@ -69,6 +75,10 @@ public class ScoreMatrix extends AbstractAllPaths {
   }
 
   protected final void calculateRow(final int i) {
+    if (mArith == SimplePossibility.SINGLETON && plainMatch()) {
+      calculateRowSimple(i);
+      return;
+    }
     for (int j = 0; j < mWidth; ++j) {
       setDelete(i, j, calculateDelete(i - 1, j + 1));
       matchIt(i, j);
@@ -80,6 +90,88 @@ public class ScoreMatrix extends AbstractAllPaths {
     setMatch(i, j, mArith.multiply(calculateMatch(i - 1, j), matchEq(i - 1, j)));
   }
 
+  /**
+   * @return true if <code>matchIt</code> is the plain transition into the match state (that is, it has not
+   * been overridden), so that rows can be calculated by <code>calculateRowSimple</code>.
+   */
+  protected boolean plainMatch() {
+    return true;
+  }
+
+  /**
+   * Equivalent to the general <code>calculateRow</code> when using <code>SimplePossibility</code>,
+   * but working directly on the flat matrices so that the inner loops are free of
+   * arithmetic dispatch and can be vectorised by the compiler. Each cell is computed by
+   * exactly the same sequence of double operations as the general version, so the results are identical.
+   * @param i one-based read position of the row to calculate
+   */
+  private void calculateRowSimple(final int i) {
+    final double[] match = mMatch;
+    final double[] delete = mDelete;
+    final double[] insert = mInsert;
+    final int width = mWidth;
+    final int prev = (i - 1) * mMaxWidth;
+    final int row = i * mMaxWidth;
+
+    // delete, from the previous row one column to the right
+    final double delExt = mDeleteExtendPoss;
+    final double delOpen = mDeleteOpenPoss;
+    final double oneInFour = mOneInFourPoss;
+    for (int j = 0; j < width - 1; ++j) {
+      delete[row + j] = (delExt * delete[prev + j + 1] + delOpen * match[prev + j + 1]) * oneInFour;
+    }
+    delete[row + width - 1] = mZeroPoss;
+
+    // match, from the previous row in the same column
+    final double[] eq = matchEqRow(i - 1);
+    final double oneMinusDelExt = mOneMinusDeleteExtendPoss;
+    final double oneMinusOpen = mOneMinusDeleteInsertOpenPoss;
+    final double oneMinusInsExt = mOneMinusInsertExtendPoss;
+    for (int j = 0; j < width; ++j) {
+      final int p = prev + j;
+      match[row + j] = (delete[p] * oneMinusDelExt + match[p] * oneMinusOpen + insert[p] * oneMinusInsExt) * eq[j];
+    }
+
+    // insert, from the previous column of this row
+    insert[row] = mZeroPoss;
+    if (i == mLength) {
+      for (int j = 1; j < width; ++j) {
+        insert[row + j] = mZeroPoss;
+      }
+    } else {
+      final double insExt = mInsertExtendPoss;
+      final double insOpen = mInsertOpenPoss;
+      for (int j = 1; j < width; ++j) {
+        insert[row + j] = insExt * insert[row + j - 1] + insOpen * match[row + j - 1];
+      }
+    }
+  }
+
+  /**
+   * Calculate <code>matchEq(i, j)</code> for all the columns of a row.
+   * @param i zero-based read position
+   * @return array of match/mismatch probabilities indexed by column
+   */
+  private double[] matchEqRow(final int i) {
+    if (mEqRow == null || mEqRow.length < mWidth) {
+      mEqRow = new double[mMaxWidth];
+    }
+    final double[] eq = mEqRow;
+    final byte re = mEnv.read(i);
+    if (re == 0) {
+      Arrays.fill(eq, 0, mWidth, mOneInFourPoss);
+      return eq;
+    }
+    final double same = matchEqTe(i, re);
+    final double different = matchEqTe(i, re == 1 ? (byte) 2 : (byte) 1);
+    final int start = templateIndex(i, 0);
+    for (int j = 0; j < mWidth; ++j) {
+      final byte te = mEnv.template(start + j);
+      eq[j] = te == 0 ? mOneInFourPoss : te == re ? same : different;
+    }
+    return eq;
+  }
+
   /**
    * Calculates <code>mEndScores</code>
    */
@@ -40,6 +40,7 @@ public class SvToolCli extends ParamsCli<SvToolParams> {
   private static final String FINE_STEP = "fine-step";
   private static final String CORRECTIONS_FLAG = "Xcorrections";
   private static final String HETEROZYGOUS_FLAG = "Xheterozygous";
+  private static final String WINDOW_SIZE_FLAG = "Xwindow-size";
 
   private static class SvToolValidator extends SvValidator {
 
@@ -64,6 +65,10 @@ public class SvToolCli extends ParamsCli<SvToolParams> {
         flags.setParseMessage("Parameter \"" + FINE_STEP + "\" should be smaller than or equal to parameter \"" + MapFlags.STEP_FLAG + "\"");
         return false;
       }
+      if (flags.isSet(WINDOW_SIZE_FLAG) && (Integer) flags.getValue(WINDOW_SIZE_FLAG) < 1) {
+        Diagnostic.error(ErrorType.EXPECTED_POSITIVE, WINDOW_SIZE_FLAG);
+        return false;
+      }
       return true;
     }
   }
@@ -91,6 +96,7 @@ public class SvToolCli extends ParamsCli<SvToolParams> {
     //X flags
     mFlags.registerOptional(HETEROZYGOUS_FLAG, "if set, also include heterozygous bayesian models").setCategory(INPUT_OUTPUT);
     mFlags.registerOptional(CORRECTIONS_FLAG, File.class, CommonFlags.FILE, "file containing per position corrections").setCategory(INPUT_OUTPUT);
+    mFlags.registerOptional(WINDOW_SIZE_FLAG, Integer.class, CommonFlags.INT, "if set, scan the reference in windows of this many bases in parallel").setCategory(SENSITIVITY_TUNING);
   }
 
   @Override
@@ -108,6 +114,8 @@ public class SvToolCli extends ParamsCli<SvToolParams> {
         .outputSimple(mFlags.isSet(SV_SIMPLE))
         .heterozygous(mFlags.isSet(HETEROZYGOUS_FLAG))
         .correctionsFile((File) mFlags.getValue(CORRECTIONS_FLAG))
+        .windowSize(mFlags.isSet(WINDOW_SIZE_FLAG) ? (Integer) mFlags.getValue(WINDOW_SIZE_FLAG) : 0)
+        .execThreads(CommonFlags.parseThreads((Integer) mFlags.getValue(CommonFlags.THREADS_FLAG)))
         .create();
   }
 
@@ -47,6 +47,7 @@ public final class SvToolParams extends SvParams {
     int mBinSize;
     int mStepSize;
     int mFineStepSize;
+    int mWindowSize;
 
     File mCorrectionsFile = null;
 
@@ -86,6 +87,17 @@ public final class SvToolParams extends SvParams {
       return self();
     }
 
+    /**
+     * Sets the size of the windows the templates are divided into, so that each window can be
+     * scanned on its own thread.
+     * @param windowSize number of nucleotides in each window, or 0 to scan each template as a whole
+     * @return this builder, so calls can be chained.
+     */
+    public SvToolParamsBuilder windowSize(int windowSize) {
+      mWindowSize = windowSize;
+      return self();
+    }
+
     /**
      * Sets the corrections file.
      * @param file the with a correction value at each position.
@@ -132,6 +144,7 @@ public final class SvToolParams extends SvParams {
   private final int mBinSize;
   private final int mStepSize;
   private final int mFineStepSize;
+  private final int mWindowSize;
 
   private final File mCorrectionsFile;
 
@@ -144,6 +157,7 @@ public final class SvToolParams extends SvParams {
     mBinSize = builder.mBinSize;
     mStepSize = builder.mStepSize;
     mFineStepSize = builder.mFineStepSize;
+    mWindowSize = builder.mWindowSize;
     mOutputSimple = builder.mOutputSimple;
     mHeterozygous = builder.mHeterozygous;
     mCorrectionsFile = builder.mCorrectionsFile;
@@ -170,6 +184,13 @@ public final class SvToolParams extends SvParams {
     return mFineStepSize;
   }
 
+  /**
+   * @return size of the windows scanned in parallel, or 0 if each template is scanned as a whole
+   */
+  public int windowSize() {
+    return mWindowSize;
+  }
+
   /**
    * @return the stream for writing the bayesian signals.
    * @throws IOException whenever.
@@ -207,7 +228,7 @@ public final class SvToolParams extends SvParams {
   public String toString() {
     final String pref = "    ";
     final StringBuilder sb = new StringBuilder();
-    sb.append("SvToolParams" + " mapped-reads=").append(mapped().toString()).append(" output-simple=").append(mOutputSimple).append(" heterozygous=").append(mHeterozygous).append(" bin-size=").append(mBinSize).append(" step-size=").append(mStepSize).append(" fine-step-size=").append(mFineStepSize).append(" correctionsFile=").append(mCorrectionsFile).append(LS);
+    sb.append("SvToolParams" + " mapped-reads=").append(mapped().toString()).append(" output-simple=").append(mOutputSimple).append(" heterozygous=").append(mHeterozygous).append(" bin-size=").append(mBinSize).append(" step-size=").append(mStepSize).append(" fine-step-size=").append(mFineStepSize).append(" window-size=").append(mWindowSize).append(" correctionsFile=").append(mCorrectionsFile).append(LS);
     sb.append(filterParams().toString()).append(LS);
     if (genome() != null) {
       sb.append(pref).append(genome().toString());
@@ -13,12 +13,21 @@ package com.rtg.variant.sv;
 
 import static com.rtg.util.StringUtils.TAB;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.rtg.launcher.NoStatistics;
 import com.rtg.sam.ReadGroupUtils;
@@ -45,11 +54,17 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
 
   private static final int MAX_WARNINGS = 5;
 
+  /** Number of windows per thread that may be in progress ahead of the window being written */
+  private static final int WINDOWS_PER_THREAD = 2;
+
+  /** Number of default steps scanned ahead of each window, so that the step size has settled before its first output */
+  static final int WARMUP_STEPS = 10;
+
   private final Map<String, String> mReadGroupLabels;
-  private final Map<String, ReadGroupState> mReadGroupStates;
+  private final Map<String, MachineType> mReadGroupMachineTypes;
 
-  private Signal[] mSimpleSignals;
-  private Signal[] mPosteriorSignals;
+  /** Scans the whole of each template when not using windows, also supplies the output column labels */
+  private SignalScanner mScanner;
 
   private OutputStream mSimpleOut;
   private OutputStream mBayesianOut;
@@ -59,22 +74,23 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
 
   /** The actual bytes of the current template. */
   private byte[] mTemplate;
-  private final SamCounts mTemplateNs = new CumulativeSamCounts(0, null);
-  private int mTemplatePos;
   private int mTemplateMin;
 
   private int mPreviousSam;
 
   private final int mDefaultStepSize;
   private final int mZoomedStepSize;
-  private int mCurrentStepSize;
-  private int mLastChange = -1;
-  private int mLastHypothesis;
-  private int mLastWrite = 0;
   private final Corrections mCorrections;
 
   private SvInterestingRegionExtractor mInterestingRegionExtractor;
 
+  private final int mWindowSize;
+  private ExecutorService mExecutor = null;
+  private int mMaxPendingWindows;
+  private int mNextWindowStart;
+  private final ArrayDeque<Window> mOpenWindows = new ArrayDeque<>();
+  private final ArrayDeque<Future<Window>> mPendingWindows = new ArrayDeque<>();
+
   protected SvToolTask(SvToolParams params, OutputStream defaultOutput) throws IOException {
     super(params, defaultOutput, new NoStatistics(), params.filterParams());
     if (mGenomeSequences == null) {
@@ -82,13 +98,12 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
     }
 
     mReadGroupLabels = params.readGroupLabels();
-    mReadGroupStates = new HashMap<>();
-
+    mReadGroupMachineTypes = new HashMap<>();
 
     mZoomedStepSize = mParams.fineStepSize();
     mDefaultStepSize = mParams.stepSize();
+    mWindowSize = mParams.windowSize();
 
-    mCurrentStepSize = mParams.stepSize();
     final File corr = mParams.correctionsFile();
     mCorrections = corr == null ? null : new Corrections(corr);
   }
@@ -122,8 +137,6 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
       rgMachineTypes.put(rgId, mt);
     }
 
-    final ReadGroupState[] states = new ReadGroupState[rgStats.size()];
-    int s = 0;
     int maxRadius = 0;
     for (final Map.Entry<String, ReadGroupStats> entry : rgStats.entrySet()) {
       final String key = entry.getKey();
@@ -131,85 +144,18 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
       if (machineType == null) {
         throw new NoTalkbackSlimException("Read group " + entry.getKey() + " not contained in SAM header.");
       }
-      final ReadGroupState s1 = new ReadGroupState(entry.getValue(), machineType, mCorrections);
-      maxRadius = Math.max(Math.max(maxRadius, s1.hi()), -s1.lo());
-      states[s++] = s1;
-      Diagnostic.userLog("Created read group state for read group: " + s1.stats().id() + " with machine type " + machineType);
-      mReadGroupStates.put(entry.getKey(), s1);
+      mReadGroupMachineTypes.put(key, machineType);
+      maxRadius = Math.max(Math.max(maxRadius, entry.getValue().hi()), -entry.getValue().lo());
     }
     mGlobalRadius = maxRadius + mDefaultStepSize;
     Diagnostic.developerLog("Setting global radius to " + mGlobalRadius);
 
-    if (mParams.outputSimple()) {
-      final int lo = -(mParams.binSize() / 2);
-      final int hi = (mParams.binSize() + 1) / 2;
-      assert hi - lo == mParams.binSize();
-      @SuppressWarnings("unchecked")
-      final ArrayList<Signal>[] simpleSubSignals = (ArrayList<Signal>[]) new ArrayList<?>[9];
-      for (int i = 0; i < simpleSubSignals.length; ++i) {
-        simpleSubSignals[i] = new ArrayList<>();
-      }
-      for (final ReadGroupState rgs : states) {
-        simpleSubSignals[0].add(new SignalCount(rgs.properLeftArm(false), lo, hi, "proper-left"));
-        simpleSubSignals[1].add(new SignalCount(rgs.discordantLeftArm(false), lo, hi, "discordant-left"));
-        simpleSubSignals[2].add(new SignalCount(rgs.unmatedLeftArm(false), lo, hi, "unmated-left"));
-        simpleSubSignals[3].add(new SignalCount(rgs.properRightArm(false), lo, hi, "proper-right"));
-        simpleSubSignals[4].add(new SignalCount(rgs.discordantRightArm(false), lo, hi, "discordant-right"));
-        simpleSubSignals[5].add(new SignalCount(rgs.unmatedRightArm(false), lo, hi, "unmated-right"));
-        simpleSubSignals[6].add(new SignalCount(rgs.notPaired(), lo, hi, "not-paired"));
-        simpleSubSignals[7].add(new SignalCount(rgs.unique(), lo, hi, "unique"));
-        simpleSubSignals[8].add(new SignalCount(rgs.ambiguous(), lo, hi, "ambiguous"));
-      }
-      mSimpleSignals = new Signal[] {
-          new SignalSum("proper-left",      getSignals(simpleSubSignals[0])),
-          new SignalSum("discordant-left",  getSignals(simpleSubSignals[1])),
-          new SignalSum("unmated-left",     getSignals(simpleSubSignals[2])),
-          new SignalSum("proper-right",     getSignals(simpleSubSignals[3])),
-          new SignalSum("discordant-right", getSignals(simpleSubSignals[4])),
-          new SignalSum("unmated-right",    getSignals(simpleSubSignals[5])),
-          new SignalSum("not-paired",       getSignals(simpleSubSignals[6])),
-          new SignalSum("unique",           getSignals(simpleSubSignals[7])),
-          new SignalSum("ambiguous",        getSignals(simpleSubSignals[8])),
-      };
-    } else {
-      mSimpleSignals = null;
-    }
-
-
-    final ArrayList<Signal> ps = new ArrayList<>();
-
-    // Normal diploid type coverage signals
-    ps.add(new NormalBayesianSignal(2).makeSignal(states, false, "normal"));
-
-    // Homozygous models
-    ps.add(new NormalBayesianSignal(4).makeSignal(states, false, "duplicate"));
-    ps.add(new NormalBayesianSignal(0).makeSignal(states, false, "delete"));
-    ps.add(new DeleteBoundaryBayesianSignal().makeSignal(states, false, "delete-left"));
-    ps.add(new DeleteBoundaryBayesianSignal().makeSignal(states, true, "delete-right"));
-    ps.add(new DuplicateDonorBayesianSignal().makeSignal(states, false, "duplicate-left"));
-    ps.add(new DuplicateDonorBayesianSignal().makeSignal(states, true, "duplicate-right"));
-    ps.add(new BreakpointBayesianSignal().makeSignal(states, false, "breakpoint"));
-    ps.add(new NovelInsertionBayesianSignal().makeSignal(states, true, "novel-insertion"));
-
-    if (mParams.heterozygous()) {
-      final NormalBayesianSignal diploidNorm = new NormalBayesianSignal(2);
-      // Heterozygous models
-      ps.add(new NormalBayesianSignal(3).makeSignal(states, false, "duplicate-hetero"));
-      ps.add(new NormalBayesianSignal(1).makeSignal(states, false, "delete-hetero"));
-      ps.add(new HeterozygousBayesianSignal(diploidNorm, new DeleteBoundaryBayesianSignal()).makeSignal(states, false, "delete-left-hetero"));
-      ps.add(new HeterozygousBayesianSignal(diploidNorm, new DeleteBoundaryBayesianSignal()).makeSignal(states, true, "delete-right-hetero"));
-      ps.add(new HeterozygousBayesianSignal(diploidNorm, new DuplicateDonorBayesianSignal()).makeSignal(states, false, "duplicate-left-hetero"));
-      ps.add(new HeterozygousBayesianSignal(diploidNorm, new DuplicateDonorBayesianSignal()).makeSignal(states, true, "duplicate-right-hetero"));
-      ps.add(new HeterozygousBayesianSignal(diploidNorm, new BreakpointBayesianSignal()).makeSignal(states, false, "breakpoint-hetero"));
-      ps.add(new HeterozygousBayesianSignal(diploidNorm, new NovelInsertionBayesianSignal()).makeSignal(states, true, "novel-insertion-hetero"));
-    }
-
-    mPosteriorSignals = ps.toArray(new Signal[ps.size()]);
+    mScanner = new SignalScanner(mSimpleOut, mBayesianOut, null, 0, true);
 
     if (mParams.outputSimple()) {
-      writeHeader(mSimpleOut, "simple", mSimpleSignals, "n-count");
+      writeHeader(mSimpleOut, "simple", mScanner.mSimpleSignals, "n-count");
     }
-    writeHeader(mBayesianOut, "bayesian", mPosteriorSignals, "max-index");
+    writeHeader(mBayesianOut, "bayesian", mScanner.mPosteriorSignals, "max-index");
   }
 
   private Signal[] getSignals(ArrayList<Signal> list) {
@@ -233,132 +179,431 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
 
   @Override
   public int flush(final int start, final int last) throws IOException {
+    if (mWindowSize > 0) {
+      finishTemplate();
+      return last;
+    }
     assert 0 <= start;
     assert start < last;
+    mScanner.scan(start, last);
+    return last;
+  }
+
+  private static int maxIndex(double[] arr) {
+    double max = Double.NEGATIVE_INFINITY;
+    int maxIndex = 0;
+    for (int i = 0; i < arr.length; ++i) {
+      if (arr[i] > max) {
+        max = arr[i];
+        maxIndex = i;
+      }
+    }
+    return maxIndex;
+  }
+
+  /** A Bayesian value passed on to the interesting region extractor once its window is written */
+  private static final class ScanValue {
+    private final int mPosition;
+    private final double[] mValues;
+    private final int mMaxIndex;
 
-    // Ensure mTemplateNs is appropriately populated
-    if (mTemplatePos < start - mGlobalRadius) {
-      mTemplatePos = start - mGlobalRadius;
-      mTemplateNs.flushTo(mTemplatePos);
+    ScanValue(int position, double[] values, int maxIndex) {
+      mPosition = position;
+      mValues = values;
+      mMaxIndex = maxIndex;
     }
+  }
+
+  /**
+   * Holds the read group counts and signals for a stretch of template, and steps along it
+   * writing the signal values, using the fine step size around changes in the best hypothesis.
+   */
+  private final class SignalScanner {
+    private final Map<String, ReadGroupState> mReadGroupStates = new HashMap<>();
+    private final Signal[] mSimpleSignals;
+    private final Signal[] mPosteriorSignals;
+    private final SamCounts mTemplateNs = new CumulativeSamCounts(0, null);
+    private final OutputStream mSimple;
+    private final OutputStream mBayesian;
+    private final List<ScanValue> mValues;
+    private final int mOutputStart;
+
+    private String mName;
+    private byte[] mBases;
+    private int mLength;
+    private int mTemplatePos;
+
+    private int mCurrentStepSize = mDefaultStepSize;
+    private int mLastChange = -1;
+    private int mLastHypothesis;
+    private int mLastWrite = 0;
+
+    /**
+     * @param simple destination for simple signals, may be null if these are not being output.
+     * @param bayesian destination for Bayesian signals.
+     * @param values if non null, collects values for the interesting region extractor rather than passing them on directly.
+     * @param outputStart positions before this are scanned but not written.
+     * @param log true if the creation of read group states should be logged.
+     */
+    SignalScanner(OutputStream simple, OutputStream bayesian, List<ScanValue> values, int outputStart, boolean log) {
+      mSimple = simple;
+      mBayesian = bayesian;
+      mValues = values;
+      mOutputStart = outputStart;
+      final Map<String, ReadGroupStats> rgStats = mParams.readGroupStatistics();
+      final ReadGroupState[] states = new ReadGroupState[rgStats.size()];
+      int s = 0;
+      for (final Map.Entry<String, ReadGroupStats> entry : rgStats.entrySet()) {
+        final MachineType machineType = mReadGroupMachineTypes.get(entry.getKey());
+        final ReadGroupState s1 = new ReadGroupState(entry.getValue(), machineType, mCorrections);
+        states[s++] = s1;
+        if (log) {
+          Diagnostic.userLog("Created read group state for read group: " + s1.stats().id() + " with machine type " + machineType);
+        }
+        mReadGroupStates.put(entry.getKey(), s1);
+      }
 
-    int backStepFrom = -1;
-    for (int i = start; i < last; ++i) {
-      while (mTemplatePos < Math.min(i + mGlobalRadius, mTemplateLength)) {
-        if (mTemplate[mTemplatePos] == 0) {
-          mTemplateNs.increment(mTemplatePos);
+      if (mParams.outputSimple()) {
+        final int lo = -(mParams.binSize() / 2);
+        final int hi = (mParams.binSize() + 1) / 2;
+        assert hi - lo == mParams.binSize();
+        @SuppressWarnings("unchecked")
+        final ArrayList<Signal>[] simpleSubSignals = (ArrayList<Signal>[]) new ArrayList<?>[9];
+        for (int i = 0; i < simpleSubSignals.length; ++i) {
+          simpleSubSignals[i] = new ArrayList<>();
         }
-        ++mTemplatePos;
+        for (final ReadGroupState rgs : states) {
+          simpleSubSignals[0].add(new SignalCount(rgs.properLeftArm(false), lo, hi, "proper-left"));
+          simpleSubSignals[1].add(new SignalCount(rgs.discordantLeftArm(false), lo, hi, "discordant-left"));
+          simpleSubSignals[2].add(new SignalCount(rgs.unmatedLeftArm(false), lo, hi, "unmated-left"));
+          simpleSubSignals[3].add(new SignalCount(rgs.properRightArm(false), lo, hi, "proper-right"));
+          simpleSubSignals[4].add(new SignalCount(rgs.discordantRightArm(false), lo, hi, "discordant-right"));
+          simpleSubSignals[5].add(new SignalCount(rgs.unmatedRightArm(false), lo, hi, "unmated-right"));
+          simpleSubSignals[6].add(new SignalCount(rgs.notPaired(), lo, hi, "not-paired"));
+          simpleSubSignals[7].add(new SignalCount(rgs.unique(), lo, hi, "unique"));
+          simpleSubSignals[8].add(new SignalCount(rgs.ambiguous(), lo, hi, "ambiguous"));
+        }
+        mSimpleSignals = new Signal[] {
+            new SignalSum("proper-left",      getSignals(simpleSubSignals[0])),
+            new SignalSum("discordant-left",  getSignals(simpleSubSignals[1])),
+            new SignalSum("unmated-left",     getSignals(simpleSubSignals[2])),
+            new SignalSum("proper-right",     getSignals(simpleSubSignals[3])),
+            new SignalSum("discordant-right", getSignals(simpleSubSignals[4])),
+            new SignalSum("unmated-right",    getSignals(simpleSubSignals[5])),
+            new SignalSum("not-paired",       getSignals(simpleSubSignals[6])),
+            new SignalSum("unique",           getSignals(simpleSubSignals[7])),
+            new SignalSum("ambiguous",        getSignals(simpleSubSignals[8])),
+        };
+      } else {
+        mSimpleSignals = null;
+      }
+
+
+      final ArrayList<Signal> ps = new ArrayList<>();
+
+      // Normal diploid type coverage signals
+      ps.add(new NormalBayesianSignal(2).makeSignal(states, false, "normal"));
+
+      // Homozygous models
+      ps.add(new NormalBayesianSignal(4).makeSignal(states, false, "duplicate"));
+      ps.add(new NormalBayesianSignal(0).makeSignal(states, false, "delete"));
+      ps.add(new DeleteBoundaryBayesianSignal().makeSignal(states, false, "delete-left"));
+      ps.add(new DeleteBoundaryBayesianSignal().makeSignal(states, true, "delete-right"));
+      ps.add(new DuplicateDonorBayesianSignal().makeSignal(states, false, "duplicate-left"));
+      ps.add(new DuplicateDonorBayesianSignal().makeSignal(states, true, "duplicate-right"));
+      ps.add(new BreakpointBayesianSignal().makeSignal(states, false, "breakpoint"));
+      ps.add(new NovelInsertionBayesianSignal().makeSignal(states, true, "novel-insertion"));
+
+      if (mParams.heterozygous()) {
+        final NormalBayesianSignal diploidNorm = new NormalBayesianSignal(2);
+        // Heterozygous models
+        ps.add(new NormalBayesianSignal(3).makeSignal(states, false, "duplicate-hetero"));
+        ps.add(new NormalBayesianSignal(1).makeSignal(states, false, "delete-hetero"));
+        ps.add(new HeterozygousBayesianSignal(diploidNorm, new DeleteBoundaryBayesianSignal()).makeSignal(states, false, "delete-left-hetero"));
+        ps.add(new HeterozygousBayesianSignal(diploidNorm, new DeleteBoundaryBayesianSignal()).makeSignal(states, true, "delete-right-hetero"));
+        ps.add(new HeterozygousBayesianSignal(diploidNorm, new DuplicateDonorBayesianSignal()).makeSignal(states, false, "duplicate-left-hetero"));
+        ps.add(new HeterozygousBayesianSignal(diploidNorm, new DuplicateDonorBayesianSignal()).makeSignal(states, true, "duplicate-right-hetero"));
+        ps.add(new HeterozygousBayesianSignal(diploidNorm, new BreakpointBayesianSignal()).makeSignal(states, false, "breakpoint-hetero"));
+        ps.add(new HeterozygousBayesianSignal(diploidNorm, new NovelInsertionBayesianSignal()).makeSignal(states, true, "novel-insertion-hetero"));
       }
-      if (i % mCurrentStepSize == 0) {
-        final double nCount = mTemplateNs.count(i, -mGlobalRadius, mGlobalRadius);
-        final double[] simple;
-        if (mParams.outputSimple()) {
-          simple = new double[mSimpleSignals.length + 1]; // Add 1 for n-count
-          for (int s = 0; s < mSimpleSignals.length; ++s) {
-            final Signal sig = mSimpleSignals[s];
-            simple[s] = sig.value(i);
+
+      mPosteriorSignals = ps.toArray(new Signal[ps.size()]);
+    }
+
+    ReadGroupState state(String label) {
+      return mReadGroupStates.get(label);
+    }
+
+    /**
+     * Start scanning a template.
+     * @param name name of the template.
+     * @param bases the bases of the template.
+     * @param length position at which scanning the template stops.
+     * @param start first position to be scanned.
+     */
+    void setTemplate(String name, byte[] bases, int length, int start) {
+      mName = name;
+      mBases = bases;
+      mLength = length;
+      mTemplatePos = start;
+      mLastWrite = start;
+      mTemplateNs.reset(mLength, (mGlobalRadius + 1) * 2);
+      for (final ReadGroupState state : mReadGroupStates.values()) {
+        state.reset(mLength, (mGlobalRadius + 1) * 2);
+      }
+      if (start - mGlobalRadius > 0) {
+        flushStates(start - mGlobalRadius);
+      }
+    }
+
+    /**
+     * Scan a range of positions, all records starting before <code>last + mGlobalRadius</code> must have been added.
+     * @param start first position to be scanned.
+     * @param last one past the last position to be scanned.
+     * @throws IOException if an I/O error occurs.
+     */
+    void scan(final int start, final int last) throws IOException {
+      // Ensure mTemplateNs is appropriately populated
+      if (mTemplatePos < start - mGlobalRadius) {
+        mTemplatePos = start - mGlobalRadius;
+        mTemplateNs.flushTo(mTemplatePos);
+      }
+
+      int backStepFrom = -1;
+      for (int i = start; i < last; ++i) {
+        while (mTemplatePos < Math.min(i + mGlobalRadius, mLength)) {
+          if (mBases[mTemplatePos] == 0) {
+            mTemplateNs.increment(mTemplatePos);
           }
-          simple[simple.length - 1] = nCount;
-        } else {
-          simple = null;
+          ++mTemplatePos;
         }
-        final double[] norm = normalizedBayes(i);
-        final int bestHypothesis = maxIndex(norm);
-        if (bestHypothesis != mLastHypothesis) {
-          if (mCurrentStepSize > mZoomedStepSize) {
-            // We need to step backwards and examine more closely
-            backStepFrom = i;
-            i = Math.max(i - mDefaultStepSize, mLastWrite); //don't jump before 0
-            //System.err.println("backStep from:" + backStepFrom + " to: " + i);
-            mCurrentStepSize = mZoomedStepSize;
+        if (i % mCurrentStepSize == 0) {
+          final double nCount = mTemplateNs.count(i, -mGlobalRadius, mGlobalRadius);
+          final double[] simple;
+          if (mParams.outputSimple()) {
+            simple = new double[mSimpleSignals.length + 1]; // Add 1 for n-count
+            for (int s = 0; s < mSimpleSignals.length; ++s) {
+              final Signal sig = mSimpleSignals[s];
+              simple[s] = sig.value(i);
+            }
+            simple[simple.length - 1] = nCount;
+          } else {
+            simple = null;
+          }
+          final double[] norm = normalizedBayes(i);
+          final int bestHypothesis = maxIndex(norm);
+          if (bestHypothesis != mLastHypothesis) {
+            if (mCurrentStepSize > mZoomedStepSize) {
+              // We need to step backwards and examine more closely
+              backStepFrom = i;
+              i = Math.max(i - mDefaultStepSize, mLastWrite); //don't jump before 0
+              //System.err.println("backStep from:" + backStepFrom + " to: " + i);
+              mCurrentStepSize = mZoomedStepSize;
+              mLastChange = i;
+              continue;
+            }
+            // We're already zoomed so proceed remembering where we last changed
             mLastChange = i;
-            continue;
+          } else if (mLastChange < i - mDefaultStepSize - 1 && mCurrentStepSize < mDefaultStepSize) {
+            // we've consumed a big step size without changing the best
+            // hypothesis so go back to large jumps
+            mCurrentStepSize = mDefaultStepSize;
           }
-          // We're already zoomed so proceed remembering where we last changed
-          mLastChange = i;
-        } else if (mLastChange < i - mDefaultStepSize - 1 && mCurrentStepSize < mDefaultStepSize) {
-          // we've consumed a big step size without changing the best
-          // hypothesis so go back to large jumps
-          mCurrentStepSize = mDefaultStepSize;
-        }
 
-        final boolean inN = nCount > mGlobalRadius; // 50% N's
-        mLastHypothesis = bestHypothesis;
-        if (!inN) {
-          writeValues(mBayesianOut, i, norm, true);
+          final boolean inN = nCount > mGlobalRadius; // 50% N's
+          mLastHypothesis = bestHypothesis;
+          if (i >= mOutputStart) {
+            if (!inN) {
+              writeValues(mBayesian, i, norm, true);
+            }
+            if (simple != null) {
+              writeValues(mSimple, i, simple, false);
+            }
+          }
+          mLastWrite = i;
         }
-        mLastWrite = i;
-        if (simple != null) {
-          writeValues(mSimpleOut, i, simple, false);
+        if (i >= backStepFrom) {
+          // We don't want to flush things that are ahead of us on a backstep
+          flushStates(i - mGlobalRadius);
         }
       }
-      if (i >= backStepFrom) {
-        // We don't want to flush things that are ahead of us on a backstep
-        flushStates(i - mGlobalRadius);
+    }
+
+    private void flushStates(int offset) {
+      if (offset >= 0) {
+        mTemplateNs.flushTo(offset);
+        for (final ReadGroupState state : mReadGroupStates.values()) {
+          state.flushTo(offset);
+        }
       }
     }
-    return last;
-  }
 
-  private static int maxIndex(double[] arr) {
-    double max = Double.NEGATIVE_INFINITY;
-    int maxIndex = 0;
-    for (int i = 0; i < arr.length; ++i) {
-      if (arr[i] > max) {
-        max = arr[i];
-        maxIndex = i;
+    private void writeValues(OutputStream out, int zeroBasedPosition, double[] values, boolean addMax) throws IOException {
+      out.write(mName.getBytes());
+      out.write(TAB.getBytes());
+      out.write(("" + (zeroBasedPosition + 1)).getBytes());
+      for (final double value : values) {
+        out.write(TAB.getBytes());
+        out.write(Utils.realFormat(value, 4).getBytes());
+      }
+      if (addMax) {
+        out.write(TAB.getBytes());
+        final int maxIndex = maxIndex(values);
+        out.write(Integer.toString(maxIndex).getBytes());
+        if (mValues == null) {
+          mInterestingRegionExtractor.processValue(zeroBasedPosition + 1, values, maxIndex);
+        } else {
+          mValues.add(new ScanValue(zeroBasedPosition + 1, values, maxIndex));
+        }
       }
+      out.write(StringUtils.LS.getBytes());
+    }
+
+    private double[] normalizedBayes(final int position) {
+      final double[] posterior = new double[mPosteriorSignals.length];
+      for (int i = 0; i < mPosteriorSignals.length; ++i) {
+        posterior[i] = mPosteriorSignals[i].value(position);
+      }
+      if (posterior.length == 1) {
+        return posterior; /// Just here for debugninn
+      }
+      return normalize(posterior);
     }
-    return maxIndex;
   }
 
+  /**
+   * A window of a template whose signals are computed independently of the rest, on its own copy
+   * of the read group counts. Scanning starts a little before the window, so that the step size
+   * has settled by the time output starts.
+   */
+  private final class Window implements Callable<Window> {
+    private final String mName;
+    private final byte[] mBases;
+    private final int mLength;
+    private final int mScanStart;
+    private final int mStart;
+    private final int mEnd;
+    private final ArrayList<SAMRecord> mRecords = new ArrayList<>();
+    private final ArrayList<String> mLabels = new ArrayList<>();
+    private final ByteArrayOutputStream mSimpleBytes;
+    private final ByteArrayOutputStream mBayesianBytes = new ByteArrayOutputStream();
+    private final ArrayList<ScanValue> mValues = new ArrayList<>();
+
+    Window(int scanStart, int start, int end) {
+      mName = mTemplateName;
+      mBases = mTemplate;
+      mLength = mTemplateLength;
+      mScanStart = scanStart;
+      mStart = start;
+      mEnd = end;
+      mSimpleBytes = mParams.outputSimple() ? new ByteArrayOutputStream() : null;
+    }
 
-  private void resetStates(int start) {
-    mTemplateNs.reset(mTemplateLength, (mGlobalRadius + 1) * 2);
-    for (final ReadGroupState state : mReadGroupStates.values()) {
-      state.reset(mTemplateLength, (mGlobalRadius + 1) * 2);
+    // Records starting from here may contribute to a scanned position
+    int recordStart() {
+      return mScanStart - mGlobalRadius;
     }
-    if (start - mGlobalRadius > 0) {
-      flushStates(start - mGlobalRadius);
+
+    // Records starting from here are beyond every scanned position
+    int recordEnd() {
+      return mEnd + mGlobalRadius;
     }
-  }
-  private void flushStates(int offset) {
-    if (offset >= 0) {
-      mTemplateNs.flushTo(offset);
-      for (final ReadGroupState state : mReadGroupStates.values()) {
-        state.flushTo(offset);
+
+    void add(SAMRecord rec, String label) {
+      mRecords.add(rec);
+      mLabels.add(label);
+    }
+
+    @Override
+    public Window call() throws IOException {
+      final SignalScanner scanner = new SignalScanner(mSimpleBytes, mBayesianBytes, mValues, mStart, false);
+      scanner.setTemplate(mName, mBases, mLength, mScanStart);
+      int previous = mScanStart;
+      for (int k = 0; k < mRecords.size(); ++k) {
+        final SAMRecord rec = mRecords.get(k);
+        final int start = rec.getAlignmentStart() - 1;
+        if (start - mGlobalRadius > previous) {
+          scanner.scan(previous, start - mGlobalRadius);
+          previous = start - mGlobalRadius;
+        }
+        scanner.state(mLabels.get(k)).update(rec);
+      }
+      if (previous < mEnd) {
+        scanner.scan(previous, mEnd);
       }
+      mRecords.clear();
+      mLabels.clear();
+      return this;
+    }
+  }
+
+  // Pass a record to each window it can contribute to, submitting windows that are complete
+  private void addToWindows(SAMRecord rec, String label, int start) throws IOException {
+    while (mNextWindowStart < mTemplateLength && start >= windowScanStart(mNextWindowStart) - mGlobalRadius) {
+      openWindow();
+    }
+    while (!mOpenWindows.isEmpty() && start >= mOpenWindows.peekFirst().recordEnd()) {
+      submitWindow(mOpenWindows.pollFirst());
+    }
+    for (final Window window : mOpenWindows) {
+      assert start >= window.recordStart();
+      window.add(rec, label);
     }
   }
 
+  private int windowScanStart(int start) {
+    return Math.max(mTemplateMin, start - mGlobalRadius - WARMUP_STEPS * mDefaultStepSize);
+  }
 
-  private void writeValues(OutputStream out, int zeroBasedPosition, double[] values, boolean addMax) throws IOException {
-    out.write(mTemplateName.getBytes());
-    out.write(TAB.getBytes());
-    out.write(("" + (zeroBasedPosition + 1)).getBytes());
-    for (final double value : values) {
-      out.write(TAB.getBytes());
-      out.write(Utils.realFormat(value, 4).getBytes());
+  private void openWindow() {
+    final int start = mNextWindowStart;
+    final int end = (int) Math.min((long) start + mWindowSize, mTemplateLength);
+    mOpenWindows.add(new Window(windowScanStart(start), start, end));
+    mNextWindowStart = end;
+  }
+
+  private void submitWindow(Window window) throws IOException {
+    if (mPendingWindows.size() >= mMaxPendingWindows) {
+      writeNextWindow();
     }
-    if (addMax) {
-      out.write(TAB.getBytes());
-      final int maxIndex = maxIndex(values);
-      out.write(Integer.toString(maxIndex).getBytes());
-      mInterestingRegionExtractor.processValue(zeroBasedPosition + 1, values, maxIndex);
+    mPendingWindows.add(mExecutor.submit(window));
+  }
+
+  private void writeNextWindow() throws IOException {
+    final Window window;
+    try {
+      window = mPendingWindows.poll().get();
+    } catch (final InterruptedException e) {
+      throw new InterruptedIOException(e.getMessage());
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    }
+    if (window.mSimpleBytes != null) {
+      window.mSimpleBytes.writeTo(mSimpleOut);
+    }
+    window.mBayesianBytes.writeTo(mBayesianOut);
+    for (final ScanValue value : window.mValues) {
+      mInterestingRegionExtractor.processValue(value.mPosition, value.mValues, value.mMaxIndex);
     }
-    out.write(StringUtils.LS.getBytes());
   }
 
-  private double[] normalizedBayes(final int position) {
-    final double[] posterior = new double[mPosteriorSignals.length];
-    for (int i = 0; i < mPosteriorSignals.length; ++i) {
-      posterior[i] = mPosteriorSignals[i].value(position);
+  // Scan and write the remainder of the current template
+  private void finishTemplate() throws IOException {
+    while (mNextWindowStart < mTemplateLength) {
+      openWindow();
     }
-    if (posterior.length == 1) {
-      return posterior; /// Just here for debugninn
+    while (!mOpenWindows.isEmpty()) {
+      submitWindow(mOpenWindows.pollFirst());
+    }
+    while (!mPendingWindows.isEmpty()) {
+      writeNextWindow();
     }
-    return normalize(posterior);
   }
 
   static double[] normalize(final double[] logValues) {
@@ -426,10 +671,9 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
       mInterestingRegionExtractor.setTemplate(refName, templateLength);
       mTemplate = mGenomeSequences.read(templateId);
       mTemplateName = refName;
-      mTemplatePos = mTemplateMin;
-      mLastWrite = mTemplateMin;
       mPreviousStart = mTemplateMin;
-      resetStates(mTemplateMin);
+      mNextWindowStart = mTemplateMin;
+      mScanner.setTemplate(mTemplateName, mTemplate, mTemplateLength, mTemplateMin);
     } else {
       if (start < mPreviousSam) {
         throw new NoTalkbackSlimException(ErrorType.SAM_NOT_SORTED);
@@ -444,12 +688,23 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
       return false;
     }
 
+    if (mWindowSize > 0) {
+      final String label = getReadGroupLabel(rec);
+      if (mScanner.state(label) == null) {
+        warnRgMismatch(rec);
+        return false;
+      }
+      // Records are handed to other threads, the attributes and cigar have already been decoded here
+      addToWindows(rec, label, start);
+      return true;
+    }
+
     if (start - mGlobalRadius > mPreviousStart) {
       flush(mPreviousStart, start - mGlobalRadius);
       mPreviousStart = start - mGlobalRadius;
     }
 
-    final ReadGroupState rgstate = getState(rec);
+    final ReadGroupState rgstate = mScanner.state(getReadGroupLabel(rec));
     if (rgstate == null) {
       warnRgMismatch(rec);
       return false;
@@ -458,10 +713,6 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
     }
   }
 
-  private ReadGroupState getState(SAMRecord rec) {
-    return mReadGroupStates.get(getReadGroupLabel(rec));
-  }
-
   private void processLastTemplate() throws IOException {
     mInterestingRegionExtractor.setTemplate(null, -1);
   }
@@ -491,8 +742,21 @@ public class SvToolTask extends SamIteratorTask<SvToolParams, NoStatistics> {
         try {
           mInterestingRegionExtractor = new SvInterestingRegionExtractor(mParams);
           try {
+            if (mWindowSize > 0) {
+              final int threads = Math.max(1, mParams.execThreads());
+              Diagnostic.developerLog("Scanning windows of " + mWindowSize + " bases using " + threads + " threads");
+              mMaxPendingWindows = threads * WINDOWS_PER_THREAD;
+              mExecutor = Executors.newFixedThreadPool(threads, r -> {
+                final Thread t = new Thread(r, "SvToolTask");
+                t.setDaemon(true);
+                return t;
+              });
+            }
             super.exec();
           } finally {
+            if (mExecutor != null) {
+              mExecutor.shutdownNow();
+            }
             mInterestingRegionExtractor.close();
           }
         } finally {
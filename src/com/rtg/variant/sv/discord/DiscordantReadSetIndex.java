@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.sv.discord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Holds the active discordant read sets, ordered by flush position, together with an index
+ * on the mate (y) interval of their unions so that a new constraint need only be checked
+ * against read sets it could plausibly overlap.
+ * A read set must be removed before its union is altered and added again afterwards.
+ */
+final class DiscordantReadSetIndex implements Iterable<DiscordantReadSet> {
+
+  /** Read sets sharing orientation and sequence names, keyed on the start of their y interval */
+  private static final class Group {
+    private final TreeMap<Integer, List<DiscordantReadSet>> mByStart = new TreeMap<>();
+    private int mMaxWidth = 0;
+    private int mSize = 0;
+  }
+
+  private final TreeSet<DiscordantReadSet> mFlushOrder = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+  private final Map<String, Group> mGroups = new HashMap<>();
+
+  private static String key(AbstractBreakpointGeometry bg) {
+    return bg.getOrientation() + "\t" + bg.getXName() + "\t" + bg.getYName();
+  }
+
+  private static int start(AbstractBreakpointGeometry bg) {
+    return Math.min(bg.getY(), bg.getW());
+  }
+
+  private static int end(AbstractBreakpointGeometry bg) {
+    return Math.max(bg.getY(), bg.getW());
+  }
+
+  /**
+   * Add a read set.
+   * @param drs read set to be added.
+   */
+  void add(DiscordantReadSet drs) {
+    final boolean added = mFlushOrder.add(drs);
+    assert added;
+    final BreakpointConstraint union = drs.getUnion();
+    final Group group = mGroups.computeIfAbsent(key(union), k -> new Group());
+    final int start = start(union);
+    group.mByStart.computeIfAbsent(start, k -> new ArrayList<>(1)).add(drs);
+    group.mMaxWidth = Math.max(group.mMaxWidth, end(union) - start);
+    ++group.mSize;
+  }
+
+  /**
+   * Remove a read set.
+   * @param drs read set to be removed.
+   */
+  void remove(DiscordantReadSet drs) {
+    final boolean removed = mFlushOrder.remove(drs);
+    assert removed;
+    unindex(drs);
+  }
+
+  private void unindex(DiscordantReadSet drs) {
+    final BreakpointConstraint union = drs.getUnion();
+    final String key = key(union);
+    final Group group = mGroups.get(key);
+    final int start = start(union);
+    final List<DiscordantReadSet> sets = group.mByStart.get(start);
+    for (int i = 0; i < sets.size(); ++i) {
+      if (sets.get(i) == drs) {
+        sets.remove(i);
+        break;
+      }
+    }
+    if (sets.isEmpty()) {
+      group.mByStart.remove(start);
+    }
+    if (--group.mSize == 0) {
+      mGroups.remove(key);
+    }
+  }
+
+  /**
+   * Remove and return all read sets to which the geometry belongs.
+   * @param bg geometry to be checked.
+   * @return the read sets removed, in flush order.
+   */
+  List<DiscordantReadSet> removeOverlapping(AbstractBreakpointGeometry bg) {
+    final Group group = mGroups.get(key(bg));
+    if (group == null) {
+      return Collections.emptyList();
+    }
+    final int start = start(bg);
+    final int end = end(bg);
+    final List<DiscordantReadSet> overlap = new ArrayList<>();
+    // Anything starting more than the widest interval before the query cannot reach it
+    for (final List<DiscordantReadSet> sets : group.mByStart.subMap(start - group.mMaxWidth, true, end, true).values()) {
+      for (final DiscordantReadSet drs : sets) {
+        if (end(drs.getUnion()) >= start && drs.belongs(bg)) {
+          overlap.add(drs);
+        }
+      }
+    }
+    if (overlap.size() > 1) {
+      overlap.sort(mFlushOrder.comparator());
+    }
+    for (final DiscordantReadSet drs : overlap) {
+      remove(drs);
+    }
+    return overlap;
+  }
+
+  /**
+   * @return the read set with the earliest flush order, or null if there are none.
+   */
+  DiscordantReadSet first() {
+    return mFlushOrder.isEmpty() ? null : mFlushOrder.first();
+  }
+
+  /**
+   * @return number of read sets held.
+   */
+  int size() {
+    return mFlushOrder.size();
+  }
+
+  /**
+   * Remove all read sets.
+   */
+  void clear() {
+    mFlushOrder.clear();
+    mGroups.clear();
+  }
+
+  /**
+   * @return an iterator over the read sets in flush order, which does not support removal.
+   */
+  @Override
+  public Iterator<DiscordantReadSet> iterator() {
+    return Collections.unmodifiableSet(mFlushOrder).iterator();
+  }
+
+  @Override
+  public String toString() {
+    return mFlushOrder.toString();
+  }
+}
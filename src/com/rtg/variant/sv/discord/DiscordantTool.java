@@ -18,13 +18,10 @@ import java.io.OutputStream;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
 import java.util.TreeSet;
 
 import com.rtg.sam.BamIndexer;
@@ -71,7 +68,7 @@ public class DiscordantTool extends SamIteratorTask<DiscordantToolParams, Discor
 
 
   private int mMaxGap;
-  protected final SortedSet<DiscordantReadSet> mReadSets = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+  protected final DiscordantReadSetIndex mReadSets = new DiscordantReadSetIndex();
 
   final Map<String, MachineOrientation> mMachineOrientations = new HashMap<>();
 
@@ -142,13 +139,9 @@ public class DiscordantTool extends SamIteratorTask<DiscordantToolParams, Discor
       }
       mReadSets.clear();
     } else {
-      final Iterator<DiscordantReadSet> it = mReadSets.iterator();
-      while (it.hasNext()) {
-        final DiscordantReadSet drs = it.next();
-        if (drs.flushPosition() >= last) {
-          break;
-        }
-        it.remove();
+      DiscordantReadSet drs;
+      while ((drs = mReadSets.first()) != null && drs.flushPosition() < last) {
+        mReadSets.remove(drs);
         flush(drs);
         res = drs.flushPosition();
       }
@@ -283,16 +276,8 @@ public class DiscordantTool extends SamIteratorTask<DiscordantToolParams, Discor
     return true;
   }
 
-  static void processConstraint(final BreakpointConstraint constraint, final SortedSet<DiscordantReadSet> readSets, final String templateName, final int maxGap, SAMRecord record) {
-    final Iterator<DiscordantReadSet> it = readSets.iterator();
-    final List<DiscordantReadSet> overlap = new LinkedList<>();
-    while (it.hasNext()) {
-      final DiscordantReadSet drs = it.next();
-      if (drs.belongs(constraint)) {
-        it.remove();
-        overlap.add(drs);
-      }
-    }
+  static void processConstraint(final BreakpointConstraint constraint, final DiscordantReadSetIndex readSets, final String templateName, final int maxGap, SAMRecord record) {
+    final List<DiscordantReadSet> overlap = readSets.removeOverlapping(constraint);
 
     final DiscordantReadSet newDrs;
     final int size = overlap.size();
@@ -12,6 +12,10 @@
 
 package com.rtg.assembler;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.util.PortableRandom;
 import com.rtg.util.diagnostic.Diagnostic;
 
 /**
@@ -34,4 +38,30 @@ public class LowKDeBruijnGraphTest extends AbstractDeBruijnGraphTest {
     assertEquals(28, graph.bytes()); //regression
   }
 
+  public void testThreadsSameAsSerial() {
+    Diagnostic.setLogStream();
+    final PortableRandom random = new PortableRandom(3);
+    final String[] kmers = new String[500];
+    for (int i = 0; i < kmers.length; ++i) {
+      final StringBuilder sb = new StringBuilder();
+      for (int j = 0; j < 6; ++j) {
+        sb.append("ACGT".charAt(random.nextInt(i % 2 == 0 ? 2 : 4)));
+      }
+      kmers[i] = sb.toString();
+    }
+    final KmerMockFactory kit = new KmerMockFactory(kmers);
+    final DeBruijnGraph serial = new LowKDeBruijnGraph(kit, kmers.length, 6);
+    final DeBruijnGraph parallel = new LowKDeBruijnGraph(kit, kmers.length, 6, 4);
+    final List<String> serialKmers = new ArrayList<>();
+    for (final Kmer k : serial) {
+      serialKmers.add(k + ":" + serial.frequency(k));
+    }
+    final List<String> parallelKmers = new ArrayList<>();
+    for (final Kmer k : parallel) {
+      parallelKmers.add(k + ":" + parallel.frequency(k));
+    }
+    assertEquals(serialKmers, parallelKmers);
+    final String expected = serial.frequencyHistogram(5, 1).toString();
+    assertEquals(expected, parallel.frequencyHistogram(5, 4).toString());
+  }
 }
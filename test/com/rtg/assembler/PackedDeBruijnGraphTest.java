@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.assembler;
+
+import java.util.Arrays;
+
+import com.rtg.util.diagnostic.Diagnostic;
+
+/**
+ */
+public class PackedDeBruijnGraphTest extends AbstractDeBruijnGraphTest {
+
+  @Override
+  PackedDeBruijnGraph getDeBruijnGraph(final KmerMockFactory kit, long size, int kMerSize) {
+    return new PackedDeBruijnGraph(kit, kMerSize);
+  }
+
+  public void testAddContains() {
+    aTest(4, 5, "AAAAA", "AAACC", "ATACC");
+  }
+
+  public void testAddContainsBig() {
+    final int kmerSize = 35;
+    final String sNot = big("AAAAA", kmerSize);
+    final String s0 = big("AAACC", kmerSize);
+    final String s1 = big("ATACC", kmerSize);
+    aTest(64, kmerSize, sNot, s0, s1);
+  }
+
+  public void testResize() {
+    Diagnostic.setLogStream();
+    final int kmerSize = 70;
+    final String[] kmers = new String[10000];
+    for (int i = 0; i < kmers.length; ++i) {
+      final StringBuilder sb = new StringBuilder();
+      for (int j = 0, v = i; j < kmerSize; ++j, v /= 4) {
+        sb.append("ACGT".charAt(v % 4));
+      }
+      kmers[i] = sb.toString();
+    }
+    final PackedDeBruijnGraph graph = getDeBruijnGraph(new KmerMockFactory(kmers), kmers.length, kmerSize);
+    assertEquals(kmers.length, graph.size());
+    for (final String kmer : kmers) {
+      assertEquals(1, graph.frequency(new StringKmer(kmer)));
+    }
+    long count = 0;
+    for (final Kmer k : graph) {
+      assertTrue(graph.contains(k));
+      ++count;
+    }
+    assertEquals(kmers.length, count);
+  }
+
+  public void testMinimalHash() {
+    final StringKmer kmer = new StringKmer(big("ACGTTG", 41).substring(0, 41));
+    final KmerHashA packed = new KmerHashA(KmerHashA.kmerToHash(kmer), 41);
+    assertTrue(Arrays.equals(KmerHashA.kmerToHashMin(kmer), packed.minimalHash()));
+    assertTrue(Arrays.equals(KmerHashA.kmerToHashMin(kmer), ((KmerHashA) packed.reverse()).minimalHash()));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.blacklist;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+
+import com.rtg.util.SimpleThreadPool;
+import com.rtg.util.diagnostic.Diagnostic;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class GrowingHashCounterTest extends TestCase {
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    Diagnostic.setLogStream();
+  }
+
+  public void testConcurrentGrowth() throws IOException {
+    final int keyBits = 24;
+    final Random r = new Random(7);
+    final long[] keys = new long[5000];
+    for (int i = 0; i < keys.length; ++i) {
+      keys[i] = BinaryMatrixTest.random(r, keyBits);
+    }
+    final long[] data = new long[20000];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = keys[r.nextInt(keys.length)];
+    }
+    // Far too small, so must grow several times
+    final GrowingHashCounter counter = new GrowingHashCounter(new HashCounter(128, keyBits, 1000), 4);
+    final int numThreads = 4;
+    final SimpleThreadPool stp = new SimpleThreadPool(numThreads, "GrowingHashCounterTest", false);
+    try {
+      for (int i = 0; i < numThreads; ++i) {
+        final int threadNum = i;
+        stp.execute(() -> {
+          final GrowingHashCounter.Batch batch = counter.batch();
+          for (int j = threadNum; j < data.length; j += numThreads) {
+            batch.increment(data[j]);
+          }
+          batch.flush();
+        });
+      }
+    } finally {
+      stp.terminate();
+    }
+    final HashMap<Long, Integer> expected = new HashMap<>();
+    for (final long d : data) {
+      expected.merge(d, 1, Integer::sum);
+    }
+    final HashCounter hc = counter.counter();
+    assertTrue(hc.length() > 128);
+    while (hc.next()) {
+      final Integer exp = expected.remove(hc.getKey());
+      assertNotNull(exp);
+      assertEquals((long) exp, hc.getCount());
+    }
+    assertEquals(0, expected.size());
+  }
+}
@@ -36,6 +36,29 @@ public class HashCounterTest extends TestCase {
     check(10000, 44, 10);
   }
 
+  public void testGrow() throws IOException, HashCounter.TooManyCollisionsException {
+    final HashCounter hc = new HashCounter(64, 20, 10);
+    final Random r = new Random(42);
+    for (int i = 0; i < 40; ++i) {
+      final long key = BinaryMatrixTest.random(r, 20);
+      for (int j = 0; j <= i % 12; ++j) {
+        hc.increment(key);
+      }
+    }
+    assertTrue(hc.canGrow());
+    final HashCounter grown = hc.grow(3);
+    assertEquals(2 * hc.length(), grown.length());
+    final HashMap<Long, Long> expected = new HashMap<>();
+    while (hc.next()) {
+      expected.put(hc.getKey(), hc.getCount());
+    }
+    assertEquals(40, expected.size());
+    while (grown.next()) {
+      assertEquals(expected.remove(grown.getKey()), Long.valueOf(grown.getCount()));
+    }
+    assertEquals(0, expected.size());
+  }
+
   private void check(int length, int keyBits, int maxRepeat) throws IOException {
     final HashCounter hc = new HashCounter(length, keyBits, maxRepeat);
     final long seed = System.currentTimeMillis();
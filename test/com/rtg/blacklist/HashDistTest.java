@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 
 import com.rtg.AbstractTest;
+import com.rtg.index.MappedBlacklistFilterMethod;
 import com.rtg.reader.ReaderTestUtils;
 import com.rtg.util.StringUtils;
 import com.rtg.util.TestUtils;
@@ -39,6 +40,9 @@ public class HashDistTest extends AbstractTest {
       err.close();
       assertEquals("10 1" + StringUtils.LS, FileUtils.fileToString(new File(foo, "histogram.txt")));
       assertEquals("T\t10" + StringUtils.LS, FileUtils.fileToString(new File(foo, "blacklist")));
+      final MappedBlacklistFilterMethod binary = new MappedBlacklistFilterMethod(new File(foo, "blacklist.bin"), 10);
+      assertEquals(1, binary.length());
+      assertTrue(binary.contains(3)); // T
     } finally {
       assertTrue(FileHelper.deleteAll(dir));
     }
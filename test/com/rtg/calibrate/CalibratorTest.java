@@ -283,6 +283,46 @@ public class CalibratorTest extends TestCase {
     assertEquals(expected, stats);
   }
 
+  private static SAMRecord groupRecord(String readGroup, String read, String cigar) {
+    final SAMRecord sam = new SAMRecord(null);
+    sam.setReferenceName("sequence1");
+    sam.setCigarString(cigar);
+    sam.setReadString(read);
+    sam.setBaseQualityString("DDDDD".substring(0, read.length()));
+    sam.setAlignmentStart(1);
+    sam.setMappingQuality(1);
+    sam.setAttribute("RG", readGroup);
+    return sam;
+  }
+
+  public void testAccumulateSharedCovariates() throws IOException {
+    // Calibrators share covariates between threads, so one may be laid out for fewer read groups than the other
+    final Covariate[] covariates = {new CovariateReadGroup(), new CovariateMachineCycle(2)};
+    final Calibrator cal1 = new Calibrator(covariates, null);
+    final Calibrator cal2 = new Calibrator(covariates, null);
+    cal1.processRead(groupRecord("group1", "ac", "2="));
+    cal2.processRead(groupRecord("group1", "ac", "1=1X"));
+    cal2.processRead(groupRecord("group2", "actga", "5="));
+    cal2.processRead(groupRecord("group3", "act", "3="));
+    cal1.accumulate(cal2);
+    assertEquals(11, cal1.getSums(null, null).getEqual());
+    assertEquals(1, cal1.getSums(null, null).getDifferent());
+    CalibrationStats stats = cal1.getSums(CovariateEnum.READGROUP, "group1");
+    assertEquals(3, stats.getEqual());
+    assertEquals(1, stats.getDifferent());
+    stats = cal1.getSums(CovariateEnum.READGROUP, "group2");
+    assertEquals(5, stats.getEqual());
+    assertEquals(0, stats.getDifferent());
+    stats = cal1.getSums(CovariateEnum.READGROUP, "group3");
+    assertEquals(3, stats.getEqual());
+    final CalibrationStats[] cells = cal1.cells();
+    assertEquals(10, cells.length);
+    assertEquals(2, cells[0].getEqual());
+    assertEquals(0, cells[0].getDifferent());
+    assertEquals(1, cells[1].getEqual());
+    assertEquals(1, cells[1].getDifferent());
+  }
+
   public void testNotExpanding() throws IOException {
     final Covariate cov = new CovariateImpl("Dummy", 1) {
       @Override
@@ -543,7 +583,7 @@ public class CalibratorTest extends TestCase {
     cal.mParser.setCigar("1T", "A");
     cal.mParser.parse();
 
-    assertEquals(0, cal.findStats(cal.mParser).getEqual());
+    assertEquals(0, cal.getSums(CovariateEnum.READGROUP, "rg1").getEqual());
   }
 
   public void testUnknownRead() throws Exception {
@@ -560,7 +600,7 @@ public class CalibratorTest extends TestCase {
     cal.mParser.setCigar("1R", "");
     cal.mParser.parse();
 
-    assertEquals(0, cal.findStats(cal.mParser).getEqual());
+    assertEquals(0, cal.getSums(CovariateEnum.READGROUP, "rg1").getEqual());
   }
 
   public void testGetCovariates() throws IOException {
@@ -594,10 +634,9 @@ public class CalibratorTest extends TestCase {
     }
 
     @Override
-    protected CalibrationStats findStats(CalibratorCigarParser currPos) throws BadSuperCigarException {
+    protected void seen(CalibratorCigarParser currPos, int stat) throws BadSuperCigarException {
       assertEquals("at pos " + mPos, mExp[mPos], currPos.getCurrentQuality());
       ++mPos;
-      return new CalibrationStats(null);
     }
   }
 
@@ -97,7 +97,7 @@ public class CovariateMachineCycleTest extends TestCase {
     cal.processRead(sam);
 
     int c = 0;
-    for (final CalibrationStats stats : cal.mStats) {
+    for (final CalibrationStats stats : cal.cells()) {
       if (stats != null) {
         assertEquals(2, stats.getEqual());
         assertEquals(0, stats.getDifferent());
@@ -148,7 +148,7 @@ public class CovariateMachineCycleTest extends TestCase {
     cal.processRead(sam);
 
     int c = 0;
-    for (final CalibrationStats stats : cal.mStats) {
+    for (final CalibrationStats stats : cal.cells()) {
       if (stats != null) {
         assertEquals(2, stats.getEqual());
         assertEquals(0, stats.getDifferent());
@@ -201,7 +201,7 @@ public class CovariateMachineCycleTest extends TestCase {
     cal.processRead(sam);
 
     int c = 0;
-    for (final CalibrationStats stats : cal.mStats) {
+    for (final CalibrationStats stats : cal.cells()) {
       if (stats != null) {
         assertEquals(2, stats.getEqual());
         assertEquals(0, stats.getDifferent());
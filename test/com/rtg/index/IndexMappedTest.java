@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.index.params.CreateParams;
+import com.rtg.util.PortableRandom;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.TestDirectory;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class IndexMappedTest extends TestCase {
+
+  private static IndexCompressed build(final long[] hashes, final int hashBits) {
+    final IndexCompressed index = new IndexCompressed(new CreateParams(hashes.length, hashBits, hashBits, 31, true, true, false, false), new UnfilteredFilterMethod(), 1);
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int i = 0; i < hashes.length; ++i) {
+        index.add(hashes[i], i);
+      }
+      index.freeze();
+    }
+    return index;
+  }
+
+  private static List<Long> hits(final Index index, final long hash) throws IOException {
+    final List<Long> res = new ArrayList<>();
+    index.search(hash, new Finder() {
+      @Override
+      public boolean found(long id) {
+        res.add(id);
+        return true;
+      }
+    });
+    return res;
+  }
+
+  private static void checkSame(final IndexCompressed expected, final IndexMapped actual, final long[] hashes, final int hashBits) throws IOException {
+    assertTrue(actual.globalIntegrity());
+    assertEquals(expected.numberEntries(), actual.numberEntries());
+    assertEquals(expected.numberHashes(), actual.numberHashes());
+    assertEquals(expected.maxHashCount(), actual.maxHashCount());
+    assertEquals(hashBits, actual.hashBits());
+    for (final long hash : hashes) {
+      assertEquals(hits(expected, hash), hits(actual, hash));
+      assertEquals(expected.count(hash), actual.count(hash));
+      assertTrue(actual.contains(hash));
+      final long first = actual.first(hash);
+      assertEquals(expected.first(hash), first);
+      assertEquals(hash, actual.getHash(first));
+      assertEquals(expected.getValue(first), actual.getValue(first));
+    }
+    final long missing = hashes[0] ^ 1;
+    assertEquals(expected.contains(missing), actual.contains(missing));
+    final SparseFrequencyHistogram eh = expected.getSparseFrequencyHistogram();
+    final SparseFrequencyHistogram ah = actual.getSparseFrequencyHistogram();
+    assertEquals(eh.length(), ah.length());
+    for (int i = 0; i < eh.length(); ++i) {
+      assertEquals(eh.getFrequency(i), ah.getFrequency(i));
+      assertEquals(eh.getCount(i), ah.getCount(i));
+    }
+  }
+
+  public void testRoundTrip() throws IOException {
+    final long[] hashes = {5, 3, 17, 5, 1000, 3, 65535, 0, 5};
+    final IndexCompressed index = build(hashes, 16);
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = new File(dir, "index.bin");
+      IndexMapped.save(index, file);
+      checkSame(index, new IndexMapped(file), hashes, 16);
+    }
+  }
+
+  public void testRoundTripRandom64() throws IOException {
+    final PortableRandom r = new PortableRandom(42);
+    final long[] hashes = new long[1000];
+    for (int i = 0; i < hashes.length; ++i) {
+      hashes[i] = i % 7 == 0 && i > 0 ? hashes[i - 1] : r.nextLong();
+    }
+    final IndexCompressed index = build(hashes, 64);
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = new File(dir, "index.bin");
+      IndexMapped.save(index, file);
+      checkSame(index, new IndexMapped(file), hashes, 64);
+    }
+  }
+
+  public void testSmallChunks() throws IOException {
+    final long[] hashes = new long[100];
+    for (int i = 0; i < hashes.length; ++i) {
+      hashes[i] = i * 31 % 4096;
+    }
+    final IndexCompressed index = build(hashes, 12);
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = new File(dir, "index.bin");
+      IndexMapped.save(index, file);
+      try (final FileChannel channel = FileChannel.open(file.toPath())) {
+        final MappedLongArray whole = new MappedLongArray(channel, 0, channel.size() / Long.BYTES);
+        final MappedLongArray chunked = new MappedLongArray(channel, 0, channel.size() / Long.BYTES, 3);
+        assertEquals(whole.length(), chunked.length());
+        for (long i = 0; i < whole.length(); ++i) {
+          assertEquals(whole.get(i), chunked.get(i));
+        }
+        assertEquals(IndexMapped.MAGIC, chunked.get(0));
+      }
+    }
+  }
+
+  public void testNotFrozen() {
+    final IndexCompressed index = new IndexCompressed(new CreateParams(10, 16, 16, 31, true, true, false, false), new UnfilteredFilterMethod(), 1);
+    try {
+      IndexMapped.save(index, new File("notused"));
+      fail();
+    } catch (final IllegalStateException e) {
+      // expected
+    } catch (final IOException e) {
+      fail();
+    }
+  }
+
+  public void testCanSave() {
+    assertTrue(IndexMapped.canSave(new CreateParams(10, 64, 64, 31, true, true, false, false)));
+    assertFalse(IndexMapped.canSave(new CreateParams(10, 16, 16, 31, false, true, false, false)));
+    assertFalse(IndexMapped.canSave(new CreateParams(10, 66, 66, 31, true, true, false, false)));
+  }
+
+  public void testBadFiles() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = new File(dir, "index.bin");
+      FileUtils.stringToFile("not an index", file);
+      try {
+        new IndexMapped(file);
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage().contains("is not a saved index"));
+      }
+      IndexMapped.save(build(new long[] {1, 2, 3}, 8), file);
+      try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(raf.length() - Long.BYTES);
+      }
+      try {
+        new IndexMapped(file);
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage().contains("but expected"));
+      }
+    }
+  }
+
+  public void testIndexSet() throws IOException {
+    final long[] hashes = {5, 3, 17, 5, 1000};
+    final IndexCompressed a = build(hashes, 16);
+    final IndexCompressed b = build(new long[] {7, 7, 9}, 16);
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File cache = new File(dir, "cache");
+      assertFalse(IndexSet.isSaved(cache, 2));
+      new IndexSet(new Index[] {a, b}).save(cache, 2, "reads=1");
+      assertTrue(IndexSet.isSaved(cache, 2));
+      assertFalse(IndexSet.isSaved(cache, 3));
+      assertEquals("reads=1", IndexSet.savedDescription(cache));
+      final IndexSet loaded = IndexSet.load(cache, 2);
+      assertEquals(2, loaded.size());
+      assertEquals(hits(a, 5), hits(loaded.get(0), 5));
+      assertEquals(2, loaded.get(1).count(7));
+      assertEquals(0, loaded.get(1).count(5));
+      // Without a description the set is incomplete
+      assertTrue(IndexSet.descriptionFile(cache).delete());
+      assertFalse(IndexSet.isSaved(cache, 2));
+      new IndexSet(new Index[] {a, b}).save(cache, 2, "reads=2");
+      assertEquals("reads=2", IndexSet.savedDescription(cache));
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import com.rtg.util.PortableRandom;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.TestDirectory;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class MappedBlacklistFilterMethodTest extends TestCase {
+
+  public void testSaveAndMap() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final PortableRandom r = new PortableRandom(3);
+      final int n = 1000;
+      final long[] hashes = new long[n];
+      final long[] counts = new long[n];
+      for (int i = 0; i < n; ++i) {
+        hashes[i] = r.nextLong() & ~1L; // Leave odd hashes for misses, including negative ones
+        counts[i] = i % 20;
+      }
+      final long[] origHashes = hashes.clone();
+      final long[] origCounts = counts.clone();
+      final File file = new File(dir, "blacklist.bin");
+      MappedBlacklistFilterMethod.save(file, 64, hashes, counts, n);
+      assertEquals((4 + 2 * n) * Long.BYTES, file.length());
+      final MappedBlacklistFilterMethod filter = new MappedBlacklistFilterMethod(file, 10);
+      assertEquals(n, filter.length());
+      assertTrue(filter == filter.threadClone());
+      for (int i = 0; i < n; ++i) {
+        final boolean blacklisted = origCounts[i] >= 10;
+        assertEquals(blacklisted, filter.contains(origHashes[i]));
+        assertEquals(!blacklisted, filter.keepHash(origHashes[i], 1));
+        assertFalse(filter.contains(origHashes[i] | 1));
+      }
+      assertTrue(new MappedBlacklistFilterMethod(file, 0).contains(origHashes[0]));
+    }
+  }
+
+  public void testSameAsText() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final List<Long> text = HashBlacklist.loadBlacklist(new StringReader("ACGT\t5\nTTTT\t2\nGACA\t9\n"), 3);
+      final File file = new File(dir, "b.bin");
+      // A=0, C=1, G=2, T=3
+      MappedBlacklistFilterMethod.save(file, HashBlacklist.hashBits(4), new long[] {0b00011011, 0b11111111, 0b10000100}, new long[] {5, 2, 9}, 3);
+      final MappedBlacklistFilterMethod filter = new MappedBlacklistFilterMethod(file, 3);
+      for (long hash = 0; hash < 256; ++hash) {
+        assertEquals(text.contains(hash), filter.contains(hash));
+      }
+    }
+  }
+
+  public void testEmpty() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = new File(dir, "b.bin");
+      MappedBlacklistFilterMethod.save(file, 44, new long[0], new long[0], 0);
+      final MappedBlacklistFilterMethod filter = new MappedBlacklistFilterMethod(file, 1);
+      assertEquals(0, filter.length());
+      assertFalse(filter.contains(0));
+    }
+  }
+
+  public void testInvalid() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File file = new File(dir, "b.bin");
+      FileUtils.stringToFile("ACGT\t5\n", file);
+      try {
+        new MappedBlacklistFilterMethod(file, 1);
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage().contains("is not a binary blacklist"));
+      }
+    }
+  }
+
+  public void testLoadFromSdf() throws IOException {
+    try (final TestDirectory dir = new TestDirectory()) {
+      final File text = new File(dir, "blacklist");
+      FileUtils.stringToFile("ACGT\t5\n", text);
+      MappedBlacklistFilterMethod.save(new File(dir, "blacklist" + HashBlacklist.BINARY_SUFFIX), HashBlacklist.hashBits(4), new long[] {0b00011011}, new long[] {5}, 1);
+      final File sdf = new File(dir, "sdf");
+      assertTrue(sdf.mkdir());
+      assertFalse(HashBlacklist.binaryBlacklistExists(sdf, 4));
+      HashBlacklist.installBlacklist(text, sdf, 4);
+      assertTrue(HashBlacklist.binaryBlacklistExists(sdf, 4));
+      assertTrue(MappedBlacklistFilterMethod.loadBlacklist(sdf, 4, 5).contains(0b00011011));
+      assertFalse(MappedBlacklistFilterMethod.loadBlacklist(sdf, 4, 6).contains(0b00011011));
+      try {
+        MappedBlacklistFilterMethod.loadBlacklist(sdf, 5, 5);
+        fail();
+      } catch (final IOException e) {
+        // expected, no blacklist for this word size
+      }
+    }
+  }
+}
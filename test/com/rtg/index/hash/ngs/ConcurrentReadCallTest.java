@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.index.hash.ngs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rtg.index.Finder;
+import com.rtg.index.Index;
+import com.rtg.index.IndexCompressed;
+import com.rtg.index.IndexSet;
+import com.rtg.index.IndexSimple;
+import com.rtg.index.UnfilteredFilterMethod;
+import com.rtg.index.params.CreateParams;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ConcurrentReadCallTest extends TestCase {
+
+  private static final int WINDOWS = 2;
+  private static final int READS = 5000;
+
+  private static IndexSet create() {
+    final Index[] indexes = new Index[WINDOWS];
+    for (int i = 0; i < WINDOWS; ++i) {
+      indexes[i] = new IndexCompressed(new CreateParams(READS, 12, 12, 31, true, true, false, false), new UnfilteredFilterMethod(), 1);
+    }
+    return new IndexSet(indexes);
+  }
+
+  private static long hash(final int read, final int window) {
+    return (read * 7919L + window * 13L) % 600;
+  }
+
+  private static List<Long> hits(final Index index, final long hash) throws IOException {
+    final List<Long> res = new ArrayList<>();
+    index.search(hash, new Finder() {
+      @Override
+      public boolean found(long id) {
+        res.add(id);
+        return true;
+      }
+    });
+    return res;
+  }
+
+  private static IndexSet serial() {
+    final IndexSet serial = create();
+    final ReadCall serialCall = new ReadCallImplementation(serial);
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int read = 0; read < READS; ++read) {
+        for (int w = 0; w < WINDOWS; ++w) {
+          serialCall.readCall(read, hash(read, w), w);
+        }
+      }
+      serial.freeze(1);
+    }
+    return serial;
+  }
+
+  private static void checkSame(final IndexSet expectedSet, final IndexSet actualSet) throws IOException {
+    for (int w = 0; w < WINDOWS; ++w) {
+      final Index expected = expectedSet.get(w);
+      final Index actual = actualSet.get(w);
+      assertEquals(expected.numberEntries(), actual.numberEntries());
+      assertEquals(expected.numberHashes(), actual.numberHashes());
+      for (long hash = 0; hash < 600; ++hash) {
+        assertEquals(hits(expected, hash), hits(actual, hash));
+      }
+    }
+  }
+
+  public void testMatchesSerial() throws Exception {
+    final IndexSet concurrent = create();
+    final int numberThreads = 4;
+    assertTrue(concurrent.enableConcurrentAdd(numberThreads));
+    for (int pass = 0; pass < 2; ++pass) {
+      final Thread[] threads = new Thread[numberThreads];
+      for (int t = 0; t < numberThreads; ++t) {
+        final ReadCall call = new ConcurrentReadCall(concurrent, t);
+        final int start = READS * t / numberThreads;
+        final int end = READS * (t + 1) / numberThreads;
+        threads[t] = new Thread() {
+          @Override
+          public void run() {
+            for (int read = start; read < end; ++read) {
+              for (int w = 0; w < WINDOWS; ++w) {
+                call.readCall(read, hash(read, w), w);
+              }
+            }
+          }
+        };
+        threads[t].start();
+      }
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+      concurrent.freeze(2);
+    }
+    checkSame(serial(), concurrent);
+  }
+
+  public void testSlotOrder() throws IOException {
+    // Slots filled last to first still give the entries of each hash in slot order
+    final IndexSet concurrent = create();
+    final int slots = 3;
+    assertTrue(concurrent.enableConcurrentAdd(slots));
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int slot = slots - 1; slot >= 0; --slot) {
+        final ReadCall call = new ConcurrentReadCall(concurrent, slot);
+        for (int read = READS * slot / slots; read < READS * (slot + 1) / slots; ++read) {
+          for (int w = 0; w < WINDOWS; ++w) {
+            call.readCall(read, hash(read, w), w);
+          }
+        }
+      }
+      concurrent.freeze(1);
+    }
+    checkSame(serial(), concurrent);
+  }
+
+  public void testNotSupported() {
+    final IndexSet indexes = new IndexSet(new Index[] {new IndexSimple(new CreateParams(10, 12, 12, 31, true, true, false, false), new UnfilteredFilterMethod(), 1)});
+    assertFalse(indexes.enableConcurrentAdd(2));
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rtg.metagenomics.matrix.Matrix;
+import com.rtg.metagenomics.matrix.Vector;
+import com.rtg.util.Pair;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class FragReductionTest extends TestCase {
+
+  private static Frag[] randomFrags(final int n, final int genomes, final long seed) {
+    final Random random = new Random(seed);
+    final Frag[] frags = new Frag[n];
+    for (int i = 0; i < n; ++i) {
+      final List<Integer> gens = new ArrayList<>();
+      final int first = random.nextInt(genomes);
+      gens.add(first);
+      if (random.nextBoolean()) {
+        gens.add((first + 1 + random.nextInt(genomes - 1)) % genomes);
+      }
+      gens.sort(null);
+      frags[i] = new Frag(gens);
+      frags[i].setMultiplicity(1 + random.nextInt(3));
+    }
+    return frags;
+  }
+
+  public void testSerial() {
+    final double[] sum = {1.0};
+    FragReduction.reduce(null, 10, sum, () -> new double[1], (acc, i) -> acc[0] += i, FragReduction::add);
+    assertEquals(46.0, sum[0]);
+    final int[] seen = new int[10];
+    FragReduction.forEach(null, seen.length, i -> seen[i] = i + 1);
+    for (int i = 0; i < seen.length; ++i) {
+      assertEquals(i + 1, seen[i]);
+    }
+    assertFalse(FragReduction.isParallel(null, Integer.MAX_VALUE));
+    assertFalse(FragReduction.isParallel(ForkJoinPool.commonPool(), 2 * FragReduction.MIN_FRAGMENTS - 1));
+    assertTrue(FragReduction.isParallel(ForkJoinPool.commonPool(), 2 * FragReduction.MIN_FRAGMENTS));
+  }
+
+  public void testParallel() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final int n = 20 * FragReduction.MIN_FRAGMENTS + 17;
+      final long[] sum = {5};
+      FragReduction.reduce(pool, n, sum, () -> new long[1], (acc, i) -> acc[0] += i, (a, b) -> a[0] += b[0]);
+      assertEquals(5 + (long) n * (n - 1) / 2, sum[0]);
+      final int[] seen = new int[n];
+      FragReduction.forEach(pool, n, i -> ++seen[i]);
+      for (final int s : seen) {
+        assertEquals(1, s);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  public void testTasks() {
+    final long large = FragReduction.LARGE_PARTIAL_BYTES;
+    final int n = 100 * FragReduction.MIN_FRAGMENTS;
+    assertEquals(1, FragReduction.tasks(null, n, 8, Long.MAX_VALUE));
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(1, FragReduction.tasks(pool, 2 * FragReduction.MIN_FRAGMENTS - 1, 8, Long.MAX_VALUE));
+      assertEquals(2, FragReduction.tasks(pool, 2 * FragReduction.MIN_FRAGMENTS, 8, Long.MAX_VALUE));
+      assertEquals(16, FragReduction.tasks(pool, n, 8, Long.MAX_VALUE));
+      assertEquals(4, FragReduction.tasks(pool, n, large, Long.MAX_VALUE));
+      assertEquals(4, FragReduction.tasks(pool, n, large, 4 * large));
+      assertEquals(1, FragReduction.tasks(pool, n, large, 4 * large - 1));
+
+      // Large partials get one per pool thread, and still cover every fragment
+      final AtomicInteger partials = new AtomicInteger();
+      final long[] sum = {0};
+      FragReduction.reduce(pool, n + 3, large, sum, () -> {
+        partials.incrementAndGet();
+        return new long[1];
+      }, (acc, i) -> acc[0] += i, (a, b) -> a[0] += b[0]);
+      assertEquals((long) (n + 3) * (n + 2) / 2, sum[0]);
+      assertEquals(4, partials.get());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  public void testSpeciesDerivatives() {
+    final int genomes = 5;
+    final Frag[] frags = randomFrags(6 * FragReduction.MIN_FRAGMENTS, genomes, 42);
+    final long[] lengths = {1000, 2000, 1500, 3000, 500};
+    final BlockInfo serial = new BlockInfo(0, null, frags, null, lengths, false);
+    final BlockInfo parallel = new BlockInfo(0, null, frags, null, lengths, false);
+    final ForkJoinPool pool = new ForkJoinPool(3);
+    parallel.setPool(pool);
+    try {
+      final Vector r = new Vector(new double[] {0.3, 0.5, 0.2, 0.4, 0.1});
+      final Vector d = new Vector(new double[] {-0.1, 0.2, 0.05, -0.3, 0.1});
+      assertEquals(Species.ll(r, serial), Species.ll(r, parallel), 1e-6);
+
+      final Pair<Vector, Double> js = Species.jacobianR(serial, r, new int[] {2});
+      final Pair<Vector, Double> jp = Species.jacobianR(parallel, r, new int[] {2});
+      assertEquals(js.getB(), jp.getB(), 1e-6);
+      for (int i = 0; i < genomes; ++i) {
+        assertEquals(js.getA().get(i), jp.getA().get(i), 1e-6);
+      }
+
+      final Matrix hs = new Species(Species.makeFlatMembership(genomes), serial).hessian(r);
+      final Matrix hp = new Species(Species.makeFlatMembership(genomes), parallel).hessian(r);
+      final Matrix hrs = new Species(Species.makeFlatMembership(genomes), serial).hessianR(r);
+      final Matrix hrp = new Species(Species.makeFlatMembership(genomes), parallel).hessianR(r);
+      for (int i = 0; i < genomes; ++i) {
+        for (int j = 0; j < genomes; ++j) {
+          assertEquals(hs.get(i, j), hp.get(i, j), 1e-6);
+          assertEquals(hrs.get(i, j), hrp.get(i, j), 1e-6);
+        }
+      }
+
+      final Line[][] lines = {
+        {new SpeciesLine(r, d, serial), new SpeciesLine(r, d, parallel)},
+        {new SpeciesLineDeriv(r, d, serial), new SpeciesLineDeriv(r, d, parallel)},
+        {new SpeciesLineLinear(r, d, serial), new SpeciesLineLinear(r, d, parallel)},
+        {new SpeciesLineLinearDeriv(r, d, serial), new SpeciesLineLinearDeriv(r, d, parallel)},
+      };
+      for (final Line[] line : lines) {
+        for (final double delta : new double[] {0.0, 0.5, -0.25}) {
+          final double[] vs = line[0].values(delta);
+          final double[] vp = line[1].values(delta);
+          assertEquals(vs.length, vp.length);
+          for (int k = 0; k < vs.length; ++k) {
+            assertEquals(vs[k], vp[k], 1e-6 * Math.max(1, Math.abs(vs[k])));
+          }
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
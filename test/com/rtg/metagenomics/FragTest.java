@@ -55,6 +55,12 @@ public class FragTest extends TestCase {
     TestUtils.equalsTest(new Frag[][] {{fr, fr0}, {fr1}, {fr2}});
   }
 
+  public void testArrayConstructor() {
+    final Frag fr = new Frag(new int[] {5, 1, 1, 42, 7}, 1, 4);
+    assertEquals("  1:2  42:1 {1}", fr.toString());
+    assertTrue(fr.identical(frag(1, 1, 42)));
+  }
+
   static Frag frag(final int...f) {
     final ArrayList<Integer> al = new ArrayList<>();
     for (final int fi : f) {
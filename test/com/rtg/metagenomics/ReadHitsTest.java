@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2014. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class ReadHitsTest extends TestCase {
+
+  public void test() {
+    final ReadHits hits = new ReadHits(0);
+    assertEquals(0, hits.size());
+    hits.add(42L, 3);
+    hits.add(-5L, 7);
+    hits.add(42L, 1);
+    hits.add(Long.MAX_VALUE, 0);
+    hits.add(-5L, 2);
+    hits.add(42L, 3);
+    assertEquals(6, hits.size());
+    hits.sort();
+    final long[] expectedReads = {-5, -5, 42, 42, 42, Long.MAX_VALUE};
+    final int[] expectedSpecies = {2, 7, 1, 3, 3, 0};
+    for (int i = 0; i < expectedReads.length; ++i) {
+      assertEquals(expectedReads[i], hits.readId(i));
+      assertEquals(expectedSpecies[i], hits.species(i));
+    }
+  }
+}
@@ -16,6 +16,7 @@ import static com.rtg.util.StringUtils.TAB;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import com.rtg.launcher.AbstractParamsCliTest;
@@ -34,6 +35,9 @@ import com.rtg.util.io.FileUtils;
 import com.rtg.util.io.MemoryPrintStream;
 import com.rtg.util.test.FileHelper;
 
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceRecord;
+
 /**
  */
 public class SpeciesCliTest extends AbstractParamsCliTest<SpeciesParams> {
@@ -216,6 +220,25 @@ public class SpeciesCliTest extends AbstractParamsCliTest<SpeciesParams> {
     assertEquals(1, mi.mValue);
   }
 
+  public void testCheckUberHeaderAgainstNames() {
+    final SAMFileHeader header = new SAMFileHeader();
+    header.addSequence(new SAMSequenceRecord("a1", 4));
+    header.addSequence(new SAMSequenceRecord("b1", 8));
+    SpeciesTask.checkUberHeaderAgainstNames(header, Arrays.asList("a1", "a2", "b1"), new int[] {4, 4, 8});
+    try {
+      SpeciesTask.checkUberHeaderAgainstNames(header, Arrays.asList("a1", "a2"), new int[] {4, 4});
+      fail();
+    } catch (final NoTalkbackSlimException ex) {
+      assertEquals("Sequence \"b1\" in the SAM header is not in the reference", ex.getMessage());
+    }
+    try {
+      SpeciesTask.checkUberHeaderAgainstNames(header, Arrays.asList("a1", "b1"), new int[] {4, 9});
+      fail();
+    } catch (final NoTalkbackSlimException ex) {
+      assertEquals("Sequence \"b1\" has length 8 in the SAM header but length 9 in the reference", ex.getMessage());
+    }
+  }
+
   public void testgetRenameMapFail() throws IOException {
     final File dir = FileUtils.createTempDir("speceiscli", "renamemap");
     final String seq = ">test name" + LS + "acgtacgtgtg" + LS + ">test2 fullname" + LS + "catactgctatgac" + LS;
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.metagenomics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.rtg.reader.SdfId;
+import com.rtg.taxonomy.Taxonomy;
+import com.rtg.taxonomy.TaxonomyUtils;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.TestDirectory;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class SpeciesReferenceCacheTest extends TestCase {
+
+  private static SpeciesReferenceCache cache(String key) {
+    final Taxonomy taxonomy = new Taxonomy();
+    taxonomy.addNode(1, -1, "root", "no rank");
+    taxonomy.addNode(2, 1, "spA", "species");
+    taxonomy.addNode(3, 1, "sp B", "species");
+    final Map<String, Integer> sequenceMap = new LinkedHashMap<>();
+    sequenceMap.put("seq1", 2);
+    sequenceMap.put("seq2", 3);
+    sequenceMap.put("seq3", 2);
+    sequenceMap.put("sp B", 3);
+    return new SpeciesReferenceCache(key, sequenceMap, Arrays.asList("seq1", "seq2", "seq3"), new int[] {10, 20, 30}, taxonomy);
+  }
+
+  public void testRoundTrip() throws IOException {
+    try (TestDirectory dir = new TestDirectory()) {
+      final File cacheDir = new File(dir, "cache");
+      final String key = SpeciesReferenceCache.key(new SdfId(5L), null, null);
+      assertNull(SpeciesReferenceCache.load(cacheDir, key));
+      cache(key).save(cacheDir);
+      final SpeciesReferenceCache loaded = SpeciesReferenceCache.load(cacheDir, key);
+      assertNotNull(loaded);
+      assertEquals(Arrays.asList("seq1", "seq2", "seq3"), loaded.sequenceNames());
+      assertTrue(Arrays.equals(new int[] {10, 20, 30}, loaded.sequenceLengths()));
+      assertEquals(cache(key).sequenceMap(), loaded.sequenceMap());
+      assertEquals(3, loaded.taxonomy().size());
+      assertEquals("sp B", loaded.taxonomy().get(3).getName());
+      final String[] files = cacheDir.list();
+      assertNotNull(files);
+      assertEquals(2, files.length);
+    }
+  }
+
+  public void testKeyMismatch() throws IOException {
+    try (TestDirectory dir = new TestDirectory()) {
+      final File relabel = new File(dir, "relabel.tsv");
+      FileUtils.stringToFile("seq1\tspA\n", relabel);
+      final String key = SpeciesReferenceCache.key(new SdfId(5L), null, relabel);
+      cache(key).save(dir);
+      assertNotNull(SpeciesReferenceCache.load(dir, key));
+      assertNull(SpeciesReferenceCache.load(dir, SpeciesReferenceCache.key(new SdfId(6L), null, relabel)));
+      assertNull(SpeciesReferenceCache.load(dir, SpeciesReferenceCache.key(new SdfId(5L), null, null)));
+      assertNull(SpeciesReferenceCache.key(new SdfId(0), null, relabel));
+    }
+  }
+
+  public void testTaxonomyFilesInKey() throws IOException {
+    try (TestDirectory sdf = new TestDirectory()) {
+      final String key = SpeciesReferenceCache.key(new SdfId(5L), sdf, null);
+      final File lookup = new File(sdf, TaxonomyUtils.TAXONOMY_TO_SEQUENCE_FILE);
+      FileUtils.stringToFile("1\tseq1\n", lookup);
+      final String lookupKey = SpeciesReferenceCache.key(new SdfId(5L), sdf, null);
+      assertFalse(key.equals(lookupKey));
+      FileUtils.stringToFile("1\tseq1\n2\tseq2\n", lookup);
+      final String changedKey = SpeciesReferenceCache.key(new SdfId(5L), sdf, null);
+      assertFalse(lookupKey.equals(changedKey));
+      FileUtils.stringToFile("#taxonomy\n", new File(sdf, TaxonomyUtils.TAXONOMY_FILE));
+      assertFalse(changedKey.equals(SpeciesReferenceCache.key(new SdfId(5L), sdf, null)));
+    }
+  }
+}
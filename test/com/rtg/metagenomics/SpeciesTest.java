@@ -16,7 +16,9 @@ import static com.rtg.util.StringUtils.LS;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 import com.rtg.launcher.globals.GlobalFlags;
 import com.rtg.launcher.MockReaderParams;
@@ -111,7 +113,7 @@ public class SpeciesTest extends TestCase {
       }
     };
     //t.result(out.printStream(), result, blockInfo, null, null, false, new SpeciesStatistics(), taxonomy);
-    t.result(mrp.reader(), out.lineWriter(), result, blockInfo);
+    t.result(mrp.reader().getSdfId(), out.lineWriter(), result, blockInfo);
     assertTrue(log.toString(), log.toString().contains("Could not determine length of taxonId \"6\", its either not present or the length is 0" + LS));
     Diagnostic.setLogStream();
     //    System.out.println(out.toString());
@@ -174,7 +176,7 @@ public class SpeciesTest extends TestCase {
           mSpeciesMap = sm;
         }
       };
-      t.result(mrp.reader(), out.lineWriter(), blockResult, blockInfo);
+      t.result(mrp.reader().getSdfId(), out.lineWriter(), blockResult, blockInfo);
       //    System.out.println(out.toString());
       TestUtils.containsAll(out.toString().replace('\t', ' '),
           SpeciesTask.SPECIES_HEADER.replace('\t',  ' '),
@@ -252,7 +254,7 @@ public class SpeciesTest extends TestCase {
       }
     };
 
-    t.result(mrp.reader(), out.lineWriter(), result, blockInfo);
+    t.result(mrp.reader().getSdfId(), out.lineWriter(), result, blockInfo);
     //    System.out.println(out.toString());
     TestUtils.containsAll(out.toString().replace('\t', ' '),
         "0.8621 0.1308 1.000 0.3472 0.05267 1.000 0.0 0.000 0.000 0 4.56 N 1 2 1 none 0",
@@ -329,6 +331,67 @@ public class SpeciesTest extends TestCase {
       + "3\ta" + LS
     ;
 
+  public void testWarmStart() {
+    final Frag[] frags = {new Frag(Arrays.asList(0)), new Frag(Arrays.asList(1)), new Frag(Arrays.asList(2)), new Frag(Arrays.asList(0, 1)), new Frag(Arrays.asList(1, 2))};
+    frags[0].setMultiplicity(5);
+    frags[1].setMultiplicity(3);
+    frags[2].setMultiplicity(4);
+    frags[3].setMultiplicity(2);
+    frags[4].setMultiplicity(2);
+    final SpeciesMap sm = new SpeciesMap();
+    sm.id(2);
+    sm.id(3);
+    sm.id(4);
+    final BlockInfo blockInfo = new BlockInfo(42, null, frags, sm, new long[] {4, 5, 6}, false);
+    final Vector r = new Species(blockInfo).solve(10).getR();
+    // Starting from the scaled solution, or a rough guess, should arrive at the same result
+    final Vector prior = new Vector(3);
+    for (int i = 0; i < 3; ++i) {
+      prior.set(i, 7 * r.get(i));
+    }
+    final Vector rough = new Vector(3);
+    rough.set(0, 0.5);
+    rough.set(2, 0.1);
+    for (final Vector start : new Vector[] {prior, rough, new Vector(3)}) {
+      final Vector warm = new Species(blockInfo).solve(10, start).getR();
+      for (int i = 0; i < 3; ++i) {
+        assertEquals(r.get(i), warm.get(i), 1e-6 * r.get(i));
+      }
+    }
+  }
+
+  public void testReadPriorAbundances() throws IOException {
+    try (TestDirectory dir = new TestDirectory()) {
+      final File species = new File(dir, "species.tsv");
+      final StringBuilder sb = new StringBuilder();
+      sb.append("#Version\tx").append(LS);
+      sb.append("#").append(SpeciesTask.SPECIES_HEADER).append(LS);
+      sb.append(line(1.0, 1, -1)).append(LS);
+      sb.append(line(0.75, 2, 1)).append(LS);
+      sb.append(line(0.5, 3, 2)).append(LS);
+      sb.append(line(0.25, 4, 1)).append(LS);
+      FileUtils.stringToFile(sb.toString(), species);
+      final Map<Integer, Double> prior = SpeciesTask.readPriorAbundances(species);
+      assertEquals(4, prior.size());
+      assertEquals(0.0, prior.get(1), 1e-12);
+      assertEquals(0.25, prior.get(2), 1e-12);
+      assertEquals(0.5, prior.get(3), 1e-12);
+      assertEquals(0.25, prior.get(4), 1e-12);
+
+      FileUtils.stringToFile("1\t2\t3" + LS, species);
+      try {
+        SpeciesTask.readPriorAbundances(species);
+        fail();
+      } catch (final NoTalkbackSlimException e) {
+        assertTrue(e.getMessage().contains("is not species output"));
+      }
+    }
+  }
+
+  private static String line(double abundance, int taxonId, int parentId) {
+    return abundance + "\t0\t1\t" + abundance + "\t0\t1\t10\t1.0\t1.0\t100\t10.00\tY\t1\t" + taxonId + "\t" + parentId + "\tspecies\tname " + taxonId;
+  }
+
   public void testInvalidTaxonomy() throws IOException {
     try (TestDirectory dir = new TestDirectory()) {
       final File species = new File(dir, "species");
@@ -36,8 +36,8 @@ public abstract class AbstractBuildClassifierTest extends AbstractTest {
 
     final PredictClassifier p = b.getClassifier();
 
-    for (Instance inst : d.getInstances()) {
-      final double prob = p.predict(inst.instance());
+    for (int i = 0; i < d.size(); ++i) {
+      final double prob = p.predict(d.instance(i));
       assertTrue(prob >= 0 && prob <= 1.0);
     }
   }
@@ -72,9 +72,9 @@ public abstract class AbstractBuildClassifierTest extends AbstractTest {
         assertFalse(p == p2);             // But every build must create a new classifier
 
         // We should get the same predictions as the single-thread classifier
-        for (Instance inst : split.mTest.getInstances()) {
-          final double predict = p.predict(inst.instance());
-          final double predict2 = p2.predict(inst.instance());
+        for (int i = 0; i < split.mTest.size(); ++i) {
+          final double predict = p.predict(split.mTest.instance(i));
+          final double predict2 = p2.predict(split.mTest.instance(i));
           assertEquals("Threads=" + threads + " " + predict + " != " + predict2, predict, predict2);
         }
       }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import com.rtg.util.PortableRandom;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class CompiledForestTest extends TestCase {
+
+  private static void checkSame(PredictClassifier expected, PredictClassifier actual, Dataset data) {
+    final double[][] instances = new double[data.size()][];
+    for (int i = 0; i < instances.length; ++i) {
+      instances[i] = data.instance(i);
+      assertEquals(expected.predict(instances[i]), actual.predict(instances[i]));
+    }
+    final double[] predictions = new double[instances.length];
+    actual.predict(instances, predictions);
+    for (int i = 0; i < instances.length; ++i) {
+      assertEquals(expected.predict(instances[i]), predictions[i]);
+    }
+  }
+
+  public void testForest() {
+    final Dataset train = TrainTestSplitTest.makeCircleDataset(new PortableRandom(42), 300, 600);
+    train.injectErrors(0.2, 0.1, Double.NaN);
+    final Dataset test = TrainTestSplitTest.makeCircleDataset(new PortableRandom(92), 300, 600);
+    test.injectErrors(0.3, 0.3, Double.NaN);
+    for (final String propagate : new String[] {"both", "random"}) {
+      for (final String splitMissing : new String[] {"true", "false"}) {
+        final Properties props = new Properties();
+        props.setProperty(BaggedClassifierBuilder.PROP_NUMTREES, "5");
+        props.setProperty(RandomTreeBuilder.PROP_MAX_DEPTH, "10");
+        props.setProperty(RandomTreeBuilder.PROP_PROPAGATE_MISSING, propagate);
+        props.setProperty(RandomTreeBuilder.PROP_SPLIT_MISSING, splitMissing);
+        final BaggedClassifierBuilder b = new BaggedClassifierBuilder();
+        b.setProperties(props);
+        b.build(train);
+        final PredictClassifier bag = b.getClassifier();
+        final PredictClassifier compiled = CompiledForest.compile(bag);
+        assertTrue(compiled instanceof CompiledForest);
+        checkSame(bag, compiled, test);
+        assertEquals(bag.toString(new StringBuilder(), "", train).toString(), compiled.toString(new StringBuilder(), "", train).toString());
+      }
+    }
+  }
+
+  public void testTree() throws IOException {
+    final Dataset data = new Dataset(new Attribute("n", MlDataType.INTEGER), new Attribute("s", MlDataType.STRING));
+    final double a = data.getAttributes()[1].encodeValue("a");
+    final double b = data.getAttributes()[1].encodeValue("b");
+    final PredictClassifier nominal = new BinaryTreeClassifier(new BinarySplitter("s", 1, b, MlDataType.STRING), new ZeroRBuilder.ZeroRClassifier(1, 3), new ZeroRBuilder.ZeroRClassifier(3, 1), 0.25);
+    final PredictClassifier missing = new BinaryTreeClassifier(new BinarySplitter("s", 1, Double.NaN, MlDataType.STRING), new ZeroRBuilder.ZeroRClassifier(1, 9), nominal, 0.5);
+    final PredictClassifier tree = new BinaryTreeClassifier(new BinarySplitter("n", 0, 5, MlDataType.INTEGER), missing, new ZeroRBuilder.ZeroRClassifier(7, 2), 0.4);
+    final PredictClassifier compiled = CompiledForest.compile(tree);
+    for (final double n : new double[] {Double.NaN, -0.0, 0, 5, 6}) {
+      for (final double s : new double[] {Double.NaN, a, b}) {
+        data.addInstance(new Instance(new double[] {n, s}, true));
+      }
+    }
+    checkSame(tree, compiled, data);
+
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    compiled.save(new DataOutputStream(bos), data);
+    final PredictClassifier loaded = MlPredictLoader.loadCompiledPredictClassifier(new ByteArrayInputStream(bos.toByteArray()), data);
+    assertTrue(loaded instanceof CompiledForest);
+    assertEquals(compiled, loaded);
+    assertEquals(compiled.hashCode(), loaded.hashCode());
+    checkSame(tree, loaded, data);
+  }
+
+  public void testNotCompiled() {
+    final PredictClassifier nested = new BaggedClassifier(new BaggedClassifier(new ZeroRBuilder.ZeroRClassifier(1, 2)), new ZeroRBuilder.ZeroRClassifier(3, 4));
+    assertTrue(nested == CompiledForest.compile(nested));
+  }
+}
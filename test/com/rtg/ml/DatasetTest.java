@@ -11,6 +11,8 @@
  */
 package com.rtg.ml;
 
+import java.util.Arrays;
+
 import junit.framework.TestCase;
 
 /**
@@ -36,10 +38,11 @@ public class DatasetTest extends TestCase {
     assertEquals(6.0, d.totalNegativeWeight());
     assertEquals(2, d.totalPositives());
     assertEquals(2, d.totalNegatives());
-    assertEquals(Math.PI, d.getInstances().get(0).instance()[0]);
-    assertEquals(0.0, d.getInstances().get(1).instance()[0]);
-    assertEquals(4.2, d.getInstances().get(2).instance()[0]);
-    assertEquals(5.0, d.getInstances().get(3).weight());
+    assertEquals(Math.PI, d.value(0, 0));
+    assertEquals(0.0, d.instance(1)[0]);
+    assertEquals(4.2, d.value(2, 0));
+    assertEquals(5.0, d.weight(3));
+    assertFalse(d.isPositive(3));
     d.reweight();
     assertEquals(2, d.totalPositives());
     assertEquals(2, d.totalNegatives());
@@ -47,4 +50,52 @@ public class DatasetTest extends TestCase {
     assertEquals(2.0, d.totalNegativeWeight());
   }
 
+  public void testColumns() {
+    final Dataset d = new Dataset(new Attribute("a", MlDataType.DOUBLE), new Attribute("b", MlDataType.INTEGER));
+    for (int i = 0; i < 100; ++i) {
+      d.addInstance(new double[] {i, i % 2 == 0 ? Double.NaN : -i}, i % 3 == 0, i);
+    }
+    assertEquals(100, d.size());
+    assertEquals(34, d.totalPositives());
+    assertEquals(50, d.missingValueCounts()[1]);
+    assertEquals(0, d.missingValueCounts()[0]);
+    assertEquals(57.0, d.value(57, 0));
+    assertEquals(-57.0, d.value(57, 1));
+    assertTrue(Attribute.isMissingValue(d.instance(58)[1]));
+    assertEquals(99.0, d.weight(99));
+    assertTrue(d.isPositive(99));
+  }
+
+  public void testSubset() {
+    final Dataset d = new Dataset(new Attribute("a", MlDataType.DOUBLE), new Attribute("b", MlDataType.DOUBLE));
+    for (int i = 0; i < 10; ++i) {
+      d.addInstance(new Instance(new double[] {i, 10 * i}, i < 4, 1.0 + i));
+    }
+    final Dataset s = d.subset(new int[] {7, 2, 2, 9});
+    assertEquals(4, s.size());
+    assertEquals(7.0, s.value(0, 0));
+    assertEquals(20.0, s.value(2, 1));
+    assertEquals(2, s.totalPositives());
+    assertEquals(6.0, s.totalPositiveWeight());
+    assertEquals(18.0, s.totalNegativeWeight());
+
+    final Dataset r = s.replaceAttribute(1, new double[] {-1, -2, -3, -4});
+    assertEquals(4, r.size());
+    assertEquals(-3.0, r.value(2, 1));
+    assertEquals(2.0, r.value(2, 0));
+    assertEquals("[9.0, -4.0]", Arrays.toString(r.instance(3)));
+    assertEquals(90.0, s.value(3, 1));
+    final Dataset rs = r.subset(new int[] {3, 0});
+    assertEquals("[9.0, -4.0]", Arrays.toString(rs.instance(0)));
+    assertEquals("[7.0, -1.0]", Arrays.toString(rs.instance(1)));
+    assertEquals(2, r.missingValueCounts().length);
+
+    try {
+      s.addInstance(new Instance(new double[] {0, 0}, true));
+      fail();
+    } catch (final UnsupportedOperationException e) {
+      assertEquals("Cannot modify a subset of a dataset", e.getMessage());
+    }
+  }
+
 }
@@ -101,6 +101,33 @@ public class RandomTreeBuilderTest extends AbstractBuildClassifierTest {
     assertEquals(expect, eval.accuracy(), 0.01);
   }
 
+  public void testPresortedSplits() {
+    final Dataset data = new Dataset(new Attribute("a", MlDataType.DOUBLE), new Attribute("b", MlDataType.INTEGER));
+    for (int i = 0; i < 5; ++i) {
+      // Zero and negative zero must be treated as the same value
+      data.addInstance(new Instance(new double[] {i % 2 == 0 ? -0.0 : 0.0, 0}, false));
+      data.addInstance(new Instance(new double[] {0.0, 3}, false));
+      data.addInstance(new Instance(new double[] {1.0, 0}, false));
+      data.addInstance(new Instance(new double[] {1.0, 3}, true));
+      data.addInstance(new Instance(new double[] {Double.NaN, 3}, false));
+    }
+    final Properties props = new Properties();
+    props.setProperty(RandomTreeBuilder.PROP_MIN_INSTANCES, "1");
+    props.setProperty(RandomTreeBuilder.PROP_NUM_ATTRIBUTES, "2");
+    props.setProperty(RandomTreeBuilder.PROP_PROPAGATE_MISSING, "both");
+    final BuildClassifier b = makeClassifier();
+    b.setProperties(props);
+    b.build(data);
+    final PredictClassifier p = b.getClassifier();
+    assertTrue(p.predict(new double[] {-0.0, 0}) < 0.5);
+    assertTrue(p.predict(new double[] {0.0, 3}) < 0.5);
+    assertTrue(p.predict(new double[] {0.4, 3}) < 0.5);
+    assertTrue(p.predict(new double[] {1.0, 0}) < 0.5);
+    assertTrue(p.predict(new double[] {0.6, 3}) > 0.5);
+    assertTrue(p.predict(new double[] {1.0, 2}) > 0.5);
+    assertTrue(p.predict(new double[] {1.0, 1}) < 0.5);
+  }
+
   public void testSplitPointDoubleAveraging() {
     final Double prev = 0.38999999999999996;
     assertEquals(prev, RandomTreeBuilder.getSplitPoint(MlDataType.DOUBLE, prev, 0.39));
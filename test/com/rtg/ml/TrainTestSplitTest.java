@@ -59,14 +59,18 @@ public class TrainTestSplitTest extends TestCase {
     assertEquals(tsize, t.mTrain.size());
     assertTrue(t.mTest.size() >= d.size() - tsize);
 
-    final HashSet<Instance> train = new HashSet<>();
-    train.addAll(t.mTrain.getInstances());
+    // Each instance has a distinct value
+    final HashSet<Double> train = new HashSet<>();
+    for (int i = 0; i < t.mTrain.size(); ++i) {
+      train.add(t.mTrain.value(i, 0));
+    }
 
     assertTrue(train.size() > 0); // Chance of this failing at random is very low.
 
-    for (Instance inst : t.mTest.getInstances()) {
-      assertFalse(train.contains(inst));
+    for (int i = 0; i < t.mTest.size(); ++i) {
+      assertFalse(train.contains(t.mTest.value(i, 0)));
     }
+    assertEquals(d.size(), train.size() + t.mTest.size());
   }
 
   public void testNoddy() {
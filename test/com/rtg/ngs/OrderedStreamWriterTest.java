@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.ngs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.rtg.util.IORunnableProxy;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.test.FileHelper;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class OrderedStreamWriterTest extends TestCase {
+
+  private static byte[] data(int slot, int length) {
+    final Random random = new Random(slot);
+    final byte[] data = new byte[length];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private static final int[] LENGTHS = {3 * OrderedStreamWriter.CHUNK_SIZE + 5, 0, 17, 2 * OrderedStreamWriter.CHUNK_SIZE, 100000, OrderedStreamWriter.CHUNK_SIZE, 1};
+
+  private void check(final long memoryLimit) throws IOException, InterruptedException {
+    final File dir = FileUtils.createTempDir("orderedstream", "test");
+    try {
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      final OrderedStreamWriter writer = new OrderedStreamWriter(bos, LENGTHS.length, dir, memoryLimit);
+      final List<Thread> threads = new ArrayList<>();
+      final List<IORunnableProxy> proxies = new ArrayList<>();
+      final IORunnableProxy writerProxy = new IORunnableProxy(writer);
+      threads.add(new Thread(writerProxy));
+      // Produce the slots in reverse order so that later slots are complete before earlier ones
+      for (int i = LENGTHS.length - 1; i >= 0; --i) {
+        final int slot = i;
+        final IORunnableProxy proxy = new IORunnableProxy(() -> {
+          try (final OutputStream out = writer.slot(slot)) {
+            final byte[] data = data(slot, LENGTHS[slot]);
+            if (slot % 2 == 0) {
+              out.write(data);
+            } else {
+              for (final byte b : data) {
+                out.write(b);
+              }
+            }
+          }
+        });
+        proxies.add(proxy);
+        threads.add(new Thread(proxy));
+      }
+      for (final Thread t : threads) {
+        t.start();
+      }
+      for (final Thread t : threads) {
+        t.join();
+      }
+      writerProxy.checkError();
+      for (final IORunnableProxy proxy : proxies) {
+        proxy.checkError();
+      }
+      final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      for (int i = 0; i < LENGTHS.length; ++i) {
+        expected.write(data(i, LENGTHS[i]));
+      }
+      assertTrue(Arrays.equals(expected.toByteArray(), bos.toByteArray()));
+      writer.cleanup();
+      final File[] remaining = dir.listFiles();
+      assertNotNull(remaining);
+      assertEquals(0, remaining.length);
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+
+  public void testInMemory() throws IOException, InterruptedException {
+    check(Long.MAX_VALUE);
+  }
+
+  public void testSpill() throws IOException, InterruptedException {
+    check(OrderedStreamWriter.CHUNK_SIZE);
+  }
+
+  public void testNoSpace() throws IOException, InterruptedException {
+    check(0);
+  }
+
+  public void testAbort() throws IOException, InterruptedException {
+    final File dir = FileUtils.createTempDir("orderedstream", "test");
+    try {
+      final OrderedStreamWriter writer = new OrderedStreamWriter(new ByteArrayOutputStream(), 2, dir, 0);
+      final IORunnableProxy writerProxy = new IORunnableProxy(writer);
+      final Thread t = new Thread(writerProxy);
+      t.start();
+      // The second slot spills, the first is never closed
+      try (final OutputStream out = writer.slot(1)) {
+        out.write(data(1, 2 * OrderedStreamWriter.CHUNK_SIZE));
+      }
+      writer.abort();
+      t.join();
+      try {
+        writerProxy.checkError();
+        fail();
+      } catch (final IOException e) {
+        assertEquals("Ordered output was aborted", e.getMessage());
+      }
+      try {
+        writer.slot(0).write(new byte[OrderedStreamWriter.CHUNK_SIZE + 1]);
+        fail();
+      } catch (final IOException e) {
+        assertEquals("Ordered output was aborted", e.getMessage());
+      }
+      writer.cleanup();
+      final File[] remaining = dir.listFiles();
+      assertNotNull(remaining);
+      assertEquals(0, remaining.length);
+    } finally {
+      assertTrue(FileHelper.deleteAll(dir));
+    }
+  }
+}
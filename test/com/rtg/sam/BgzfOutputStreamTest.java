@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import com.rtg.util.PortableRandom;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import junit.framework.TestCase;
+
+/**
+ */
+public class BgzfOutputStreamTest extends TestCase {
+
+  private static byte[] bgzf(byte[] data, int level, boolean terminate) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (BgzfOutputStream out = new BgzfOutputStream(bos, level, terminate)) {
+      out.write(data, 0, data.length / 3);
+      out.write(data[data.length / 3]);
+      out.write(data, data.length / 3 + 1, data.length - data.length / 3 - 1);
+    }
+    return bos.toByteArray();
+  }
+
+  private static byte[] data(int length, String alphabet) {
+    final PortableRandom random = new PortableRandom(42);
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      data[i] = (byte) alphabet.charAt(random.nextInt(alphabet.length()));
+    }
+    return data;
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] buf = new byte[4096];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      bos.write(buf, 0, n);
+    }
+    return bos.toByteArray();
+  }
+
+  public void testRoundTrip() throws IOException {
+    final byte[] data = data(500000, "ACGT");
+    final byte[] compressed = bgzf(data, 5, true);
+    assertTrue(BlockCompressedInputStream.isValidFile(new BufferedInputStream(new ByteArrayInputStream(compressed))));
+    assertTrue(Arrays.equals(BgzfOutputStream.TERMINATOR, Arrays.copyOfRange(compressed, compressed.length - BgzfOutputStream.TERMINATOR.length, compressed.length)));
+    try (InputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compressed))) {
+      assertTrue(Arrays.equals(data, readAll(in)));
+    }
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(compressed), 2)) {
+      assertTrue(Arrays.equals(data, readAll(in)));
+    }
+  }
+
+  public void testIncompressible() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    for (char c = 0; c < 256; ++c) {
+      sb.append(c);
+    }
+    final byte[] data = data(3 * BgzfOutputStream.BLOCK_DATA_SIZE + 17, sb.toString());
+    for (final int level : new int[] {Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+      try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(bgzf(data, level, true)), 1)) {
+        assertTrue(Arrays.equals(data, readAll(in)));
+      }
+    }
+  }
+
+  public void testConcatenation() throws IOException {
+    final byte[] first = data(100000, "AC");
+    final byte[] second = data(70000, "GT");
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] start = bgzf(first, 5, false);
+    assertFalse(Arrays.equals(BgzfOutputStream.TERMINATOR, Arrays.copyOfRange(start, start.length - BgzfOutputStream.TERMINATOR.length, start.length)));
+    bos.write(start);
+    bos.write(bgzf(second, 5, true));
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.write(first);
+    expected.write(second);
+    try (InputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      assertTrue(Arrays.equals(expected.toByteArray(), readAll(in)));
+    }
+  }
+
+  public void testEmpty() throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    new BgzfOutputStream(bos, 5, false).close();
+    assertEquals(0, bos.size());
+    new BgzfOutputStream(bos, 5, true).close();
+    assertTrue(Arrays.equals(BgzfOutputStream.TERMINATOR, bos.toByteArray()));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import junit.framework.TestCase;
+
+/**
+ */
+public class ParallelBgzfInputStreamTest extends TestCase {
+
+  private static byte[] bgzf(byte[] data) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (BlockCompressedOutputStream out = new BlockCompressedOutputStream(bos, (File) null)) {
+      out.write(data);
+    }
+    return bos.toByteArray();
+  }
+
+  private static byte[] data(int length) {
+    final PortableRandom random = new PortableRandom(42);
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      // Low entropy so that the data compresses, but not trivially
+      data[i] = (byte) ("ACGT".charAt(random.nextInt(4)));
+    }
+    return data;
+  }
+
+  private static byte[] readAll(InputStream in, int chunk) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] buf = new byte[chunk];
+    int n;
+    while ((n = in.read(buf, 0, chunk)) != -1) {
+      bos.write(buf, 0, n);
+    }
+    return bos.toByteArray();
+  }
+
+  public void testMultipleBlocks() throws IOException {
+    // Several BGZF blocks worth of data
+    final byte[] data = data(1000000);
+    final byte[] compressed = bgzf(data);
+    for (final int threads : new int[] {1, 3}) {
+      try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(compressed), threads)) {
+        assertTrue(Arrays.equals(data, readAll(in, 12345)));
+        assertEquals(-1, in.read());
+      }
+    }
+  }
+
+  public void testSingleByteReads() throws IOException {
+    final byte[] data = data(1000);
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(bgzf(data)), 2)) {
+      for (final byte b : data) {
+        assertEquals(b & 0xFF, in.read());
+      }
+      assertEquals(-1, in.read());
+    }
+  }
+
+  public void testEmpty() throws IOException {
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(bgzf(new byte[0])), 2)) {
+      assertEquals(-1, in.read());
+    }
+  }
+
+  public void testNotBgzf() throws IOException {
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream("not compressed at all".getBytes()), 2)) {
+      in.read();
+      fail();
+    } catch (final IOException e) {
+      assertEquals("Input is not in BGZF format", e.getMessage());
+    }
+  }
+
+  public void testTruncated() throws IOException {
+    final byte[] compressed = bgzf(data(1000));
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(Arrays.copyOf(compressed, 100)), 2)) {
+      in.read();
+      fail();
+    } catch (final IOException e) {
+      assertEquals("Premature end of BGZF stream", e.getMessage());
+    }
+  }
+
+  public void testCorrupt() throws IOException {
+    final byte[] compressed = bgzf(data(1000));
+    // Flip a bit in the stored CRC of the first block
+    final int blockSize = (compressed[16] & 0xFF) | ((compressed[17] & 0xFF) << 8);
+    compressed[blockSize + 1 - 8] ^= 1;
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(compressed), 2)) {
+      in.read();
+      fail();
+    } catch (final IOException e) {
+      assertEquals("Corrupt BGZF block, CRC mismatch", e.getMessage());
+    }
+  }
+
+  public void testBadThreads() {
+    try {
+      new ParallelBgzfInputStream(new ByteArrayInputStream(new byte[0]), 0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Illegal number of threads: 0", e.getMessage());
+    }
+  }
+}
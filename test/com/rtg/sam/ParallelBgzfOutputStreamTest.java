@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.rtg.util.PortableRandom;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import junit.framework.TestCase;
+
+/**
+ */
+public class ParallelBgzfOutputStreamTest extends TestCase {
+
+  private static byte[] data(int length) {
+    final PortableRandom random = new PortableRandom(17);
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      data[i] = (byte) "ACGTN".charAt(random.nextInt(i % 1000 < 500 ? 2 : 5));
+    }
+    return data;
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final byte[] buf = new byte[4096];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      bos.write(buf, 0, n);
+    }
+    return bos.toByteArray();
+  }
+
+  public void testSameAsSerial() throws IOException {
+    final byte[] data = data(40 * BgzfOutputStream.BLOCK_DATA_SIZE + 123);
+    final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+    try (BgzfOutputStream out = new BgzfOutputStream(serial, 5, true)) {
+      out.write(data);
+    }
+    for (final int threads : new int[] {1, 3}) {
+      final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+      try (ParallelBgzfOutputStream out = new ParallelBgzfOutputStream(parallel, threads, 5, true)) {
+        out.write(data, 0, 1000);
+        out.write(data[1000]);
+        out.write(data, 1001, data.length - 1001);
+      }
+      assertTrue(Arrays.equals(serial.toByteArray(), parallel.toByteArray()));
+      try (InputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(parallel.toByteArray()))) {
+        assertTrue(Arrays.equals(data, readAll(in)));
+      }
+    }
+  }
+
+  public void testFlushAndNoTerminator() throws IOException {
+    final byte[] data = data(100000);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ParallelBgzfOutputStream out = new ParallelBgzfOutputStream(bos, 2, 5, false)) {
+      out.write(data, 0, 50);
+      out.flush();
+      assertTrue(bos.size() > 0);
+      out.write(data, 50, data.length - 50);
+    }
+    final byte[] compressed = bos.toByteArray();
+    assertFalse(Arrays.equals(BgzfOutputStream.TERMINATOR, Arrays.copyOfRange(compressed, compressed.length - BgzfOutputStream.TERMINATOR.length, compressed.length)));
+    try (InputStream in = new ParallelBgzfInputStream(new ByteArrayInputStream(compressed), 2)) {
+      assertTrue(Arrays.equals(data, readAll(in)));
+    }
+  }
+
+  public void testBadThreads() {
+    try {
+      new ParallelBgzfOutputStream(new ByteArrayOutputStream(), 0, 5, true);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      assertEquals("Illegal number of threads: 0", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.sam;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import com.rtg.util.diagnostic.Diagnostic;
+import com.rtg.util.diagnostic.ErrorType;
+import com.rtg.util.diagnostic.NoTalkbackSlimException;
+import com.rtg.util.io.FileUtils;
+import com.rtg.util.io.MemoryPrintStream;
+import com.rtg.util.io.TestDirectory;
+import com.rtg.util.test.FileHelper;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import junit.framework.TestCase;
+
+/**
+ */
+public class ParallelInflateBamReaderTest extends TestCase {
+
+  public void testSameAsHtsjdk() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("parallelinflate")) {
+      final File bam = FileHelper.resourceToFile("com/rtg/variant/cnv/resources/testFilter.bam", new File(dir, "test.bam"));
+      assertTrue(ParallelInflateBamReader.isBam(bam));
+      int count = 0;
+      try (final SamReader expected = SamReaderFactory.makeDefault().open(bam);
+           final ParallelInflateBamReader actual = new ParallelInflateBamReader(bam, 3, null)) {
+        assertEquals(expected.getFileHeader().getSequenceDictionary().size(), actual.header().getSequenceDictionary().size());
+        final SAMRecordIterator it = expected.iterator();
+        while (it.hasNext()) {
+          final SAMRecord exp = it.next();
+          assertTrue(actual.hasNext());
+          assertEquals(exp.getSAMString(), actual.next().getSAMString());
+          ++count;
+        }
+        assertFalse(actual.hasNext());
+        assertEquals(count, actual.getTotalRecordsCount());
+      }
+      assertTrue(count > 0);
+    }
+  }
+
+  public void testHeaderDictionaryMismatch() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("parallelinflate")) {
+      final File bam = FileHelper.resourceToFile("com/rtg/variant/cnv/resources/testFilter.bam", new File(dir, "test.bam"));
+      final SAMFileHeader header = new SAMFileHeader();
+      header.setSequenceDictionary(new SAMSequenceDictionary(Collections.singletonList(new SAMSequenceRecord("notInFile", 1000))));
+      final MemoryPrintStream mps = new MemoryPrintStream();
+      Diagnostic.setLogStream(mps.printStream());
+      try {
+        new ParallelInflateBamReader(bam, 2, header).close();
+        fail();
+      } catch (final NoTalkbackSlimException e) {
+        assertEquals(ErrorType.SAM_INCOMPATIBLE_HEADER_ERROR, e.getErrorType());
+      } finally {
+        Diagnostic.setLogStream();
+      }
+      try (final SamReader expected = SamReaderFactory.makeDefault().open(bam);
+           final ParallelInflateBamReader actual = new ParallelInflateBamReader(bam, 2, expected.getFileHeader())) {
+        assertTrue(expected.getFileHeader() == actual.header());
+      }
+    }
+  }
+
+  public void testNotBam() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("parallelinflate")) {
+      final File sam = new File(dir, "test.sam");
+      FileUtils.stringToFile("@HD\tVN:1.4\tSO:coordinate\n", sam);
+      assertFalse(ParallelInflateBamReader.isBam(sam));
+      final File gz = new File(dir, "test.sam.gz");
+      FileHelper.stringToGzFile("@HD\tVN:1.4\tSO:coordinate\n", gz);
+      assertFalse(ParallelInflateBamReader.isBam(gz));
+    }
+  }
+}
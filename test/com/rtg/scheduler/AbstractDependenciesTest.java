@@ -38,33 +38,40 @@ public abstract class AbstractDependenciesTest<J extends JobId<J>> extends TestC
   protected Set<J> allIds(final Dependencies<J> dep, int lookAhead) {
     final Set<J> allIds = new HashSet<>();
     final LookAhead head = getLookAhead(lookAhead, dep.delta());
-    while (true) {
-      final J id = dep.next(head);
-      //System.err.println("init:" + id);
-      if (id == null) {
-        break;
+    // Completing jobs may make more initial jobs available, so repeat until neither adds anything
+    boolean added = true;
+    while (added) {
+      added = false;
+      while (true) {
+        final J id = dep.next(head);
+        //System.err.println("init:" + id);
+        if (id == null) {
+          break;
+        }
+        head.increment(id.time());
+        allIds.add(id);
+        added = true;
+        assertTrue("" + id + ":" + dep.from(id), Util.nonNullSize(dep.from(id)) == 0);
       }
-      head.increment(id.time());
-      allIds.add(id);
-      assertTrue("" + id + ":" + dep.from(id), Util.nonNullSize(dep.from(id)) == 0);
-    }
-    while (true) {
-      final Set<J> frontier = new HashSet<>();
-      for (J next : allIds) {
-        final Collection<J> to = dep.to(next);
-        for (J idTo : to) {
-          if (idTo != null && !allIds.contains(idTo)) {
-            //System.err.println(next + ">" + idTo);
-            frontier.add(idTo);
+      while (true) {
+        final Set<J> frontier = new HashSet<>();
+        for (J next : allIds) {
+          final Collection<J> to = dep.to(next);
+          for (J idTo : to) {
+            if (idTo != null && !allIds.contains(idTo)) {
+              //System.err.println(next + ">" + idTo);
+              frontier.add(idTo);
+            }
           }
         }
+        //System.err.println("Frontier:" + frontier);
+        //System.err.println("All:" + allIds);
+        if (frontier.size() == 0) {
+          break;
+        }
+        allIds.addAll(frontier);
+        added = true;
       }
-      //System.err.println("Frontier:" + frontier);
-      //System.err.println("All:" + allIds);
-      if (frontier.size() == 0) {
-        break;
-      }
-      allIds.addAll(frontier);
     }
 
     //check that from and to are ordered
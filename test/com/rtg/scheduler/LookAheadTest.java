@@ -176,11 +176,13 @@ public class LookAheadTest extends TestCase {
   private void checkEmpty(final LookAhead la) {
     la.globalIntegrity();
     assertEquals(0, la.total());
+    assertEquals(-1, la.current());
   }
 
   private void check(final LookAhead la, final int t, final int cnt) {
     la.globalIntegrity();
     assertEquals(cnt, la.total());
+    assertEquals(t, la.current());
     if (t >= 1) {
       assertFalse(la.ok(t - 1, la.delta()));
     }
@@ -46,4 +46,34 @@ public class ScoreInterfaceMemoTest extends TestCase {
     assertTrue(s3 instanceof ScoreFastUnderflowCG);
     assertTrue(s3 == memo.getScoreInterface(rpcg));
   }
+
+  public void testThreads() throws IOException, InterruptedException {
+    final ScoreInterfaceMemoInterface memo = new ScoreInterfaceMemo();
+    final RealignParams me = new RealignParamsImplementation(MachineErrorParams.builder().create());
+    final AllPaths s1 = memo.getScoreInterface(me);
+    final AllPaths[] other = new AllPaths[2];
+    final Thread t = new Thread(() -> {
+      other[0] = memo.getScoreInterface(me);
+      other[1] = memo.getScoreInterface(me);
+    });
+    t.start();
+    t.join();
+    assertNotNull(other[0]);
+    assertTrue(other[0] == other[1]);
+    assertFalse(s1 == other[0]);
+    assertTrue(s1 == memo.getScoreInterface(me));
+  }
+
+  public void testBounded() throws IOException {
+    final ScoreInterfaceMemoInterface memo = new ScoreInterfaceMemo();
+    final MachineErrorParamsBuilder builder = MachineErrorParams.builder();
+    final RealignParams me = new RealignParamsImplementation(builder.create());
+    final AllPaths s1 = memo.getScoreInterface(me);
+    for (int i = 1; i < ScoreInterfaceMemo.MAX_CACHED; ++i) {
+      memo.getScoreInterface(new RealignParamsImplementation(builder.create()));
+    }
+    assertTrue(s1 == memo.getScoreInterface(me));
+    memo.getScoreInterface(new RealignParamsImplementation(builder.create()));
+    assertFalse(s1 == memo.getScoreInterface(me));
+  }
 }
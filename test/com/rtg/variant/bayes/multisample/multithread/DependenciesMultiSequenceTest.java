@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+
+package com.rtg.variant.bayes.multisample.multithread;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.rtg.scheduler.AbstractDependenciesTest;
+import com.rtg.scheduler.Dependencies;
+import com.rtg.scheduler.EventList;
+import com.rtg.scheduler.Executor;
+import com.rtg.scheduler.ExecutorSequential;
+import com.rtg.scheduler.Job;
+import com.rtg.scheduler.JobFactory;
+import com.rtg.scheduler.LookAhead;
+import com.rtg.scheduler.Result;
+import com.rtg.scheduler.Scheduler;
+import com.rtg.scheduler.SchedulerSynchronized;
+import com.rtg.util.integrity.Exam;
+import com.rtg.util.io.MemoryPrintStream;
+import com.rtg.variant.bayes.multisample.Complexities;
+
+/**
+ */
+public class DependenciesMultiSequenceTest extends AbstractDependenciesTest<JobIdMultisample> {
+
+  private static final class Source implements DependenciesMultiSequence.SequenceSource {
+    private final int[] mChunks;
+    private final List<Integer> mOffsets = new ArrayList<>();
+
+    Source(final int... chunks) {
+      mChunks = chunks;
+    }
+
+    @Override
+    public int nextSequence(final int offset) {
+      if (mOffsets.size() == mChunks.length) {
+        return 0;
+      }
+      mOffsets.add(offset);
+      return mChunks[mOffsets.size() - 1];
+    }
+  }
+
+  @Override
+  protected Dependencies<JobIdMultisample> getDependencies() {
+    return new DependenciesMultiSequence(new Source(2, 3));
+  }
+
+  private static JobIdMultisample id(final int time, final JobType ty) {
+    return new JobIdMultisample(Integer.MAX_VALUE - 1, time, ty);
+  }
+
+  public void testGlobalIntegrity() {
+    Exam.globalIntegrity(getDependencies());
+  }
+
+  public void testOffsets() {
+    final Source source = new Source(2, 3, 1);
+    final DependenciesMultiSequence dep = new DependenciesMultiSequence(source);
+    assertEquals(2, dep.delta());
+    final Set<JobIdMultisample> allIds = allIds(dep, 20);
+    assertEquals("[0, 4, 9]", source.mOffsets.toString());
+    Exam.globalIntegrity(dep);
+    for (final int time : new int[] {0, 1, 4, 5, 6, 9}) {
+      assertTrue(allIds.contains(id(time, JobType.INCR)));
+    }
+    assertFalse(allIds.contains(id(2, JobType.INCR)));
+    assertFalse(allIds.contains(id(3, JobType.INCR)));
+    assertTrue(allIds.contains(id(2, JobType.BED)));
+    assertTrue(allIds.contains(id(3, JobType.OUT)));
+    assertFalse(allIds.contains(id(3, JobType.BED)));
+    assertTrue(allIds.contains(id(11, JobType.OUT)));
+  }
+
+  public void testNextSequenceAfterLastIncr() {
+    final Source source = new Source(2, 3);
+    final DependenciesMultiSequence dep = new DependenciesMultiSequence(source);
+    final LookAhead lookAhead = getLookAhead(10, dep.delta());
+    assertEquals(id(0, JobType.INCR), dep.next(lookAhead));
+    assertEquals(id(1, JobType.INCR), dep.next(lookAhead));
+    // The next sequence is not requested until the last INCR of the first has completed
+    assertNull(dep.next(lookAhead));
+    assertEquals("[0]", source.mOffsets.toString());
+    dep.to(id(0, JobType.INCR));
+    assertNull(dep.next(lookAhead));
+    dep.to(id(1, JobType.INCR));
+    assertEquals("[0, 4]", source.mOffsets.toString());
+    assertEquals(id(4, JobType.INCR), dep.next(lookAhead));
+  }
+
+  public void testEmpty() {
+    final DependenciesMultiSequence dep = new DependenciesMultiSequence(new Source());
+    assertNull(dep.next(getLookAhead(5, dep.delta())));
+  }
+
+  public void testLinks() {
+    final Dependencies<JobIdMultisample> dep = getDependencies();
+    allIds(dep, 10);
+    // First sequence occupies times 0 to 3, the second 4 to 8
+    checkTo(dep, id(2, JobType.BED), id(4, JobType.BED));
+    checkTo(dep, id(3, JobType.OUT), id(5, JobType.OUT));
+    checkTo(dep, id(7, JobType.BED));
+    checkTo(dep, id(8, JobType.OUT));
+    checkFrom(dep, id(4, JobType.BED), id(2, JobType.BED), id(4, JobType.DANGLING), id(4, JobType.COMPLEX));
+    checkFrom(dep, id(5, JobType.OUT), id(3, JobType.OUT), id(5, JobType.FILTER));
+    checkFrom(dep, id(0, JobType.BED), null, id(0, JobType.DANGLING), id(0, JobType.COMPLEX));
+    checkFrom(dep, id(1, JobType.OUT), null, id(1, JobType.FILTER));
+    // Within a sequence the dependencies are unchanged
+    checkFrom(dep, id(5, JobType.DANGLING), id(4, JobType.INCR), id(5, JobType.INCR), id(4, JobType.DANGLING));
+    checkTo(dep, id(8, JobType.FILTER), id(8, JobType.OUT));
+  }
+
+  private void checkTo(final Dependencies<JobIdMultisample> dep, final JobIdMultisample id, final JobIdMultisample... exp) {
+    final Collection<JobIdMultisample> to = dep.to(id);
+    assertEquals(id + ">" + to, exp.length, to.size());
+    for (final JobIdMultisample exid : exp) {
+      assertTrue(id + ">" + to, to.contains(exid));
+    }
+  }
+
+  private void checkFrom(final Dependencies<JobIdMultisample> dep, final JobIdMultisample id, final JobIdMultisample... exp) {
+    final Collection<JobIdMultisample> from = dep.from(id);
+    assertEquals(id + ">" + from, exp.length, from.size());
+    int i = 0;
+    for (final JobIdMultisample frid : from) {
+      assertEquals(id + ">" + from, exp[i], frid);
+      ++i;
+    }
+  }
+
+  public void testRun() throws IOException {
+    final DependenciesMultiSequence dep = new DependenciesMultiSequence(new Source(3, 1, 2));
+    final List<JobIdMultisample> out = new ArrayList<>();
+    final List<JobIdMultisample> bed = new ArrayList<>();
+    final JobFactory<JobIdMultisample> factory = (id, arguments) -> new Job<JobIdMultisample>(id) {
+      @Override
+      protected Result run() {
+        switch (id.type()) {
+          case INCR:
+            return new Result(new Complexities(new ArrayList<>(), "foo", 0, 100, 5, 5, new byte[0], true, null), 5);
+          case DANGLING:
+            return new Result(new Complexities(new ArrayList<>(), "foo", 0, 100, 5, 5, new byte[0], true, null));
+          case COMPLEX:
+            return new Result((Object) null);
+          case FILTER:
+            return new Result(null, null);
+          case FLUSH:
+            return new Result();
+          case BED:
+            bed.add(id);
+            return new Result();
+          case OUT:
+            out.add(id);
+            return null;
+          default:
+            throw new RuntimeException();
+        }
+      }
+    };
+
+    final MemoryPrintStream mps = new MemoryPrintStream();
+    final EventList<JobIdMultisample> eventList = new EventListMultiSample<>();
+    final Scheduler<JobIdMultisample> sch = new SchedulerSynchronized<>(dep, factory, eventList, mps.printStream(), null, 1);
+    final Executor<JobIdMultisample> exec = new ExecutorSequential<>(sch);
+    exec.run();
+    assertEquals(0, sch.lookAhead().total());
+    // Every sequence is released once all its jobs have finished
+    assertEquals(0, dep.segments());
+    // Sequences occupy times 0-4, 5-7 and 8-11, with BED at every time but the last and OUT at all but the first
+    assertEquals(9, bed.size());
+    assertEquals(9, out.size());
+    for (int i = 1; i < out.size(); ++i) {
+      assertTrue(out.get(i - 1).time() < out.get(i).time());
+      assertTrue(bed.get(i - 1).time() < bed.get(i).time());
+    }
+    assertEquals(11, out.get(out.size() - 1).time());
+    assertEquals(10, bed.get(bed.size() - 1).time());
+  }
+}
@@ -13,6 +13,7 @@
 package com.rtg.variant.bayes.snp;
 
 import com.rtg.variant.GenomePriorParams;
+import com.rtg.variant.bayes.Description;
 import com.rtg.variant.bayes.EvidenceInterface;
 import com.rtg.variant.bayes.ModelInterface;
 import com.rtg.variant.bayes.NoAlleleBalance;
@@ -44,4 +45,33 @@ public class ModelSnpFactoryTest extends TestCase {
     final EvidenceInterface di = new EvidenceQ(DescriptionSnp.SINGLETON, 0, 0, 0, 0.1, 0.1, true, false, false, false);
     mo.increment(di);
   }
+
+  public void testRelease() {
+    final GenomePriorParams params = GenomePriorParams.builder().create();
+    final ModelSnpFactory mf = new ModelSnpFactory(params, false, new NoAlleleBalance());
+    final ModelInterface<Description> fresh = mf.make(1);
+    final ModelInterface<Description> mo = mf.make(1);
+    final EvidenceInterface di = new EvidenceQ(DescriptionSnp.SINGLETON, 0, 0, 0, 0.1, 0.1, true, false, false, false);
+    mo.increment(di);
+    mo.freeze();
+    assertEquals(1, mo.statistics().coverage());
+    mf.release(mo);
+
+    // Only reused for the same reference
+    assertNotSame(mo, mf.make(2));
+    final ModelInterface<Description> reused = mf.make(1);
+    assertSame(mo, reused);
+    assertEquals(0, reused.statistics().coverage());
+    assertEquals(0, reused.statistics().nonRefCount());
+    for (int i = 0; i < fresh.size(); ++i) {
+      assertEquals(fresh.p(i), reused.p(i));
+    }
+    reused.increment(di); // Not frozen
+    assertNotSame(mo, mf.make(1));
+
+    // Models from another factory are not reused
+    final ModelSnpFactory other = new ModelSnpFactory(params, false, new NoAlleleBalance());
+    other.release(mf.make(1));
+    assertNotSame(mo, other.make(1));
+  }
 }
@@ -32,12 +32,17 @@ import static com.rtg.util.StringUtils.LS;
 import static com.rtg.util.StringUtils.TAB;
 
 import java.io.File;
+import java.util.Collections;
 
 import com.rtg.launcher.AbstractCli;
 import com.rtg.launcher.AbstractCliTest;
 import com.rtg.launcher.CommonFlags;
 import com.rtg.launcher.MainResult;
+import com.rtg.launcher.OutputParams;
+import com.rtg.launcher.SequenceParams;
+import com.rtg.mode.SequenceMode;
 import com.rtg.reader.ReaderTestUtils;
+import com.rtg.sam.SamFilterParams;
 import com.rtg.tabix.IndexUtils;
 import com.rtg.tabix.TabixIndexer;
 import com.rtg.util.Environment;
@@ -437,4 +442,39 @@ public class CoverageTaskTest extends AbstractCliTest {
       mNano.check("covBedRegionNoTemplate.txt", FileUtils.fileToString(summary));
     }
   }
+
+  private String coverageChunked(File dir, File sam, File template, String name, int threads, int chunkSize, boolean tsv, int smoothing) throws Exception {
+    final File output = new File(dir, name);
+    assertTrue(output.mkdir());
+    final CoverageParams params = CoverageParams.builder()
+      .outputParams(new OutputParams(output, false, false))
+      .mapped(Collections.singletonList(sam))
+      .genome(SequenceParams.builder().directory(template).mode(SequenceMode.UNIDIRECTIONAL).create().readerParams())
+      .filterParams(SamFilterParams.builder().create())
+      .ioThreads(1).execThreads(threads).chunkSize(chunkSize)
+      .tsvOutput(tsv).smoothing(smoothing).disableHtmlReport(true)
+      .create();
+    final CoverageStatistics stats = new CoverageStatistics(output, true);
+    new CoverageTask(params, TestUtils.getNullOutputStream(), stats).exec();
+    return StringUtils.grepMinusV(FileUtils.fileToString(params.outFile()), "^#") + stats.getStatistics();
+  }
+
+  public void testChunkedThreads() throws Exception {
+    Diagnostic.setLogStream();
+    try (final TestDirectory tmpDir = new TestDirectory()) {
+      final File samFile = new File(tmpDir, "sam.sam.gz");
+      IndexUtils.ensureBlockCompressed(FileHelper.resourceToFile("com/rtg/variant/resources/coverage_mated.sam.gz", samFile));
+      new TabixIndexer(samFile).saveSamIndex();
+      final String tmpl = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAANAAAAAAAAAANAAAAAAAAAAAAAAAAAAAAAAAAAA";
+      final File template = ReaderTestUtils.getDNADir(">simulatedSequence1\n" + tmpl + "\n>simulatedSequence2\n" + tmpl + "\n", new File(tmpDir, "template"));
+      int k = 0;
+      for (final boolean tsv : new boolean[] {false, true}) {
+        for (final int smoothing : new int[] {0, 1, 3}) {
+          final String expected = coverageChunked(tmpDir, samFile, template, "out" + k++, 1, 10000, tsv, smoothing);
+          assertEquals(expected, coverageChunked(tmpDir, samFile, template, "out" + k++, 1, 7, tsv, smoothing));
+          assertEquals(expected, coverageChunked(tmpDir, samFile, template, "out" + k++, 4, 7, tsv, smoothing));
+        }
+      }
+    }
+  }
 }
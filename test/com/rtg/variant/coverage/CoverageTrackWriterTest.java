@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.rtg.util.io.TestDirectory;
+import com.rtg.util.test.FileHelper;
+import com.rtg.variant.cnv.preprocess.Column;
+import com.rtg.variant.cnv.preprocess.NumericColumn;
+import com.rtg.variant.cnv.preprocess.RegionDataset;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests writing and reading binary coverage tracks.
+ */
+public class CoverageTrackWriterTest extends TestCase {
+
+  private static List<String> query(CoverageTrackReader reader, String sequence, int start, int end) throws IOException {
+    final List<String> res = new ArrayList<>();
+    reader.query(sequence, start, end, (s, e, coverage, label) -> res.add(s + "-" + e + ":" + label + ":" + coverage));
+    return res;
+  }
+
+  public void testRoundTrip() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("track")) {
+      final File file = new File(dir, "coverage.track");
+      final CoverageParams params = CoverageParams.builder().create();
+      // Enough levels to span several blocks on the first sequence
+      final int n = CoverageTrackWriter.BLOCK_INTERVALS * 2 + 5;
+      try (final CoverageTrackWriter writer = new CoverageTrackWriter(new FileOutputStream(file), params)) {
+        writer.init();
+        for (int i = 0; i < n; ++i) {
+          writer.finalCoverageRegion("seq1", i * 10, i * 10 + 10, i % 7);
+        }
+        writer.setRegionLabel("callable");
+        writer.finalCoverageRegion("seq2", 0, 1500, 2.5);
+        writer.setRegionLabel(" ");
+        writer.finalCoverageRegion("seq2", 1500, 2500, 0.5);
+      }
+      assertTrue(CoverageTrackReader.isTrack(file));
+      assertFalse(CoverageTrackReader.isTrack(new File(dir, "nonexistent")));
+      try (final CoverageTrackReader reader = new CoverageTrackReader(file)) {
+        assertEquals(Arrays.asList("seq1", "seq2"), reader.sequenceNames());
+        assertEquals(n * 10, reader.sequenceLength("seq1"));
+        assertEquals(2500, reader.sequenceLength("seq2"));
+        assertEquals(-1, reader.sequenceLength("seq3"));
+        assertEquals(Arrays.asList("40-50:coverage:4.0", "50-60:coverage:5.0"), query(reader, "seq1", 45, 51));
+        final int boundary = CoverageTrackWriter.BLOCK_INTERVALS * 10;
+        assertEquals(Arrays.asList((boundary - 10) + "-" + boundary + ":coverage:" + (double) ((CoverageTrackWriter.BLOCK_INTERVALS - 1) % 7),
+          boundary + "-" + (boundary + 10) + ":coverage:" + (double) (CoverageTrackWriter.BLOCK_INTERVALS % 7)),
+          query(reader, "seq1", boundary - 1, boundary + 1));
+        assertEquals(Arrays.asList("0-1500:callable:2.5", "1500-2500:coverage:0.5"), query(reader, "seq2", 0, 10000));
+        assertEquals(Collections.emptyList(), query(reader, "seq3", 0, 10000));
+
+        // Zoom level derived and computed directly from intervals should agree
+        final double[] zoomed = reader.binnedCoverage("seq2", 1000);
+        assertEquals(3, zoomed.length);
+        assertEquals(2.5, zoomed[0], 1e-9);
+        assertEquals(1.5, zoomed[1], 1e-9);
+        assertEquals(0.5, zoomed[2], 1e-9);
+        final double[] direct = reader.binnedCoverage("seq2", 1200);
+        assertEquals(3, direct.length);
+        assertEquals(2.5, direct[0], 1e-9);
+        assertEquals((300 * 2.5 + 900 * 0.5) / 1200, direct[1], 1e-9);
+        assertEquals(0.5, direct[2], 1e-9);
+        final double[] coarse = reader.binnedCoverage("seq1", 20000);
+        final double[] fine = reader.binnedCoverage("seq1", 20);
+        double sum = 0;
+        for (int i = 0; i < 1000; ++i) {
+          sum += fine[i];
+        }
+        assertEquals(sum / 1000, coarse[0], 1e-6);
+      }
+    }
+  }
+
+  public void testPerRegionSorted() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("track")) {
+      final File file = new File(dir, "coverage.track");
+      final CoverageParams params = CoverageParams.builder().perRegion(true).create();
+      try (final CoverageTrackWriter writer = new CoverageTrackWriter(new FileOutputStream(file), params)) {
+        writer.init();
+        writer.setRegionLabel("b");
+        writer.finalCoverageRegion("seq1", 100, 200, 3);
+        writer.setRegionLabel("a");
+        writer.finalCoverageRegion("seq1", 10, 50, 1);
+      }
+      final RegionDataset dataset = RegionDataset.readFromBed(file, Collections.<Column>singletonList(new NumericColumn("coverage")));
+      assertEquals(2, dataset.size());
+      assertEquals(10, dataset.regions().get(0).getStart());
+      assertEquals(200, dataset.regions().get(1).getEnd());
+      assertEquals(1.0, dataset.asNumeric(0).get(0), 1e-9);
+      assertEquals(3.0, dataset.asNumeric(0).get(1), 1e-9);
+      final RegionDataset all = RegionDataset.readFromBed(file);
+      assertEquals(Arrays.asList("label", "coverage"), Arrays.asList(all.columnName(0), all.columnName(1)));
+      final RegionDataset binned = RegionDataset.readFromCoverageTrack(file, 1000);
+      assertEquals(1, binned.size());
+      assertEquals((40 * 1.0 + 100 * 3.0) / 140, binned.asNumeric(0).get(0), 1e-9);
+    }
+  }
+
+  public void testPerRegionOverlapping() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("track")) {
+      final File file = new File(dir, "coverage.track");
+      final CoverageParams params = CoverageParams.builder().perRegion(true).create();
+      try (final CoverageTrackWriter writer = new CoverageTrackWriter(new FileOutputStream(file), params)) {
+        writer.init();
+        writer.setRegionLabel("b");
+        writer.finalCoverageRegion("seq1", 1000, 2500, 4);
+        writer.setRegionLabel("c");
+        writer.finalCoverageRegion("seq1", 1200, 1300, 8);
+        writer.setRegionLabel("a");
+        writer.finalCoverageRegion("seq1", 0, 1500, 2);
+      }
+      try (final CoverageTrackReader reader = new CoverageTrackReader(file)) {
+        // All the intervals are kept, but overlapping bases only count once in binned coverage
+        assertEquals(Arrays.asList("0-1500:a:2.0", "1000-2500:b:4.0", "1200-1300:c:8.0"), query(reader, "seq1", 0, 10000));
+        final double[] zoomed = reader.binnedCoverage("seq1", 1000);
+        assertEquals(3, zoomed.length);
+        assertEquals(2.0, zoomed[0], 1e-9);
+        assertEquals(3.0, zoomed[1], 1e-9);
+        assertEquals(4.0, zoomed[2], 1e-9);
+        final double[] direct = reader.binnedCoverage("seq1", 500);
+        assertEquals(5, direct.length);
+        for (int i = 0; i < direct.length; ++i) {
+          assertEquals(i < 3 ? 2.0 : 4.0, direct[i], 1e-9);
+        }
+        for (int i = 0; i < zoomed.length; ++i) {
+          final double expected = 2 * i + 1 < direct.length ? (direct[2 * i] + direct[2 * i + 1]) / 2 : direct[2 * i];
+          assertEquals(expected, zoomed[i], 1e-9);
+        }
+      }
+    }
+  }
+
+  public void testNotTrack() throws IOException {
+    try (final TestDirectory dir = new TestDirectory("track")) {
+      final File file = FileHelper.stringToGzFile("#chrom\tstart\tend\n", new File(dir, "a.bed.gz"));
+      assertFalse(CoverageTrackReader.isTrack(file));
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.coverage;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import com.rtg.scheduler.AbstractDependenciesTest;
+import com.rtg.scheduler.Dependencies;
+import com.rtg.util.integrity.Exam;
+
+/**
+ */
+public class DependenciesCoverageTest extends AbstractDependenciesTest<JobIdCoverage> {
+
+  @Override
+  protected Dependencies<JobIdCoverage> getDependencies() {
+    return new DependenciesCoverage(5);
+  }
+
+  public void testGlobalIntegrity() {
+    Exam.globalIntegrity(getDependencies());
+  }
+
+  public void testAllIds() {
+    final Dependencies<JobIdCoverage> dependencies = getDependencies();
+    assertEquals(1, dependencies.delta());
+    final Set<JobIdCoverage> allIds = allIds(dependencies, 10);
+    assertEquals(10, allIds.size());
+    for (int i = 0; i < 5; ++i) {
+      assertTrue(allIds.contains(new JobIdCoverage(i, CoverageJobType.INCR)));
+      assertTrue(allIds.contains(new JobIdCoverage(i + 1, CoverageJobType.OUT)));
+    }
+  }
+
+  private static JobIdCoverage incr(int time) {
+    return new JobIdCoverage(time, CoverageJobType.INCR);
+  }
+
+  private static JobIdCoverage out(int time) {
+    return new JobIdCoverage(time, CoverageJobType.OUT);
+  }
+
+  public void testFromTo() {
+    final Dependencies<JobIdCoverage> dependencies = getDependencies();
+    assertEquals(0, dependencies.from(incr(2)).size());
+    assertEquals(Arrays.asList(incr(1), incr(0), null), dependencies.from(out(1)));
+    assertEquals(Arrays.asList(incr(3), incr(2), out(2)), dependencies.from(out(3)));
+    assertEquals(Arrays.asList(null, incr(4), out(4)), dependencies.from(out(5)));
+    assertEquals(Arrays.asList(out(1)), dependencies.to(incr(0)));
+    assertEquals(Arrays.asList(out(2), out(3)), dependencies.to(incr(2)));
+    assertEquals(Arrays.asList(out(5)), dependencies.to(incr(4)));
+    assertEquals(Arrays.asList(out(3)), dependencies.to(out(2)));
+    assertEquals(0, dependencies.to(out(5)).size());
+  }
+
+  public void testSingleChunk() {
+    final Dependencies<JobIdCoverage> dependencies = new DependenciesCoverage(1);
+    assertEquals(Arrays.asList(null, incr(0), null), dependencies.from(out(1)));
+    assertEquals(Arrays.asList(out(1)), dependencies.to(incr(0)));
+    assertEquals(2, allIds(dependencies, 3).size());
+  }
+}
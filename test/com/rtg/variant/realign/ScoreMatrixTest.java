@@ -277,6 +277,32 @@ public class ScoreMatrixTest extends AbstractNanoTest {
     assertEquals(1, resizecalls[0]);
   }
 
+  public void testSimpleRowsIdentical() {
+    final String template = "NGGACGTACGTTTNNACGTAGGCATTTACGGACNTTAC";
+    final String read = "ACGTNCGTTAACGTAGCATTTTACGG";
+    for (int maxShift = 0; maxShift <= 6; ++maxShift) {
+      final Environment env = env(read, template, maxShift);
+      final ScoreMatrix flat = new ScoreMatrix(SimplePossibility.SINGLETON, new MockRealignParams());
+      final ScoreMatrix general = new ScoreMatrix(SimplePossibility.SINGLETON, new MockRealignParams()) {
+        @Override
+        protected boolean plainMatch() {
+          return false;
+        }
+      };
+      flat.setEnv(env);
+      general.setEnv(env);
+      Exam.globalIntegrity(flat);
+      for (int i = 0; i <= read.length(); ++i) {
+        for (int j = 0; j < flat.width(); ++j) {
+          assertEquals(Double.doubleToLongBits(general.match(i, j)), Double.doubleToLongBits(flat.match(i, j)));
+          assertEquals(Double.doubleToLongBits(general.insert(i, j)), Double.doubleToLongBits(flat.insert(i, j)));
+          assertEquals(Double.doubleToLongBits(general.delete(i, j)), Double.doubleToLongBits(flat.delete(i, j)));
+        }
+      }
+      assertEquals(Double.doubleToLongBits(general.total()), Double.doubleToLongBits(flat.total()));
+    }
+  }
+
   /**
    * For speed testing with various arithmetic implementations.
    * You need to make this class non-abstract to run this.
@@ -65,6 +65,7 @@ public class SvToolCliTest extends AbstractCliTest {
       TestUtils.containsAllUnwrapped(checkHandleFlagsErr("-o", out.getPath(), "-t", gen.getPath(), "-r", rg.getPath(), aln.getPath(), "-s", "0"), "Expected a positive integer for parameter \"step\"");
       TestUtils.containsAllUnwrapped(checkHandleFlagsErr("-o", out.getPath(), "-t", gen.getPath(), "-r", rg.getPath(), aln.getPath(), "-f", "0"), "Expected a positive integer for parameter \"fine-step\"");
       TestUtils.containsAllUnwrapped(checkHandleFlagsErr("-o", out.getPath(), "-t", gen.getPath(), "-r", rg.getPath(), aln.getPath(), "-s", "1"), "Parameter \"fine-step\" should be smaller than or equal to parameter \"step\"");
+      TestUtils.containsAllUnwrapped(checkHandleFlagsErr("-o", out.getPath(), "-t", gen.getPath(), "-r", rg.getPath(), aln.getPath(), "--Xwindow-size", "0"), "Expected a positive integer for parameter \"Xwindow-size\"");
     }
   }
 
@@ -85,6 +86,7 @@ public class SvToolCliTest extends AbstractCliTest {
         , "-b,", "--Xbin-size=INT", "bin size used by simple signals (Default is 10)"
         , "--Xcorrections=FILE", "file containing per position corrections"
         , "--Xheterozygous", "if set, also include heterozygous bayesian models"
+        , "--Xwindow-size=INT", "if set, scan the reference in windows of this many bases in parallel"
         );
   }
 }
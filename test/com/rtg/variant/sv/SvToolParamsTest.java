@@ -47,6 +47,7 @@ public class SvToolParamsTest extends TestCase {
       assertEquals(def.binSize(), 0);
       assertEquals(def.stepSize(), 0);
       assertEquals(def.fineStepSize(), 0);
+      assertEquals(def.windowSize(), 0);
       assertFalse(def.heterozygous());
       assertFalse(def.outputSimple());
       assertNull(def.correctionsFile());
@@ -63,6 +64,7 @@ public class SvToolParamsTest extends TestCase {
           , " bin-size=" + 0
           , " step-size=" + 0
           , " fine-step-size=" + 0
+          , " window-size=" + 0
           , " correctionsFile=" + null
           );
     } finally {
@@ -75,6 +77,7 @@ public class SvToolParamsTest extends TestCase {
     assertEquals(builder, builder.binSize(1));
     assertEquals(builder, builder.stepSize(1));
     assertEquals(builder, builder.fineStepSize(1));
+    assertEquals(builder, builder.windowSize(1000));
     assertEquals(builder, builder.heterozygous(true));
     assertEquals(builder, builder.outputSimple(true));
     assertEquals(builder, builder.correctionsFile(null));
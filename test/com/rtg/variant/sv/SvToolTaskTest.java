@@ -19,6 +19,9 @@ import static com.rtg.util.StringUtils.FS;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.rtg.launcher.MainResult;
 import com.rtg.reader.ReaderTestUtils;
@@ -172,4 +175,34 @@ public class SvToolTaskTest extends TestCase {
     }
 
   }
+
+  private static String bayesian(File output, File template, File rgstats, File sam, String... args) throws IOException {
+    final List<String> allArgs = new ArrayList<>(Arrays.asList("-r", rgstats.getPath(), "-t", template.getPath(), "-o", output.getPath(), "-s", "10", "--region", "simulatedSequence1:47400-58600", "--fine-step", "1", sam.getPath()));
+    allArgs.addAll(Arrays.asList(args));
+    final MainResult res = MainResult.run(new SvToolCli(), allArgs.toArray(new String[allArgs.size()]));
+    assertEquals(res.err(), 0, res.rc());
+    return StringUtils.grep(FileHelper.gzFileToString(new File(output, "sv_bayesian.tsv.gz")), "^[^#]");
+  }
+
+  public void testWindows() throws Exception {
+    try (final TestDirectory tempDir = new TestDirectory("svtool")) {
+      final File sam = FileHelper.resourceToFile("com/rtg/variant/sv/resources/smallsvMappings.sam.gz", new File(tempDir, "mappings.sam.gz"));
+      FileHelper.resourceToFile("com/rtg/variant/sv/resources/smallsvMappings.sam.gz.tbi", new File(tempDir, "mappings.sam.gz.tbi"));
+      final File rgstats = FileHelper.resourceToFile("com/rtg/variant/sv/resources/rgstats.txt", new File(tempDir, "rgstats.tsv"));
+      final File template = new File(tempDir, "template");
+      assertTrue(template.mkdir());
+      SimpleArchive.unpackArchive(FileHelper.resourceToFile("com/rtg/variant/sv/resources/smallsvTemplate.dwa", new File(tempDir, "template.dwa")), template);
+      final File expBayesFile = FileHelper.resourceToFile("com/rtg/variant/sv/resources/smallsvBayesExp.txt.gz", new File(tempDir, "expBayes.txt.gz"));
+      final String expBayes = StringUtils.grep(FileHelper.gzFileToString(expBayesFile), "^[^#]");
+
+      // A single window covering the region is scanned just as the template would be
+      assertEquals(expBayes, bayesian(new File(tempDir, "whole"), template, rgstats, sam, "--Xheterozygous", "--Xwindow-size", "20000", "--threads", "2"));
+
+      // Smaller windows do not depend on the number of threads
+      final String single = bayesian(new File(tempDir, "single"), template, rgstats, sam, "--Xheterozygous", "--Xwindow-size", "2000", "--threads", "1");
+      final String multiple = bayesian(new File(tempDir, "multiple"), template, rgstats, sam, "--Xheterozygous", "--Xwindow-size", "2000", "--threads", "4");
+      assertEquals(single, multiple);
+      assertTrue(single.startsWith(expBayes.substring(0, expBayes.indexOf(StringUtils.LS) + 1)));
+    }
+  }
 }
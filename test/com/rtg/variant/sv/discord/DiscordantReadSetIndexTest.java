@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017. Real Time Genomics Limited.
+ *
+ * Use of this source code is bound by the Real Time Genomics Limited Software Licence Agreement
+ * for Academic Non-commercial Research Purposes only.
+ *
+ * If you did not receive a license accompanying this file, a copy must first be obtained by email
+ * from support@realtimegenomics.com.  On downloading, using and/or continuing to use this source
+ * code you accept the terms of that license agreement and any amendments to those terms that may
+ * be made from time to time by Real Time Genomics Limited.
+ */
+package com.rtg.variant.sv.discord;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class DiscordantReadSetIndexTest extends TestCase {
+
+  private static BreakpointConstraint constraint(String yName, int x, int y) {
+    return new BreakpointConstraint(new BreakpointGeometry(Orientation.UU, "x", yName, x, x + 10, y, y + 10, x + y + 2, x + y + 12), 41.0, 12.3);
+  }
+
+  public void testEmpty() {
+    final DiscordantReadSetIndex index = new DiscordantReadSetIndex();
+    assertEquals(0, index.size());
+    assertNull(index.first());
+    assertTrue(index.removeOverlapping(constraint("y", 10, 30)).isEmpty());
+    assertEquals("[]", index.toString());
+  }
+
+  public void testAddRemove() {
+    final DiscordantReadSetIndex index = new DiscordantReadSetIndex();
+    final DiscordantReadSet a = new DiscordantReadSet("x", 100, constraint("y", 20, 30));
+    final DiscordantReadSet b = new DiscordantReadSet("x", 100, constraint("y", 10, 1000));
+    final DiscordantReadSet c = new DiscordantReadSet("x", 100, constraint("z", 10, 30));
+    index.add(a);
+    index.add(b);
+    index.add(c);
+    assertEquals(3, index.size());
+    final List<DiscordantReadSet> over = index.removeOverlapping(constraint("y", 14, 34));
+    assertEquals(1, over.size());
+    assertTrue(over.get(0) == a);
+    assertEquals(2, index.size());
+    index.remove(b);
+    assertTrue(index.first() == c);
+    index.clear();
+    assertEquals(0, index.size());
+    assertTrue(index.removeOverlapping(constraint("z", 14, 34)).isEmpty());
+  }
+
+  // Compare against checking every read set, as done before the index
+  public void testMatchesExhaustiveSearch() {
+    final Random r = new Random(42);
+    final DiscordantReadSetIndex index = new DiscordantReadSetIndex();
+    final TreeSet<DiscordantReadSet> all = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+    for (int i = 0; i < 2000; ++i) {
+      final BreakpointConstraint c = constraint(r.nextBoolean() ? "y" : "z", i / 4 + r.nextInt(20), r.nextInt(500));
+      final List<DiscordantReadSet> expected = new ArrayList<>();
+      final Iterator<DiscordantReadSet> it = all.iterator();
+      while (it.hasNext()) {
+        final DiscordantReadSet drs = it.next();
+        if (drs.belongs(c)) {
+          it.remove();
+          expected.add(drs);
+        }
+      }
+      final List<DiscordantReadSet> actual = index.removeOverlapping(c);
+      assertEquals(expected.size(), actual.size());
+      for (int k = 0; k < expected.size(); ++k) {
+        assertTrue(expected.get(k) == actual.get(k));
+      }
+      final DiscordantReadSet drs = new DiscordantReadSet("x", 40, c);
+      for (final DiscordantReadSet over : actual) {
+        drs.addAll(over);
+      }
+      all.add(drs);
+      index.add(drs);
+      assertEquals(all.size(), index.size());
+      // Flush as the tool would
+      while (!all.isEmpty() && all.first().flushPosition() < i / 4) {
+        final DiscordantReadSet first = all.pollFirst();
+        assertTrue(first == index.first());
+        index.remove(first);
+      }
+    }
+  }
+}
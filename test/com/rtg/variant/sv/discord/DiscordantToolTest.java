@@ -21,8 +21,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import com.rtg.launcher.OutputParams;
 import com.rtg.launcher.SequenceParams;
@@ -216,7 +214,7 @@ public class DiscordantToolTest extends TestCase {
   public void testProcessConstraint0() {
     final BreakpointConstraint constraint = new BreakpointConstraint(new BreakpointGeometry(Orientation.UU, "x", "y", 10, 20, 30, 40, 42, 52), 41.0, 12.3);
     //System.err.println(constraint.gnuPlot());
-    final SortedSet<DiscordantReadSet> readSets = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+    final DiscordantReadSetIndex readSets = new DiscordantReadSetIndex();
     DiscordantTool.processConstraint(constraint, readSets, "y", 100, null);
     final String exp = ""
         + "[DiscordantReadSet:" + LS
@@ -234,7 +232,7 @@ public class DiscordantToolTest extends TestCase {
     final BreakpointConstraint c0 = new BreakpointConstraint(new BreakpointGeometry(Orientation.UU, "x", "y", 10, 20, 30, 40, 42, 52), 41.0, 12.3);
     final BreakpointConstraint c1 = new BreakpointConstraint(new BreakpointGeometry(Orientation.UU, "x", "y", 20, 30, 40, 50, 62, 72), 41.0, 12.3);
     //System.err.println(c0.gnuPlot());
-    final SortedSet<DiscordantReadSet> readSets = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+    final DiscordantReadSetIndex readSets = new DiscordantReadSetIndex();
     DiscordantTool.processConstraint(c0, readSets, "x", 100, null);
     DiscordantTool.processConstraint(c1, readSets, "x", 100, null);
     final String exp = ""
@@ -259,7 +257,7 @@ public class DiscordantToolTest extends TestCase {
     final BreakpointConstraint c2 = new BreakpointConstraint(new BreakpointGeometry(Orientation.UU, "x", "y", 14, 24, 34, 44, 50, 60), 41.0, 12.3);
     //System.err.println(c0.gnuPlot());
     //System.err.println(c2.gnuPlot());
-    final SortedSet<DiscordantReadSet> readSets = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+    final DiscordantReadSetIndex readSets = new DiscordantReadSetIndex();
     DiscordantTool.processConstraint(c0, readSets, "x", 100, null);
     DiscordantTool.processConstraint(c2, readSets, "x", 100, null);
     final String exp = ""
@@ -282,7 +280,7 @@ public class DiscordantToolTest extends TestCase {
     //System.err.println(c0.gnuPlot());
     //System.err.println(c1.gnuPlot());
     //System.err.println(c2.gnuPlot());
-    final SortedSet<DiscordantReadSet> readSets = new TreeSet<>(new DiscordantReadSet.FlushPositionComparator());
+    final DiscordantReadSetIndex readSets = new DiscordantReadSetIndex();
     DiscordantTool.processConstraint(c0, readSets, "x", 100, null);
     DiscordantTool.processConstraint(c1, readSets, "x", 100, null);
     DiscordantTool.processConstraint(c2, readSets, "x", 100, null);